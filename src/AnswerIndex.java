@@ -0,0 +1,153 @@
+import java.util.*;
+
+/**
+ * Finds every answer in a corpus within a few edits of a word, using the
+ * symmetric delete method (SymSpell). Each answer is stored under every string
+ * that can be made from it by deleting up to maxDistance letters; two words
+ * within that many edits of each other always share one of those strings, so a
+ * search only has to look up the deletions of the query and then check the few
+ * answers found there. Deletions are stored as 32-bit hashes in an open
+ * addressing table, so the index holds no strings beyond the answers themselves.
+ */
+public class AnswerIndex {
+    private static final int EMPTY = 0;
+
+    private final int maxDistance;
+    private final String[] keys;
+    private final int[][] riddleIds;
+    private final int[] hashes;
+    private final int[] keyIndexes;
+    private final int mask;
+
+    /**
+     * An answer found by a search
+     * @param key the canonical answer
+     * @param distance how many edits it is from the query
+     * @param riddleIds the riddles with this answer
+     */
+    public record Match(String key, int distance, int[] riddleIds) {}
+
+    private AnswerIndex(int maxDistance, String[] keys, int[][] riddleIds, int variantCount) {
+        this.maxDistance = maxDistance;
+        this.keys = keys;
+        this.riddleIds = riddleIds;
+        int capacity = Integer.highestOneBit(Math.max(4, variantCount * 2 - 1)) << 1;
+        this.hashes = new int[capacity];
+        this.keyIndexes = new int[capacity];
+        this.mask = capacity - 1;
+    }
+
+    /**
+     * Builds the index for every answer and alternate in a corpus
+     * @param corpus The corpus
+     * @param maxDistance The largest number of edits searches will ask for
+     * @return The index
+     */
+    public static AnswerIndex build(Corpus corpus, int maxDistance) {
+        LinkedHashMap<String, int[]> byKey = new LinkedHashMap<>();
+        for (int id = 0; id < corpus.size(); id++) {
+            for (String key : corpus.get(id).answerKeys()) {
+                int[] ids = byKey.get(key);
+                if (ids == null) {
+                    byKey.put(key, new int[] { id });
+                }
+                else {
+                    ids = Arrays.copyOf(ids, ids.length + 1);
+                    ids[ids.length - 1] = id;
+                    byKey.put(key, ids);
+                }
+            }
+        }
+        String[] keys = byKey.keySet().toArray(new String[0]);
+        int[][] riddleIds = byKey.values().toArray(new int[0][]);
+
+        List<Set<String>> variants = new ArrayList<>(keys.length);
+        int variantCount = 0;
+        for (String key : keys) {
+            Set<String> deletes = deletions(key, maxDistance);
+            variants.add(deletes);
+            variantCount += deletes.size();
+        }
+        AnswerIndex index = new AnswerIndex(maxDistance, keys, riddleIds, variantCount);
+        for (int k = 0; k < keys.length; k++) {
+            for (String variant : variants.get(k)) {
+                index.insert(hash(variant), k);
+            }
+            variants.set(k, null);
+        }
+        return index;
+    }
+
+    /**
+     * Finds every answer within some number of edits of a word
+     * @param query The canonical word to look for
+     * @param distance The most edits allowed, at most the distance the index was built for
+     * @return The answers found, closest first
+     */
+    public List<Match> search(String query, int distance) {
+        if (distance > maxDistance) {
+            throw new IllegalArgumentException("index was built for up to " + maxDistance + " edits");
+        }
+        List<Match> matches = new ArrayList<>();
+        Set<Integer> checked = new HashSet<>();
+        for (String variant : deletions(query, distance)) {
+            int hash = hash(variant);
+            for (int slot = hash & mask; hashes[slot] != EMPTY; slot = (slot + 1) & mask) {
+                if (hashes[slot] == hash && checked.add(keyIndexes[slot])) {
+                    String key = keys[keyIndexes[slot]];
+                    int edits = NearMiss.distance(query, key, distance);
+                    if (edits <= distance) {
+                        matches.add(new Match(key, edits, riddleIds[keyIndexes[slot]].clone()));
+                    }
+                }
+            }
+        }
+        matches.sort(Comparator.comparingInt(Match::distance));
+        return matches;
+    }
+
+    /**
+     * @return The number of distinct answers in the index
+     */
+    public int size() {
+        return keys.length;
+    }
+
+    private void insert(int hash, int keyIndex) {
+        int slot = hash & mask;
+        while (hashes[slot] != EMPTY) {
+            slot = (slot + 1) & mask;
+        }
+        hashes[slot] = hash;
+        keyIndexes[slot] = keyIndex;
+    }
+
+    /**
+     * Every string made by deleting up to some number of letters, including the word itself
+     */
+    private static Set<String> deletions(String word, int distance) {
+        Set<String> result = new HashSet<>();
+        result.add(word);
+        List<String> frontier = List.of(word);
+        for (int d = 0; d < distance; d++) {
+            List<String> next = new ArrayList<>();
+            for (String current : frontier) {
+                for (int i = 0; i < current.length(); i++) {
+                    String deleted = current.substring(0, i) + current.substring(i + 1);
+                    if (result.add(deleted)) {
+                        next.add(deleted);
+                    }
+                }
+            }
+            frontier = next;
+        }
+        return result;
+    }
+
+    /** String hash spread with a finalizer and kept clear of the empty marker */
+    private static int hash(String text) {
+        int h = text.hashCode() * 0x9E3779B9;
+        h ^= h >>> 16;
+        return h == EMPTY ? 1 : h;
+    }
+}
@@ -0,0 +1,181 @@
+import java.text.Normalizer;
+import java.util.*;
+
+/**
+ * Decides whether a guess counts as the answer to a riddle.
+ * Both the answers and the guess are reduced to a canonical key: surrounding
+ * whitespace trimmed, accents removed, lower case, and simple plurals folded
+ * to the singular (boats -> boat, boxes -> box, berries -> berry, taxis ->
+ * taxi, and horse and horses both -> hors). A riddle's keys are worked out
+ * once when it is loaded, so checking a guess is one pass over the guess and
+ * a set lookup.
+ *
+ * Alternate answers are written in riddles.txt after the main answer,
+ * separated by '|', e.g. "YARDSTICK|RULER: ...". An author can rate a riddle
+ * from 1 (easiest) to 5 (hardest) by ending the answers with '#' and the
+ * tier, e.g. "YARDSTICK|RULER#2: ...".
+ */
+public class AnswerMatcher {
+    public static final char ALTERNATE_SEPARATOR = '|';
+    public static final char TIER_MARK = '#';
+    /** Highest tier an author can give a riddle */
+    public static final int MAX_TIER = 5;
+
+    private AnswerMatcher() {
+    }
+
+    /**
+     * Splits an answer as written in riddles.txt into the main answer and its alternates
+     * @param written The text before the ':' in riddles.txt
+     * @return The answers, main answer first, never empty
+     */
+    public static List<String> parseAnswers(String written) {
+        written = stripTier(written);
+        List<String> answers = new ArrayList<>(1);
+        int start = 0;
+        while (start <= written.length()) {
+            int end = written.indexOf(ALTERNATE_SEPARATOR, start);
+            if (end < 0) {
+                end = written.length();
+            }
+            String answer = written.substring(start, end).trim();
+            if (!answer.isEmpty()) {
+                answers.add(answer);
+            }
+            start = end + 1;
+        }
+        if (answers.isEmpty()) {
+            answers.add(written.trim());
+        }
+        return answers;
+    }
+
+    /**
+     * @param written The text before the ':' in riddles.txt
+     * @return The main answer, without any alternates
+     */
+    public static String primaryAnswer(String written) {
+        if (written.indexOf(TIER_MARK) >= 0) {
+            written = stripTier(written).trim();
+        }
+        return written.indexOf(ALTERNATE_SEPARATOR) < 0 ? written : parseAnswers(written).get(0);
+    }
+
+    /**
+     * @param written The text before the ':' in riddles.txt
+     * @return The tier the author gave the riddle, or 0 if it isn't rated
+     */
+    public static int parseTier(String written) {
+        int mark = written.lastIndexOf(TIER_MARK);
+        if (mark < 0) {
+            return 0;
+        }
+        String tier = written.substring(mark + 1).trim();
+        if (tier.length() != 1 || tier.charAt(0) < '1' || tier.charAt(0) > '0' + MAX_TIER) {
+            return 0;
+        }
+        return tier.charAt(0) - '0';
+    }
+
+    private static String stripTier(String written) {
+        return parseTier(written) == 0 ? written : written.substring(0, written.lastIndexOf(TIER_MARK));
+    }
+
+    /**
+     * Works out the canonical keys for a riddle's answers
+     * @param answer The main answer
+     * @param alternates Other answers that also count
+     * @return Every key a guess may reduce to
+     */
+    public static Set<String> keysFor(String answer, List<String> alternates) {
+        if (alternates.isEmpty()) {
+            return Set.of(canonical(answer));
+        }
+        Set<String> keys = new HashSet<>();
+        keys.add(canonical(answer));
+        for (String alternate : alternates) {
+            keys.add(canonical(alternate));
+        }
+        return Set.copyOf(keys);
+    }
+
+    /**
+     * Reduces a guess or answer to the form answers are compared in
+     * @param text The guess or answer
+     * @return The canonical key
+     */
+    public static String canonical(String text) {
+        int start = 0;
+        int end = text.length();
+        while (start < end && Character.isWhitespace(text.charAt(start))) {
+            start++;
+        }
+        while (end > start && Character.isWhitespace(text.charAt(end - 1))) {
+            end--;
+        }
+        char[] chars = new char[end - start];
+        int length = 0;
+        for (int i = start; i < end; i++) {
+            char c = text.charAt(i);
+            if (c >= 0x80) {
+                return canonicalUnicode(text.substring(start, end));
+            }
+            chars[length++] = c >= 'A' && c <= 'Z' ? (char) (c + ('a' - 'A')) : c;
+        }
+        return singular(chars, length);
+    }
+
+    /**
+     * Slow path for guesses with accents or other non-ASCII letters
+     */
+    private static String canonicalUnicode(String text) {
+        String decomposed = Normalizer.normalize(text, Normalizer.Form.NFKD);
+        char[] chars = new char[decomposed.length()];
+        int length = 0;
+        for (int i = 0; i < decomposed.length(); i++) {
+            char c = decomposed.charAt(i);
+            if (Character.getType(c) != Character.NON_SPACING_MARK) {
+                chars[length++] = c;
+            }
+        }
+        String lower = new String(chars, 0, length).toLowerCase(Locale.ROOT);
+        return singular(lower.toCharArray(), lower.length());
+    }
+
+    /**
+     * Folds a simple English plural to the singular. A word ending in a sibilant
+     * and e also loses the e, whether it is a singular (horse) or what is left
+     * of a plural (horses, boxes), since the -es can't be told apart from a
+     * stem's own e.
+     */
+    private static String singular(char[] chars, int length) {
+        if (length > 3 && chars[length - 1] == 's') {
+            char before = chars[length - 2];
+            if (before == 's' || before == 'u') {
+                // glass, bus: not plurals
+            }
+            else if (length > 4 && before == 'e' && chars[length - 3] == 'i') {
+                // berries -> berry
+                chars[length - 3] = 'y';
+                length -= 2;
+            }
+            else {
+                // boats -> boat, taxis -> taxi
+                length -= 1;
+            }
+        }
+        if (length > 2 && chars[length - 1] == 'e' && endsInSibilant(chars, length - 1)) {
+            // horse, horses -> hors; boxes -> box
+            length -= 1;
+        }
+        return new String(chars, 0, length);
+    }
+
+    private static boolean endsInSibilant(char[] chars, int length) {
+        char last = chars[length - 1];
+        if (last == 's' || last == 'x' || last == 'z') {
+            return true;
+        }
+        return length > 1 && last == 'h' && (chars[length - 2] == 'c' || chars[length - 2] == 's');
+    }
+}
@@ -0,0 +1,64 @@
+import static org.junit.Assert.*;
+import org.junit.Test;
+import java.util.*;
+
+public class AnswerMatcherTests {
+
+    // Test 1: Case, whitespace and accents don't matter
+    @Test
+    public void testCanonicalForm() {
+        assertEquals("anchor", AnswerMatcher.canonical("  AnChOr \t"));
+        assertEquals("cafe", AnswerMatcher.canonical("Caf\u00e9"));
+        assertEquals("", AnswerMatcher.canonical("   "));
+    }
+
+    // Test 2: Simple plurals fold to the singular
+    @Test
+    public void testPlurals() {
+        assertEquals("boat", AnswerMatcher.canonical("boats"));
+        assertEquals("box", AnswerMatcher.canonical("BOXES"));
+        assertEquals("berry", AnswerMatcher.canonical("berries"));
+        assertEquals("glass", AnswerMatcher.canonical("glasses"));
+        assertEquals("Words ending in ss stay", "darkness", AnswerMatcher.canonical("darkness"));
+        assertEquals("Short words stay", "bus", AnswerMatcher.canonical("bus"));
+        assertEquals("Singular and plural meet", AnswerMatcher.canonical("shoe"), AnswerMatcher.canonical("shoes"));
+    }
+
+    // Test 3: Alternate answers are split out of riddles.txt keys
+    @Test
+    public void testParseAnswers() {
+        assertEquals(List.of("YARDSTICK", "RULER"), AnswerMatcher.parseAnswers("YARDSTICK| RULER"));
+        assertEquals(List.of("EGG"), AnswerMatcher.parseAnswers("EGG"));
+        assertEquals("YARDSTICK", AnswerMatcher.primaryAnswer("YARDSTICK|RULER"));
+    }
+
+    // Test 4: Riddles accept plurals and alternates from the real corpus
+    @Test
+    public void testGameAcceptsAlternates() {
+        Riddle game = new Riddle();
+        game.loadRiddles();
+        RiddleEntry yardstick = game.findRiddle(game.getRiddleMap().get("YARDSTICK"));
+        assertTrue("Main answer", game.isCorrectAnswer(yardstick, "yardstick"));
+        assertTrue("Alternate answer", game.isCorrectAnswer(yardstick, " Rulers "));
+        assertFalse("Wrong answer", game.isCorrectAnswer(yardstick, "tape"));
+        RiddleEntry anchor = game.findRiddle(game.getRiddleMap().get("ANCHOR"));
+        assertTrue("Plural of the answer", game.isCorrectAnswer(anchor, "anchors"));
+    }
+
+    // Test 5: Plurals of words ending in a sibilant and e, or in i, match their singular
+    @Test
+    public void testIrregularPluralFolding() {
+        RiddleEntry horse = new RiddleEntry(0, "HORSE", "WHAT RUNS A RACE?", List.of());
+        assertTrue(GameSession.isCorrectAnswer(horse, "horse"));
+        assertTrue(GameSession.isCorrectAnswer(horse, "Horses"));
+        RiddleEntry taxi = new RiddleEntry(1, "TAXI", "WHAT DO YOU HAIL?", List.of(), List.of("SKI"));
+        assertTrue(GameSession.isCorrectAnswer(taxi, "taxis"));
+        assertTrue(GameSession.isCorrectAnswer(taxi, "skis"));
+        assertTrue(GameSession.isCorrectAnswer(taxi, "taxi"));
+        RiddleEntry house = new RiddleEntry(2, "HOUSE", "WHERE DO YOU LIVE?", List.of(), List.of("ROSE"));
+        assertTrue(GameSession.isCorrectAnswer(house, "houses"));
+        assertTrue(GameSession.isCorrectAnswer(house, "roses"));
+        assertTrue("Singular and plural still meet", GameSession.isCorrectAnswer(house, "rose"));
+        assertFalse(GameSession.isCorrectAnswer(horse, "hose"));
+    }
+}
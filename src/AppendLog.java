@@ -0,0 +1,460 @@
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+
+/**
+ * A durable, append-only log of byte records split into segment files.
+ * Callers on any thread hand records to append(); one writer thread takes
+ * everything that has queued up since its last sync, writes it in one go and
+ * syncs once for the whole batch (group commit), so a thousand sessions
+ * finishing together cost a handful of fsyncs instead of a thousand.
+ * <p>
+ * Every record gets the next sequence number and is framed as
+ * [sequence][length][CRC32][payload]. A crash can only tear the last record;
+ * open() finds the end of the last whole record and cuts the file there.
+ * Segments are named after the first sequence number they hold, so once a
+ * snapshot covers everything up to some sequence, the segments before it can
+ * be deleted.
+ * <p>
+ * A write that fails leaves the log failed: the records of that batch and every
+ * later append() and roll() fail too. Sequence numbers are given out when records
+ * are queued, so carrying on would leave a gap or a torn record in the file that
+ * open() would stop at, dropping the records acknowledged after it.
+ */
+public class AppendLog implements Closeable {
+    /** Segment size at which the writer moves on to a new file */
+    public static final long DEFAULT_SEGMENT_BYTES = 16 * 1024 * 1024;
+
+    private static final int HEADER_SIZE = 16;
+    private static final int MAX_BATCH = 4096;
+    private static final String SUFFIX = ".log";
+
+    /**
+     * One record read back from the log
+     * @param sequence the record's sequence number
+     * @param payload the bytes that were appended
+     */
+    public record Entry(long sequence, byte[] payload) {}
+
+    /** A record or command waiting for the writer thread; a null payload is a command */
+    private record Pending(long sequence, byte[] payload, CompletableFuture<Long> done) {}
+
+    private static final long ROLL = -1;
+    private static final long CLOSE = -2;
+
+    private final Path directory;
+    private final String name;
+    private final long segmentBytes;
+    private final TreeMap<Long, Path> segments = new TreeMap<>();
+    private final LinkedBlockingQueue<Pending> queue = new LinkedBlockingQueue<>();
+    private final Thread writer;
+    private FileChannel channel;
+    private long segmentSize;
+    private long nextSequence;
+    private long nextToWrite;
+    private boolean closed;
+    private IOException failure;
+    private volatile long syncCount;
+    private ByteBuffer buffer = ByteBuffer.allocateDirect(64 * 1024);
+
+    private AppendLog(Path directory, String name, long segmentBytes) {
+        this.directory = directory;
+        this.name = name;
+        this.segmentBytes = segmentBytes;
+        this.writer = new Thread(this::writeLoop, "append-log-" + name);
+        this.writer.setDaemon(true);
+    }
+
+    /**
+     * Opens a log, creating it if needed and cutting off any record torn by a crash
+     * @param directory The directory holding the segment files
+     * @param name The segment file prefix
+     * @param segmentBytes Size at which to start a new segment
+     * @param firstSequence The lowest sequence number new records may get, for a log whose
+     *                      segments have all been compacted away
+     * @return The open log
+     * @throws IOException if the segments can't be read or repaired
+     */
+    public static AppendLog open(Path directory, String name, long segmentBytes, long firstSequence) throws IOException {
+        Files.createDirectories(directory);
+        AppendLog log = new AppendLog(directory, name, segmentBytes);
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, name + "-*" + SUFFIX)) {
+            for (Path file : files) {
+                String fileName = file.getFileName().toString();
+                String number = fileName.substring(name.length() + 1, fileName.length() - SUFFIX.length());
+                try {
+                    log.segments.put(Long.parseLong(number), file);
+                }
+                catch (NumberFormatException e) {
+                    // not one of ours
+                }
+            }
+        }
+        long end = log.repair();
+        log.nextSequence = Math.max(end, Math.max(1, firstSequence));
+        log.nextToWrite = log.nextSequence;
+        if (log.segments.isEmpty() || end != log.nextSequence) {
+            log.openSegment(log.nextSequence);
+        }
+        else {
+            Map.Entry<Long, Path> last = log.segments.lastEntry();
+            log.channel = FileChannel.open(last.getValue(), StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+            log.segmentSize = log.channel.size();
+        }
+        log.writer.start();
+        return log;
+    }
+
+    /**
+     * Checks every record, truncating each segment after its last whole record
+     * @return The sequence number that follows the last record, or 0 for an empty log
+     */
+    private long repair() throws IOException {
+        long expected = 0;
+        Iterator<Map.Entry<Long, Path>> files = segments.entrySet().iterator();
+        while (files.hasNext()) {
+            Map.Entry<Long, Path> segment = files.next();
+            if (segment.getKey() < expected) {
+                // Overlaps records already read, so it can't have been written by this log
+                Files.delete(segment.getValue());
+                files.remove();
+                continue;
+            }
+            long[] end = scan(segment.getValue(), segment.getKey(), null);
+            try (FileChannel file = FileChannel.open(segment.getValue(), StandardOpenOption.WRITE)) {
+                if (file.size() > end[0]) {
+                    file.truncate(end[0]);
+                    file.force(true);
+                }
+            }
+            expected = end[1];
+        }
+        return expected;
+    }
+
+    /**
+     * Reads the whole records in one segment
+     * @return The byte offset after the last whole record and the sequence number that would follow it
+     */
+    private static long[] scan(Path file, long firstSequence, Consumer<Entry> visitor) throws IOException {
+        long offset = 0;
+        long sequence = firstSequence;
+        long fileSize = Files.size(file);
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            CRC32 crc = new CRC32();
+            while (true) {
+                long recordSequence;
+                int length;
+                int checksum;
+                try {
+                    recordSequence = in.readLong();
+                    length = in.readInt();
+                    checksum = in.readInt();
+                }
+                catch (EOFException e) {
+                    break;
+                }
+                if (recordSequence != sequence || length < 0 || offset + HEADER_SIZE + length > fileSize) {
+                    break;
+                }
+                byte[] payload = new byte[length];
+                try {
+                    in.readFully(payload);
+                }
+                catch (EOFException e) {
+                    break;
+                }
+                crc.reset();
+                crc.update(payload);
+                if ((int) crc.getValue() != checksum) {
+                    break;
+                }
+                if (visitor != null) {
+                    visitor.accept(new Entry(recordSequence, payload));
+                }
+                offset += HEADER_SIZE + length;
+                sequence++;
+            }
+        }
+        return new long[] { offset, sequence };
+    }
+
+    /**
+     * Reads back every record after a sequence number, oldest first. Call it before appending.
+     * @param afterSequence Records up to and including this one are skipped
+     * @param visitor Called for each record
+     * @throws IOException if a segment can't be read
+     */
+    public void replay(long afterSequence, Consumer<Entry> visitor) throws IOException {
+        List<Map.Entry<Long, Path>> files;
+        synchronized (segments) {
+            files = new ArrayList<>(segments.entrySet());
+        }
+        for (int i = 0; i < files.size(); i++) {
+            if (i + 1 < files.size() && files.get(i + 1).getKey() <= afterSequence + 1) {
+                continue;
+            }
+            scan(files.get(i).getValue(), files.get(i).getKey(), entry -> {
+                if (entry.sequence() > afterSequence) {
+                    visitor.accept(entry);
+                }
+            });
+        }
+    }
+
+    /**
+     * Adds a record to the log
+     * @param payload The record
+     * @return Completes with the record's sequence number once it has been synced to disk
+     */
+    public CompletableFuture<Long> append(byte[] payload) {
+        CompletableFuture<Long> done = new CompletableFuture<>();
+        synchronized (this) {
+            if (refused(done)) {
+                return done;
+            }
+            queue.add(new Pending(nextSequence++, payload, done));
+        }
+        return done;
+    }
+
+    /** Fails a future if the log is closed or has failed */
+    private boolean refused(CompletableFuture<Long> done) {
+        if (closed) {
+            done.completeExceptionally(new IOException("log is closed"));
+            return true;
+        }
+        if (failure != null) {
+            done.completeExceptionally(new IOException("log failed on an earlier write", failure));
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * @return The sequence number of the last record handed to append(), or 0 if there is none
+     */
+    public synchronized long lastSequence() {
+        return nextSequence - 1;
+    }
+
+    /**
+     * Starts a new segment after every record appended so far, so they can be deleted once compacted
+     * @return Completes once the new segment is open
+     */
+    public CompletableFuture<Long> roll() {
+        CompletableFuture<Long> done = new CompletableFuture<>();
+        synchronized (this) {
+            if (!refused(done)) {
+                queue.add(new Pending(ROLL, null, done));
+            }
+        }
+        return done;
+    }
+
+    /**
+     * Deletes segments that only hold records up to a sequence number. The segment being
+     * written to is always kept.
+     * @param sequence The last sequence number that is no longer needed
+     * @return The number of segments deleted
+     * @throws IOException if a segment can't be deleted
+     */
+    public int deleteThrough(long sequence) throws IOException {
+        int deleted = 0;
+        synchronized (segments) {
+            while (segments.size() > 1) {
+                Map.Entry<Long, Path> first = segments.firstEntry();
+                long nextStart = segments.higherKey(first.getKey());
+                if (nextStart - 1 > sequence) {
+                    break;
+                }
+                Files.deleteIfExists(first.getValue());
+                segments.remove(first.getKey());
+                deleted++;
+            }
+        }
+        return deleted;
+    }
+
+    /**
+     * @return The number of segment files
+     */
+    public int segmentCount() {
+        synchronized (segments) {
+            return segments.size();
+        }
+    }
+
+    /**
+     * @return The number of fsyncs done, one per batch of records
+     */
+    public long getSyncCount() {
+        return syncCount;
+    }
+
+    /**
+     * Waits for every record already appended to be synced, then closes the log
+     */
+    @Override
+    public void close() throws IOException {
+        CompletableFuture<Long> done = new CompletableFuture<>();
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            queue.add(new Pending(CLOSE, null, done));
+        }
+        try {
+            done.join();
+            writer.join();
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        catch (CompletionException e) {
+            throw new IOException("error closing log", e.getCause());
+        }
+    }
+
+    private void writeLoop() {
+        List<Pending> batch = new ArrayList<>();
+        boolean running = true;
+        while (running) {
+            try {
+                batch.add(queue.take());
+            }
+            catch (InterruptedException e) {
+                continue;
+            }
+            queue.drainTo(batch, MAX_BATCH - 1);
+            IOException failed;
+            synchronized (this) {
+                failed = failure;
+            }
+            if (failed != null) {
+                running = !reject(batch, failed);
+                batch.clear();
+                continue;
+            }
+            try {
+                boolean written = false;
+                for (Pending pending : batch) {
+                    if (pending.payload() != null) {
+                        if (segmentSize >= segmentBytes) {
+                            flush(written);
+                            written = false;
+                            openSegment(pending.sequence());
+                        }
+                        write(pending);
+                        written = true;
+                    }
+                    else {
+                        flush(written);
+                        written = false;
+                        if (pending.sequence() == ROLL) {
+                            if (segmentSize > 0) {
+                                openSegment(nextToWrite);
+                            }
+                        }
+                        else {
+                            channel.close();
+                            running = false;
+                        }
+                    }
+                }
+                flush(written);
+                for (Pending pending : batch) {
+                    pending.done().complete(pending.payload() != null ? pending.sequence() : 0L);
+                }
+            }
+            catch (IOException e) {
+                synchronized (this) {
+                    failure = e;
+                }
+                running = !reject(batch, e) && running;
+            }
+            batch.clear();
+        }
+    }
+
+    /**
+     * Fails every record and roll in a batch after a write error, and closes the file if it holds the close
+     * @return true if the batch held the close
+     */
+    private boolean reject(List<Pending> batch, IOException cause) {
+        boolean closing = false;
+        for (Pending pending : batch) {
+            if (pending.payload() == null && pending.sequence() == CLOSE) {
+                try {
+                    channel.close();
+                }
+                catch (IOException e) {
+                    // the log has already failed
+                }
+                closing = true;
+                pending.done().complete(0L);
+            }
+            else {
+                pending.done().completeExceptionally(cause);
+            }
+        }
+        return closing;
+    }
+
+    private void write(Pending pending) throws IOException {
+        int size = HEADER_SIZE + pending.payload().length;
+        if (buffer.remaining() < size) {
+            buffer.flip();
+            writeFully();
+            if (buffer.capacity() < size) {
+                buffer = ByteBuffer.allocateDirect(Integer.highestOneBit(size) << 1);
+            }
+        }
+        CRC32 crc = new CRC32();
+        crc.update(pending.payload());
+        buffer.putLong(pending.sequence()).putInt(pending.payload().length).putInt((int) crc.getValue()).put(pending.payload());
+        segmentSize += size;
+        nextToWrite = pending.sequence() + 1;
+    }
+
+    private void flush(boolean sync) throws IOException {
+        buffer.flip();
+        writeFully();
+        if (sync) {
+            channel.force(false);
+            syncCount++;
+        }
+    }
+
+    private void writeFully() throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    private void openSegment(long firstSequence) throws IOException {
+        if (channel != null) {
+            channel.close();
+        }
+        Path file = directory.resolve(String.format("%s-%020d%s", name, firstSequence, SUFFIX));
+        channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        segmentSize = channel.size();
+        synchronized (segments) {
+            segments.put(firstSequence, file);
+        }
+        // Make the new file's directory entry durable too
+        try (FileChannel dir = FileChannel.open(directory, StandardOpenOption.READ)) {
+            dir.force(true);
+        }
+        catch (IOException e) {
+            // not every platform can sync a directory
+        }
+    }
+}
@@ -0,0 +1,258 @@
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Plays scripted games without a console, for grading and regression tests.
+ * Each line of a script is one session: a seed, then the lines the player
+ * types, all separated by tabs. The seed picks the riddles and messages, so a
+ * script replays exactly. Guesses and answers to hint offers are just typed
+ * lines; a script that runs out before the game ends quits it.
+ * <pre>
+ * # seed  inputs...
+ * 42      EGG     piano   n       BREATH
+ * </pre>
+ * One JSON object per session is written per line, in script order.
+ * <p>
+ * Reading, playing and writing overlap: a reader thread parses sessions and
+ * hands them to a pool of workers, and the results are written as they
+ * complete. The queue between them is bounded so a huge script never sits in
+ * memory all at once.
+ *
+ * <pre>java Riddle --batch [script|-] [--out=results.jsonl] [--threads=cores]</pre>
+ */
+public class BatchRunner {
+    /** Sessions read ahead of the writer */
+    static final int QUEUE_SIZE = 4096;
+
+    private static final GameOutput DISCARD = (bytes, offset, length) -> {};
+    private static final CompletableFuture<String> END = CompletableFuture.completedFuture(null);
+
+    private final Corpus corpus;
+    private final GameListener listener;
+
+    /**
+     * @param corpus The corpus to deal riddles from
+     * @param listener Also told about every session, e.g. the game's metrics, or null
+     */
+    public BatchRunner(Corpus corpus, GameListener listener) {
+        this.corpus = corpus;
+        this.listener = listener;
+    }
+
+    public static void main(String[] args) throws IOException {
+        Riddle game = new Riddle();
+        game.setDiagnostics(System.err);
+        if (!game.loadCompiledCorpus()) {
+            game.loadCorpus();
+        }
+        run(game, args);
+    }
+
+    /**
+     * Runs a script from the command line against a loaded game, reporting to the game's metrics
+     * @param game The game whose corpus and metrics to use
+     * @param args The script file or - for standard input, then --out=file and --threads=n
+     * @throws IOException if the script can't be read or the results can't be written
+     */
+    public static void run(Riddle game, String... args) throws IOException {
+        String script = "-";
+        String outFile = null;
+        int threads = Runtime.getRuntime().availableProcessors();
+        for (String arg : args) {
+            if (arg.startsWith("--out=")) {
+                outFile = arg.substring(6);
+            }
+            else if (arg.startsWith("--threads=")) {
+                threads = Integer.parseInt(arg.substring(10));
+            }
+            else {
+                script = arg;
+            }
+        }
+        BatchRunner runner = new BatchRunner(game.getCorpus(), game.getMetrics());
+        try (Reader in = script.equals("-") ? new InputStreamReader(System.in, StandardCharsets.UTF_8)
+                                            : Files.newBufferedReader(Path.of(script));
+             Writer out = outFile == null ? new OutputStreamWriter(System.out, StandardCharsets.UTF_8)
+                                          : Files.newBufferedWriter(Path.of(outFile))) {
+            long start = System.nanoTime();
+            long sessions = runner.run(in, out, threads);
+            System.err.printf("played %d sessions in %.2fs%n", sessions, (System.nanoTime() - start) / 1e9);
+        }
+    }
+
+    /**
+     * Plays every session in a script
+     * @param script The script, one session a line
+     * @param results Where to write one JSON result a line
+     * @param threads How many sessions to play at once
+     * @return The number of sessions played
+     * @throws IOException if the script can't be read or the results can't be written
+     */
+    public long run(Reader script, Writer results, int threads) throws IOException {
+        ExecutorService workers = Executors.newFixedThreadPool(threads, task -> {
+            Thread thread = new Thread(task, "batch-worker");
+            thread.setDaemon(true);
+            return thread;
+        });
+        BlockingQueue<CompletableFuture<String>> pending = new ArrayBlockingQueue<>(QUEUE_SIZE);
+        IOException[] readError = new IOException[1];
+        Thread reader = new Thread(() -> {
+            try {
+                BufferedReader lines = script instanceof BufferedReader buffered ? buffered : new BufferedReader(script);
+                long session = 0;
+                String line;
+                while ((line = lines.readLine()) != null) {
+                    if (line.isBlank() || line.startsWith("#")) {
+                        continue;
+                    }
+                    long number = ++session;
+                    String text = line;
+                    pending.put(CompletableFuture.supplyAsync(() -> play(number, text), workers)
+                            .exceptionally(e -> "{\"session\":" + number + ",\"error\":\""
+                                    + MetricsExporter.jsonEscape(String.valueOf(e.getCause())) + "\"}"));
+                }
+            }
+            catch (IOException e) {
+                readError[0] = e;
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            finally {
+                try {
+                    pending.put(END);
+                }
+                catch (InterruptedException e) {
+                    // the writer has given up and won't look for the end
+                }
+            }
+        }, "batch-reader");
+        reader.setDaemon(true);
+        reader.start();
+
+        BufferedWriter out = results instanceof BufferedWriter buffered ? buffered : new BufferedWriter(results, 1 << 16);
+        long count = 0;
+        try {
+            while (true) {
+                CompletableFuture<String> next = pending.take();
+                if (next == END) {
+                    break;
+                }
+                out.write(next.join());
+                out.write('\n');
+                count++;
+                // Flush whenever the workers have nothing finished, so a slow script still streams
+                if (pending.isEmpty() || !pending.peek().isDone()) {
+                    out.flush();
+                }
+            }
+            out.flush();
+            reader.join();
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        finally {
+            reader.interrupt();
+            workers.shutdownNow();
+        }
+        if (readError[0] != null) {
+            throw readError[0];
+        }
+        return count;
+    }
+
+    /**
+     * Plays one session from its script line
+     * @param number The session's number in the script, from 1
+     * @param line The seed and inputs, separated by tabs
+     * @return The session's result as one line of JSON
+     */
+    String play(long number, String line) {
+        String[] fields = line.split("\t", -1);
+        long seed;
+        try {
+            seed = Long.parseLong(fields[0].trim());
+        }
+        catch (NumberFormatException e) {
+            return "{\"session\":" + number + ",\"error\":\"bad seed: "
+                    + MetricsExporter.jsonEscape(fields[0]) + "\"}";
+        }
+        long start = System.nanoTime();
+        SplittableRandom random = new SplittableRandom(seed);
+        int[] ids = RiddleSampler.sample(corpus.size(), Riddle.RIDDLES_PER_GAME, random);
+        Queue<RiddleEntry> riddles = new ArrayDeque<>(ids.length);
+        for (int id : ids) {
+            riddles.offer(corpus.get(id));
+        }
+        GameSession session = GameSession.newGame(corpus, riddles,
+                Riddle.RANDOM_MESSAGES.cursor(random.nextLong()), Riddle.CORRECT_MESSAGES.cursor(random.nextLong()),
+                Renderer.CONSOLE_PLAIN, DISCARD);
+        Transcript transcript = new Transcript();
+        session.setListener(listener == null ? transcript : GameListener.both(listener, transcript));
+        session.start();
+        int used = 1;
+        while (!session.isOver() && used < fields.length) {
+            session.onInput(fields[used++]);
+        }
+        session.quit();
+        long nanos = System.nanoTime() - start;
+
+        String outcome = session.isWon() ? "won" : transcript.quit ? "quit" : "lost";
+        StringBuilder json = new StringBuilder(256);
+        json.append("{\"session\":").append(number)
+            .append(",\"seed\":").append(seed)
+            .append(",\"outcome\":\"").append(outcome).append('"')
+            .append(",\"solved\":").append(session.getSolvedCount())
+            .append(",\"guesses\":").append(session.getTotalGuesses())
+            .append(",\"hints\":").append(session.getTotalHints())
+            .append(",\"unusedInputs\":").append(fields.length - used)
+            .append(",\"nanos\":").append(nanos)
+            .append(",\"riddles\":[").append(transcript.riddles).append("]}");
+        return json.toString();
+    }
+
+    /** Writes each riddle's outcome as a JSON object as the session plays */
+    private static final class Transcript implements GameListener {
+        final StringBuilder riddles = new StringBuilder();
+        int guesses;
+        long guessNanos;
+        boolean quit;
+
+        @Override
+        public void riddleShown(RiddleEntry riddle) {
+            guesses = 0;
+            guessNanos = 0;
+        }
+
+        @Override
+        public void guessed(RiddleEntry riddle, long nanos) {
+            guesses++;
+            guessNanos += nanos;
+        }
+
+        @Override
+        public void solved(RiddleEntry riddle, int guessCount, int hintsUsed) {
+            append(riddle, "solved", hintsUsed);
+        }
+
+        @Override
+        public void lost(RiddleEntry riddle, int hintsUsed, boolean quit) {
+            this.quit = quit;
+            append(riddle, quit ? "quit" : "lost", hintsUsed);
+        }
+
+        private void append(RiddleEntry riddle, String outcome, int hintsUsed) {
+            riddles.append(riddles.length() == 0 ? "" : ",")
+                   .append("{\"id\":").append(riddle.id())
+                   .append(",\"answer\":\"").append(MetricsExporter.jsonEscape(riddle.answer())).append('"')
+                   .append(",\"outcome\":\"").append(outcome).append('"')
+                   .append(",\"attempts\":").append(guesses)
+                   .append(",\"hints\":").append(hintsUsed)
+                   .append(",\"guessNanos\":").append(guessNanos).append('}');
+        }
+    }
+}
@@ -0,0 +1,164 @@
+import static org.junit.Assert.*;
+import org.junit.Before;
+import org.junit.Test;
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.*;
+
+public class BatchRunnerTests {
+    private Corpus corpus;
+    private BatchRunner runner;
+
+    @Before
+    public void setUp() {
+        Riddle game = new Riddle();
+        game.loadCorpus();
+        corpus = game.getCorpus();
+        runner = new BatchRunner(corpus, null);
+    }
+
+    /** Answers to the riddles a seed deals, in order */
+    private List<String> answersFor(long seed) {
+        List<String> answers = new ArrayList<>();
+        for (int id : RiddleSampler.sample(corpus.size(), Riddle.RIDDLES_PER_GAME, new SplittableRandom(seed))) {
+            answers.add(corpus.get(id).answer());
+        }
+        return answers;
+    }
+
+    private String runScript(String script, int threads) throws IOException {
+        StringWriter out = new StringWriter();
+        runner.run(new StringReader(script), out, threads);
+        return out.toString();
+    }
+
+    // Test 1: A script with the right answers wins, and a wrong guess counts as an attempt
+    @Test
+    public void testScriptedWin() throws IOException {
+        List<String> answers = answersFor(42);
+        String result = runScript("42\tWRONG\t" + String.join("\t", answers) + "\n", 1);
+        assertTrue(result, result.startsWith("{\"session\":1,\"seed\":42,\"outcome\":\"won\",\"solved\":5,\"guesses\":6,\"hints\":0,\"unusedInputs\":0,"));
+        assertTrue("First riddle should take two attempts", result.contains("\"outcome\":\"solved\",\"attempts\":2"));
+        assertTrue("Should end with a newline", result.endsWith("}\n"));
+    }
+
+    // Test 2: Running out of inputs quits, hint answers are inputs, and bad lines are reported
+    @Test
+    public void testQuitHintsAndErrors() throws IOException {
+        String result = runScript("# comment\n\n7\ta\tb\tc\ty\nnot-a-seed\tEGG\n", 1);
+        String[] lines = result.split("\n");
+        assertEquals(2, lines.length);
+        assertTrue(lines[0], lines[0].contains("\"outcome\":\"quit\",\"solved\":0,\"guesses\":3,\"hints\":1"));
+        assertTrue(lines[1], lines[1].startsWith("{\"session\":2,\"error\":\"bad seed: not-a-seed\""));
+    }
+
+    // Test 3: Results come out in script order whatever the thread count, and a seed always plays the same
+    @Test
+    public void testOrderedAndRepeatable() throws IOException {
+        StringBuilder script = new StringBuilder();
+        for (int i = 0; i < 500; i++) {
+            script.append(i % 50).append("\t").append(answersFor(i % 50).get(0)).append("\tWRONG\n");
+        }
+        String[] single = runScript(script.toString(), 1).split("\n");
+        String[] parallel = runScript(script.toString(), 4).split("\n");
+        assertEquals(500, parallel.length);
+        for (int i = 0; i < parallel.length; i++) {
+            assertTrue(parallel[i], parallel[i].startsWith("{\"session\":" + (i + 1) + ","));
+            assertEquals("Session " + (i + 1) + " should play the same", withoutTimes(single[i]), withoutTimes(parallel[i]));
+        }
+    }
+
+    // Test 4: From the command line, warnings about the riddle files go to stderr and stdout is only JSON lines
+    @Test
+    public void testCommandLineOutputIsJson() throws Exception {
+        Path directory = Files.createTempDirectory("riddle-batch");
+        try {
+            Files.writeString(directory.resolve(Riddle.RIDDLE_FILE),
+                    Files.readString(Path.of(Riddle.RIDDLE_FILE)) + "\nA LINE WITHOUT AN ANSWER\n");
+            Files.copy(Path.of(Riddle.HINT_FILE), directory.resolve(Riddle.HINT_FILE));
+            Files.writeString(directory.resolve(Riddle.CORPUS_FILE), "not a compiled corpus");
+            Path errors = directory.resolve("errors.txt");
+            Path java = Path.of(System.getProperty("java.home"), "bin", "java");
+            Process process = new ProcessBuilder(java.toString(), "-cp", System.getProperty("java.class.path"),
+                    "Riddle", "--batch", "-")
+                    .directory(directory.toFile())
+                    .redirectError(errors.toFile())
+                    .start();
+            try (Writer script = new OutputStreamWriter(process.getOutputStream(), StandardCharsets.UTF_8)) {
+                script.write("42\tWRONG\n7\ta\tb\tc\ty\nnot-a-seed\n");
+            }
+            String output = new String(process.getInputStream().readAllBytes(), StandardCharsets.UTF_8);
+            assertTrue("The batch should end once its script does", process.waitFor(60, TimeUnit.SECONDS));
+            String warnings = Files.readString(errors);
+            assertTrue(warnings, warnings.contains("skipping"));
+            assertTrue(warnings, warnings.contains("out of date"));
+            String[] lines = output.split("\n");
+            assertEquals(output, 3, lines.length);
+            for (String line : lines) {
+                assertEquals(line, line.length(), parseJson(line, 0));
+            }
+        }
+        finally {
+            try (var files = Files.walk(directory)) {
+                files.sorted(Comparator.reverseOrder()).forEach(file -> file.toFile().delete());
+            }
+        }
+    }
+
+    private static final Pattern JSON_LITERAL = Pattern.compile("-?(0|[1-9]\\d*)(\\.\\d+)?([eE][+-]?\\d+)?|true|false|null");
+
+    /**
+     * Reads one JSON value
+     * @return Where the value ends
+     * @throws AssertionError if the text isn't JSON
+     */
+    private static int parseJson(String text, int at) {
+        assertTrue("Value expected at " + at + ": " + text, at < text.length());
+        char c = text.charAt(at);
+        if (c == '"') {
+            for (int i = at + 1; i < text.length(); i++) {
+                char next = text.charAt(i);
+                assertTrue("Control character in a string: " + text, next >= 0x20);
+                if (next == '\\') {
+                    i++;
+                }
+                else if (next == '"') {
+                    return i + 1;
+                }
+            }
+            fail("Unterminated string: " + text);
+        }
+        if (c == '{' || c == '[') {
+            char close = c == '{' ? '}' : ']';
+            int i = at + 1;
+            if (i < text.length() && text.charAt(i) == close) {
+                return i + 1;
+            }
+            while (true) {
+                if (c == '{') {
+                    assertTrue("Key expected at " + i + ": " + text, i < text.length() && text.charAt(i) == '"');
+                    i = parseJson(text, i);
+                    assertTrue("':' expected at " + i + ": " + text, i < text.length() && text.charAt(i) == ':');
+                    i++;
+                }
+                i = parseJson(text, i);
+                assertTrue("Unterminated " + c + ": " + text, i < text.length());
+                if (text.charAt(i) == close) {
+                    return i + 1;
+                }
+                assertEquals("',' expected at " + i + ": " + text, ',', text.charAt(i));
+                i++;
+            }
+        }
+        Matcher literal = JSON_LITERAL.matcher(text).region(at, text.length());
+        assertTrue("Not JSON at " + at + ": " + text, literal.lookingAt());
+        return literal.end();
+    }
+
+    private static String withoutTimes(String result) {
+        return result.replaceAll("\"(guessN|n)anos\":\\d+", "");
+    }
+}
@@ -0,0 +1,205 @@
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.zip.CRC32;
+
+/**
+ * Corpus read from a riddles.bin file written by CorpusCompiler.
+ * The file is memory mapped and riddles are only decoded the first time they
+ * are asked for, so opening it costs the same no matter how many riddles it holds.
+ *
+ * File layout, all numbers big-endian:
+ * <pre>
+ * header        magic, version, source checksum (long), riddle count,
+ *               hint count, hint data position, riddle data position, reserved
+ * hint table    hint count + 1 offsets into the hint data
+ * riddle table  riddle count + 1 offsets into the riddle data
+ * hint data     UTF-8 bytes of every distinct hint
+ * riddle data   per riddle: author tier, answer length + bytes, text length + bytes,
+ *               hint count, hint ids, alternate answer count,
+ *               per alternate: length + bytes
+ * </pre>
+ */
+public class BinaryCorpus implements Corpus {
+    static final int MAGIC = 0x52444C42; // "RDLB"
+    static final int VERSION = 3;
+    static final int HEADER_SIZE = 36;
+
+    private final ByteBuffer buffer;
+    private final long sourceChecksum;
+    private final int riddleCount;
+    private final int hintCount;
+    private final int hintTable;
+    private final int riddleTable;
+    private final int hintData;
+    private final int riddleData;
+    private final ConcurrentHashMap<Integer, RiddleEntry> decoded;
+    private volatile HashMap<String, RiddleEntry> riddlesByText;
+
+    private BinaryCorpus(ByteBuffer buffer) throws IOException {
+        this.buffer = buffer;
+        if (buffer.limit() < HEADER_SIZE || buffer.getInt(0) != MAGIC) {
+            throw new IOException("not a compiled riddle corpus");
+        }
+        if (buffer.getInt(4) != VERSION) {
+            throw new IOException("unsupported riddle corpus version " + buffer.getInt(4));
+        }
+        this.sourceChecksum = buffer.getLong(8);
+        this.riddleCount = buffer.getInt(16);
+        this.hintCount = buffer.getInt(20);
+        this.hintData = buffer.getInt(24);
+        this.riddleData = buffer.getInt(28);
+        this.hintTable = HEADER_SIZE;
+        this.riddleTable = hintTable + 4 * (hintCount + 1);
+        this.decoded = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Memory maps a compiled corpus
+     * @param file The riddles.bin file
+     * @return The opened corpus
+     * @throws IOException if the file can't be read or isn't a compiled corpus
+     */
+    public static BinaryCorpus open(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            return new BinaryCorpus(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    /**
+     * Opens a compiled corpus only if it was compiled from the current text files
+     * @param file The riddles.bin file
+     * @param riddles The riddles.txt it should have been compiled from
+     * @param hints The hints.txt it should have been compiled from
+     * @return The opened corpus, or null if it is missing or out of date
+     * @throws IOException if the text files can't be read
+     */
+    public static BinaryCorpus openIfFresh(Path file, Path riddles, Path hints) throws IOException {
+        if (!Files.exists(file)) {
+            return null;
+        }
+        BinaryCorpus corpus;
+        try {
+            corpus = open(file);
+        }
+        catch (IOException e) {
+            return null;
+        }
+        return corpus.sourceChecksum() == checksum(riddles, hints) ? corpus : null;
+    }
+
+    /**
+     * Computes the checksum stored in a compiled corpus
+     * @param riddles The riddles.txt file
+     * @param hints The hints.txt file
+     * @return CRC32 of both files
+     * @throws IOException if either file can't be read
+     */
+    public static long checksum(Path riddles, Path hints) throws IOException {
+        CRC32 crc = new CRC32();
+        for (Path file : new Path[] { riddles, hints }) {
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                crc.update(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+            }
+        }
+        return crc.getValue();
+    }
+
+    public long sourceChecksum() {
+        return sourceChecksum;
+    }
+
+    /**
+     * @return The number of distinct hint strings in the file
+     */
+    public int hintCount() {
+        return hintCount;
+    }
+
+    @Override
+    public int size() {
+        return riddleCount;
+    }
+
+    @Override
+    public RiddleEntry get(int id) {
+        Objects.checkIndex(id, riddleCount);
+        return decoded.computeIfAbsent(id, this::decode);
+    }
+
+    /**
+     * Reads a riddle's tier straight from the file without decoding the riddle
+     */
+    @Override
+    public int tier(int id) {
+        Objects.checkIndex(id, riddleCount);
+        return buffer.getInt(riddleData + buffer.getInt(riddleTable + 4 * id));
+    }
+
+    /**
+     * Finds a riddle by its text. The first call decodes every riddle to build
+     * the lookup table, so the game loop should stick to ids.
+     */
+    @Override
+    public RiddleEntry find(String text) {
+        HashMap<String, RiddleEntry> index = riddlesByText;
+        if (index == null) {
+            synchronized (this) {
+                index = riddlesByText;
+                if (index == null) {
+                    index = new HashMap<>();
+                    for (int id = 0; id < riddleCount; id++) {
+                        RiddleEntry entry = get(id);
+                        index.put(entry.text(), entry);
+                    }
+                    riddlesByText = index;
+                }
+            }
+        }
+        return index.get(text);
+    }
+
+    private RiddleEntry decode(int id) {
+        int position = riddleData + buffer.getInt(riddleTable + 4 * id);
+        int tier = buffer.getInt(position);
+        position += 4;
+        int answerLength = buffer.getInt(position);
+        String answer = readString(position + 4, answerLength);
+        position += 4 + answerLength;
+        int textLength = buffer.getInt(position);
+        String text = readString(position + 4, textLength);
+        position += 4 + textLength;
+        int hints = buffer.getInt(position);
+        List<String> hintList = new ArrayList<>(hints);
+        for (int i = 0; i < hints; i++) {
+            hintList.add(hint(buffer.getInt(position + 4 + 4 * i)));
+        }
+        position += 4 + 4 * hints;
+        int alternates = buffer.getInt(position);
+        position += 4;
+        List<String> alternateList = new ArrayList<>(alternates);
+        for (int i = 0; i < alternates; i++) {
+            int length = buffer.getInt(position);
+            alternateList.add(readString(position + 4, length));
+            position += 4 + length;
+        }
+        return new RiddleEntry(id, answer, text, hintList, alternateList,
+                AnswerMatcher.keysFor(answer, alternateList), tier);
+    }
+
+    private String hint(int hintId) {
+        int start = buffer.getInt(hintTable + 4 * hintId);
+        int end = buffer.getInt(hintTable + 4 * (hintId + 1));
+        return readString(hintData + start, end - start);
+    }
+
+    private String readString(int position, int length) {
+        byte[] bytes = new byte[length];
+        buffer.get(position, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
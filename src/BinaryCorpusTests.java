@@ -0,0 +1,75 @@
+import static org.junit.Assert.*;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import java.io.*;
+import java.nio.file.*;
+import java.util.*;
+
+public class BinaryCorpusTests {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Path riddles;
+    private Path hints;
+    private Path compiled;
+
+    @Before
+    public void setUp() throws IOException {
+        riddles = folder.getRoot().toPath().resolve("riddles.txt");
+        hints = folder.getRoot().toPath().resolve("hints.txt");
+        compiled = folder.getRoot().toPath().resolve("riddles.bin");
+        Files.copy(Path.of(Riddle.RIDDLE_FILE), riddles);
+        Files.copy(Path.of(Riddle.HINT_FILE), hints);
+        CorpusCompiler.compile(riddles, hints, compiled);
+    }
+
+    // Test 1: Every riddle decodes to the same entry as the text loader
+    @Test
+    public void testMatchesTextCorpus() throws IOException {
+        Riddle game = new Riddle();
+        game.loadRiddles();
+        game.loadHints();
+        Corpus text = game.getCorpus();
+        BinaryCorpus binary = BinaryCorpus.open(compiled);
+        assertEquals("Should hold every riddle", text.size(), binary.size());
+        for (int id = 0; id < text.size(); id++) {
+            assertEquals("Riddle " + id + " should match", text.get(id), binary.get(id));
+        }
+    }
+
+    // Test 2: Repeated hints are stored once
+    @Test
+    public void testHintsDeduplicated() throws IOException {
+        BinaryCorpus binary = BinaryCorpus.open(compiled);
+        Set<String> distinct = new HashSet<>();
+        for (int id = 0; id < binary.size(); id++) {
+            distinct.addAll(binary.get(id).hints());
+        }
+        assertEquals("Dictionary should hold each hint once", distinct.size(), binary.hintCount());
+    }
+
+    // Test 3: Lookup by text works on the compiled corpus
+    @Test
+    public void testFindByText() throws IOException {
+        BinaryCorpus binary = BinaryCorpus.open(compiled);
+        RiddleEntry anchor = binary.get(0);
+        assertSame("Should find the decoded riddle", anchor, binary.find(anchor.text()));
+        assertNull("Unknown text should not be found", binary.find("NON-EXISTENT RIDDLE"));
+    }
+
+    // Test 4: Editing a text file makes the compiled corpus stale
+    @Test
+    public void testStaleDetection() throws IOException {
+        assertNotNull("Fresh corpus should open", BinaryCorpus.openIfFresh(compiled, riddles, hints));
+        Files.writeString(hints, "ANCHOR: SHIP, CHAIN, SEA\n", StandardOpenOption.APPEND);
+        assertNull("Stale corpus should not open", BinaryCorpus.openIfFresh(compiled, riddles, hints));
+    }
+
+    // Test 5: Files that aren't compiled corpora are rejected
+    @Test(expected = IOException.class)
+    public void testRejectsTextFile() throws IOException {
+        BinaryCorpus.open(riddles);
+    }
+}
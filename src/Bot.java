@@ -0,0 +1,85 @@
+import java.util.random.RandomGenerator;
+
+/**
+ * A simulated player for Simulator. A bot is asked for a guess whenever the
+ * game wants one and whether it wants a hint whenever one is offered. Bots
+ * hold no state of their own and get the game's random source passed in, so
+ * one bot can play any number of games at once and a seeded run always plays
+ * out the same way.
+ */
+public interface Bot {
+
+    /**
+     * @param riddle The riddle being guessed
+     * @param attempts Wrong guesses made on it so far
+     * @param hintsUsed Hints shown for it so far
+     * @param random The game's random source
+     * @return The bot's guess
+     */
+    String guess(RiddleEntry riddle, int attempts, int hintsUsed, RandomGenerator random);
+
+    /**
+     * @param riddle The riddle being guessed
+     * @param hintsUsed Hints shown for it so far
+     * @param random The game's random source
+     * @return true to take the hint
+     */
+    boolean wantsHint(RiddleEntry riddle, int hintsUsed, RandomGenerator random);
+
+    /**
+     * A bot that knows every answer
+     * @return The bot
+     */
+    static Bot oracle() {
+        return new Bot() {
+            @Override
+            public String guess(RiddleEntry riddle, int attempts, int hintsUsed, RandomGenerator random) {
+                return riddle.answer();
+            }
+
+            @Override
+            public boolean wantsHint(RiddleEntry riddle, int hintsUsed, RandomGenerator random) {
+                return false;
+            }
+        };
+    }
+
+    /**
+     * A bot that guesses the answer to a random riddle from the corpus and never takes hints
+     * @param corpus The corpus to take guesses from
+     * @return The bot
+     */
+    static Bot randomGuesser(Corpus corpus) {
+        return new Bot() {
+            @Override
+            public String guess(RiddleEntry riddle, int attempts, int hintsUsed, RandomGenerator random) {
+                return corpus.get(random.nextInt(corpus.size())).answer();
+            }
+
+            @Override
+            public boolean wantsHint(RiddleEntry riddle, int hintsUsed, RandomGenerator random) {
+                return false;
+            }
+        };
+    }
+
+    /**
+     * A bot that takes every hint it is offered and gets more likely to know the answer with each one
+     * @param solveChance Chance of a right guess with no hints
+     * @param chancePerHint How much each hint adds to that chance
+     * @return The bot
+     */
+    static Bot hintTaker(double solveChance, double chancePerHint) {
+        return new Bot() {
+            @Override
+            public String guess(RiddleEntry riddle, int attempts, int hintsUsed, RandomGenerator random) {
+                return random.nextDouble() < solveChance + chancePerHint * hintsUsed ? riddle.answer() : "pass";
+            }
+
+            @Override
+            public boolean wantsHint(RiddleEntry riddle, int hintsUsed, RandomGenerator random) {
+                return true;
+            }
+        };
+    }
+}
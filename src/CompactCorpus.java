@@ -0,0 +1,345 @@
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * Corpus that keeps a large riddle set in a handful of arrays instead of
+ * millions of small objects. Every answer, riddle text and hint is stored once
+ * in a shared byte arena, as Latin-1 when it fits (one byte a character, the
+ * same bytes a compact String holds) and as UTF-8 otherwise, and is referred to
+ * by an int string id. Repeated hints are stored once. Each riddle's hints and
+ * alternate answers are ranges of a flat int array, and lookups by text go
+ * through an open addressing table of ids, so the corpus costs a few dozen bytes
+ * a riddle on top of its text where a HashMap-backed corpus costs hundreds.
+ * <p>
+ * Riddles are decoded into a RiddleEntry each time get() is called; sessions
+ * hold on to the entries they were dealt, so that only happens a few times a game.
+ */
+public class CompactCorpus implements Corpus {
+    private final byte[] arena;
+    private final int[] stringOffsets;
+    private final BitSet utf8;
+    private final int[] answers;
+    private final int[] texts;
+    private final byte[] tiers;
+    private final int[] hintStarts;
+    private final int[] hintIds;
+    private final int[] alternateStarts;
+    private final int[] alternateIds;
+    private final int[] textTable;
+    private final int hintCount;
+
+    private CompactCorpus(Builder builder) {
+        int size = builder.answers.size();
+        this.arena = Arrays.copyOf(builder.arena, builder.arenaSize);
+        this.stringOffsets = Arrays.copyOf(builder.stringOffsets, builder.stringCount + 1);
+        this.utf8 = builder.utf8;
+        this.answers = builder.answers.toArray();
+        this.texts = builder.texts.toArray();
+        this.tiers = new byte[size];
+        this.hintStarts = new int[size + 1];
+        this.alternateStarts = new int[size + 1];
+        IntList hints = new IntList();
+        IntList alternates = new IntList();
+        for (int id = 0; id < size; id++) {
+            tiers[id] = builder.tiers.get(id);
+            hintStarts[id] = hints.size();
+            int[] riddleHints = builder.hintsByAnswer.get(answers[id]);
+            if (riddleHints != null) {
+                hints.addAll(riddleHints);
+            }
+            alternateStarts[id] = alternates.size();
+            alternates.addAll(builder.alternates.get(id));
+        }
+        hintStarts[size] = hints.size();
+        alternateStarts[size] = alternates.size();
+        this.hintIds = hints.toArray();
+        this.alternateIds = alternates.toArray();
+        this.hintCount = builder.hintIds.size();
+
+        this.textTable = new int[Integer.highestOneBit(Math.max(2, size) * 2 - 1) << 1];
+        Arrays.fill(textTable, -1);
+        int mask = textTable.length - 1;
+        for (int id = 0; id < size; id++) {
+            int slot = hash(texts[id]) & mask;
+            while (textTable[slot] >= 0) {
+                slot = (slot + 1) & mask;
+            }
+            textTable[slot] = id;
+        }
+    }
+
+    /**
+     * Packs parsed riddle and hint files into a compact corpus without building maps first
+     * @param riddles The parsed riddles.txt
+     * @param hints The parsed hints.txt
+     * @return The corpus
+     */
+    public static CompactCorpus of(CorpusLoader.Result riddles, CorpusLoader.Result hints) {
+        Builder builder = new Builder();
+        for (CorpusLoader.Line line : riddles.lines()) {
+            builder.addRiddle(line.key(), line.value());
+        }
+        for (CorpusLoader.Line line : hints.lines()) {
+            builder.addHints(line.key(), Arrays.asList(line.value().split(",")));
+        }
+        return builder.build();
+    }
+
+    /**
+     * Packs any corpus into a compact one with the same ids
+     * @param source The corpus to copy
+     * @return The compact copy
+     */
+    public static CompactCorpus copyOf(Corpus source) {
+        Builder builder = new Builder();
+        for (int id = 0; id < source.size(); id++) {
+            RiddleEntry riddle = source.get(id);
+            builder.addRiddle(riddle.answer(), riddle.alternates(), riddle.text(), riddle.tier());
+            builder.addHints(riddle.answer(), riddle.hints());
+        }
+        return builder.build();
+    }
+
+    @Override
+    public int size() {
+        return answers.length;
+    }
+
+    @Override
+    public RiddleEntry get(int id) {
+        Objects.checkIndex(id, answers.length);
+        List<String> hints = strings(hintIds, hintStarts[id], hintStarts[id + 1]);
+        List<String> alternates = strings(alternateIds, alternateStarts[id], alternateStarts[id + 1]);
+        String answer = string(answers[id]);
+        return new RiddleEntry(id, answer, string(texts[id]), hints, alternates,
+                AnswerMatcher.keysFor(answer, alternates), tiers[id]);
+    }
+
+    @Override
+    public int tier(int id) {
+        return tiers[id];
+    }
+
+    @Override
+    public RiddleEntry find(String text) {
+        byte[] wanted = encode(text);
+        boolean wantedUtf8 = !isLatin1(text);
+        int mask = textTable.length - 1;
+        for (int slot = hashBytes(wanted, 0, wanted.length) & mask; textTable[slot] >= 0; slot = (slot + 1) & mask) {
+            int string = texts[textTable[slot]];
+            int start = stringOffsets[string];
+            int end = stringOffsets[string + 1];
+            if (utf8.get(string) == wantedUtf8 && Arrays.equals(arena, start, end, wanted, 0, wanted.length)) {
+                return get(textTable[slot]);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return The number of distinct hints
+     */
+    public int hintCount() {
+        return hintCount;
+    }
+
+    /**
+     * @return Bytes of text held in the arena
+     */
+    public int arenaBytes() {
+        return arena.length;
+    }
+
+    /**
+     * Estimates the heap the corpus holds, for caches that bound memory rather than count
+     * @return Bytes of its arrays, counting a 16 byte header for each
+     */
+    public long heapBytes() {
+        long ints = stringOffsets.length + answers.length + texts.length + hintStarts.length + hintIds.length
+                + alternateStarts.length + alternateIds.length + textTable.length;
+        return 4 * ints + arena.length + tiers.length + utf8.size() / 8 + 10 * 16;
+    }
+
+    private String string(int string) {
+        int start = stringOffsets[string];
+        return new String(arena, start, stringOffsets[string + 1] - start,
+                utf8.get(string) ? StandardCharsets.UTF_8 : StandardCharsets.ISO_8859_1);
+    }
+
+    private List<String> strings(int[] ids, int from, int to) {
+        if (from == to) {
+            return List.of();
+        }
+        String[] result = new String[to - from];
+        for (int i = from; i < to; i++) {
+            result[i - from] = string(ids[i]);
+        }
+        return List.of(result);
+    }
+
+    private int hash(int string) {
+        return hashBytes(arena, stringOffsets[string], stringOffsets[string + 1]);
+    }
+
+    private static int hashBytes(byte[] bytes, int from, int to) {
+        int h = 1;
+        for (int i = from; i < to; i++) {
+            h = 31 * h + bytes[i];
+        }
+        h *= 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    private static boolean isLatin1(String text) {
+        for (int i = 0; i < text.length(); i++) {
+            if (text.charAt(i) > 0xFF) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static byte[] encode(String text) {
+        return text.getBytes(isLatin1(text) ? StandardCharsets.ISO_8859_1 : StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Collects riddles and hints with the same rules as TextCorpus: either file can come first,
+     * and a riddle with the same answer as an earlier one replaces it and keeps its id.
+     * The lookup maps only live while building.
+     */
+    public static class Builder {
+        private byte[] arena = new byte[1 << 16];
+        private int arenaSize;
+        private int[] stringOffsets = new int[1 << 10];
+        private int stringCount;
+        private final BitSet utf8 = new BitSet();
+        private final IntList answers = new IntList();
+        private final IntList texts = new IntList();
+        private final ArrayList<Byte> tiers = new ArrayList<>();
+        private final ArrayList<int[]> alternates = new ArrayList<>();
+        private final HashMap<String, Integer> idsByAnswer = new HashMap<>();
+        private final HashMap<String, Integer> hintIds = new HashMap<>();
+        private final HashMap<Integer, int[]> hintsByAnswer = new HashMap<>();
+        private final HashMap<String, int[]> pendingHints = new HashMap<>();
+
+        /**
+         * Adds a riddle, replacing any riddle with the same answer
+         * @param written The answer as written in riddles.txt, with any alternates and tier
+         * @param text The riddle text
+         */
+        public void addRiddle(String written, String text) {
+            List<String> parsed = AnswerMatcher.parseAnswers(written);
+            addRiddle(parsed.get(0), parsed.subList(1, parsed.size()), text, AnswerMatcher.parseTier(written));
+        }
+
+        void addRiddle(String answer, List<String> alternateAnswers, String text, int tier) {
+            int[] alternateIds = new int[alternateAnswers.size()];
+            for (int i = 0; i < alternateIds.length; i++) {
+                alternateIds[i] = addString(alternateAnswers.get(i));
+            }
+            Integer existing = idsByAnswer.get(answer);
+            if (existing != null) {
+                texts.set(existing, addString(text));
+                tiers.set(existing, (byte) tier);
+                alternates.set(existing, alternateIds);
+                return;
+            }
+            int answerId = addString(answer);
+            idsByAnswer.put(answer, answers.size());
+            answers.add(answerId);
+            texts.add(addString(text));
+            tiers.add((byte) tier);
+            alternates.add(alternateIds);
+            int[] hints = pendingHints.remove(answer);
+            if (hints != null) {
+                hintsByAnswer.put(answerId, hints);
+            }
+        }
+
+        /**
+         * Sets the hints for an answer
+         * @param answer The answer the hints belong to
+         * @param hints The hints, each stored once however many riddles share them
+         */
+        public void addHints(String answer, List<String> hints) {
+            int[] ids = new int[hints.size()];
+            for (int i = 0; i < ids.length; i++) {
+                String hint = hints.get(i);
+                Integer id = hintIds.get(hint);
+                if (id == null) {
+                    id = addString(hint);
+                    hintIds.put(hint, id);
+                }
+                ids[i] = id;
+            }
+            Integer riddle = idsByAnswer.get(answer);
+            if (riddle != null) {
+                hintsByAnswer.put(answers.get(riddle), ids);
+            }
+            else {
+                pendingHints.put(answer, ids);
+            }
+        }
+
+        /**
+         * @return The finished corpus
+         */
+        public CompactCorpus build() {
+            return new CompactCorpus(this);
+        }
+
+        private int addString(String text) {
+            byte[] bytes = encode(text);
+            if (!isLatin1(text)) {
+                utf8.set(stringCount);
+            }
+            if (arenaSize + bytes.length > arena.length) {
+                arena = Arrays.copyOf(arena, Math.max(arena.length * 2, arenaSize + bytes.length));
+            }
+            System.arraycopy(bytes, 0, arena, arenaSize, bytes.length);
+            if (stringCount + 2 > stringOffsets.length) {
+                stringOffsets = Arrays.copyOf(stringOffsets, stringOffsets.length * 2);
+            }
+            stringOffsets[stringCount] = arenaSize;
+            arenaSize += bytes.length;
+            stringOffsets[stringCount + 1] = arenaSize;
+            return stringCount++;
+        }
+    }
+
+    /** A growable int array */
+    private static final class IntList {
+        private int[] values = new int[16];
+        private int size;
+
+        void add(int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        void addAll(int[] more) {
+            for (int value : more) {
+                add(value);
+            }
+        }
+
+        int get(int index) {
+            return values[index];
+        }
+
+        void set(int index, int value) {
+            values[index] = value;
+        }
+
+        int size() {
+            return size;
+        }
+
+        int[] toArray() {
+            return Arrays.copyOf(values, size);
+        }
+    }
+}
@@ -0,0 +1,80 @@
+import static org.junit.Assert.*;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+
+public class CompactCorpusTests {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    // Test 1: Every riddle decodes to the same entry as the text loader, hints and tiers included
+    @Test
+    public void testMatchesTextCorpus() throws IOException {
+        Riddle text = new Riddle();
+        text.loadCorpus();
+        Riddle compact = new Riddle();
+        compact.loadCompactCorpus(Path.of(Riddle.RIDDLE_FILE), Path.of(Riddle.HINT_FILE));
+        assertTrue("Should publish a compact corpus", compact.getCorpus() instanceof CompactCorpus);
+        assertEquals("Should hold every riddle", text.getCorpus().size(), compact.getCorpus().size());
+        for (int id = 0; id < text.getCorpus().size(); id++) {
+            assertEquals("Riddle " + id + " should match", text.getCorpus().get(id), compact.getCorpus().get(id));
+            assertEquals("Tier " + id + " should match", text.getCorpus().tier(id), compact.getCorpus().tier(id));
+        }
+        assertEquals("A copy should match too", text.getCorpus().get(3), CompactCorpus.copyOf(text.getCorpus()).get(3));
+    }
+
+    // Test 2: Repeated hints are stored once
+    @Test
+    public void testHintsDeduplicated() {
+        CompactCorpus.Builder builder = new CompactCorpus.Builder();
+        builder.addRiddle("EGG#1", "What has to be broken before you can use it?");
+        builder.addRiddle("CLOCK", "What has hands but can't clap?");
+        builder.addHints("EGG", List.of("breakfast", "shell"));
+        builder.addHints("CLOCK", List.of("breakfast", "tick"));
+        CompactCorpus corpus = builder.build();
+        assertEquals("Should hold each hint once", 3, corpus.hintCount());
+        assertEquals(List.of("breakfast", "tick"), corpus.get(1).hints());
+        assertEquals("Tier should be kept", 1, corpus.tier(0));
+    }
+
+    // Test 3: Text outside Latin-1 round trips and can be found
+    @Test
+    public void testUnicodeText() {
+        CompactCorpus.Builder builder = new CompactCorpus.Builder();
+        builder.addRiddle("CAF\u00C9", "O\u00F9 prend-on un caf\u00E9?");
+        builder.addRiddle("SNOWMAN", "What melts in the sun? \u2603");
+        builder.addHints("SNOWMAN", List.of("\u2744 winter"));
+        CompactCorpus corpus = builder.build();
+        assertEquals("CAF\u00C9", corpus.get(0).answer());
+        assertEquals("What melts in the sun? \u2603", corpus.get(1).text());
+        assertEquals(List.of("\u2744 winter"), corpus.get(1).hints());
+        assertEquals("Should find Unicode text", 1, corpus.find("What melts in the sun? \u2603").id());
+        assertEquals("Should find Latin-1 text", 0, corpus.find("O\u00F9 prend-on un caf\u00E9?").id());
+        assertNull("Unknown text should not be found", corpus.find("NON-EXISTENT RIDDLE"));
+        assertTrue("Should accept the answer", corpus.get(0).accepts("caf\u00E9"));
+    }
+
+    // Test 4: A later riddle with the same answer replaces the earlier one, and a reload stays compact
+    @Test
+    public void testReloadStaysCompact() throws IOException {
+        Path riddles = folder.getRoot().toPath().resolve("riddles.txt");
+        Path hints = folder.getRoot().toPath().resolve("hints.txt");
+        Files.writeString(riddles, "EGG:First\nCLOCK:Tick\nEGG:Second\n", StandardCharsets.UTF_8);
+        Files.writeString(hints, "EGG:shell\n", StandardCharsets.UTF_8);
+        Riddle game = new Riddle();
+        game.loadCompactCorpus(riddles, hints);
+        assertEquals("Duplicate answer should replace", 2, game.getCorpus().size());
+        assertEquals("Second", game.getCorpus().get(0).text());
+        assertNull("Replaced text should not be found", game.getCorpus().find("First"));
+
+        Files.writeString(riddles, "EGG:Third\n", StandardCharsets.UTF_8);
+        game.reload(riddles, hints, true, false);
+        assertTrue("Reload should keep the compact corpus", game.getCorpus() instanceof CompactCorpus);
+        assertEquals(1, game.getCorpus().size());
+        assertEquals(List.of("shell"), game.getCorpus().get(0).hints());
+    }
+}
@@ -0,0 +1,34 @@
+/**
+ * A loaded set of riddles that the game can draw from.
+ * Riddles are numbered from 0 to size() - 1 and handed out as RiddleEntry handles.
+ */
+public interface Corpus {
+
+    /**
+     * @return The number of riddles in the corpus
+     */
+    int size();
+
+    /**
+     * Gets a riddle by id
+     * @param id A riddle id between 0 and size() - 1
+     * @return The riddle with that id
+     */
+    RiddleEntry get(int id);
+
+    /**
+     * Finds a riddle by its text
+     * @param text The riddle text
+     * @return The riddle, or null if no riddle has that text
+     */
+    RiddleEntry find(String text);
+
+    /**
+     * Gets the tier the author gave a riddle
+     * @param id A riddle id between 0 and size() - 1
+     * @return The tier, 1 to 5, or 0 if the riddle isn't rated
+     */
+    default int tier(int id) {
+        return get(id).tier();
+    }
+}
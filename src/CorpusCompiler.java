@@ -0,0 +1,118 @@
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+
+/**
+ * Compiles riddles.txt and hints.txt into the riddles.bin format read by BinaryCorpus.
+ * The text files stay the source of truth; the compiled file records their
+ * checksum so the game can tell when it needs compiling again.
+ */
+public class CorpusCompiler {
+
+    public static void main(String[] args) throws IOException {
+        Path riddles = Path.of(args.length > 0 ? args[0] : Riddle.RIDDLE_FILE);
+        Path hints = Path.of(args.length > 1 ? args[1] : Riddle.HINT_FILE);
+        Path out = Path.of(args.length > 2 ? args[2] : Riddle.CORPUS_FILE);
+        int count = compile(riddles, hints, out);
+        System.out.println("compiled " + count + " riddles into " + out);
+    }
+
+    /**
+     * Compiles the text files into a binary corpus
+     * @param riddles The riddles.txt file
+     * @param hints The hints.txt file
+     * @param out Where to write the compiled corpus
+     * @return The number of riddles written
+     * @throws IOException if the files can't be read or written
+     */
+    public static int compile(Path riddles, Path hints, Path out) throws IOException {
+        long checksum = BinaryCorpus.checksum(riddles, hints);
+        CorpusLoader.Result[] results = CorpusLoader.parseBoth(riddles, hints);
+        TextCorpus corpus = new TextCorpus();
+        for (CorpusLoader.Line line : results[0].lines()) {
+            corpus.addRiddle(line.key(), line.value());
+        }
+        for (CorpusLoader.Line line : results[1].lines()) {
+            corpus.addHints(line.key(), Arrays.asList(line.value().split(",")));
+        }
+        for (CorpusLoader.Result result : results) {
+            for (CorpusLoader.Problem problem : result.problems()) {
+                System.out.println("skipping " + problem);
+            }
+        }
+        write(corpus, checksum, out);
+        return corpus.size();
+    }
+
+    /**
+     * Writes a corpus in the binary format, replacing the target file atomically
+     * @param corpus The riddles to write
+     * @param checksum The checksum of the text files the corpus came from
+     * @param out Where to write the compiled corpus
+     * @throws IOException if the file can't be written
+     */
+    public static void write(Corpus corpus, long checksum, Path out) throws IOException {
+        LinkedHashMap<String, Integer> hintIds = new LinkedHashMap<>();
+        ByteArrayOutputStream hintData = new ByteArrayOutputStream();
+        ArrayList<Integer> hintOffsets = new ArrayList<>();
+        ByteArrayOutputStream riddleBytes = new ByteArrayOutputStream();
+        DataOutputStream riddleData = new DataOutputStream(riddleBytes);
+        int[] riddleOffsets = new int[corpus.size() + 1];
+
+        for (int id = 0; id < corpus.size(); id++) {
+            RiddleEntry entry = corpus.get(id);
+            riddleOffsets[id] = riddleData.size();
+            riddleData.writeInt(entry.tier());
+            writeString(riddleData, entry.answer());
+            writeString(riddleData, entry.text());
+            riddleData.writeInt(entry.hints().size());
+            for (String hint : entry.hints()) {
+                Integer hintId = hintIds.get(hint);
+                if (hintId == null) {
+                    hintId = hintIds.size();
+                    hintIds.put(hint, hintId);
+                    hintOffsets.add(hintData.size());
+                    hintData.write(hint.getBytes(StandardCharsets.UTF_8));
+                }
+                riddleData.writeInt(hintId);
+            }
+            riddleData.writeInt(entry.alternates().size());
+            for (String alternate : entry.alternates()) {
+                writeString(riddleData, alternate);
+            }
+        }
+        riddleOffsets[corpus.size()] = riddleData.size();
+        hintOffsets.add(hintData.size());
+
+        int hintDataPosition = BinaryCorpus.HEADER_SIZE + 4 * hintOffsets.size() + 4 * riddleOffsets.length;
+        int riddleDataPosition = hintDataPosition + hintData.size();
+
+        Path tmp = out.resolveSibling(out.getFileName() + ".tmp");
+        try (DataOutputStream file = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+            file.writeInt(BinaryCorpus.MAGIC);
+            file.writeInt(BinaryCorpus.VERSION);
+            file.writeLong(checksum);
+            file.writeInt(corpus.size());
+            file.writeInt(hintIds.size());
+            file.writeInt(hintDataPosition);
+            file.writeInt(riddleDataPosition);
+            file.writeInt(0);
+            for (int offset : hintOffsets) {
+                file.writeInt(offset);
+            }
+            for (int offset : riddleOffsets) {
+                file.writeInt(offset);
+            }
+            hintData.writeTo(file);
+            riddleBytes.writeTo(file);
+        }
+        Files.move(tmp, out, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+}
@@ -0,0 +1,88 @@
+import java.io.IOException;
+import java.nio.file.*;
+import java.util.Arrays;
+
+/**
+ * Compares how much heap a loaded corpus holds on to: the riddle and hint maps
+ * with their TextCorpus, against a CompactCorpus of the same files. Each corpus
+ * is loaded into a fresh game and measured as the growth in used heap after a
+ * full collection, with the game still reachable. Corpora are made by
+ * CorpusGenerator, in the same place RiddleBenchmark keeps them.
+ *
+ * <pre>java CorpusFootprint [--sizes=10000,100000,1000000]</pre>
+ * Give the JVM enough heap for the largest size, e.g. -Xmx3g for a million riddles.
+ */
+public class CorpusFootprint {
+    private static final int GC_ROUNDS = 5;
+
+    /**
+     * One corpus size measured both ways
+     * @param size the number of riddles
+     * @param mapBytes heap held by the maps and TextCorpus
+     * @param compactBytes heap held by the CompactCorpus
+     */
+    public record Result(int size, long mapBytes, long compactBytes) {}
+
+    public static void main(String[] args) throws IOException {
+        int[] sizes = { 10_000, 100_000, 1_000_000 };
+        for (String arg : args) {
+            if (arg.startsWith("--sizes=")) {
+                sizes = Arrays.stream(arg.substring(8).split(",")).mapToInt(Integer::parseInt).toArray();
+            }
+        }
+        System.out.printf("%10s %14s %14s %10s %10s %8s%n", "riddles", "maps", "compact", "maps/r", "compact/r", "saved");
+        for (int size : sizes) {
+            Result result = measure(size);
+            System.out.printf("%10d %12.1fMB %12.1fMB %9dB %9dB %7.0f%%%n", size,
+                    result.mapBytes() / 1048576.0, result.compactBytes() / 1048576.0,
+                    result.mapBytes() / size, result.compactBytes() / size,
+                    100.0 * (result.mapBytes() - result.compactBytes()) / result.mapBytes());
+        }
+    }
+
+    /**
+     * Loads a generated corpus of one size both ways and measures each
+     * @param size The number of riddles
+     * @return The heap each representation holds
+     * @throws IOException if the corpus can't be generated or read
+     */
+    public static Result measure(int size) throws IOException {
+        Path directory = Path.of(System.getProperty("java.io.tmpdir"), "riddle-bench", "v2", Integer.toString(size));
+        Path riddleFile = directory.resolve(Riddle.RIDDLE_FILE);
+        Path hintFile = directory.resolve(Riddle.HINT_FILE);
+        if (!Files.exists(riddleFile) || !Files.exists(hintFile)) {
+            CorpusGenerator.generate(size, directory, 1);
+        }
+
+        // The game is kept in the sink while it's measured so the collector can't see it as dead
+        long before = usedHeap();
+        Riddle maps = new Riddle();
+        maps.loadCorpus(riddleFile, hintFile);
+        RiddleBenchmark.sink = maps;
+        long mapBytes = usedHeap() - before;
+        RiddleBenchmark.sink = null;
+
+        before = usedHeap();
+        Riddle compact = new Riddle();
+        compact.loadCompactCorpus(riddleFile, hintFile);
+        RiddleBenchmark.sink = compact;
+        long compactBytes = usedHeap() - before;
+        RiddleBenchmark.sink = null;
+        return new Result(size, mapBytes, compactBytes);
+    }
+
+    /** Collects until used heap stops shrinking and returns it */
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        long used = Long.MAX_VALUE;
+        for (int i = 0; i < GC_ROUNDS; i++) {
+            System.gc();
+            long now = runtime.totalMemory() - runtime.freeMemory();
+            if (now >= used) {
+                break;
+            }
+            used = now;
+        }
+        return used;
+    }
+}
@@ -0,0 +1,82 @@
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+
+/**
+ * Writes made-up riddles.txt and hints.txt files of any size for benchmarks and tests.
+ * The same size and seed always produce the same files.
+ *
+ * <pre>java CorpusGenerator [riddles] [directory] [seed]</pre>
+ */
+public class CorpusGenerator {
+    private static final String[] WORDS = {
+        "WHAT", "HAS", "A", "HEAD", "TAIL", "BUT", "NO", "BODY", "GOES", "UP", "DOWN", "NEVER",
+        "MOVES", "RUNS", "WALKS", "FLIES", "WINGS", "KEYS", "LOCKS", "ROOM", "WINDOWS", "DOORS",
+        "TEETH", "BITE", "HANDS", "FACE", "CLAP", "EYE", "SEE", "NECK", "BOTTLE", "RIVER", "BANK",
+        "MONEY", "GREEN", "BOAT", "LIGHT", "DARK", "COLD", "HOT", "WATER", "FIRE", "STONE", "TREE",
+        "LEAVES", "ROOTS", "BRANCHES", "MOUTH", "SPEAK", "EARS", "HEAR", "BREAK", "KEEP", "GIVE"
+    };
+
+    public static void main(String[] args) throws IOException {
+        int riddles = args.length > 0 ? Integer.parseInt(args[0]) : 10_000;
+        Path directory = Path.of(args.length > 1 ? args[1] : ".");
+        long seed = args.length > 2 ? Long.parseLong(args[2]) : 1;
+        generate(riddles, directory, seed);
+        System.out.println("wrote " + riddles + " riddles to " + directory);
+    }
+
+    /**
+     * Writes riddles.txt and hints.txt into a directory
+     * @param riddles How many riddles to write
+     * @param directory Where to write the files
+     * @param seed Picks the words used
+     * @return The two files written: riddles first, then hints
+     * @throws IOException if the files can't be written
+     */
+    public static Path[] generate(int riddles, Path directory, long seed) throws IOException {
+        Files.createDirectories(directory);
+        Path riddleFile = directory.resolve(Riddle.RIDDLE_FILE);
+        Path hintFile = directory.resolve(Riddle.HINT_FILE);
+        SplittableRandom random = new SplittableRandom(seed);
+        try (BufferedWriter riddleOut = Files.newBufferedWriter(riddleFile, StandardCharsets.UTF_8);
+             BufferedWriter hintOut = Files.newBufferedWriter(hintFile, StandardCharsets.UTF_8)) {
+            StringBuilder line = new StringBuilder();
+            for (int id = 0; id < riddles; id++) {
+                String answer = answer(id);
+                line.setLength(0);
+                line.append(answer).append(':');
+                int words = 6 + random.nextInt(10);
+                for (int w = 0; w < words; w++) {
+                    line.append(' ').append(WORDS[random.nextInt(WORDS.length)]);
+                }
+                line.append("?\n");
+                riddleOut.write(line.toString());
+
+                line.setLength(0);
+                line.append(answer).append(':');
+                for (int h = 0; h < 3; h++) {
+                    line.append(h == 0 ? " " : ", ").append(WORDS[random.nextInt(WORDS.length)]);
+                }
+                line.append('\n');
+                hintOut.write(line.toString());
+            }
+        }
+        return new Path[] { riddleFile, hintFile };
+    }
+
+    /**
+     * @return A unique all-letter answer for an id, such as "QMXKDEA"
+     */
+    public static String answer(int id) {
+        // Scatter the ids over all 26^6 letter combinations so answers aren't all
+        // a letter or two apart; the multiplier shares no factor with 26^6
+        char[] letters = new char[6];
+        long value = (id * 0x5DEECE66DL + 0x2545F491L) % 308_915_776L;
+        for (int i = letters.length - 1; i >= 0; i--) {
+            letters[i] = (char) ('A' + value % 26);
+            value /= 26;
+        }
+        return "Q" + new String(letters);
+    }
+}
@@ -0,0 +1,129 @@
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.*;
+
+/**
+ * Checks riddles.txt for mistakes the loader lets through: an answer written on
+ * more than one line, where the later riddle silently replaces the earlier
+ * one, and riddles that say nearly the same thing in nearly the same words.
+ * With --close-answers it also reports answers a typo apart, since a player
+ * who types one is told they nearly had the other.
+ *
+ * <pre>java Riddle --lint [riddles.txt] [hints.txt] [--similarity=0.8] [--close-answers]</pre>
+ * Exits with status 1 if anything was found.
+ */
+public class CorpusLint {
+    /** Share of words two riddles must have in common to be reported */
+    static final double DEFAULT_SIMILARITY = 0.8;
+
+    public static void main(String[] args) throws IOException {
+        List<String> files = new ArrayList<>();
+        double similarity = DEFAULT_SIMILARITY;
+        boolean checkClose = false;
+        for (String arg : args) {
+            if (arg.equals("--close-answers")) {
+                checkClose = true;
+            }
+            else if (arg.startsWith("--similarity=")) {
+                similarity = Double.parseDouble(arg.substring(13));
+            }
+            else {
+                files.add(arg);
+            }
+        }
+        Path riddleFile = Path.of(files.size() > 0 ? files.get(0) : Riddle.RIDDLE_FILE);
+        Path hintFile = Path.of(files.size() > 1 ? files.get(1) : Riddle.HINT_FILE);
+
+        List<String> duplicates = duplicateAnswers(CorpusLoader.parse(riddleFile));
+        for (String duplicate : duplicates) {
+            System.out.println(riddleFile + ": " + duplicate);
+        }
+        Riddle game = new Riddle();
+        game.loadCorpus(riddleFile, hintFile);
+        Corpus corpus = game.getCorpus();
+        List<RiddleIndex.Pair> pairs = new RiddleIndex(corpus, Map.of()).nearDuplicates(similarity);
+        for (RiddleIndex.Pair pair : pairs) {
+            System.out.printf("%s: %s and %s look alike (%.0f%% of words shared)%n", riddleFile,
+                    corpus.get(pair.first()).answer(), corpus.get(pair.second()).answer(), 100 * pair.similarity());
+        }
+        List<String> close = checkClose ? closeAnswers(corpus) : List.of();
+        for (String pair : close) {
+            System.out.println(riddleFile + ": " + pair);
+        }
+        System.out.println(duplicates.size() + " duplicate answers, " + pairs.size() + " similar riddles"
+                + (checkClose ? ", " + close.size() + " close answers" : ""));
+        if (!duplicates.isEmpty() || !pairs.isEmpty() || !close.isEmpty()) {
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Finds answers, main or alternate, that are written on more than one line
+     * @param riddles The parsed riddles.txt
+     * @return One message per repeated answer, in file order
+     */
+    public static List<String> duplicateAnswers(CorpusLoader.Result riddles) {
+        Map<String, Integer> firstLine = new HashMap<>();
+        List<String> duplicates = new ArrayList<>();
+        for (CorpusLoader.Line line : riddles.lines()) {
+            for (String answer : AnswerMatcher.parseAnswers(line.key())) {
+                Integer earlier = firstLine.putIfAbsent(AnswerMatcher.canonical(answer), line.lineNumber());
+                if (earlier != null && earlier != line.lineNumber()) {
+                    duplicates.add("line " + line.lineNumber() + ": answer " + answer
+                            + " is already used on line " + earlier);
+                }
+            }
+        }
+        return duplicates;
+    }
+
+    /**
+     * Finds answers, main or alternate, close enough to another riddle's answer
+     * that typing one would be shown as a near miss of the other, see NearMiss
+     * @param corpus The loaded corpus
+     * @return One message per pair of answers, in corpus order
+     */
+    public static List<String> closeAnswers(Corpus corpus) {
+        AnswerIndex index = AnswerIndex.build(corpus, NearMiss.allowedDistance(Integer.MAX_VALUE));
+        Set<String> reported = new HashSet<>();
+        List<String> close = new ArrayList<>();
+        for (int id = 0; id < corpus.size(); id++) {
+            for (String answer : writtenAnswers(corpus.get(id))) {
+                String key = AnswerMatcher.canonical(answer);
+                for (AnswerIndex.Match match : index.search(key, NearMiss.allowedDistance(key.length()))) {
+                    if (match.distance() == 0) {
+                        continue;
+                    }
+                    String mine = answer.toUpperCase(Locale.ROOT);
+                    String theirs = writtenAs(corpus, match).toUpperCase(Locale.ROOT);
+                    String pair = mine.compareTo(theirs) < 0 ? mine + " and " + theirs : theirs + " and " + mine;
+                    if (reported.add(pair)) {
+                        close.add("answers " + pair + " are " + match.distance()
+                                + (match.distance() == 1 ? " edit" : " edits") + " apart");
+                    }
+                }
+            }
+        }
+        return close;
+    }
+
+    /** The main answer of a riddle followed by its alternates */
+    private static List<String> writtenAnswers(RiddleEntry riddle) {
+        List<String> answers = new ArrayList<>(1 + riddle.alternates().size());
+        answers.add(riddle.answer());
+        answers.addAll(riddle.alternates());
+        return answers;
+    }
+
+    /** Finds the answer as written in riddles.txt that an index match's canonical key came from */
+    private static String writtenAs(Corpus corpus, AnswerIndex.Match match) {
+        for (int id : match.riddleIds()) {
+            for (String answer : writtenAnswers(corpus.get(id))) {
+                if (AnswerMatcher.canonical(answer).equals(match.key())) {
+                    return answer;
+                }
+            }
+        }
+        return match.key();
+    }
+}
@@ -0,0 +1,211 @@
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Parses "KEY: value" corpus files such as riddles.txt and hints.txt.
+ * The file is memory mapped, cut into chunks on line boundaries and the chunks
+ * are parsed in parallel on the common fork-join pool. Lines that can't be
+ * parsed are reported as problems instead of being dropped silently.
+ */
+public class CorpusLoader {
+
+    /** Files smaller than this are parsed as a single chunk */
+    static final int CHUNK_SIZE = 64 * 1024;
+
+    /**
+     * A parsed line
+     * @param lineNumber 1-based line number in the file
+     * @param key the trimmed text before the first ':'
+     * @param value everything after the first ':'
+     */
+    public record Line(int lineNumber, String key, String value) {}
+
+    /**
+     * A line that could not be parsed
+     * @param file the file the line came from
+     * @param lineNumber 1-based line number in the file
+     * @param line the raw line
+     * @param reason why the line was rejected
+     */
+    public record Problem(String file, int lineNumber, String line, String reason) {
+        @Override
+        public String toString() {
+            return file + " line " + lineNumber + ": " + reason + " (" + line + ")";
+        }
+    }
+
+    /**
+     * Everything parsed out of one file
+     * @param lines the parsed lines in file order
+     * @param problems the rejected lines in file order
+     */
+    public record Result(List<Line> lines, List<Problem> problems) {}
+
+    /**
+     * Parses a corpus file
+     * @param file The file to read
+     * @return The parsed lines and any problems found
+     * @throws IOException if the file can't be read
+     */
+    public static Result parse(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            String name = file.getFileName().toString();
+            List<Chunk> chunks = ForkJoinPool.commonPool()
+                    .invoke(new ParseTask(buffer, name, 0, buffer.limit()));
+            return merge(chunks);
+        }
+    }
+
+    /**
+     * Parses two corpus files at the same time
+     * @param first The first file to read
+     * @param second The second file to read
+     * @return The results for both files, in argument order
+     * @throws IOException if either file can't be read
+     */
+    public static Result[] parseBoth(Path first, Path second) throws IOException {
+        CompletableFuture<Result> pending = CompletableFuture.supplyAsync(() -> {
+            try {
+                return parse(second);
+            }
+            catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        Result firstResult = parse(first);
+        try {
+            return new Result[] { firstResult, pending.join() };
+        }
+        catch (CompletionException e) {
+            if (e.getCause() instanceof UncheckedIOException io) {
+                throw io.getCause();
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Joins the chunk results back together, fixing up line numbers so they
+     * count from the start of the file rather than the start of each chunk
+     */
+    private static Result merge(List<Chunk> chunks) {
+        List<Line> lines = new ArrayList<>();
+        List<Problem> problems = new ArrayList<>();
+        int offset = 0;
+        for (Chunk chunk : chunks) {
+            for (Line line : chunk.lines) {
+                lines.add(offset == 0 ? line : new Line(line.lineNumber() + offset, line.key(), line.value()));
+            }
+            for (Problem problem : chunk.problems) {
+                problems.add(offset == 0 ? problem : new Problem(problem.file(), problem.lineNumber() + offset,
+                        problem.line(), problem.reason()));
+            }
+            offset += chunk.lineCount;
+        }
+        return new Result(lines, problems);
+    }
+
+    /** Lines parsed out of one chunk, numbered from the start of the chunk */
+    private static class Chunk {
+        final List<Line> lines = new ArrayList<>();
+        final List<Problem> problems = new ArrayList<>();
+        int lineCount;
+    }
+
+    /**
+     * Splits a byte range in half on a line boundary until it is small enough
+     * to parse directly
+     */
+    @SuppressWarnings("serial") // holds a mapped ByteBuffer; never serialized
+    private static class ParseTask extends RecursiveTask<List<Chunk>> {
+        private final ByteBuffer buffer;
+        private final String name;
+        private final int start;
+        private final int end;
+
+        ParseTask(ByteBuffer buffer, String name, int start, int end) {
+            this.buffer = buffer;
+            this.name = name;
+            this.start = start;
+            this.end = end;
+        }
+
+        @Override
+        protected List<Chunk> compute() {
+            if (end - start > CHUNK_SIZE) {
+                int split = nextLineStart(start + (end - start) / 2);
+                if (split > start && split < end) {
+                    ParseTask left = new ParseTask(buffer, name, start, split);
+                    ParseTask right = new ParseTask(buffer, name, split, end);
+                    left.fork();
+                    List<Chunk> chunks = new ArrayList<>(right.compute());
+                    chunks.addAll(0, left.join());
+                    return chunks;
+                }
+            }
+            List<Chunk> chunks = new ArrayList<>(1);
+            chunks.add(parseChunk());
+            return chunks;
+        }
+
+        private int nextLineStart(int position) {
+            while (position < end && buffer.get(position) != '\n') {
+                position++;
+            }
+            return position + 1;
+        }
+
+        private Chunk parseChunk() {
+            Chunk chunk = new Chunk();
+            byte[] bytes = new byte[end - start];
+            buffer.get(start, bytes);
+            int lineStart = 0;
+            while (lineStart < bytes.length) {
+                int lineEnd = lineStart;
+                int colon = -1;
+                while (lineEnd < bytes.length && bytes[lineEnd] != '\n') {
+                    if (colon < 0 && bytes[lineEnd] == ':') {
+                        colon = lineEnd;
+                    }
+                    lineEnd++;
+                }
+                chunk.lineCount++;
+                int contentEnd = lineEnd;
+                if (contentEnd > lineStart && bytes[contentEnd - 1] == '\r') {
+                    contentEnd--;
+                }
+                parseLine(chunk, bytes, lineStart, colon, contentEnd);
+                lineStart = lineEnd + 1;
+            }
+            return chunk;
+        }
+
+        private void parseLine(Chunk chunk, byte[] bytes, int from, int colon, int to) {
+            String raw = new String(bytes, from, to - from, StandardCharsets.UTF_8);
+            if (raw.isBlank()) {
+                return;
+            }
+            if (colon < 0) {
+                chunk.problems.add(new Problem(name, chunk.lineCount, raw, "missing ':'"));
+                return;
+            }
+            String key = new String(bytes, from, colon - from, StandardCharsets.UTF_8).trim();
+            String value = new String(bytes, colon + 1, to - colon - 1, StandardCharsets.UTF_8);
+            if (key.isEmpty()) {
+                chunk.problems.add(new Problem(name, chunk.lineCount, raw, "nothing before ':'"));
+            }
+            else if (value.isBlank()) {
+                chunk.problems.add(new Problem(name, chunk.lineCount, raw, "nothing after ':'"));
+            }
+            else {
+                chunk.lines.add(new Line(chunk.lineCount, key, value));
+            }
+        }
+    }
+}
@@ -0,0 +1,86 @@
+import static org.junit.Assert.*;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import java.io.*;
+import java.nio.file.*;
+import java.util.*;
+
+public class CorpusLoaderTests {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Path write(String name, String content) throws IOException {
+        Path file = folder.getRoot().toPath().resolve(name);
+        Files.writeString(file, content);
+        return file;
+    }
+
+    // Test 1: Riddles containing ':' are kept instead of being dropped
+    @Test
+    public void testColonInRiddle() throws IOException {
+        Path file = write("riddles.txt", "CLOCK: WHAT GOES TICK: TOCK?\n");
+        CorpusLoader.Result result = CorpusLoader.parse(file);
+        assertEquals("Should parse one line", 1, result.lines().size());
+        assertEquals("Key should be trimmed", "CLOCK", result.lines().get(0).key());
+        assertEquals("Value should keep the colon", " WHAT GOES TICK: TOCK?", result.lines().get(0).value());
+        assertTrue("Should have no problems", result.problems().isEmpty());
+    }
+
+    // Test 2: Malformed lines are reported with their line numbers
+    @Test
+    public void testMalformedLines() throws IOException {
+        Path file = write("riddles.txt", "EGG: WHAT HAS TO BE BROKEN?\nNO COLON HERE\n\n: NO ANSWER\nEMPTY:\r\n");
+        CorpusLoader.Result result = CorpusLoader.parse(file);
+        assertEquals("Should parse one good line", 1, result.lines().size());
+        assertEquals("Should report three problems", 3, result.problems().size());
+        assertEquals("Missing colon is on line 2", 2, result.problems().get(0).lineNumber());
+        assertEquals("Missing answer is on line 4", 4, result.problems().get(1).lineNumber());
+        assertEquals("Missing riddle is on line 5", 5, result.problems().get(2).lineNumber());
+    }
+
+    // Test 3: Files larger than one chunk keep file order and line numbers
+    @Test
+    public void testManyChunks() throws IOException {
+        StringBuilder content = new StringBuilder();
+        int count = 3 * CorpusLoader.CHUNK_SIZE / 20;
+        for (int i = 1; i <= count; i++) {
+            content.append(i % 1000 == 0 ? "BROKEN LINE" : "A" + i + ": RIDDLE " + i).append('\n');
+        }
+        CorpusLoader.Result result = CorpusLoader.parse(write("big.txt", content.toString()));
+        assertEquals("Every thousandth line is broken", count / 1000, result.problems().size());
+        assertEquals("Rest should parse", count - count / 1000, result.lines().size());
+        for (CorpusLoader.Line line : result.lines()) {
+            assertEquals("Line number should match key", "A" + line.lineNumber(), line.key());
+        }
+        assertEquals("First problem is line 1000", 1000, result.problems().get(0).lineNumber());
+    }
+
+    // Test 4: Two files load together
+    @Test
+    public void testParseBoth() throws IOException {
+        Path riddles = write("riddles.txt", "BED: WHAT HAS ONE HEAD?\n");
+        Path hints = write("hints.txt", "BED: PILLOW, CUSHY, SLEEP\n");
+        CorpusLoader.Result[] results = CorpusLoader.parseBoth(riddles, hints);
+        assertEquals("Riddle key", "BED", results[0].lines().get(0).key());
+        assertEquals("Hint value", " PILLOW, CUSHY, SLEEP", results[1].lines().get(0).value());
+    }
+
+    // Test 5: A missing file is an IOException rather than an exit
+    @Test(expected = IOException.class)
+    public void testMissingFile() throws IOException {
+        CorpusLoader.parseBoth(folder.getRoot().toPath().resolve("nope.txt"), write("hints.txt", ""));
+    }
+
+    // Test 6: Generated corpora are reproducible and load cleanly
+    @Test
+    public void testGeneratedCorpus() throws IOException {
+        Path[] first = CorpusGenerator.generate(500, folder.getRoot().toPath().resolve("a"), 7);
+        Path[] second = CorpusGenerator.generate(500, folder.getRoot().toPath().resolve("b"), 7);
+        assertEquals("Same seed, same riddles", Files.readString(first[0]), Files.readString(second[0]));
+        CorpusLoader.Result[] results = CorpusLoader.parseBoth(first[0], first[1]);
+        assertEquals("Every riddle parses", 500, results[0].lines().size());
+        assertEquals("Every hint line parses", 500, results[1].lines().size());
+        assertTrue("No problems", results[0].problems().isEmpty() && results[1].problems().isEmpty());
+    }
+}
@@ -0,0 +1,271 @@
+import java.io.IOException;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * Riddle packs in several languages, loaded when first asked for. A pack for a
+ * locale lives in its own directory under the registry's root, holding its own
+ * riddles.txt and hints.txt:
+ * <pre>
+ * packs/classic/en/riddles.txt
+ * packs/classic/en/hints.txt
+ * packs/classic/fr/riddles.txt ...
+ * </pre>
+ * A locale the pack doesn't have falls back to its language (fr-CA to fr) and
+ * then to DEFAULT_LOCALE.
+ * <p>
+ * Packs are loaded with CorpusLoader into a CompactCorpus and kept in an LRU
+ * cache bounded by their estimated heap size rather than their number, since
+ * packs differ in size by orders of magnitude. Threads that ask for a pack
+ * that is already being loaded wait for that load instead of starting another.
+ * Lines the loader skips are counted and passed to the problem handler, if one is set.
+ */
+public class CorpusRegistry {
+    /** Where packs are looked for by default */
+    public static final String DEFAULT_DIRECTORY = "packs";
+    /** The locale used when a pack has nothing closer to the one asked for */
+    public static final String DEFAULT_LOCALE = "en";
+    /** Heap the cached packs may hold by default */
+    public static final long DEFAULT_MAX_BYTES = 256L * 1024 * 1024;
+
+    /**
+     * A pack in one locale
+     * @param pack the pack's directory name
+     * @param locale the locale's directory name
+     */
+    public record Key(String pack, String locale) {}
+
+    private final Path root;
+    private final long maxBytes;
+    private final LinkedHashMap<Key, CompactCorpus> cache = new LinkedHashMap<>(16, 0.75f, true);
+    private final ConcurrentHashMap<Key, CompletableFuture<CompactCorpus>> loading = new ConcurrentHashMap<>();
+    /** The locale each pack and locale asked for resolved to, so a cache hit touches no files */
+    private final ConcurrentHashMap<Key, Key> resolved = new ConcurrentHashMap<>();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder loads = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder problems = new LongAdder();
+    private volatile Consumer<CorpusLoader.Problem> problemHandler;
+    private long cachedBytes;
+
+    /**
+     * @param root The directory holding one directory per pack
+     * @param maxBytes Heap the cached packs may hold; the pack used last is kept even if it alone is bigger
+     */
+    public CorpusRegistry(Path root, long maxBytes) {
+        this.root = root;
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * @param root A directory that may hold packs
+     * @return true if it holds at least one pack directory
+     */
+    public static boolean hasPacks(Path root) {
+        if (!Files.isDirectory(root)) {
+            return false;
+        }
+        try (DirectoryStream<Path> packs = Files.newDirectoryStream(root, Files::isDirectory)) {
+            return packs.iterator().hasNext();
+        }
+        catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Hears about the lines each pack load skips, as Riddle reports them for its own files
+     * @param problemHandler Called on the loading thread for each problem, or null to only count them
+     */
+    public void setProblemHandler(Consumer<CorpusLoader.Problem> problemHandler) {
+        this.problemHandler = problemHandler;
+    }
+
+    /**
+     * Gets a pack, loading it if it isn't cached
+     * @param pack The pack's name
+     * @param locale The locale wanted, such as fr or fr-CA
+     * @return The pack's riddles and hints in that locale, or the nearest one it has
+     * @throws NoSuchFileException if the pack has no riddles in that locale or DEFAULT_LOCALE
+     * @throws IOException if the pack's files can't be read
+     */
+    public Corpus get(String pack, String locale) throws IOException {
+        Key wanted = new Key(pack, locale);
+        Key key = resolved.get(wanted);
+        if (key == null) {
+            key = resolve(pack, locale);
+            resolved.put(wanted, key);
+        }
+        synchronized (this) {
+            CompactCorpus cached = cache.get(key);
+            if (cached != null) {
+                hits.increment();
+                return cached;
+            }
+        }
+        misses.increment();
+        CompletableFuture<CompactCorpus> mine = new CompletableFuture<>();
+        CompletableFuture<CompactCorpus> pending = loading.putIfAbsent(key, mine);
+        if (pending == null) {
+            pending = mine;
+            try {
+                mine.complete(loadOnce(key));
+            }
+            catch (IOException | RuntimeException e) {
+                mine.completeExceptionally(e);
+            }
+            finally {
+                loading.remove(key, mine);
+            }
+        }
+        try {
+            return pending.join();
+        }
+        catch (CompletionException e) {
+            if (e.getCause() instanceof IOException io) {
+                throw io;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Finds the directory to load for a pack and locale
+     * @return The key of the nearest locale the pack has
+     * @throws NoSuchFileException if there is none
+     */
+    Key resolve(String pack, String locale) throws NoSuchFileException {
+        if (pack.isEmpty() || pack.contains("/") || pack.contains("\\") || pack.startsWith(".")) {
+            throw new NoSuchFileException(pack, null, "not a pack name");
+        }
+        List<String> candidates = new ArrayList<>(3);
+        candidates.add(locale);
+        int dash = locale.indexOf('-');
+        if (dash > 0) {
+            candidates.add(locale.substring(0, dash));
+        }
+        candidates.add(DEFAULT_LOCALE);
+        for (String candidate : candidates) {
+            if (!candidate.contains("/") && !candidate.startsWith(".")
+                    && Files.exists(root.resolve(pack).resolve(candidate).resolve(Riddle.RIDDLE_FILE))) {
+                return new Key(pack, candidate);
+            }
+        }
+        throw new NoSuchFileException(root.resolve(pack).resolve(locale).resolve(Riddle.RIDDLE_FILE).toString());
+    }
+
+    /** Loads a pack unless another thread cached it between the miss and taking the load */
+    private CompactCorpus loadOnce(Key key) throws IOException {
+        synchronized (this) {
+            CompactCorpus cached = cache.get(key);
+            if (cached != null) {
+                return cached;
+            }
+        }
+        Path directory = root.resolve(key.pack()).resolve(key.locale());
+        Path hintFile = directory.resolve(Riddle.HINT_FILE);
+        CorpusLoader.Result riddles;
+        CorpusLoader.Result hints;
+        if (Files.exists(hintFile)) {
+            CorpusLoader.Result[] results = CorpusLoader.parseBoth(directory.resolve(Riddle.RIDDLE_FILE), hintFile);
+            riddles = results[0];
+            hints = results[1];
+        }
+        else {
+            riddles = CorpusLoader.parse(directory.resolve(Riddle.RIDDLE_FILE));
+            hints = new CorpusLoader.Result(List.of(), List.of());
+        }
+        CompactCorpus corpus = CompactCorpus.of(riddles, hints);
+        loads.increment();
+        report(riddles);
+        report(hints);
+        put(key, corpus);
+        return corpus;
+    }
+
+    private void report(CorpusLoader.Result result) {
+        Consumer<CorpusLoader.Problem> handler = problemHandler;
+        for (CorpusLoader.Problem problem : result.problems()) {
+            problems.increment();
+            if (handler != null) {
+                handler.accept(problem);
+            }
+        }
+    }
+
+    private synchronized void put(Key key, CompactCorpus corpus) {
+        CompactCorpus old = cache.put(key, corpus);
+        if (old != null) {
+            cachedBytes -= old.heapBytes();
+        }
+        cachedBytes += corpus.heapBytes();
+        Iterator<Map.Entry<Key, CompactCorpus>> eldest = cache.entrySet().iterator();
+        while (cachedBytes > maxBytes && cache.size() > 1) {
+            cachedBytes -= eldest.next().getValue().heapBytes();
+            eldest.remove();
+            evictions.increment();
+        }
+    }
+
+    /**
+     * Drops every cached pack, so the next get() of each reads its files again
+     */
+    public synchronized void clear() {
+        resolved.clear();
+        cache.clear();
+        cachedBytes = 0;
+    }
+
+    /**
+     * @return Lookups answered from the cache
+     */
+    public long getHits() {
+        return hits.sum();
+    }
+
+    /**
+     * @return Lookups that weren't cached, including those that waited on another thread's load
+     */
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    /**
+     * @return Packs read from disk
+     */
+    public long getLoads() {
+        return loads.sum();
+    }
+
+    /**
+     * @return Packs dropped to stay under the size bound
+     */
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    /**
+     * @return Lines skipped by the loader across every pack read
+     */
+    public long getLoadProblems() {
+        return problems.sum();
+    }
+
+    /**
+     * @return Estimated heap held by the cached packs
+     */
+    public synchronized long getCachedBytes() {
+        return cachedBytes;
+    }
+
+    /**
+     * @return The packs cached, least recently used first
+     */
+    public synchronized List<Key> getCachedKeys() {
+        return List.copyOf(cache.keySet());
+    }
+}
@@ -0,0 +1,206 @@
+import static org.junit.Assert.*;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import java.io.*;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+public class CorpusRegistryTests {
+    private Path root;
+
+    @Before
+    public void setUp() throws IOException {
+        root = Files.createTempDirectory("riddle-packs");
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        try (var files = Files.walk(root)) {
+            files.sorted(Comparator.reverseOrder()).forEach(file -> file.toFile().delete());
+        }
+    }
+
+    /** Writes a pack of numbered riddles, each with one hint */
+    private void writePack(String pack, String locale, int riddles) throws IOException {
+        Path directory = Files.createDirectories(root.resolve(pack).resolve(locale));
+        StringBuilder riddleFile = new StringBuilder();
+        StringBuilder hintFile = new StringBuilder();
+        for (int i = 0; i < riddles; i++) {
+            riddleFile.append(locale.toUpperCase()).append("ANSWER").append(i).append(":RIDDLE NUMBER ")
+                      .append(i).append(" OF ").append(pack.toUpperCase()).append("?\n");
+            hintFile.append(locale.toUpperCase()).append("ANSWER").append(i).append(":HINT ").append(i).append('\n');
+        }
+        Files.writeString(directory.resolve(Riddle.RIDDLE_FILE), riddleFile);
+        Files.writeString(directory.resolve(Riddle.HINT_FILE), hintFile);
+    }
+
+    // Test 1: Packs load on first use, are cached after, and fall back to the nearest locale
+    @Test
+    public void testLazyLoadAndFallback() throws IOException {
+        writePack("classic", "en", 10);
+        writePack("classic", "fr", 5);
+        CorpusRegistry registry = new CorpusRegistry(root, CorpusRegistry.DEFAULT_MAX_BYTES);
+        assertEquals("Nothing is loaded up front", 0, registry.getLoads());
+
+        Corpus french = registry.get("classic", "fr");
+        assertEquals(5, french.size());
+        assertTrue(french.get(0).hints().contains("HINT 0"));
+        assertSame("A region falls back to its language", french, registry.get("classic", "fr-CA"));
+        assertEquals("Unknown locales fall back to the default", 10, registry.get("classic", "de").size());
+        assertEquals(2, registry.getLoads());
+        assertEquals(2, registry.getMisses());
+        assertEquals(1, registry.getHits());
+
+        assertThrows(NoSuchFileException.class, () -> registry.get("missing", "en"));
+        assertThrows(NoSuchFileException.class, () -> registry.get("../classic", "en"));
+    }
+
+    // Test 2: The least recently used packs are evicted once the cache is over its size
+    @Test
+    public void testEvictByWeight() throws IOException {
+        writePack("small", "en", 100);
+        writePack("medium", "en", 100);
+        writePack("large", "en", 1000);
+        CorpusRegistry probe = new CorpusRegistry(root, Long.MAX_VALUE);
+        probe.get("small", "en");
+        long smallBytes = probe.getCachedBytes();
+
+        CorpusRegistry registry = new CorpusRegistry(root, 2 * smallBytes + smallBytes / 2);
+        registry.get("small", "en");
+        registry.get("medium", "en");
+        registry.get("small", "en");
+        assertEquals("Both small packs fit", 0, registry.getEvictions());
+        registry.get("large", "en");
+        assertEquals("The large pack alone is over the bound but is kept",
+                List.of(new CorpusRegistry.Key("large", "en")), registry.getCachedKeys());
+        assertEquals(2, registry.getEvictions());
+
+        registry.get("medium", "en");
+        assertEquals("The large pack goes once something newer is cached",
+                List.of(new CorpusRegistry.Key("medium", "en")), registry.getCachedKeys());
+        assertEquals(4, registry.getLoads());
+    }
+
+    // Test 3: Threads asking for the same pack at once share one load
+    @Test
+    public void testConcurrentLoadsShared() throws Exception {
+        writePack("classic", "en", 20_000);
+        CorpusRegistry registry = new CorpusRegistry(root, CorpusRegistry.DEFAULT_MAX_BYTES);
+        int threads = 8;
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        CountDownLatch go = new CountDownLatch(1);
+        List<Future<Corpus>> results = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            results.add(pool.submit(() -> {
+                go.await();
+                return registry.get("classic", "en");
+            }));
+        }
+        go.countDown();
+        Set<Corpus> distinct = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (Future<Corpus> result : results) {
+            distinct.add(result.get(30, TimeUnit.SECONDS));
+        }
+        pool.shutdown();
+        assertEquals("Every thread gets the same corpus", 1, distinct.size());
+        assertEquals("The pack is read once", 1, registry.getLoads());
+        assertEquals(threads, registry.getHits() + registry.getMisses());
+    }
+
+    // Test 4: Sessions can be dealt from a pack, whose skipped lines and cache counters are reported
+    @Test
+    public void testSessionsFromPacks() throws IOException {
+        writePack("classic", "fr", 5);
+        Files.writeString(root.resolve("classic").resolve("fr").resolve(Riddle.RIDDLE_FILE), "NO COLON HERE\n",
+                StandardOpenOption.APPEND);
+        Riddle game = new Riddle();
+        game.loadCorpus();
+        game.setDiagnostics(new PrintStream(OutputStream.nullOutputStream()));
+        game.setPacks(new CorpusRegistry(root, CorpusRegistry.DEFAULT_MAX_BYTES));
+
+        GameSession session = game.newSession(Renderer.CONSOLE_PLAIN, (bytes, offset, length) -> {}, "classic", "fr-CA");
+        session.start();
+        assertTrue(session.getCurrentRiddle().answer().startsWith("FRANSWER"));
+        assertEquals("The skipped line is reported", 1, game.getLoadProblems().size());
+        assertEquals(1, game.getPacks().getLoadProblems());
+        assertThrows(NoSuchFileException.class,
+                () -> game.newSession(Renderer.CONSOLE_PLAIN, (bytes, offset, length) -> {}, "missing", "fr"));
+
+        String prometheus = MetricsExporter.prometheus(game.getMetrics(), game.getPacks());
+        assertTrue(prometheus.contains("riddle_pack_loads_total 1"));
+        assertTrue(prometheus.contains("riddle_pack_load_problems_total 1"));
+        assertTrue(MetricsExporter.json(game.getMetrics(), game.getPacks()).contains("\"packs\":{\"hits\":0,\"misses\":1"));
+    }
+
+    // Test 5: A player on the server can choose a pack before their first guess
+    @Test
+    public void testServerPackCommand() throws IOException {
+        writePack("classic", "fr", 5);
+        Riddle game = new Riddle();
+        game.loadCorpus();
+        game.setPacks(new CorpusRegistry(root, CorpusRegistry.DEFAULT_MAX_BYTES));
+        try (RiddleServer server = new RiddleServer(game, 0, Renderer.NETWORK_PLAIN)) {
+            server.start();
+            try (Socket socket = new Socket("localhost", server.getPort())) {
+                socket.setSoTimeout(5000);
+                BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+                Writer out = new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8);
+                out.write("/pack missing\r\n/pack classic fr\r\n");
+                out.flush();
+                StringBuilder transcript = new StringBuilder();
+                String line;
+                while ((line = in.readLine()) != null && !line.contains("RIDDLE NUMBER")) {
+                    transcript.append(line).append('\n');
+                }
+                assertTrue("The player is told how to choose", transcript.toString().contains("/pack NAME"));
+                assertTrue(transcript.toString().contains("there's no riddle pack missing"));
+                assertNotNull("A riddle from the pack should be shown", line);
+                assertTrue(line.contains("OF CLASSIC"));
+            }
+        }
+    }
+
+    // Test 6: Choosing a pack ends the first game without a result, and a pack that fails to load keeps the server up
+    @Test
+    public void testServerPackFailures() throws IOException {
+        writePack("classic", "fr", 5);
+        assertFalse(CorpusRegistry.hasPacks(root.resolve("missing")));
+        assertTrue(CorpusRegistry.hasPacks(root));
+        Riddle game = new Riddle();
+        game.loadCorpus();
+        game.setPacks(new CorpusRegistry(root, CorpusRegistry.DEFAULT_MAX_BYTES) {
+            @Override
+            public Corpus get(String pack, String locale) throws IOException {
+                if (pack.equals("broken")) {
+                    throw new UncheckedIOException(new IOException("disk on fire"));
+                }
+                return super.get(pack, locale);
+            }
+        });
+        try (SessionJournal journal = SessionJournal.open(root.resolve(Riddle.SESSION_DIRECTORY));
+             RiddleServer server = new RiddleServer(game, 0, Renderer.NETWORK_PLAIN)) {
+            game.setJournal(journal);
+            server.start();
+            try (Socket socket = new Socket("localhost", server.getPort())) {
+                socket.setSoTimeout(5000);
+                BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+                Writer out = new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8);
+                out.write("/pack broken\r\n/pack classic fr\r\n");
+                out.flush();
+                StringBuilder transcript = new StringBuilder();
+                String line;
+                while ((line = in.readLine()) != null && !line.contains("RIDDLE NUMBER")) {
+                    transcript.append(line).append('\n');
+                }
+                assertTrue(transcript.toString().contains("riddle pack broken can't be loaded right now"));
+                assertNotNull("The server should still be serving", line);
+            }
+            assertTrue("The first game isn't left to be resumed", journal.unfinished().isEmpty());
+            assertEquals("Nor counted as lost", 0, game.getMetrics().getGamesLost());
+        }
+    }
+}
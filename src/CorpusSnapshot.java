@@ -0,0 +1,15 @@
+import java.util.*;
+
+/**
+ * One published version of the loaded riddles. A snapshot is never changed after
+ * it is published; reloading builds a new one and swaps it in with a single
+ * write, so a game that read a snapshot keeps seeing matching riddles and hints
+ * for as long as it holds on to it.
+ * @param version counts up by one each time a new snapshot is published
+ * @param corpus the riddles and their hints
+ * @param riddleMap riddle text by answer, as read from riddles.txt
+ * @param hintMap hints by answer, as read from hints.txt
+ */
+public record CorpusSnapshot(long version, Corpus corpus, Map<String, String> riddleMap,
+                             Map<String, List<String>> hintMap) {
+}
@@ -0,0 +1,112 @@
+import java.io.*;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Watches riddles.txt and hints.txt and reloads the game's corpus when either
+ * changes, so riddles can be edited without restarting the console game or the
+ * server. Editors often save in several steps (truncate, write, rename), so the
+ * watcher waits until the files have been quiet for SETTLE_MILLIS and then
+ * reloads once for the whole burst, reading again only the files that changed.
+ */
+public class CorpusWatcher implements Runnable, Closeable {
+    /** How long the files have to stay unchanged before a reload */
+    public static final long SETTLE_MILLIS = 200;
+
+    private final Riddle game;
+    private final Path riddleFile;
+    private final Path hintFile;
+    private final WatchService watchService;
+    private volatile int reloadCount;
+    private Thread thread;
+
+    /**
+     * Starts watching the directories holding the two files
+     * @param game The game to reload
+     * @param riddleFile The riddle file
+     * @param hintFile The hint file
+     * @throws IOException if the directories can't be watched
+     */
+    public CorpusWatcher(Riddle game, Path riddleFile, Path hintFile) throws IOException {
+        this.game = game;
+        this.riddleFile = riddleFile.toAbsolutePath().normalize();
+        this.hintFile = hintFile.toAbsolutePath().normalize();
+        this.watchService = FileSystems.getDefault().newWatchService();
+        for (Path directory : new LinkedHashSet<>(List.of(this.riddleFile.getParent(), this.hintFile.getParent()))) {
+            directory.register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+        }
+    }
+
+    /**
+     * Watches on a background thread
+     * @return This watcher
+     */
+    public CorpusWatcher start() {
+        thread = new Thread(this, "riddle-watcher");
+        thread.setDaemon(true);
+        thread.start();
+        return this;
+    }
+
+    /**
+     * Waits for changes and reloads until the watcher is closed
+     */
+    @Override
+    public void run() {
+        try {
+            while (true) {
+                WatchKey key = watchService.take();
+                boolean riddlesChanged = false;
+                boolean hintsChanged = false;
+                while (key != null) {
+                    for (WatchEvent<?> event : key.pollEvents()) {
+                        if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                            riddlesChanged = true;
+                            hintsChanged = true;
+                            continue;
+                        }
+                        Path changed = ((Path) key.watchable()).resolve((Path) event.context());
+                        riddlesChanged |= changed.equals(riddleFile);
+                        hintsChanged |= changed.equals(hintFile);
+                    }
+                    key.reset();
+                    key = watchService.poll(SETTLE_MILLIS, TimeUnit.MILLISECONDS);
+                }
+                if (riddlesChanged || hintsChanged) {
+                    reload(riddlesChanged, hintsChanged);
+                }
+            }
+        }
+        catch (InterruptedException | ClosedWatchServiceException e) {
+            // closed
+        }
+    }
+
+    private void reload(boolean riddlesChanged, boolean hintsChanged) {
+        try {
+            CorpusSnapshot snapshot = game.reload(riddleFile, hintFile, riddlesChanged, hintsChanged);
+            reloadCount++;
+            game.diagnostics().println(Riddle.YELLOW + "reloaded " + snapshot.corpus().size() + " riddles" + Riddle.RESET);
+        }
+        catch (IOException | RuntimeException e) {
+            // A bad edit mustn't end the watcher, or no later fix would be picked up
+            game.diagnostics().println(Riddle.YELLOW + "couldn't reload riddles, keeping the old ones: " + e + Riddle.RESET);
+        }
+    }
+
+    /**
+     * @return The number of reloads done so far
+     */
+    public int getReloadCount() {
+        return reloadCount;
+    }
+
+    @Override
+    public void close() throws IOException {
+        watchService.close();
+        if (thread != null) {
+            thread.interrupt();
+        }
+    }
+}
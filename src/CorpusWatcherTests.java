@@ -0,0 +1,105 @@
+import static org.junit.Assert.*;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import java.io.*;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class CorpusWatcherTests {
+    private Path directory;
+    private Path riddleFile;
+    private Path hintFile;
+    private Riddle game;
+    private final PrintStream originalOut = System.out;
+
+    @Before
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("riddle-watch");
+        riddleFile = directory.resolve(Riddle.RIDDLE_FILE);
+        hintFile = directory.resolve(Riddle.HINT_FILE);
+        Files.writeString(riddleFile, "EGG: what has to be broken before you can use it?\nBED|COT: what has four legs but can't walk?\n");
+        Files.writeString(hintFile, "EGG: breakfast,chickens,shell\n");
+        System.setOut(new PrintStream(new ByteArrayOutputStream()));
+        game = new Riddle();
+        game.loadCorpus(riddleFile, hintFile);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        System.setOut(originalOut);
+        Files.deleteIfExists(riddleFile);
+        Files.deleteIfExists(hintFile);
+        Files.deleteIfExists(directory);
+    }
+
+    // Test 1: Reloading hints keeps the parsed riddles and running games keep their version
+    @Test
+    public void testReloadHints() throws IOException {
+        CorpusSnapshot before = game.getSnapshot();
+        RiddleEntry bed = before.corpus().get(1);
+        Files.writeString(hintFile, "EGG: breakfast,chickens,shell\nBED: sleep,pillow,sheets\n");
+
+        CorpusSnapshot after = game.reload(riddleFile, hintFile, false, true);
+        assertEquals(before.version() + 1, after.version());
+        assertEquals("New games see the new hints", 3, game.findRiddle(bed.text()).hints().size());
+        assertSame("Answer keys are reused, not rebuilt", bed.answerKeys(), after.corpus().get(1).answerKeys());
+        assertTrue("Alternates survive", after.corpus().get(1).accepts("cot"));
+        assertEquals("The old snapshot is untouched", 0, before.corpus().get(1).hints().size());
+        assertFalse(before.hintMap().containsKey("BED"));
+    }
+
+    // Test 2: The published maps can't be changed by callers
+    @Test(expected = UnsupportedOperationException.class)
+    public void testMapsAreReadOnly() {
+        game.getRiddleMap().put("BOAT", "what floats?");
+    }
+
+    // Test 3: Editing riddles.txt on disk reloads it in the background
+    @Test
+    public void testWatcherReloads() throws Exception {
+        try (CorpusWatcher watcher = new CorpusWatcher(game, riddleFile, hintFile).start()) {
+            Files.writeString(riddleFile, "EGG: what has to be broken before you can use it?\nBOAT: what floats?\n");
+            long deadline = System.currentTimeMillis() + 10_000;
+            while (watcher.getReloadCount() == 0 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(20);
+            }
+            assertEquals(1, watcher.getReloadCount());
+            assertTrue(game.getRiddleMap().containsKey("BOAT"));
+            assertFalse(game.getRiddleMap().containsKey("BED"));
+            assertEquals("Hints are kept", 3, game.findRiddle(game.getRiddleMap().get("EGG")).hints().size());
+        }
+    }
+
+    // Test 4: A reload that throws is reported and the watcher goes on to pick up the next edit
+    @Test
+    public void testWatcherSurvivesFailedReload() throws Exception {
+        AtomicInteger attempts = new AtomicInteger();
+        Riddle failingOnce = new Riddle() {
+            @Override
+            public synchronized CorpusSnapshot reload(Path riddles, Path hints, boolean riddlesChanged,
+                                                      boolean hintsChanged) throws IOException {
+                if (attempts.getAndIncrement() == 0) {
+                    throw new IllegalArgumentException("malformed line");
+                }
+                return super.reload(riddles, hints, riddlesChanged, hintsChanged);
+            }
+        };
+        failingOnce.loadCorpus(riddleFile, hintFile);
+        try (CorpusWatcher watcher = new CorpusWatcher(failingOnce, riddleFile, hintFile).start()) {
+            Files.writeString(riddleFile, "EGG: what has to be broken before you can use it?\nBOAT: what floats?\n");
+            long deadline = System.currentTimeMillis() + 10_000;
+            while (attempts.get() == 0 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(20);
+            }
+            Thread.sleep(CorpusWatcher.SETTLE_MILLIS);
+            Files.writeString(riddleFile, "EGG: what has to be broken before you can use it?\nCOAT: what has a collar?\n");
+            while (watcher.getReloadCount() == 0 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(20);
+            }
+            assertEquals(1, watcher.getReloadCount());
+            assertTrue(failingOnce.getRiddleMap().containsKey("COAT"));
+        }
+    }
+}
@@ -0,0 +1,90 @@
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The same game for everyone on a given day, so players can compare how they
+ * did. The date seeds every choice: which riddles are dealt and in what order,
+ * the order of each riddle's hints, and the order of the wrong and right
+ * answer messages. A challenge is worked out once per day and corpus and is
+ * shared by every session; starting a session only copies five references
+ * into a queue. The banner naming the day is encoded once per renderer.
+ */
+public class DailyChallenge {
+    /** Mixed into the date so the daily seed isn't simply the day number */
+    private static final long SALT = 0x52494444_4C45L;
+
+    private final LocalDate date;
+    private final Corpus corpus;
+    private final List<RiddleEntry> riddles;
+    private final long randomMessageSeed;
+    private final long correctMessageSeed;
+    private final Map<Renderer, byte[]> banners = new ConcurrentHashMap<>();
+
+    private DailyChallenge(LocalDate date, Corpus corpus, List<RiddleEntry> riddles, long randomMessageSeed,
+                           long correctMessageSeed) {
+        this.date = date;
+        this.corpus = corpus;
+        this.riddles = riddles;
+        this.randomMessageSeed = randomMessageSeed;
+        this.correctMessageSeed = correctMessageSeed;
+    }
+
+    /**
+     * Works out a day's challenge
+     * @param corpus The corpus to deal from
+     * @param date The day
+     * @return The challenge; the same corpus and date always give the same one
+     */
+    public static DailyChallenge of(Corpus corpus, LocalDate date) {
+        SplittableRandom random = new SplittableRandom(seedFor(date));
+        int[] ids = RiddleSampler.sample(corpus.size(), Riddle.RIDDLES_PER_GAME, random);
+        List<RiddleEntry> riddles = new ArrayList<>(ids.length);
+        for (int id : ids) {
+            RiddleEntry riddle = corpus.get(id);
+            List<String> hints = new ArrayList<>(riddle.hints());
+            Collections.shuffle(hints, new Random(random.nextLong()));
+            riddles.add(riddle.withHints(List.copyOf(hints)));
+        }
+        return new DailyChallenge(date, corpus, List.copyOf(riddles), random.nextLong(), random.nextLong());
+    }
+
+    /**
+     * @param date A day
+     * @return The seed every choice in that day's challenge comes from
+     */
+    public static long seedFor(LocalDate date) {
+        long seed = date.toEpochDay() ^ SALT;
+        seed = (seed ^ (seed >>> 33)) * 0xFF51AFD7ED558CCDL;
+        return seed ^ (seed >>> 33);
+    }
+
+    /**
+     * Starts a session playing this challenge
+     * @param renderer How to draw the game's output
+     * @param out Where to send the game's output
+     * @return The new session; call start() to show the rules, the banner and the first riddle
+     */
+    public GameSession newSession(Renderer renderer, GameOutput out) {
+        GameSession session = GameSession.newGame(corpus, new ArrayDeque<>(riddles),
+                Riddle.RANDOM_MESSAGES.cursor(randomMessageSeed), Riddle.CORRECT_MESSAGES.cursor(correctMessageSeed),
+                renderer, out);
+        session.setIntro(banners.computeIfAbsent(renderer, r -> r.banner("daily challenge for " + date)));
+        return session;
+    }
+
+    public LocalDate getDate() {
+        return date;
+    }
+
+    public Corpus getCorpus() {
+        return corpus;
+    }
+
+    /**
+     * @return The day's riddles in the order they are played, with their hints in the day's order
+     */
+    public List<RiddleEntry> getRiddles() {
+        return riddles;
+    }
+}
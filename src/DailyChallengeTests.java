@@ -0,0 +1,78 @@
+import static org.junit.Assert.*;
+import org.junit.Before;
+import org.junit.Test;
+import java.time.*;
+import java.util.*;
+
+public class DailyChallengeTests {
+    private static final LocalDate DAY = LocalDate.of(2026, 10, 17);
+
+    private Riddle game;
+
+    @Before
+    public void setUp() {
+        game = new Riddle();
+        game.loadCorpus();
+        game.setClock(Clock.fixed(DAY.atStartOfDay(ZoneOffset.UTC).toInstant(), ZoneOffset.UTC));
+    }
+
+    // Test 1: A date always gives the same riddles, hint order and messages, and another date doesn't
+    @Test
+    public void testDeterministic() {
+        DailyChallenge first = DailyChallenge.of(game.getCorpus(), DAY);
+        DailyChallenge again = DailyChallenge.of(game.getCorpus(), DAY);
+        DailyChallenge tomorrow = DailyChallenge.of(game.getCorpus(), DAY.plusDays(1));
+        assertEquals(Riddle.RIDDLES_PER_GAME, first.getRiddles().size());
+        assertEquals("Same day should give the same set", first.getRiddles(), again.getRiddles());
+        assertNotEquals("Another day should give another set", first.getRiddles(), tomorrow.getRiddles());
+        for (RiddleEntry riddle : first.getRiddles()) {
+            assertEquals("Hints should only be reordered", new HashSet<>(game.getCorpus().get(riddle.id()).hints()),
+                    new HashSet<>(riddle.hints()));
+        }
+        assertEquals("Sessions should play out the same", transcript(first), transcript(again));
+    }
+
+    private static String transcript(DailyChallenge challenge) {
+        StringBuilder out = new StringBuilder();
+        GameSession session = challenge.newSession(Renderer.CONSOLE_PLAIN,
+                (bytes, offset, length) -> out.append(new String(bytes, offset, length)));
+        session.start();
+        for (String input : new String[] { "a", "b", "c", "y", "d", "y", "e", "y" }) {
+            session.onInput(input);
+        }
+        session.onInput(challenge.getRiddles().get(0).answer());
+        return out.toString();
+    }
+
+    // Test 2: The challenge is worked out once a day and shared by every session
+    @Test
+    public void testSharedAndRefreshedDaily() {
+        game.setSelection(Riddle.Selection.DAILY);
+        DailyChallenge today = game.dailyChallenge();
+        assertSame("Should be cached", today, game.dailyChallenge());
+        StringBuilder out = new StringBuilder();
+        GameSession session = game.newSession(Renderer.CONSOLE_PLAIN,
+                (bytes, offset, length) -> out.append(new String(bytes, offset, length)));
+        session.start();
+        assertTrue("Banner should name the day", out.toString().contains("daily challenge for 2026-10-17"));
+        assertEquals(today.getRiddles().get(0), session.getCurrentRiddle());
+
+        game.setClock(Clock.fixed(DAY.plusDays(1).atStartOfDay(ZoneOffset.UTC).toInstant(), ZoneOffset.UTC));
+        assertNotSame("A new day should get a new challenge", today, game.dailyChallenge());
+        assertEquals(DAY.plusDays(1), game.dailyChallenge().getDate());
+    }
+
+    // Test 3: Random play still deals its own riddles
+    @Test
+    public void testRandomPlayUnchanged() {
+        Set<List<Integer>> deals = new HashSet<>();
+        for (int i = 0; i < 20; i++) {
+            GameSession session = game.newSession(Renderer.CONSOLE_PLAIN, (bytes, offset, length) -> {});
+            session.start();
+            List<Integer> ids = new ArrayList<>();
+            ids.add(session.getCurrentRiddle().id());
+            deals.add(ids);
+        }
+        assertTrue("Random games should not all start alike", deals.size() > 1);
+    }
+}
@@ -0,0 +1,413 @@
+import java.io.*;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.random.RandomGenerator;
+
+/**
+ * Sorts a corpus into difficulty buckets and deals games from them.
+ * A riddle's difficulty is the number of guesses players need on average, with
+ * a hint counted as HINT_GUESSES guesses and a loss as LOSS_GUESSES. Until a
+ * riddle has been played a few times the author's tier stands in for the
+ * missing plays, so rated riddles start in the right bucket and unrated ones
+ * start in the middle.
+ * <p>
+ * Each bucket is an array of riddle ids and every riddle knows its place in
+ * its bucket, so a finished riddle is rescored and moved in constant time and
+ * picking a riddle from a bucket is one random index. Dealing a game of k
+ * riddles is O(k) however large the corpus is. Play counts are atomic, so
+ * recording a finished riddle only takes the index's lock when the riddle
+ * changes bucket; an index must only hear from sessions dealt from its corpus.
+ * <p>
+ * What the index learns is saved by answer with save() and read back into a
+ * new index with restore(), so it survives restarts and changes to the corpus.
+ * Counts are matched to riddles by the id they were saved under when that
+ * riddle still has the same answer, so a compiled corpus only decodes the
+ * riddles that have been played. Answers that moved are looked up in a
+ * TextCorpus, and otherwise wait until their riddle is next played.
+ */
+public class DifficultyIndex implements GameListener {
+    /** Number of difficulty buckets, 0 easiest */
+    public static final int BUCKETS = 5;
+    /** Guesses a hint is worth when scoring a riddle */
+    static final double HINT_GUESSES = 1.5;
+    /** Guesses a loss is worth when scoring a riddle */
+    static final double LOSS_GUESSES = GameSession.MAX_ATTEMPTS + 2;
+    /** Plays the author's tier counts for */
+    static final double PRIOR_PLAYS = 3;
+
+    /** Average guesses assumed for each author tier; unrated riddles (0) sit in the middle */
+    private static final double[] TIER_GUESSES = { 3.5, 1.5, 2.5, 3.5, 5.0, 7.0 };
+    /** Upper score limits of every bucket but the last */
+    private static final double[] BUCKET_LIMITS = { 2.0, 3.0, 4.25, 6.0 };
+    /** Tries at a random pick before moving to a neighbouring bucket */
+    private static final int PICK_TRIES = 8;
+
+    private static final int MAGIC = 0x44494646;
+    private static final int VERSION = 2;
+
+    private final Corpus corpus;
+    private final byte[] tiers;
+    private final AtomicIntegerArray plays;
+    private final AtomicIntegerArray guesses;
+    private final AtomicIntegerArray hints;
+    /** Plays, guesses and hints by answer for riddles that haven't been found in the corpus yet */
+    private final ConcurrentHashMap<String, int[]> pending = new ConcurrentHashMap<>();
+    private final byte[] bucketOf;
+    private final int[] positionOf;
+    private final int[][] members = new int[BUCKETS][];
+    private final int[] memberCount = new int[BUCKETS];
+
+    /**
+     * Buckets a corpus by its authors' tiers
+     * @param corpus The corpus
+     */
+    public DifficultyIndex(Corpus corpus) {
+        this(corpus, null);
+    }
+
+    /**
+     * Buckets a corpus, keeping what an index over an older version of it learned
+     * about riddles whose answers didn't change
+     * @param corpus The corpus
+     * @param previous The index to carry play counts over from, or null
+     */
+    public DifficultyIndex(Corpus corpus, DifficultyIndex previous) {
+        int size = corpus.size();
+        this.corpus = corpus;
+        this.tiers = new byte[size];
+        this.plays = new AtomicIntegerArray(size);
+        this.guesses = new AtomicIntegerArray(size);
+        this.hints = new AtomicIntegerArray(size);
+        this.bucketOf = new byte[size];
+        this.positionOf = new int[size];
+        for (int bucket = 0; bucket < BUCKETS; bucket++) {
+            members[bucket] = new int[Math.max(16, size / BUCKETS)];
+        }
+        for (int id = 0; id < size; id++) {
+            tiers[id] = (byte) corpus.tier(id);
+        }
+        if (previous != null) {
+            for (int old = 0; old < previous.tiers.length; old++) {
+                if (previous.plays.get(old) > 0) {
+                    carry(previous.corpus.get(old).answer(), old, previous.plays.get(old),
+                            previous.guesses.get(old), previous.hints.get(old));
+                }
+            }
+            previous.pending.forEach((answer, counts) -> carry(answer, -1, counts[0], counts[1], counts[2]));
+        }
+        for (int id = 0; id < size; id++) {
+            add(id, bucketFor(score(id)));
+        }
+    }
+
+    public Corpus getCorpus() {
+        return corpus;
+    }
+
+    /**
+     * @param id A riddle id
+     * @return The riddle's bucket, 0 easiest
+     */
+    public synchronized int bucketOf(int id) {
+        return bucketOf[id];
+    }
+
+    /**
+     * @param bucket A bucket
+     * @return How many riddles are in it
+     */
+    public synchronized int bucketSize(int bucket) {
+        return memberCount[bucket];
+    }
+
+    /**
+     * @param id A riddle id
+     * @return The average guesses the riddle takes, blended with its author's tier
+     */
+    public double score(int id) {
+        return (guesses.get(id) + HINT_GUESSES * hints.get(id) + PRIOR_PLAYS * TIER_GUESSES[tiers[id]])
+                / (plays.get(id) + PRIOR_PLAYS);
+    }
+
+    @Override
+    public void solved(RiddleEntry riddle, int guessCount, int hintsUsed) {
+        record(riddle, guessCount, hintsUsed);
+    }
+
+    @Override
+    public void lost(RiddleEntry riddle, int hintsUsed, boolean quit) {
+        if (!quit) {
+            record(riddle, (int) LOSS_GUESSES, hintsUsed);
+        }
+    }
+
+    private void record(RiddleEntry riddle, int guessCount, int hintsUsed) {
+        int id = riddle.id();
+        if (id < 0 || id >= tiers.length) {
+            return;
+        }
+        if (!pending.isEmpty()) {
+            int[] saved = pending.remove(riddle.answer());
+            if (saved != null) {
+                count(id, saved[0], saved[1], saved[2]);
+            }
+        }
+        count(id, 1, guessCount, hintsUsed);
+        rebucket(id);
+    }
+
+    private void count(int id, int playCount, int guessCount, int hintCount) {
+        plays.addAndGet(id, playCount);
+        guesses.addAndGet(id, guessCount);
+        hints.addAndGet(id, hintCount);
+    }
+
+    /** Moves a riddle to the bucket its score now belongs in */
+    private void rebucket(int id) {
+        // Unlocked first look: a stale read only delays the move to the riddle's next play
+        if (bucketFor(score(id)) == bucketOf[id]) {
+            return;
+        }
+        synchronized (this) {
+            int bucket = bucketFor(score(id));
+            if (bucket != bucketOf[id]) {
+                remove(id);
+                add(id, bucket);
+            }
+        }
+    }
+
+    /**
+     * Adds counts learned under an answer to the riddle that has it now, or keeps them
+     * pending if it can't be found without decoding the corpus
+     * @param likelyId The id the riddle had, tried first
+     * @return The riddle's id, or -1 if the counts are pending
+     */
+    private int carry(String answer, int likelyId, int playCount, int guessCount, int hintCount) {
+        int id = -1;
+        if (likelyId >= 0 && likelyId < tiers.length && corpus.get(likelyId).answer().equals(answer)) {
+            id = likelyId;
+        }
+        else if (corpus instanceof TextCorpus text) {
+            RiddleEntry riddle = text.findByAnswer(answer);
+            id = riddle == null ? -1 : riddle.id();
+        }
+        if (id >= 0) {
+            count(id, playCount, guessCount, hintCount);
+        }
+        else {
+            pending.merge(answer, new int[] { playCount, guessCount, hintCount }, (a, b) -> new int[] {
+                    a[0] + b[0], a[1] + b[1], a[2] + b[2] });
+        }
+        return id;
+    }
+
+    /**
+     * Deals riddles that get harder through the game, spread evenly from the easiest bucket to the hardest
+     * @param count How many riddles to deal
+     * @param random The random number source for this game
+     * @param excluded Ids of riddles that shouldn't be picked
+     * @return Up to count distinct riddle ids, easiest first
+     */
+    public synchronized int[] escalating(int count, RandomGenerator random, int... excluded) {
+        int[] picked = new int[count];
+        int filled = 0;
+        for (int i = 0; i < count; i++) {
+            int bucket = count == 1 ? BUCKETS / 2 : i * (BUCKETS - 1) / (count - 1);
+            int id = pick(bucket, random, picked, filled, excluded);
+            if (id >= 0) {
+                picked[filled++] = id;
+            }
+        }
+        return Arrays.copyOf(picked, filled);
+    }
+
+    /**
+     * Deals riddles from one bucket, or the nearest buckets once it runs out
+     * @param bucket The bucket to deal from, see skillBucket()
+     * @param count How many riddles to deal
+     * @param random The random number source for this game
+     * @param excluded Ids of riddles that shouldn't be picked
+     * @return Up to count distinct riddle ids
+     */
+    public synchronized int[] matched(int bucket, int count, RandomGenerator random, int... excluded) {
+        int[] picked = new int[count];
+        int filled = 0;
+        for (int i = 0; i < count; i++) {
+            int id = pick(bucket, random, picked, filled, excluded);
+            if (id >= 0) {
+                picked[filled++] = id;
+            }
+        }
+        return Arrays.copyOf(picked, filled);
+    }
+
+    /**
+     * Works out which bucket suits a player: the fewer guesses and hints they need
+     * per riddle, the harder the bucket
+     * @param player The player's profile
+     * @return A bucket, 0 easiest
+     */
+    public static int skillBucket(PlayerProfile player) {
+        if (player.riddlesSolved() == 0) {
+            return player.games() == 0 ? BUCKETS / 2 : 0;
+        }
+        double lost = player.games() - player.wins();
+        double cost = (player.guesses() + HINT_GUESSES * player.hintsUsed() + LOSS_GUESSES * lost)
+                / (player.riddlesSolved() + lost);
+        return BUCKETS - 1 - bucketFor(cost);
+    }
+
+    /**
+     * Picks a random riddle from a bucket, moving outwards to easier and harder buckets in turn if it has none left
+     * @return The riddle id, or -1 if every riddle has been picked or excluded
+     */
+    private int pick(int bucket, RandomGenerator random, int[] picked, int filled, int[] excluded) {
+        for (int distance = 0; distance < BUCKETS; distance++) {
+            for (int direction : new int[] { -1, 1 }) {
+                int candidate = bucket + direction * distance;
+                if (candidate < 0 || candidate >= BUCKETS || (distance == 0 && direction > 0)) {
+                    continue;
+                }
+                int id = pickFrom(candidate, random, picked, filled, excluded);
+                if (id >= 0) {
+                    return id;
+                }
+            }
+        }
+        return -1;
+    }
+
+    private int pickFrom(int bucket, RandomGenerator random, int[] picked, int filled, int[] excluded) {
+        int size = memberCount[bucket];
+        if (size == 0) {
+            return -1;
+        }
+        if (size > PICK_TRIES) {
+            for (int tries = 0; tries < PICK_TRIES; tries++) {
+                int id = members[bucket][random.nextInt(size)];
+                if (allowed(id, picked, filled, excluded)) {
+                    return id;
+                }
+            }
+        }
+        // A small or nearly used up bucket: walk it from a random start
+        int start = random.nextInt(size);
+        for (int i = 0; i < size; i++) {
+            int id = members[bucket][(start + i) % size];
+            if (allowed(id, picked, filled, excluded)) {
+                return id;
+            }
+        }
+        return -1;
+    }
+
+    private static boolean allowed(int id, int[] picked, int filled, int[] excluded) {
+        for (int i = 0; i < filled; i++) {
+            if (picked[i] == id) {
+                return false;
+            }
+        }
+        for (int other : excluded) {
+            if (other == id) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void add(int id, int bucket) {
+        int[] bucketMembers = members[bucket];
+        if (memberCount[bucket] == bucketMembers.length) {
+            bucketMembers = members[bucket] = Arrays.copyOf(bucketMembers, bucketMembers.length * 2);
+        }
+        bucketMembers[memberCount[bucket]] = id;
+        positionOf[id] = memberCount[bucket]++;
+        bucketOf[id] = (byte) bucket;
+    }
+
+    /** Swaps the riddle with the last member of its bucket and drops it */
+    private void remove(int id) {
+        int bucket = bucketOf[id];
+        int last = members[bucket][--memberCount[bucket]];
+        members[bucket][positionOf[id]] = last;
+        positionOf[last] = positionOf[id];
+    }
+
+    /**
+     * Writes the play counts of every riddle that has been played, by answer
+     * @param file The file to write; replaced in one step so a crash leaves the old one
+     * @throws IOException if the file can't be written
+     */
+    public void save(Path file) throws IOException {
+        List<Integer> played = new ArrayList<>();
+        for (int id = 0; id < tiers.length; id++) {
+            if (plays.get(id) > 0) {
+                played.add(id);
+            }
+        }
+        Map<String, int[]> waiting = new HashMap<>(pending);
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(played.size() + waiting.size());
+            for (int id : played) {
+                write(out, corpus.get(id).answer(), id, plays.get(id), guesses.get(id), hints.get(id));
+            }
+            for (Map.Entry<String, int[]> entry : waiting.entrySet()) {
+                int[] counts = entry.getValue();
+                write(out, entry.getKey(), -1, counts[0], counts[1], counts[2]);
+            }
+        }
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static void write(DataOutputStream out, String answer, int id, int playCount, int guessCount,
+                              int hintCount) throws IOException {
+        out.writeUTF(answer);
+        out.writeInt(id);
+        out.writeInt(playCount);
+        out.writeInt(guessCount);
+        out.writeInt(hintCount);
+    }
+
+    /**
+     * Adds the play counts saved by save() to the riddles with the same answers, and
+     * moves them to the buckets they now belong in
+     * @param file The file save() wrote; nothing is restored if it doesn't exist
+     * @throws IOException if the file can't be read or isn't a saved index
+     */
+    public void restore(Path file) throws IOException {
+        if (!Files.exists(file)) {
+            return;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            int version;
+            if (in.readInt() != MAGIC || (version = in.readInt()) < 1 || version > VERSION) {
+                throw new IOException(file + " is not a saved difficulty index");
+            }
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                String answer = in.readUTF();
+                // Version 1 saved answers only
+                int savedId = version > 1 ? in.readInt() : -1;
+                int id = carry(answer, savedId, in.readInt(), in.readInt(), in.readInt());
+                if (id >= 0) {
+                    rebucket(id);
+                }
+            }
+        }
+    }
+
+    private static int bucketFor(double score) {
+        for (int bucket = 0; bucket < BUCKET_LIMITS.length; bucket++) {
+            if (score < BUCKET_LIMITS[bucket]) {
+                return bucket;
+            }
+        }
+        return BUCKETS - 1;
+    }
+}
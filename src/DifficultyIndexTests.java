@@ -0,0 +1,203 @@
+import static org.junit.Assert.*;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.SplittableRandom;
+
+public class DifficultyIndexTests {
+    /** Average guesses DifficultyIndex assumes for a tier 1 riddle */
+    private static final double TIER_GUESSES_1 = 1.5;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /** Ten riddles of each tier, 1 to 5 */
+    private static TextCorpus tieredCorpus() {
+        TextCorpus corpus = new TextCorpus();
+        for (int tier = 1; tier <= 5; tier++) {
+            for (int i = 0; i < 10; i++) {
+                corpus.addRiddle("T" + tier + "R" + i + "#" + tier, "riddle " + tier + "." + i);
+            }
+        }
+        return corpus;
+    }
+
+    // Test 1: Tiers are read from riddles.txt answers and kept out of the answers themselves
+    @Test
+    public void testParseTier() {
+        assertEquals(2, AnswerMatcher.parseTier("YARDSTICK|RULER#2"));
+        assertEquals(List.of("YARDSTICK", "RULER"), AnswerMatcher.parseAnswers("YARDSTICK|RULER#2"));
+        assertEquals("EGG", AnswerMatcher.primaryAnswer("EGG#1"));
+        assertEquals("Unrated", 0, AnswerMatcher.parseTier("EGG"));
+        assertEquals("Out of range", 0, AnswerMatcher.parseTier("EGG#9"));
+        Riddle game = new Riddle();
+        game.loadRiddles();
+        RiddleEntry egg = game.findRiddle(game.getRiddleMap().get("EGG"));
+        assertEquals(1, egg.tier());
+        assertTrue(egg.accepts("egg"));
+    }
+
+    // Test 2: Riddles start in the bucket of their tier and escalating games climb through them
+    @Test
+    public void testEscalating() {
+        TextCorpus corpus = tieredCorpus();
+        DifficultyIndex index = new DifficultyIndex(corpus);
+        for (int bucket = 0; bucket < DifficultyIndex.BUCKETS; bucket++) {
+            assertEquals(10, index.bucketSize(bucket));
+        }
+        int[] game = index.escalating(5, new SplittableRandom(1));
+        assertEquals(5, game.length);
+        for (int i = 0; i < game.length; i++) {
+            assertEquals("Riddle " + i + " should come from bucket " + i, i, index.bucketOf(game[i]));
+        }
+    }
+
+    // Test 3: Play moves riddles between buckets as it happens
+    @Test
+    public void testIncrementalUpdate() {
+        TextCorpus corpus = tieredCorpus();
+        DifficultyIndex index = new DifficultyIndex(corpus);
+        RiddleEntry easy = corpus.get(0);
+        assertEquals(0, index.bucketOf(easy.id()));
+        for (int i = 0; i < 5; i++) {
+            index.lost(easy, GameSession.MAX_HINTS, false);
+        }
+        assertEquals("Lost five times, it's now among the hardest", DifficultyIndex.BUCKETS - 1, index.bucketOf(easy.id()));
+        assertEquals(9, index.bucketSize(0));
+        assertEquals(11, index.bucketSize(DifficultyIndex.BUCKETS - 1));
+        index.lost(easy, 0, true);
+        assertEquals("Quitting says nothing about difficulty", 11, index.bucketSize(DifficultyIndex.BUCKETS - 1));
+    }
+
+    // Test 4: Deals are distinct, skip excluded riddles and fall back to other buckets
+    @Test
+    public void testMatchedFallsBack() {
+        TextCorpus corpus = tieredCorpus();
+        DifficultyIndex index = new DifficultyIndex(corpus);
+        int[] excluded = { 40, 41, 42 };
+        int[] game = index.matched(DifficultyIndex.BUCKETS - 1, 12, new SplittableRandom(7), excluded);
+        assertEquals(12, game.length);
+        Set<Integer> seen = new HashSet<>();
+        int hardest = 0;
+        for (int id : game) {
+            assertTrue("No repeats", seen.add(id));
+            assertTrue("No excluded riddles", id < 40 || id > 42);
+            hardest += index.bucketOf(id) == DifficultyIndex.BUCKETS - 1 ? 1 : 0;
+        }
+        assertEquals("Every allowed riddle of the hardest bucket is used first", 7, hardest);
+        assertEquals(50, index.matched(0, 60, new SplittableRandom(3)).length);
+    }
+
+    // Test 5: Strong players get harder buckets than weak ones
+    @Test
+    public void testSkillBucket() {
+        PlayerProfile strong = new PlayerProfile("ann", 4, 4, 20, 24, 0, 0);
+        PlayerProfile weak = new PlayerProfile("bob", 4, 0, 6, 40, 12, 0);
+        assertEquals(DifficultyIndex.BUCKETS - 1, DifficultyIndex.skillBucket(strong));
+        assertEquals(0, DifficultyIndex.skillBucket(weak));
+        assertEquals(DifficultyIndex.BUCKETS / 2, DifficultyIndex.skillBucket(PlayerProfile.empty("new")));
+    }
+
+    // Test 6: Random games teach the index too, and what it learned is saved by answer for the next run
+    @Test
+    public void testRandomGamesAreSaved() throws IOException {
+        Path file = folder.getRoot().toPath().resolve(Riddle.DIFFICULTY_FILE);
+        Riddle game = new Riddle();
+        game.setCorpus(tieredCorpus());
+        game.setDifficultyFile(file);
+        GameSession session = game.newSession(Renderer.CONSOLE_PLAIN, (bytes, offset, length) -> {});
+        session.start();
+        RiddleEntry riddle = session.getCurrentRiddle();
+        session.onInput(riddle.answer());
+        DifficultyIndex index = game.getDifficultyIndex();
+        double learned = index.score(riddle.id());
+        assertNotEquals("A random game should count", new DifficultyIndex(tieredCorpus()).score(riddle.id()),
+                learned, 1e-9);
+        game.saveDifficulty();
+
+        TextCorpus reordered = new TextCorpus();
+        for (int id = 49; id >= 0; id--) {
+            RiddleEntry entry = index.getCorpus().get(id);
+            reordered.addRiddle(entry.answer() + "#" + entry.tier(), entry.text());
+        }
+        Riddle next = new Riddle();
+        next.setCorpus(reordered);
+        next.setDifficultyFile(file);
+        assertEquals("Restored by answer, not by id", learned,
+                next.getDifficultyIndex().score(49 - riddle.id()), 1e-9);
+    }
+
+    // Test 7: Daily games count though the challenge deals copies of the riddles with shuffled hints
+    @Test
+    public void testDailyGamesCount() {
+        Riddle game = new Riddle();
+        game.setCorpus(tieredCorpus());
+        game.setSelection(Riddle.Selection.DAILY);
+        GameSession session = game.newSession(Renderer.CONSOLE_PLAIN, (bytes, offset, length) -> {});
+        session.start();
+        DifficultyIndex untouched = new DifficultyIndex(tieredCorpus());
+        List<Integer> solved = new ArrayList<>();
+        while (!session.isOver()) {
+            RiddleEntry riddle = session.getCurrentRiddle();
+            solved.add(riddle.id());
+            session.onInput(riddle.answer());
+        }
+        assertEquals(Riddle.RIDDLES_PER_GAME, solved.size());
+        for (int id : solved) {
+            assertNotEquals("Riddle " + id + " should have been scored", untouched.score(id),
+                    game.getDifficultyIndex().score(id), 1e-9);
+        }
+    }
+
+    // Test 8: Restoring and carrying counts over only decodes the riddles that were played
+    @Test
+    public void testRestoreDecodesPlayedOnly() throws IOException {
+        Path file = folder.getRoot().toPath().resolve(Riddle.DIFFICULTY_FILE);
+        CompactCorpus compact = CompactCorpus.copyOf(tieredCorpus());
+        DifficultyIndex played = new DifficultyIndex(compact);
+        played.solved(compact.get(3), 1, 0);
+        played.lost(compact.get(7), 2, false);
+        played.save(file);
+
+        int[] decoded = new int[1];
+        Corpus counting = new Corpus() {
+            public int size() {
+                return compact.size();
+            }
+
+            public RiddleEntry get(int id) {
+                decoded[0]++;
+                return compact.get(id);
+            }
+
+            public RiddleEntry find(String text) {
+                return compact.find(text);
+            }
+
+            public int tier(int id) {
+                return compact.tier(id);
+            }
+        };
+        DifficultyIndex restored = new DifficultyIndex(counting);
+        restored.restore(file);
+        assertEquals(played.score(3), restored.score(3), 1e-9);
+        assertEquals(played.score(7), restored.score(7), 1e-9);
+        assertEquals(2, decoded[0]);
+        new DifficultyIndex(counting, restored);
+        assertEquals("Carrying over decodes the played riddles in both corpora", 6, decoded[0]);
+
+        TextCorpus reordered = new TextCorpus();
+        for (int id = 49; id >= 0; id--) {
+            reordered.addEntry(compact.get(id));
+        }
+        DifficultyIndex moved = new DifficultyIndex(CompactCorpus.copyOf(reordered));
+        moved.restore(file);
+        assertEquals("Moved answers wait for their riddle to be played", TIER_GUESSES_1, moved.score(46), 1e-9);
+        moved.solved(moved.getCorpus().get(46), 1, 0);
+        assertEquals((1 + 1 + DifficultyIndex.PRIOR_PLAYS * TIER_GUESSES_1) / (2 + DifficultyIndex.PRIOR_PLAYS),
+                moved.score(46), 1e-9);
+    }
+}
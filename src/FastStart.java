@@ -0,0 +1,161 @@
+import java.io.*;
+import java.nio.file.*;
+import java.time.Instant;
+import java.util.*;
+
+/**
+ * Starts a console game as fast as the JVM allows, for kiosks that launch a
+ * fresh JVM per game. Three things cut the wait before the rules appear:
+ * <ul>
+ * <li>A training run (--train) plays headless games through the same classes a
+ * real game uses. Run under -XX:ArchiveClassesAtExit it leaves an AppCDS
+ * archive, so later launches map those classes in already parsed and
+ * verified instead of loading them from the class path one by one.</li>
+ * <li>Standard input is read with a plain reader opened on first use rather
+ * than a Scanner built before the rules are shown.</li>
+ * <li>The JIT is warmed up on a throwaway corpus, but only once the first
+ * prompt is on screen: the player takes seconds to read the riddle, and
+ * warming up before the prompt would only push the prompt back.</li>
+ * </ul>
+ * <pre>
+ * java -XX:ArchiveClassesAtExit=riddle.jsa -cp bin FastStart --train
+ * java -XX:SharedArchiveFile=riddle.jsa -cp bin FastStart [--startup-report] [Riddle options]
+ * </pre>
+ * With --startup-report the time from the JVM's start to the first prompt is
+ * printed to standard error when the game ends.
+ */
+public class FastStart {
+    /** Longest the first prompt may take from JVM start, as checked by FastStartTests */
+    public static final long FIRST_PROMPT_BUDGET_MILLIS = 1500;
+    /** Games played by a training run */
+    static final int TRAINING_GAMES = 2000;
+    /** Games played to warm up the JIT after the first prompt */
+    static final int WARMUP_GAMES = 500;
+
+    private static final GameOutput DISCARD = (bytes, offset, length) -> {};
+
+    private static volatile long firstPromptMillis;
+
+    public static void main(String[] args) throws IOException {
+        long mainMillis = System.currentTimeMillis();
+        List<String> options = new ArrayList<>(Arrays.asList(args));
+        if (options.remove("--train")) {
+            train();
+            return;
+        }
+        boolean report = options.remove("--startup-report");
+        System.setOut(new PrintStream(new FirstWrite(new FileOutputStream(FileDescriptor.out)), false));
+        Riddle.main(options.toArray(new String[0]));
+        System.out.flush();
+        if (report) {
+            long jvmStart = jvmStartMillis(mainMillis);
+            System.err.printf("time to first prompt: %d ms (main reached after %d ms)%n",
+                    firstPromptMillis == 0 ? -1 : firstPromptMillis - jvmStart, mainMillis - jvmStart);
+        }
+    }
+
+    /**
+     * @return When the JVM process started, or the fallback if the platform can't say
+     */
+    static long jvmStartMillis(long fallback) {
+        return ProcessHandle.current().info().startInstant().map(Instant::toEpochMilli).orElse(fallback);
+    }
+
+    /**
+     * Plays headless games through the classes a console game uses, for a class archive
+     * @throws IOException if the corpus or the scratch files can't be used
+     */
+    static void train() throws IOException {
+        Riddle game = new Riddle();
+        if (!game.loadCompiledCorpus()) {
+            game.loadCorpus();
+        }
+        Path scratch = Files.createTempDirectory("riddle-train");
+        try (PlayerStore store = PlayerStore.open(scratch.resolve(Riddle.PLAYER_DIRECTORY));
+             SessionJournal journal = SessionJournal.open(scratch.resolve(Riddle.SESSION_DIRECTORY))) {
+            game.setPlayerStore(store);
+            game.setJournal(journal);
+            new CorpusWatcher(game, Path.of(Riddle.RIDDLE_FILE), Path.of(Riddle.HINT_FILE)).start().close();
+            for (int i = 0; i < TRAINING_GAMES; i++) {
+                Renderer renderer = i % 2 == 0 ? Renderer.CONSOLE : Renderer.CONSOLE_PLAIN;
+                GameSession session = game.newSession(renderer, DISCARD);
+                play(session, i);
+                store.record(GameResult.of("training", session));
+                TurnBuffer turn = TurnBuffer.forCurrentThread();
+                renderer.leaderboard(turn, store.leaderboard(PlayerStore.LEADERBOARD_SIZE));
+                turn.writeTo(DISCARD);
+            }
+        }
+        finally {
+            try (var files = Files.walk(scratch)) {
+                files.sorted(Comparator.reverseOrder()).forEach(file -> file.toFile().delete());
+            }
+        }
+        warmUp();
+        System.out.println("played " + TRAINING_GAMES + " training games");
+    }
+
+    /**
+     * Runs the game's hot paths (rendering, answer checks, hint offers) until the JIT has
+     * compiled them, on a small corpus of its own so no player's game or metrics are touched
+     */
+    static void warmUp() {
+        TextCorpus corpus = new TextCorpus();
+        corpus.addRiddle("EGG", "WHAT HAS TO BE BROKEN BEFORE YOU CAN USE IT?");
+        corpus.addRiddle("CLOCK", "WHAT HAS HANDS BUT CAN'T CLAP?");
+        corpus.addRiddle("YARDSTICK|RULER", "WHAT HAS INCHES BUT NO FEET?");
+        corpus.addHints("EGG", List.of("CHICKEN", "BREAKFAST", "SHELL"));
+        corpus.addHints("CLOCK", List.of("TIME", "TICK", "WALL"));
+        for (int i = 0; i < WARMUP_GAMES; i++) {
+            Queue<RiddleEntry> riddles = new ArrayDeque<>(List.of(corpus.get(i % 3), corpus.get((i + 1) % 3)));
+            GameSession session = GameSession.newGame(corpus, riddles, Riddle.RANDOM_MESSAGES.cursor(i),
+                    Riddle.CORRECT_MESSAGES.cursor(i), i % 2 == 0 ? Renderer.CONSOLE : Renderer.CONSOLE_PLAIN, DISCARD);
+            play(session, i);
+        }
+    }
+
+    /** Plays a game with a few wrong guesses, a hint taken and one refused on each riddle */
+    private static void play(GameSession session, int seed) {
+        session.start();
+        while (!session.isOver()) {
+            RiddleEntry riddle = session.getCurrentRiddle();
+            for (int wrong = 0; wrong < GameSession.HINT_AFTER + 1 && !session.isOver(); wrong++) {
+                session.onInput(wrong == 0 ? riddle.answer() + "x" : "wrong" + seed);
+                if (session.getState() == GameSession.State.HINT_OFFERED) {
+                    session.onInput(wrong % 2 == 0 ? "y" : "n");
+                }
+            }
+            GameSession.isCorrectAnswer(riddle, riddle.answer().toLowerCase());
+            session.onInput(seed % 7 == 0 ? "quit" : riddle.answer().toLowerCase() + "s");
+            if (seed % 7 == 0) {
+                session.quit();
+            }
+        }
+    }
+
+    /** Notes when the game first writes, which is the first prompt, and starts warming up then */
+    private static final class FirstWrite extends FilterOutputStream {
+        private boolean written;
+
+        FirstWrite(OutputStream out) {
+            super(new BufferedOutputStream(out, 8192));
+        }
+
+        @Override
+        public void write(byte[] bytes, int offset, int length) throws IOException {
+            out.write(bytes, offset, length);
+        }
+
+        @Override
+        public void flush() throws IOException {
+            out.flush();
+            if (!written) {
+                written = true;
+                firstPromptMillis = System.currentTimeMillis();
+                Thread warmer = new Thread(FastStart::warmUp, "riddle-warmup");
+                warmer.setDaemon(true);
+                warmer.start();
+            }
+        }
+    }
+}
@@ -0,0 +1,84 @@
+import static org.junit.Assert.*;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.*;
+
+public class FastStartTests {
+    private Path directory;
+
+    @Before
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("riddle-faststart");
+        Files.copy(Path.of(Riddle.RIDDLE_FILE), directory.resolve(Riddle.RIDDLE_FILE));
+        Files.copy(Path.of(Riddle.HINT_FILE), directory.resolve(Riddle.HINT_FILE));
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        try (var files = Files.walk(directory)) {
+            files.sorted(Comparator.reverseOrder()).forEach(file -> file.toFile().delete());
+        }
+    }
+
+    // Test 1: A fresh JVM shows the first prompt within the budget
+    @Test
+    public void testFirstPromptWithinBudget() throws Exception {
+        Path java = Path.of(System.getProperty("java.home"), "bin", "java");
+        Process process = new ProcessBuilder(java.toString(), "-cp", System.getProperty("java.class.path"),
+                "FastStart", "--startup-report")
+                .directory(directory.toFile())
+                .redirectOutput(ProcessBuilder.Redirect.DISCARD)
+                .start();
+        process.getOutputStream().close();
+        assertTrue("The game should end once its input does", process.waitFor(60, TimeUnit.SECONDS));
+        String report = new String(process.getErrorStream().readAllBytes(), StandardCharsets.UTF_8);
+        Matcher matcher = Pattern.compile("time to first prompt: (-?\\d+) ms").matcher(report);
+        assertTrue(report, matcher.find());
+        long millis = Long.parseLong(matcher.group(1));
+        assertTrue("No prompt was shown: " + report, millis >= 0);
+        assertTrue("First prompt took " + millis + " ms", millis < FastStart.FIRST_PROMPT_BUDGET_MILLIS);
+    }
+
+    // Test 2: Warming up plays its own games without touching a live game's corpus, metrics or files
+    @Test
+    public void testWarmUp() throws IOException {
+        Riddle game = new Riddle();
+        game.loadCorpus(directory.resolve(Riddle.RIDDLE_FILE), directory.resolve(Riddle.HINT_FILE));
+        Path players = directory.resolve(Riddle.PLAYER_DIRECTORY);
+        try (PlayerStore store = PlayerStore.open(players);
+             SessionJournal journal = SessionJournal.open(players.resolve(Riddle.SESSION_DIRECTORY))) {
+            game.setPlayerStore(store);
+            game.setJournal(journal);
+            GameSession session = game.newSession(Renderer.CONSOLE_PLAIN, (bytes, offset, length) -> {});
+            session.start();
+            session.onInput(session.getCurrentRiddle().answer());
+            store.record(GameResult.of("ann", session));
+            Corpus corpus = game.getCorpus();
+            String metrics = MetricsExporter.json(game.getMetrics());
+            Map<Path, Long> files = sizes(directory);
+
+            FastStart.warmUp();
+
+            assertSame(corpus, game.getCorpus());
+            assertEquals("The live game's metrics are untouched", metrics, MetricsExporter.json(game.getMetrics()));
+            assertEquals("No player or journal files are written", files, sizes(directory));
+            assertEquals(1, store.leaderboard(PlayerStore.LEADERBOARD_SIZE).size());
+        }
+    }
+
+    private static Map<Path, Long> sizes(Path root) throws IOException {
+        Map<Path, Long> sizes = new TreeMap<>();
+        try (var files = Files.walk(root)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                sizes.put(root.relativize(file), Files.isDirectory(file) ? -1 : Files.size(file));
+            }
+        }
+        return sizes;
+    }
+}
@@ -0,0 +1,184 @@
+import jdk.jfr.*;
+
+/**
+ * Flight Recorder events for the phases of a game, so a recording shows where
+ * a slow session spent its time: loading the corpus, dealing riddles, checking
+ * answers, offering and showing hints, and waiting for the player to type.
+ * Record with -XX:StartFlightRecording=filename=riddle.jfr and summarize the
+ * recording with TraceReport.
+ * <p>
+ * Until Flight Recorder is started each event costs one check of a flag;
+ * once it runs, disabled events are checks the JIT folds away, and the events
+ * that fire once a guess leave out stack traces so they stay cheap even when
+ * recording.
+ */
+public final class GameEvents {
+    /** Prefix of every event name, so a report can pick out the game's events */
+    static final String PREFIX = "riddle.";
+
+    private GameEvents() {
+    }
+
+    /**
+     * Whether events are worth creating at all. Loading the first event class sets up Flight
+     * Recorder's metadata, which costs hundreds of milliseconds at startup, so until Flight
+     * Recorder has been started in this JVM (by -XX:StartFlightRecording, jcmd JFR.start or a
+     * Recording) the begin methods return null and no event class is loaded.
+     * @return true once Flight Recorder is running
+     */
+    static boolean active() {
+        return FlightRecorder.isInitialized();
+    }
+
+    /**
+     * @return A started CorpusLoad event, or null if Flight Recorder isn't running
+     */
+    static CorpusLoad beginCorpusLoad() {
+        if (!active()) {
+            return null;
+        }
+        CorpusLoad event = new CorpusLoad();
+        event.begin();
+        return event;
+    }
+
+    /**
+     * @return A started Selection event, or null if Flight Recorder isn't running
+     */
+    static Selection beginSelection() {
+        if (!active()) {
+            return null;
+        }
+        Selection event = new Selection();
+        event.begin();
+        return event;
+    }
+
+    /**
+     * @return A started AnswerCheck event, or null if Flight Recorder isn't running
+     */
+    static AnswerCheck beginAnswerCheck() {
+        if (!active()) {
+            return null;
+        }
+        AnswerCheck event = new AnswerCheck();
+        event.begin();
+        return event;
+    }
+
+    /**
+     * @return A started Hint event, or null if Flight Recorder isn't running
+     */
+    static Hint beginHint() {
+        if (!active()) {
+            return null;
+        }
+        Hint event = new Hint();
+        event.begin();
+        return event;
+    }
+
+    /**
+     * Starts timing a wait for input. A session keeps the event until the player answers,
+     * so it is only created when a recording wants it.
+     * @param riddleId The riddle being asked
+     * @param attempt Wrong guesses at it so far
+     * @return The started event, or null if InputWait isn't being recorded
+     */
+    static InputWait beginInputWait(int riddleId, int attempt) {
+        if (!active() || !Probe.INPUT_WAIT.isEnabled()) {
+            return null;
+        }
+        InputWait event = new InputWait();
+        event.riddleId = riddleId;
+        event.attempt = attempt;
+        event.begin();
+        return event;
+    }
+
+    /** Asked whether waits are being recorded; a holder so it loads only once Flight Recorder runs */
+    private static final class Probe {
+        static final InputWait INPUT_WAIT = new InputWait();
+    }
+
+    @Name(PREFIX + "CorpusLoad")
+    @Label("Corpus Load")
+    @Category("Riddle")
+    @Description("Riddles or hints read from disk and made ready to deal")
+    public static class CorpusLoad extends Event {
+        @Label("Source")
+        @Description("What was loaded: riddles, hints, corpus, compact or compiled")
+        String source;
+
+        @Label("File")
+        String file;
+
+        @Label("Riddles")
+        @Description("Riddles in the corpus once loaded")
+        int riddles;
+    }
+
+    @Name(PREFIX + "Selection")
+    @Label("Selection")
+    @Category("Riddle")
+    @Description("Riddles dealt for a new game")
+    @StackTrace(false)
+    public static class Selection extends Event {
+        @Label("Mode")
+        String mode;
+
+        @Label("Riddles")
+        int riddles;
+    }
+
+    @Name(PREFIX + "AnswerCheck")
+    @Label("Answer Check")
+    @Category("Riddle")
+    @Description("A guess looked up among a riddle's answers")
+    @StackTrace(false)
+    public static class AnswerCheck extends Event {
+        @Label("Riddle Id")
+        int riddleId;
+
+        @Label("Attempt")
+        @Description("1 for the first guess at the riddle")
+        int attempt;
+
+        @Label("Correct")
+        boolean correct;
+    }
+
+    @Name(PREFIX + "Hint")
+    @Label("Hint")
+    @Category("Riddle")
+    @Description("A hint offered, or the player's answer to the offer handled")
+    @StackTrace(false)
+    public static class Hint extends Event {
+        @Label("Riddle Id")
+        int riddleId;
+
+        @Label("Attempt")
+        int attempt;
+
+        @Label("Action")
+        @Description("offered, used up, shown, declined or invalid")
+        String action;
+
+        @Label("Hints Used")
+        int hintsUsed;
+    }
+
+    @Name(PREFIX + "InputWait")
+    @Label("Input Wait")
+    @Category("Riddle")
+    @Description("Time from a prompt to the player's next line")
+    @StackTrace(false)
+    public static class InputWait extends Event {
+        @Label("Riddle Id")
+        int riddleId;
+
+        @Label("Attempt")
+        @Description("Wrong guesses at the riddle before the prompt")
+        int attempt;
+    }
+}
@@ -0,0 +1,15 @@
+import java.io.IOException;
+
+/**
+ * Where a game reads the player's lines from
+ */
+@FunctionalInterface
+public interface GameInput {
+
+    /**
+     * Reads the player's next line
+     * @return The line without its line ending, or null once the player has gone away
+     * @throws IOException if the input can't be read
+     */
+    String readLine() throws IOException;
+}
@@ -0,0 +1,88 @@
+/**
+ * Hears about what happens in a GameSession, for anything that learns from play
+ * such as GameMetrics and DifficultyIndex. Calls are made on the session's
+ * thread while it handles a line, so listeners shared between sessions have to
+ * be thread safe and quick.
+ */
+public interface GameListener {
+
+    /**
+     * A riddle was shown to the player
+     * @param riddle The riddle
+     */
+    default void riddleShown(RiddleEntry riddle) {
+    }
+
+    /**
+     * The player made a guess, right or wrong
+     * @param riddle The riddle being guessed
+     * @param nanos How long the player took since the last prompt
+     */
+    default void guessed(RiddleEntry riddle, long nanos) {
+    }
+
+    /**
+     * The player solved a riddle
+     * @param riddle The riddle
+     * @param guesses Guesses it took, including the right one
+     * @param hintsUsed Hints shown for it
+     */
+    default void solved(RiddleEntry riddle, int guesses, int hintsUsed) {
+    }
+
+    /**
+     * The game was lost on a riddle
+     * @param riddle The riddle
+     * @param hintsUsed Hints shown for it
+     * @param quit true if the player left rather than running out of guesses
+     */
+    default void lost(RiddleEntry riddle, int hintsUsed, boolean quit) {
+    }
+
+    /**
+     * A full game ended
+     * @param won true if every riddle was solved
+     */
+    default void gameOver(boolean won) {
+    }
+
+    /**
+     * Combines two listeners
+     * @param first Told first
+     * @param second Told second
+     * @return A listener that tells both
+     */
+    static GameListener both(GameListener first, GameListener second) {
+        return new GameListener() {
+            @Override
+            public void riddleShown(RiddleEntry riddle) {
+                first.riddleShown(riddle);
+                second.riddleShown(riddle);
+            }
+
+            @Override
+            public void guessed(RiddleEntry riddle, long nanos) {
+                first.guessed(riddle, nanos);
+                second.guessed(riddle, nanos);
+            }
+
+            @Override
+            public void solved(RiddleEntry riddle, int guesses, int hintsUsed) {
+                first.solved(riddle, guesses, hintsUsed);
+                second.solved(riddle, guesses, hintsUsed);
+            }
+
+            @Override
+            public void lost(RiddleEntry riddle, int hintsUsed, boolean quit) {
+                first.lost(riddle, hintsUsed, quit);
+                second.lost(riddle, hintsUsed, quit);
+            }
+
+            @Override
+            public void gameOver(boolean won) {
+                first.gameOver(won);
+                second.gameOver(won);
+            }
+        };
+    }
+}
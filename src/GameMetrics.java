@@ -0,0 +1,188 @@
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counts how each riddle is played: how many guesses it takes to solve, how many
+ * hints get used, how often players lose on it and how long they think before
+ * each guess. One instance is shared by every session; all counters are
+ * LongAdders, so sessions on different threads record without blocking or
+ * contending with each other. Stats for a riddle are created the first time it
+ * is shown, so a large corpus only pays for the riddles that are actually played.
+ * They are kept by answer rather than by id, since ids change when the riddles
+ * are reloaded or another pack is played.
+ */
+public class GameMetrics implements GameListener {
+
+    /**
+     * The counters for one riddle
+     */
+    public static final class RiddleStats {
+        private volatile int id;
+        private final String answer;
+        private final LongAdder plays = new LongAdder();
+        private final LongAdder solves = new LongAdder();
+        private final LongAdder losses = new LongAdder();
+        private final LongAdder quits = new LongAdder();
+        private final LongAdder hints = new LongAdder();
+        private final LongAdder guesses = new LongAdder();
+        private final LongAdder guessNanos = new LongAdder();
+        private final LongAdder[] guessesToSolve = new LongAdder[GameSession.MAX_ATTEMPTS];
+
+        private RiddleStats(int id, String answer) {
+            this.id = id;
+            this.answer = answer;
+            for (int i = 0; i < guessesToSolve.length; i++) {
+                guessesToSolve[i] = new LongAdder();
+            }
+        }
+
+        /** @return The riddle's id in the corpus it was last played from */
+        public int id() {
+            return id;
+        }
+
+        public String answer() {
+            return answer;
+        }
+
+        /** @return Times the riddle was shown to a player */
+        public long plays() {
+            return plays.sum();
+        }
+
+        /** @return Times the riddle was solved */
+        public long solves() {
+            return solves.sum();
+        }
+
+        /** @return Games lost on this riddle by running out of guesses */
+        public long losses() {
+            return losses.sum();
+        }
+
+        /** @return Games abandoned on this riddle */
+        public long quits() {
+            return quits.sum();
+        }
+
+        /** @return Hints shown for this riddle */
+        public long hints() {
+            return hints.sum();
+        }
+
+        /** @return Guesses made on this riddle */
+        public long guesses() {
+            return guesses.sum();
+        }
+
+        /** @return Total time players spent on those guesses */
+        public long guessNanos() {
+            return guessNanos.sum();
+        }
+
+        /**
+         * @return How many solves took each number of guesses; index 0 holds solves on the first guess
+         */
+        public long[] guessesToSolve() {
+            long[] counts = new long[guessesToSolve.length];
+            for (int i = 0; i < counts.length; i++) {
+                counts[i] = guessesToSolve[i].sum();
+            }
+            return counts;
+        }
+    }
+
+    private final ConcurrentHashMap<String, RiddleStats> riddles = new ConcurrentHashMap<>();
+    private final LatencyHistogram guessTimes = new LatencyHistogram();
+    private final LongAdder gamesWon = new LongAdder();
+    private final LongAdder gamesLost = new LongAdder();
+
+    @Override
+    public void riddleShown(RiddleEntry riddle) {
+        RiddleStats stats = statsFor(riddle);
+        if (stats != null) {
+            stats.plays.increment();
+        }
+    }
+
+    @Override
+    public void guessed(RiddleEntry riddle, long nanos) {
+        guessTimes.record(nanos);
+        RiddleStats stats = statsFor(riddle);
+        if (stats != null) {
+            stats.guesses.increment();
+            stats.guessNanos.add(nanos);
+        }
+    }
+
+    @Override
+    public void solved(RiddleEntry riddle, int guesses, int hintsUsed) {
+        RiddleStats stats = statsFor(riddle);
+        if (stats != null) {
+            stats.solves.increment();
+            stats.hints.add(hintsUsed);
+            stats.guessesToSolve[Math.min(Math.max(guesses, 1), stats.guessesToSolve.length) - 1].increment();
+        }
+    }
+
+    @Override
+    public void lost(RiddleEntry riddle, int hintsUsed, boolean quit) {
+        RiddleStats stats = statsFor(riddle);
+        if (stats != null) {
+            (quit ? stats.quits : stats.losses).increment();
+            stats.hints.add(hintsUsed);
+        }
+    }
+
+    @Override
+    public void gameOver(boolean won) {
+        (won ? gamesWon : gamesLost).increment();
+    }
+
+    public long getGamesWon() {
+        return gamesWon.sum();
+    }
+
+    public long getGamesLost() {
+        return gamesLost.sum();
+    }
+
+    /**
+     * @return Time players take per guess across every riddle
+     */
+    public LatencyHistogram getGuessTimes() {
+        return guessTimes;
+    }
+
+    /**
+     * @param answer The riddle's answer
+     * @return The riddle's counters, or null if it hasn't been played
+     */
+    public RiddleStats getStats(String answer) {
+        return riddles.get(answer);
+    }
+
+    /**
+     * @return Counters for every riddle that has been played, by id
+     */
+    public List<RiddleStats> getAllStats() {
+        List<RiddleStats> all = new ArrayList<>(riddles.values());
+        all.sort(Comparator.comparingInt(RiddleStats::id).thenComparing(RiddleStats::answer));
+        return all;
+    }
+
+    private RiddleStats statsFor(RiddleEntry riddle) {
+        if (riddle == null || riddle.id() < 0) {
+            return null;
+        }
+        RiddleStats stats = riddles.get(riddle.answer());
+        if (stats == null) {
+            return riddles.computeIfAbsent(riddle.answer(), answer -> new RiddleStats(riddle.id(), answer));
+        }
+        if (stats.id != riddle.id()) {
+            stats.id = riddle.id();
+        }
+        return stats;
+    }
+}
@@ -0,0 +1,15 @@
+/**
+ * Where a game sends what the player sees
+ */
+@FunctionalInterface
+public interface GameOutput {
+
+    /**
+     * Sends one turn of output to the player. The bytes are only valid for the
+     * length of the call, so implementations that hold on to them must copy them.
+     * @param bytes The encoded output
+     * @param offset Where the output starts in the array
+     * @param length How many bytes to send
+     */
+    void write(byte[] bytes, int offset, int length);
+}
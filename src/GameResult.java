@@ -0,0 +1,59 @@
+import java.io.*;
+
+/**
+ * The outcome of one finished game, as stored in the player log.
+ * @param player the player's name
+ * @param won true if every riddle was solved
+ * @param riddlesSolved how many riddles were solved
+ * @param guesses guesses made over the whole game
+ * @param hintsUsed hints shown over the whole game
+ * @param playMillis how long the game took
+ * @param finishedAt when the game ended, in milliseconds since the epoch
+ */
+public record GameResult(String player, boolean won, int riddlesSolved, int guesses, int hintsUsed,
+                         long playMillis, long finishedAt) {
+
+    /**
+     * Takes the result of a finished session
+     * @param player The player's name
+     * @param session The session
+     * @return The result
+     */
+    public static GameResult of(String player, GameSession session) {
+        long now = System.currentTimeMillis();
+        return new GameResult(player, session.isWon(), session.getSolvedCount(), session.getTotalGuesses(),
+                session.getTotalHints(), now - session.getStartedAt(), now);
+    }
+
+    /**
+     * @return The result as a log record
+     */
+    public byte[] encode() {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeUTF(player);
+            out.writeBoolean(won);
+            out.writeInt(riddlesSolved);
+            out.writeInt(guesses);
+            out.writeInt(hintsUsed);
+            out.writeLong(playMillis);
+            out.writeLong(finishedAt);
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Reads a result back from a log record
+     * @param record The bytes written by encode()
+     * @return The result
+     * @throws IOException if the record is malformed
+     */
+    public static GameResult decode(byte[] record) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(record));
+        return new GameResult(in.readUTF(), in.readBoolean(), in.readInt(), in.readInt(), in.readInt(),
+                in.readLong(), in.readLong());
+    }
+}
@@ -0,0 +1,541 @@
+import java.io.IOException;
+import java.util.*;
+
+/**
+ * One player's game. The session holds only that player's progress (the riddles
+ * left, attempts and hints used on the current riddle, message cursors) and
+ * moves forward one input line at a time, so many sessions can share a single
+ * loaded Corpus and be driven from any kind of input and output. Everything a
+ * call produces is rendered into one buffer and written to the output once.
+ */
+public class GameSession {
+    /** Wrong guesses on one riddle that lose the game */
+    public static final int MAX_ATTEMPTS = 11;
+    /** Wrong guesses on one riddle before hints are offered */
+    public static final int HINT_AFTER = 3;
+    /** Hints available for each riddle */
+    public static final int MAX_HINTS = 3;
+
+    public enum State { GUESSING, HINT_OFFERED, WON, LOST }
+
+    private final Corpus corpus;
+    private final Queue<RiddleEntry> riddlesToDo;
+    private final MessageSource randomMessages;
+    private final MessageSource correctMessages;
+    private final Renderer renderer;
+    private final GameOutput out;
+    private final boolean fullGame;
+    private GameListener listener;
+    private byte[] intro;
+
+    private RiddleEntry currentRiddle;
+    private int attempts;
+    private int hintsUsed;
+    private int solvedCount;
+    private int totalGuesses;
+    private int totalHints;
+    private long startedAt;
+    private State state;
+    private long promptedAt;
+    private GameEvents.InputWait waiting;
+    private SessionJournal journal;
+    private long journalId;
+    private boolean replaying;
+
+    private GameSession(Corpus corpus, Queue<RiddleEntry> riddlesToDo, MessageSource randomMessages,
+                        MessageSource correctMessages, Renderer renderer, GameOutput out, boolean fullGame) {
+        this.corpus = corpus;
+        this.riddlesToDo = riddlesToDo;
+        this.randomMessages = randomMessages;
+        this.correctMessages = correctMessages;
+        this.renderer = renderer;
+        this.out = out;
+        this.fullGame = fullGame;
+        this.state = State.GUESSING;
+    }
+
+    /**
+     * Creates a full game: the rules, every riddle in the queue, then the win or loss message
+     * @param corpus The corpus the riddles came from
+     * @param riddlesToDo The riddles to solve, in order
+     * @param randomMessages Messages shown after a wrong guess
+     * @param correctMessages Messages shown after a right guess
+     * @param renderer How to draw the game's output
+     * @param out Where to send the game's output
+     * @return The new session; call start() to show the first riddle
+     */
+    public static GameSession newGame(Corpus corpus, Queue<RiddleEntry> riddlesToDo, MessageSource randomMessages,
+                                      MessageSource correctMessages, Renderer renderer, GameOutput out) {
+        return new GameSession(corpus, riddlesToDo, randomMessages, correctMessages, renderer, out, true);
+    }
+
+    /**
+     * Creates a session for a single riddle without the rules or the win and loss messages
+     * @param corpus The corpus the riddle came from
+     * @param riddle The riddle to solve
+     * @param randomMessages Messages shown after a wrong guess
+     * @param correctMessages Messages shown after a right guess
+     * @param renderer How to draw the game's output
+     * @param out Where to send the game's output
+     * @return The new session; call start() to show the riddle
+     */
+    public static GameSession singleRiddle(Corpus corpus, RiddleEntry riddle, MessageSource randomMessages,
+                                           MessageSource correctMessages, Renderer renderer, GameOutput out) {
+        GameSession session = new GameSession(corpus, new ArrayDeque<>(), randomMessages, correctMessages,
+                renderer, out, false);
+        session.currentRiddle = riddle;
+        return session;
+    }
+
+    /**
+     * Shows the rules (for a full game) and the first riddle
+     */
+    public void start() {
+        startedAt = System.currentTimeMillis();
+        TurnBuffer turn = TurnBuffer.forCurrentThread();
+        if (fullGame) {
+            renderer.rules(turn);
+        }
+        if (intro != null) {
+            turn.append(intro);
+        }
+        if (currentRiddle == null) {
+            nextRiddle(turn);
+        }
+        else {
+            riddleShown();
+            renderer.riddle(turn, currentRiddle);
+        }
+        write(turn);
+        prompted();
+    }
+
+    /**
+     * Plays the session to the end, reading lines from the given input
+     * @param in Where to read the player's lines from
+     * @return true if the player won
+     * @throws IOException if the input can't be read
+     */
+    public boolean run(GameInput in) throws IOException {
+        start();
+        return play(in);
+    }
+
+    /**
+     * Plays a started or resumed session to the end, reading lines from the given input
+     * @param in Where to read the player's lines from
+     * @return true if the player won
+     * @throws IOException if the input can't be read
+     */
+    public boolean play(GameInput in) throws IOException {
+        while (!isOver()) {
+            String line = in.readLine();
+            if (line == null) {
+                quit();
+            }
+            else {
+                onInput(line);
+            }
+        }
+        return isWon();
+    }
+
+    /**
+     * Handles one line from the player
+     * @param line The player's guess or answer to the hint offer
+     */
+    public void onInput(String line) {
+        stopWaiting();
+        if (journal != null && !isOver()) {
+            journal.input(journalId, line);
+        }
+        TurnBuffer turn = TurnBuffer.forCurrentThread();
+        switch (state) {
+            case GUESSING -> guess(turn, line);
+            case HINT_OFFERED -> {
+                answerHint(turn, line);
+                state = State.GUESSING;
+                renderer.riddle(turn, currentRiddle);
+            }
+            default -> {
+                return;
+            }
+        }
+        write(turn);
+        prompted();
+    }
+
+    /**
+     * Plays back lines typed before a restart without showing their output, then shows
+     * the intro and the riddle or hint offer the player had reached. The lines aren't
+     * journaled again, and the listener and Flight Recorder don't hear about them, since
+     * they were played before and took no time now.
+     * @param lines The lines, oldest first
+     * @param startedAt When the game was first started, in milliseconds since the epoch,
+     *                  or 0 to time it from now
+     */
+    public void resume(List<String> lines, long startedAt) {
+        SessionJournal savedJournal = journal;
+        GameListener savedListener = listener;
+        journal = null;
+        listener = null;
+        replaying = true;
+        try {
+            start();
+            if (startedAt > 0) {
+                this.startedAt = startedAt;
+            }
+            for (String line : lines) {
+                onInput(line);
+            }
+        }
+        finally {
+            replaying = false;
+            journal = savedJournal;
+            listener = savedListener;
+        }
+        if (isOver()) {
+            // The last line ended the game but the crash came before the end was journaled
+            ended();
+            return;
+        }
+        TurnBuffer turn = TurnBuffer.forCurrentThread();
+        if (intro != null) {
+            turn.append(intro);
+        }
+        if (state == State.GUESSING) {
+            renderer.riddle(turn, currentRiddle);
+        }
+        else if (state == State.HINT_OFFERED) {
+            renderer.hintOffer(turn);
+        }
+        write(turn);
+        prompted();
+    }
+
+    /**
+     * Ends the game as a loss, for a player who has gone away
+     */
+    public void quit() {
+        if (!isOver()) {
+            stopWaiting();
+            TurnBuffer turn = TurnBuffer.forCurrentThread();
+            lose(turn, true);
+            write(turn);
+        }
+    }
+
+    /**
+     * Ends the game without a result, for a player who starts another game instead;
+     * nothing is shown or recorded beyond the journal hearing that it is over
+     */
+    public void abandon() {
+        if (!isOver()) {
+            stopWaiting();
+            state = State.LOST;
+            ended();
+        }
+    }
+
+    /**
+     * Ends the game as a loss because the player ran out of time, the same way running
+     * out of attempts does
+     */
+    public void timeOut() {
+        if (!isOver()) {
+            stopWaiting();
+            TurnBuffer turn = TurnBuffer.forCurrentThread();
+            renderer.timedOut(turn);
+            lose(turn, false);
+            write(turn);
+        }
+    }
+
+    private void guess(TurnBuffer turn, String userGuess) {
+        totalGuesses++;
+        if (listener != null) {
+            listener.guessed(currentRiddle, System.nanoTime() - promptedAt);
+        }
+        GameEvents.AnswerCheck check = replaying ? null : GameEvents.beginAnswerCheck();
+        String guessKey = AnswerMatcher.canonical(userGuess);
+        boolean correct = currentRiddle.answerKeys().contains(guessKey);
+        if (check != null) {
+            check.end();
+            if (check.shouldCommit()) {
+                check.riddleId = currentRiddle.id();
+                check.attempt = attempts + 1;
+                check.correct = correct;
+                check.commit();
+            }
+        }
+        if (correct) {
+            if (listener != null) {
+                listener.solved(currentRiddle, attempts + 1, hintsUsed);
+            }
+            String message = correctMessages.next();
+            if (message != null) {
+                renderer.correct(turn, message);
+            }
+            solvedCount++;
+            nextRiddle(turn);
+            return;
+        }
+        attempts++;
+        if (attempts == MAX_ATTEMPTS) {
+            lose(turn, false);
+            return;
+        }
+        if (NearMiss.isClose(currentRiddle, guessKey)) {
+            renderer.nearMiss(turn);
+        }
+        String message = randomMessages.next();
+        if (message != null) {
+            renderer.wrong(turn, message);
+        }
+        if (attempts >= HINT_AFTER && offerHint(turn)) {
+            state = State.HINT_OFFERED;
+            return;
+        }
+        renderer.riddle(turn, currentRiddle);
+    }
+
+    /**
+     * Offers a hint if the player has any left for this riddle
+     * @return true if the player was asked whether they want a hint
+     */
+    boolean offerHint(TurnBuffer turn) {
+        GameEvents.Hint event = replaying ? null : GameEvents.beginHint();
+        boolean offered = hintsUsed < MAX_HINTS;
+        if (offered) {
+            renderer.hintOffer(turn);
+        }
+        else {
+            renderer.hintsUsedUp(turn);
+        }
+        hinted(event, offered ? "offered" : "used up");
+        return offered;
+    }
+
+    /**
+     * Handles the player's answer to a hint offer
+     * @param wantHint The player's answer
+     */
+    void answerHint(TurnBuffer turn, String wantHint) {
+        GameEvents.Hint event = replaying ? null : GameEvents.beginHint();
+        String action;
+        if (wantHint.equalsIgnoreCase("y")) {
+            showHint(renderer, turn, currentRiddle, hintsUsed);
+            hintsUsed++;
+            totalHints++;
+            action = "shown";
+        }
+        else if (wantHint.equalsIgnoreCase("n")) {
+            renderer.hintDeclined(turn);
+            action = "declined";
+        }
+        else {
+            renderer.hintInvalid(turn);
+            action = "invalid";
+        }
+        hinted(event, action);
+    }
+
+    private void hinted(GameEvents.Hint event, String action) {
+        if (event == null) {
+            return;
+        }
+        event.end();
+        if (event.shouldCommit()) {
+            event.riddleId = currentRiddle.id();
+            event.attempt = attempts;
+            event.action = action;
+            event.hintsUsed = hintsUsed;
+            event.commit();
+        }
+    }
+
+    /** Sends a turn to the output, or drops it while replaying */
+    private void write(TurnBuffer turn) {
+        if (replaying) {
+            TurnBuffer.forCurrentThread();
+        }
+        else {
+            turn.writeTo(out);
+        }
+    }
+
+    private void ended() {
+        if (journal != null) {
+            journal.end(journalId, state == State.WON);
+        }
+    }
+
+    /** Ends the wait for an answer, which a quit or time out also does */
+    private void stopWaiting() {
+        if (waiting != null) {
+            waiting.commit();
+            waiting = null;
+        }
+    }
+
+    /** Notes the time a prompt went out, and starts timing the wait for an answer if recording */
+    private void prompted() {
+        promptedAt = System.nanoTime();
+        if (isOver() || replaying) {
+            return;
+        }
+        waiting = GameEvents.beginInputWait(currentRiddle.id(), attempts);
+    }
+
+    private void nextRiddle(TurnBuffer turn) {
+        currentRiddle = riddlesToDo.poll();
+        attempts = 0;
+        hintsUsed = 0;
+        if (currentRiddle == null) {
+            state = State.WON;
+            ended();
+            if (fullGame) {
+                if (listener != null) {
+                    listener.gameOver(true);
+                }
+                renderer.victory(turn);
+            }
+            return;
+        }
+        state = State.GUESSING;
+        riddleShown();
+        renderer.riddle(turn, currentRiddle);
+    }
+
+    private void riddleShown() {
+        if (listener != null) {
+            listener.riddleShown(currentRiddle);
+        }
+    }
+
+    private void lose(TurnBuffer turn, boolean quit) {
+        state = State.LOST;
+        ended();
+        if (listener != null) {
+            listener.lost(currentRiddle, hintsUsed, quit);
+        }
+        if (fullGame) {
+            if (listener != null) {
+                listener.gameOver(false);
+            }
+            renderer.loss(turn);
+        }
+    }
+
+    /**
+     * Checks if the user's guess matches the correct answer
+     * @param riddle The current riddle
+     * @param guess The user's guess
+     * @return true if correct, false otherwise
+     */
+    public static boolean isCorrectAnswer(RiddleEntry riddle, String guess) {
+        return riddle.accepts(guess);
+    }
+
+    /**
+     * Shows a hint for a riddle
+     * @param renderer How to draw it
+     * @param turn Where to draw it
+     * @param riddle The riddle
+     * @param hintIndex The index of the hint to show
+     */
+    public static void showHint(Renderer renderer, TurnBuffer turn, RiddleEntry riddle, int hintIndex) {
+        List<String> hints = riddle.hints();
+        if (hintIndex < hints.size()) {
+            renderer.hint(turn, hints.get(hintIndex));
+        }
+    }
+
+    /**
+     * Records this session's input in a journal so it can be resumed after a crash
+     * @param journal The journal, or null to record nothing
+     * @param id The session's id in the journal
+     */
+    public void setJournal(SessionJournal journal, long id) {
+        this.journal = journal;
+        this.journalId = id;
+    }
+
+    /**
+     * Tells a listener, such as shared metrics, about this session's play
+     * @param listener The listener, or null to tell no one
+     */
+    public void setListener(GameListener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * Shows some pre-encoded text after the rules, such as a daily challenge's banner
+     * @param intro The encoded text, or null for none
+     */
+    public void setIntro(byte[] intro) {
+        this.intro = intro;
+    }
+
+    public Corpus getCorpus() {
+        return corpus;
+    }
+
+    public RiddleEntry getCurrentRiddle() {
+        return currentRiddle;
+    }
+
+    public int getAttempts() {
+        return attempts;
+    }
+
+    public int getHintsUsed() {
+        return hintsUsed;
+    }
+
+    /**
+     * Sets the hints already used on the current riddle, for picking up a riddle part way through
+     * @param hintsUsed Number of hints already used
+     */
+    void setHintsUsed(int hintsUsed) {
+        this.hintsUsed = hintsUsed;
+    }
+
+    public int getSolvedCount() {
+        return solvedCount;
+    }
+
+    /**
+     * @return Guesses made over the whole game
+     */
+    public int getTotalGuesses() {
+        return totalGuesses;
+    }
+
+    /**
+     * @return Hints shown over the whole game
+     */
+    public int getTotalHints() {
+        return totalHints;
+    }
+
+    /**
+     * @return When start() was called, or for a resumed game when it was first started,
+     *         in milliseconds since the epoch
+     */
+    public long getStartedAt() {
+        return startedAt;
+    }
+
+    public State getState() {
+        return state;
+    }
+
+    public boolean isOver() {
+        return state == State.WON || state == State.LOST;
+    }
+
+    public boolean isWon() {
+        return state == State.WON;
+    }
+}
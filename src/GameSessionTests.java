@@ -0,0 +1,131 @@
+import static org.junit.Assert.*;
+import org.junit.Before;
+import org.junit.Test;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+public class GameSessionTests {
+    private TextCorpus corpus;
+    private List<String> output;
+
+    @Before
+    public void setUp() {
+        corpus = new TextCorpus();
+        corpus.addRiddle("EGG", "WHAT HAS TO BE BROKEN BEFORE YOU CAN USE IT?");
+        corpus.addRiddle("BED", "WHAT HAS ONE HEAD, ONE FOOT, AND FOUR LEGS?");
+        corpus.addHints("EGG", List.of("CHICKEN", "BREAKFAST", "SHELL"));
+        output = new ArrayList<>();
+    }
+
+    private GameSession newGame() {
+        Queue<RiddleEntry> riddles = new ArrayDeque<>(List.of(corpus.get(0), corpus.get(1)));
+        return GameSession.newGame(corpus, riddles, () -> "wrong", () -> "right", Renderer.CONSOLE,
+                (bytes, offset, length) -> output.addAll(
+                        new String(bytes, offset, length, StandardCharsets.UTF_8).lines().toList()));
+    }
+
+    // Test 1: Solving every riddle wins the game
+    @Test
+    public void testWin() {
+        GameSession session = newGame();
+        session.start();
+        assertTrue("Rules should be shown first", output.get(0).contains("welcome"));
+        session.onInput("egg");
+        assertEquals("Should move to the second riddle", corpus.get(1), session.getCurrentRiddle());
+        session.onInput("BED");
+        assertTrue("Game should be won", session.isWon());
+        assertEquals("Both riddles solved", 2, session.getSolvedCount());
+        assertTrue("Victory should be shown", String.join("\n", output).contains("congrats"));
+    }
+
+    // Test 2: Eleven wrong guesses lose the game
+    @Test
+    public void testLoss() {
+        GameSession session = newGame();
+        session.start();
+        for (int i = 0; i < GameSession.MAX_ATTEMPTS && !session.isOver(); i++) {
+            session.onInput("wrong");
+            if (session.getState() == GameSession.State.HINT_OFFERED) {
+                session.onInput("n");
+            }
+        }
+        assertEquals("Game should be lost", GameSession.State.LOST, session.getState());
+        assertTrue("Loss should be shown", output.get(output.size() - 1).contains("better luck"));
+    }
+
+    // Test 3: Hints are offered after three wrong guesses
+    @Test
+    public void testHintOffer() {
+        GameSession session = newGame();
+        session.start();
+        session.onInput("a");
+        session.onInput("b");
+        assertEquals("No hint before three wrong guesses", GameSession.State.GUESSING, session.getState());
+        session.onInput("c");
+        assertEquals("Hint offered after three", GameSession.State.HINT_OFFERED, session.getState());
+        session.onInput("y");
+        assertEquals("One hint used", 1, session.getHintsUsed());
+        assertTrue("First hint should be shown", output.contains(Riddle.PINK + "CHICKEN" + Riddle.RESET));
+        session.onInput("egg");
+        assertEquals("Hints reset on the next riddle", 0, session.getHintsUsed());
+    }
+
+    // Test 4: Input ending early counts as a loss
+    @Test
+    public void testQuit() throws Exception {
+        GameSession session = newGame();
+        Iterator<String> lines = List.of("egg").iterator();
+        assertFalse("Running out of input loses", session.run(() -> lines.hasNext() ? lines.next() : null));
+        assertEquals("One riddle was solved", 1, session.getSolvedCount());
+    }
+
+    // Test 5: Many sessions share one corpus without affecting each other
+    @Test
+    public void testIndependentSessions() {
+        List<GameSession> sessions = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            GameSession session = newGame();
+            session.start();
+            sessions.add(session);
+        }
+        for (int i = 0; i < sessions.size(); i += 2) {
+            sessions.get(i).onInput("egg");
+        }
+        for (int i = 0; i < sessions.size(); i++) {
+            assertEquals("Only even sessions moved on", i % 2 == 0 ? 1 : 0, sessions.get(i).getSolvedCount());
+            assertSame("Sessions share the corpus", corpus, sessions.get(i).getCorpus());
+        }
+    }
+
+    // Test 6: Each turn reaches the output as a single write
+    @Test
+    public void testOneWritePerTurn() {
+        int[] writes = new int[1];
+        Queue<RiddleEntry> riddles = new ArrayDeque<>(List.of(corpus.get(0), corpus.get(1)));
+        GameSession session = GameSession.newGame(corpus, riddles, () -> "wrong", () -> "right",
+                Renderer.CONSOLE, (bytes, offset, length) -> writes[0]++);
+        session.start();
+        session.onInput("a");
+        session.onInput("b");
+        session.onInput("c");
+        session.onInput("y");
+        session.onInput("egg");
+        session.onInput("bed");
+        assertEquals("One write per call", 7, writes[0]);
+    }
+
+    // Test 7: Plain output has no colour codes but the same text
+    @Test
+    public void testPlainRenderer() {
+        TurnBuffer turn = TurnBuffer.forCurrentThread();
+        Renderer.CONSOLE_PLAIN.rules(turn);
+        Renderer.CONSOLE_PLAIN.victory(turn);
+        Renderer.CONSOLE_PLAIN.wrong(turn, "nope");
+        Renderer.CONSOLE_PLAIN.hint(turn, "SHELL");
+        String plain = turn.toString();
+        assertFalse("No escape codes", plain.contains("\033"));
+        assertTrue("Rules still shown", plain.contains("welcome"));
+        assertTrue("Trophy still shown", plain.contains("/\\_/\\_/\\_/\\"));
+        assertTrue("Hint still shown", plain.contains("here is your hint"));
+    }
+}
@@ -0,0 +1,58 @@
+/**
+ * One game's position in a shared MessagePool.
+ * The cursor only stores a seed and a count. Message i of each pass over the
+ * pool is pool[(a * i + b) mod n], where a and b come from the seed and the pass
+ * number and a shares no factor with n, so every pass shows each message once
+ * in a different order and the cursor never runs dry.
+ */
+public class MessageCursor implements MessageSource {
+    private final MessagePool pool;
+    private final long seed;
+    private long index;
+
+    public MessageCursor(MessagePool pool, long seed) {
+        this.pool = pool;
+        this.seed = seed;
+    }
+
+    @Override
+    public String next() {
+        int size = pool.size();
+        long pass = index / size;
+        int position = (int) (index % size);
+        index++;
+        if (size == 1) {
+            return pool.get(0);
+        }
+        long mixed = mix(seed + pass * 0x9E3779B97F4A7C15L);
+        int step = 1 + (int) Long.remainderUnsigned(mixed, size - 1);
+        while (gcd(step, size) != 1) {
+            step = step % (size - 1) + 1;
+        }
+        int offset = (int) Long.remainderUnsigned(mixed >>> 17, size);
+        return pool.get((int) (((long) step * position + offset) % size));
+    }
+
+    /**
+     * @return How many messages this cursor has handed out
+     */
+    public long getIndex() {
+        return index;
+    }
+
+    /** SplitMix64 finalizer */
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    private static int gcd(int a, int b) {
+        while (b != 0) {
+            int t = a % b;
+            a = b;
+            b = t;
+        }
+        return a;
+    }
+}
@@ -0,0 +1,72 @@
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+
+/**
+ * An immutable list of messages shared by every game.
+ * Games don't copy or shuffle the list; each one reads it through a
+ * MessageCursor that walks a random permutation and starts over with a new
+ * order once every message has been used.
+ */
+public class MessagePool {
+    private final String[] messages;
+
+    /**
+     * @param messages The messages, at least one
+     */
+    public MessagePool(String... messages) {
+        if (messages.length == 0) {
+            throw new IllegalArgumentException("a message pool needs at least one message");
+        }
+        this.messages = messages.clone();
+    }
+
+    /**
+     * Loads messages from a file with one message per line, falling back to
+     * the built-in messages if the file is missing or empty
+     * @param file The message file
+     * @param defaults The messages to use without a file
+     * @return The message pool
+     */
+    public static MessagePool load(Path file, String... defaults) {
+        try {
+            if (Files.exists(file)) {
+                String[] lines = Files.readAllLines(file, StandardCharsets.UTF_8).stream()
+                        .filter(line -> !line.isBlank())
+                        .toArray(String[]::new);
+                if (lines.length > 0) {
+                    return new MessagePool(lines);
+                }
+            }
+        }
+        catch (IOException e) {
+            System.out.println("error reading " + file + ", using the built-in messages");
+        }
+        return new MessagePool(defaults);
+    }
+
+    public int size() {
+        return messages.length;
+    }
+
+    public String get(int index) {
+        return messages[index];
+    }
+
+    /**
+     * @return A copy of every message, in file order
+     */
+    public List<String> toList() {
+        return List.of(messages);
+    }
+
+    /**
+     * Starts a new walk over the messages
+     * @param seed Picks the order the messages come out in
+     * @return The cursor
+     */
+    public MessageCursor cursor(long seed) {
+        return new MessageCursor(this, seed);
+    }
+}
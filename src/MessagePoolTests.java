@@ -0,0 +1,54 @@
+import static org.junit.Assert.*;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import java.io.*;
+import java.nio.file.*;
+import java.util.*;
+
+public class MessagePoolTests {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    // Test 1: Every pass over the pool shows each message exactly once
+    @Test
+    public void testEachPassIsPermutation() {
+        MessagePool pool = Riddle.RANDOM_MESSAGES;
+        MessageCursor cursor = pool.cursor(12345);
+        for (int pass = 0; pass < 5; pass++) {
+            Set<String> seen = new HashSet<>();
+            for (int i = 0; i < pool.size(); i++) {
+                assertTrue("Message repeated within a pass", seen.add(cursor.next()));
+            }
+            assertEquals("Pass should cover the pool", pool.size(), seen.size());
+        }
+    }
+
+    // Test 2: The same seed gives the same order and passes differ
+    @Test
+    public void testSeededOrder() {
+        MessageCursor first = Riddle.CORRECT_MESSAGES.cursor(99);
+        MessageCursor second = Riddle.CORRECT_MESSAGES.cursor(99);
+        List<String> firstPass = new ArrayList<>();
+        for (int i = 0; i < Riddle.CORRECT_MESSAGES.size(); i++) {
+            firstPass.add(first.next());
+            assertEquals("Same seed, same message", firstPass.get(i), second.next());
+        }
+        List<String> secondPass = new ArrayList<>();
+        for (int i = 0; i < Riddle.CORRECT_MESSAGES.size(); i++) {
+            secondPass.add(first.next());
+        }
+        assertNotEquals("Next pass should be reordered", firstPass, secondPass);
+    }
+
+    // Test 3: Messages load from a file, with the defaults as a fallback
+    @Test
+    public void testLoad() throws IOException {
+        Path file = folder.getRoot().toPath().resolve("messages.txt");
+        assertEquals("Missing file uses defaults", "only", MessagePool.load(file, "only").get(0));
+        Files.writeString(file, "one\n\ntwo\n");
+        MessagePool pool = MessagePool.load(file, "only");
+        assertEquals("Blank lines skipped", List.of("one", "two"), pool.toList());
+        assertNotNull("Single message pools never run dry", new MessagePool("x").cursor(1).next());
+    }
+}
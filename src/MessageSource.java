@@ -0,0 +1,11 @@
+/**
+ * Supplies the taunts and praise shown after each guess
+ */
+@FunctionalInterface
+public interface MessageSource {
+
+    /**
+     * @return The next message, or null if there are none left
+     */
+    String next();
+}
@@ -0,0 +1,287 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.function.ToLongFunction;
+
+/**
+ * Writes GameMetrics snapshots to a file, in Prometheus text format or, when the
+ * file name ends in .json, as JSON. Snapshots are written to a temporary file
+ * and moved into place so a scraper never reads half a file. start() writes a
+ * snapshot on a background thread every interval and once more on close().
+ * When given a CorpusRegistry its cache counters are written alongside.
+ */
+public class MetricsExporter implements Closeable {
+    private static final double[] QUANTILES = { 0.5, 0.9, 0.99 };
+
+    private final GameMetrics metrics;
+    private final CorpusRegistry packs;
+    private final Path file;
+    private final ScheduledExecutorService scheduler;
+
+    private MetricsExporter(GameMetrics metrics, CorpusRegistry packs, Path file) {
+        this.metrics = metrics;
+        this.packs = packs;
+        this.file = file;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(task -> {
+            Thread thread = new Thread(task, "riddle-metrics");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Starts writing snapshots
+     * @param metrics The metrics to export
+     * @param file Where to write them
+     * @param intervalSeconds Seconds between snapshots
+     * @return The running exporter; close it to write the last snapshot and stop
+     */
+    public static MetricsExporter start(GameMetrics metrics, Path file, long intervalSeconds) {
+        return start(metrics, null, file, intervalSeconds);
+    }
+
+    /**
+     * Starts writing snapshots
+     * @param metrics The metrics to export
+     * @param packs The riddle packs whose cache counters to export too, or null
+     * @param file Where to write them
+     * @param intervalSeconds Seconds between snapshots
+     * @return The running exporter; close it to write the last snapshot and stop
+     */
+    public static MetricsExporter start(GameMetrics metrics, CorpusRegistry packs, Path file, long intervalSeconds) {
+        MetricsExporter exporter = new MetricsExporter(metrics, packs, file);
+        exporter.scheduler.scheduleAtFixedRate(exporter::writeQuietly, intervalSeconds, intervalSeconds, TimeUnit.SECONDS);
+        return exporter;
+    }
+
+    @Override
+    public void close() throws IOException {
+        scheduler.shutdown();
+        try {
+            scheduler.awaitTermination(5, TimeUnit.SECONDS);
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        write(metrics, packs, file);
+    }
+
+    private void writeQuietly() {
+        try {
+            write(metrics, packs, file);
+        }
+        catch (IOException e) {
+            System.err.println("error writing metrics to " + file + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Writes one snapshot, as JSON if the file name ends in .json and Prometheus text otherwise
+     * @param metrics The metrics to export
+     * @param file Where to write them
+     * @throws IOException if the file can't be written
+     */
+    public static void write(GameMetrics metrics, Path file) throws IOException {
+        write(metrics, null, file);
+    }
+
+    /**
+     * Writes one snapshot, as JSON if the file name ends in .json and Prometheus text otherwise
+     * @param metrics The metrics to export
+     * @param packs The riddle packs whose cache counters to export too, or null
+     * @param file Where to write them
+     * @throws IOException if the file can't be written
+     */
+    public static void write(GameMetrics metrics, CorpusRegistry packs, Path file) throws IOException {
+        String text = file.getFileName().toString().endsWith(".json") ? json(metrics, packs) : prometheus(metrics, packs);
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        Files.writeString(tmp, text, StandardCharsets.UTF_8);
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * @param metrics The metrics to export
+     * @return A snapshot in the Prometheus text exposition format
+     */
+    public static String prometheus(GameMetrics metrics) {
+        return prometheus(metrics, null);
+    }
+
+    /**
+     * @param metrics The metrics to export
+     * @param packs The riddle packs whose cache counters to export too, or null
+     * @return A snapshot in the Prometheus text exposition format
+     */
+    public static String prometheus(GameMetrics metrics, CorpusRegistry packs) {
+        StringBuilder out = new StringBuilder();
+        out.append("# HELP riddle_games_total Full games finished.\n");
+        out.append("# TYPE riddle_games_total counter\n");
+        out.append("riddle_games_total{result=\"won\"} ").append(metrics.getGamesWon()).append('\n');
+        out.append("riddle_games_total{result=\"lost\"} ").append(metrics.getGamesLost()).append('\n');
+
+        LatencyHistogram guessTimes = metrics.getGuessTimes();
+        out.append("# HELP riddle_guess_seconds Time players take to make a guess.\n");
+        out.append("# TYPE riddle_guess_seconds summary\n");
+        for (double quantile : QUANTILES) {
+            out.append("riddle_guess_seconds{quantile=\"").append(quantile).append("\"} ")
+               .append(seconds(guessTimes.percentile(quantile))).append('\n');
+        }
+        out.append("riddle_guess_seconds_sum ").append(seconds(guessTimes.sum())).append('\n');
+        out.append("riddle_guess_seconds_count ").append(guessTimes.count()).append('\n');
+
+        List<GameMetrics.RiddleStats> riddles = metrics.getAllStats();
+        counter(out, riddles, "riddle_plays_total", "Times each riddle was shown.", GameMetrics.RiddleStats::plays);
+        counter(out, riddles, "riddle_solves_total", "Times each riddle was solved.", GameMetrics.RiddleStats::solves);
+        counter(out, riddles, "riddle_losses_total", "Games lost on each riddle by running out of guesses.", GameMetrics.RiddleStats::losses);
+        counter(out, riddles, "riddle_quits_total", "Games abandoned on each riddle.", GameMetrics.RiddleStats::quits);
+        counter(out, riddles, "riddle_hints_total", "Hints shown for each riddle.", GameMetrics.RiddleStats::hints);
+        counter(out, riddles, "riddle_guesses_total", "Guesses made on each riddle.", GameMetrics.RiddleStats::guesses);
+        out.append("# HELP riddle_guess_time_seconds_total Time spent guessing each riddle.\n");
+        out.append("# TYPE riddle_guess_time_seconds_total counter\n");
+        for (GameMetrics.RiddleStats stats : riddles) {
+            out.append("riddle_guess_time_seconds_total").append(labels(stats, null)).append(' ')
+               .append(seconds(stats.guessNanos())).append('\n');
+        }
+
+        out.append("# HELP riddle_guesses_to_solve Guesses each solve took, including the right one.\n");
+        out.append("# TYPE riddle_guesses_to_solve histogram\n");
+        for (GameMetrics.RiddleStats stats : riddles) {
+            long[] counts = stats.guessesToSolve();
+            long cumulative = 0;
+            long sum = 0;
+            for (int i = 0; i < counts.length; i++) {
+                cumulative += counts[i];
+                sum += counts[i] * (i + 1);
+                out.append("riddle_guesses_to_solve_bucket").append(labels(stats, Integer.toString(i + 1))).append(' ')
+                   .append(cumulative).append('\n');
+            }
+            out.append("riddle_guesses_to_solve_bucket").append(labels(stats, "+Inf")).append(' ').append(cumulative).append('\n');
+            out.append("riddle_guesses_to_solve_sum").append(labels(stats, null)).append(' ').append(sum).append('\n');
+            out.append("riddle_guesses_to_solve_count").append(labels(stats, null)).append(' ').append(cumulative).append('\n');
+        }
+
+        if (packs != null) {
+            out.append("# HELP riddle_pack_lookups_total Pack lookups, by whether the pack was cached.\n");
+            out.append("# TYPE riddle_pack_lookups_total counter\n");
+            out.append("riddle_pack_lookups_total{result=\"hit\"} ").append(packs.getHits()).append('\n');
+            out.append("riddle_pack_lookups_total{result=\"miss\"} ").append(packs.getMisses()).append('\n');
+            single(out, "riddle_pack_loads_total", "counter", "Packs read from disk.", packs.getLoads());
+            single(out, "riddle_pack_evictions_total", "counter", "Packs dropped to stay under the cache size.", packs.getEvictions());
+            single(out, "riddle_pack_load_problems_total", "counter", "Lines skipped while reading packs.", packs.getLoadProblems());
+            single(out, "riddle_pack_cached_bytes", "gauge", "Estimated heap held by cached packs.", packs.getCachedBytes());
+        }
+        return out.toString();
+    }
+
+    /**
+     * @param metrics The metrics to export
+     * @return A snapshot as a JSON object
+     */
+    public static String json(GameMetrics metrics) {
+        return json(metrics, null);
+    }
+
+    /**
+     * @param metrics The metrics to export
+     * @param packs The riddle packs whose cache counters to export too, or null
+     * @return A snapshot as a JSON object
+     */
+    public static String json(GameMetrics metrics, CorpusRegistry packs) {
+        LatencyHistogram guessTimes = metrics.getGuessTimes();
+        StringBuilder out = new StringBuilder();
+        out.append("{\"gamesWon\":").append(metrics.getGamesWon())
+           .append(",\"gamesLost\":").append(metrics.getGamesLost())
+           .append(",\"guessTimeNanos\":{\"count\":").append(guessTimes.count())
+           .append(",\"sum\":").append(guessTimes.sum())
+           .append(",\"p50\":").append(guessTimes.percentile(0.5))
+           .append(",\"p90\":").append(guessTimes.percentile(0.9))
+           .append(",\"p99\":").append(guessTimes.percentile(0.99))
+           .append(",\"max\":").append(guessTimes.max())
+           .append("},\"riddles\":[");
+        String separator = "";
+        for (GameMetrics.RiddleStats stats : metrics.getAllStats()) {
+            out.append(separator).append("{\"id\":").append(stats.id())
+               .append(",\"answer\":\"").append(jsonEscape(stats.answer())).append('"')
+               .append(",\"plays\":").append(stats.plays())
+               .append(",\"solves\":").append(stats.solves())
+               .append(",\"losses\":").append(stats.losses())
+               .append(",\"quits\":").append(stats.quits())
+               .append(",\"hints\":").append(stats.hints())
+               .append(",\"guesses\":").append(stats.guesses())
+               .append(",\"guessNanos\":").append(stats.guessNanos())
+               .append(",\"guessesToSolve\":[");
+            long[] counts = stats.guessesToSolve();
+            for (int i = 0; i < counts.length; i++) {
+                out.append(i == 0 ? "" : ",").append(counts[i]);
+            }
+            out.append("]}");
+            separator = ",";
+        }
+        out.append(']');
+        if (packs != null) {
+            out.append(",\"packs\":{\"hits\":").append(packs.getHits())
+               .append(",\"misses\":").append(packs.getMisses())
+               .append(",\"loads\":").append(packs.getLoads())
+               .append(",\"evictions\":").append(packs.getEvictions())
+               .append(",\"loadProblems\":").append(packs.getLoadProblems())
+               .append(",\"cachedBytes\":").append(packs.getCachedBytes())
+               .append('}');
+        }
+        return out.append("}\n").toString();
+    }
+
+    private static void counter(StringBuilder out, List<GameMetrics.RiddleStats> riddles, String name, String help,
+                                ToLongFunction<GameMetrics.RiddleStats> value) {
+        out.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        out.append("# TYPE ").append(name).append(" counter\n");
+        for (GameMetrics.RiddleStats stats : riddles) {
+            out.append(name).append(labels(stats, null)).append(' ').append(value.applyAsLong(stats)).append('\n');
+        }
+    }
+
+    private static void single(StringBuilder out, String name, String type, String help, long value) {
+        out.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        out.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+        out.append(name).append(' ').append(value).append('\n');
+    }
+
+    private static String labels(GameMetrics.RiddleStats stats, String le) {
+        // Keyed by answer only: ids change when the riddles are reloaded, and each change would start new series
+        String labels = "{answer=\"" + labelEscape(stats.answer()) + "\"";
+        return le == null ? labels + "}" : labels + ",le=\"" + le + "\"}";
+    }
+
+    private static String seconds(long nanos) {
+        return Double.toString(nanos / 1e9);
+    }
+
+    private static String labelEscape(String value) {
+        return value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+
+    static String jsonEscape(String value) {
+        StringBuilder escaped = new StringBuilder(value.length());
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"' -> escaped.append("\\\"");
+                case '\\' -> escaped.append("\\\\");
+                case '\n' -> escaped.append("\\n");
+                case '\r' -> escaped.append("\\r");
+                case '\t' -> escaped.append("\\t");
+                default -> {
+                    if (c < 0x20) {
+                        escaped.append(String.format("\\u%04x", (int) c));
+                    }
+                    else {
+                        escaped.append(c);
+                    }
+                }
+            }
+        }
+        return escaped.toString();
+    }
+}
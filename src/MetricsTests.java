@@ -0,0 +1,140 @@
+import static org.junit.Assert.*;
+import org.junit.Test;
+import java.nio.file.*;
+import java.util.*;
+
+public class MetricsTests {
+
+    private static GameSession session(TextCorpus corpus, GameMetrics metrics) {
+        Queue<RiddleEntry> riddles = new ArrayDeque<>(List.of(corpus.get(0), corpus.get(1)));
+        GameSession session = GameSession.newGame(corpus, riddles, () -> "wrong", () -> "right",
+                Renderer.CONSOLE_PLAIN, (bytes, offset, length) -> {});
+        session.setListener(metrics);
+        return session;
+    }
+
+    private static TextCorpus corpus() {
+        TextCorpus corpus = new TextCorpus();
+        corpus.addRiddle("EGG", "what has to be broken before you can use it?");
+        corpus.addRiddle("BED", "what has four legs but can't walk?");
+        corpus.addHints("EGG", List.of("breakfast", "chickens", "shell"));
+        return corpus;
+    }
+
+    // Test 1: Percentiles come back within the histogram's precision
+    @Test
+    public void testHistogramPercentiles() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (long i = 1; i <= 1000; i++) {
+            histogram.record(i * 1000);
+        }
+        assertEquals(1000, histogram.count());
+        assertEquals(1_000_000, histogram.max());
+        assertEquals(500_000, histogram.percentile(0.5), 500_000 * 0.07);
+        assertEquals(990_000, histogram.percentile(0.99), 990_000 * 0.07);
+        assertEquals("Small values are exact", 3, LatencyHistogram.highestValueIn(LatencyHistogram.bucketFor(3)));
+    }
+
+    // Test 2: A session records guesses, hints, solves and losses per riddle
+    @Test
+    public void testSessionRecordsStats() {
+        TextCorpus corpus = corpus();
+        GameMetrics metrics = new GameMetrics();
+        GameSession session = session(corpus, metrics);
+        session.start();
+        for (int i = 0; i < GameSession.HINT_AFTER; i++) {
+            session.onInput("wrong");
+        }
+        session.onInput("y");
+        session.onInput("egg");
+        for (int i = 0; i < GameSession.MAX_ATTEMPTS && !session.isOver(); i++) {
+            session.onInput("wrong");
+            if (session.getState() == GameSession.State.HINT_OFFERED) {
+                session.onInput("n");
+            }
+        }
+
+        GameMetrics.RiddleStats egg = metrics.getStats("EGG");
+        assertEquals(1, egg.plays());
+        assertEquals(1, egg.solves());
+        assertEquals(1, egg.hints());
+        assertEquals(4, egg.guesses());
+        assertEquals("Solved on the fourth guess", 1, egg.guessesToSolve()[3]);
+        GameMetrics.RiddleStats bed = metrics.getStats("BED");
+        assertEquals(1, bed.losses());
+        assertEquals(GameSession.MAX_ATTEMPTS, bed.guesses());
+        assertEquals(1, metrics.getGamesLost());
+        assertEquals(4 + GameSession.MAX_ATTEMPTS, metrics.getGuessTimes().count());
+    }
+
+    // Test 3: Concurrent sessions don't lose counts
+    @Test
+    public void testConcurrentRecording() throws Exception {
+        TextCorpus corpus = corpus();
+        GameMetrics metrics = new GameMetrics();
+        Thread[] threads = new Thread[8];
+        for (int t = 0; t < threads.length; t++) {
+            threads[t] = new Thread(() -> {
+                for (int game = 0; game < 500; game++) {
+                    GameSession session = session(corpus, metrics);
+                    session.start();
+                    session.onInput("egg");
+                    session.onInput("bed");
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals(4000, metrics.getGamesWon());
+        assertEquals(4000, metrics.getStats("EGG").solves());
+        assertEquals(4000, metrics.getStats("BED").guessesToSolve()[0]);
+    }
+
+    // Test 4: Snapshots are written as Prometheus text or JSON
+    @Test
+    public void testExport() throws Exception {
+        TextCorpus corpus = corpus();
+        GameMetrics metrics = new GameMetrics();
+        GameSession session = session(corpus, metrics);
+        session.start();
+        session.onInput("egg");
+        session.quit();
+
+        String prometheus = MetricsExporter.prometheus(metrics);
+        assertTrue(prometheus.contains("riddle_solves_total{answer=\"EGG\"} 1"));
+        assertTrue(prometheus.contains("riddle_quits_total{answer=\"BED\"} 1"));
+        assertTrue(prometheus.contains("riddle_guesses_to_solve_bucket{answer=\"EGG\",le=\"+Inf\"} 1"));
+
+        Path directory = Files.createTempDirectory("riddle-metrics");
+        Path file = directory.resolve("metrics.json");
+        MetricsExporter.write(metrics, file);
+        String json = Files.readString(file);
+        assertTrue(json.contains("\"answer\":\"EGG\",\"plays\":1,\"solves\":1"));
+        assertTrue(json.contains("\"gamesLost\":1"));
+        Files.delete(file);
+        Files.delete(directory);
+    }
+
+    // Test 5: Stats follow the answer when the riddles are reloaded in another order
+    @Test
+    public void testStatsFollowAnswer() {
+        GameMetrics metrics = new GameMetrics();
+        GameSession session = session(corpus(), metrics);
+        session.start();
+        session.onInput("egg");
+        TextCorpus reloaded = new TextCorpus();
+        reloaded.addRiddle("BED", "what has four legs but can't walk?");
+        reloaded.addRiddle("EGG", "what has to be broken before you can use it?");
+        session = session(reloaded, metrics);
+        session.start();
+        session.onInput("bed");
+        session.onInput("egg");
+
+        assertEquals(2, metrics.getStats("EGG").solves());
+        assertEquals("The id is the latest one", 1, metrics.getStats("EGG").id());
+        assertEquals(1, metrics.getStats("BED").solves());
+        assertEquals(2, metrics.getAllStats().size());
+    }
+}
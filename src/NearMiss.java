@@ -0,0 +1,94 @@
+import java.util.*;
+
+/**
+ * Spots guesses that are a typo or two away from the answer, such as "anchr" for ANCHOR.
+ * Distance is the optimal string alignment distance (insertions, deletions,
+ * substitutions and swapped neighbours) between canonical keys, and the check
+ * gives up as soon as the distance can't stay within the limit.
+ */
+public class NearMiss {
+
+    private NearMiss() {
+    }
+
+    /**
+     * How many edits still count as close for an answer of a given length.
+     * Very short answers never count, since one edit reaches too many words.
+     * @param length The length of the answer
+     * @return The largest distance that counts as close
+     */
+    public static int allowedDistance(int length) {
+        if (length <= 3) {
+            return 0;
+        }
+        return length <= 6 ? 1 : 2;
+    }
+
+    /**
+     * Checks whether a wrong guess was close to one of the riddle's answers
+     * @param riddle The riddle
+     * @param guessKey The canonical key of the guess, see AnswerMatcher
+     * @return true if the guess is within a typo or two of an answer but isn't one
+     */
+    public static boolean isClose(RiddleEntry riddle, String guessKey) {
+        for (String key : riddle.answerKeys()) {
+            int allowed = allowedDistance(key.length());
+            int distance = distance(key, guessKey, allowed);
+            if (distance > 0 && distance <= allowed) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Edit distance between two strings, capped
+     * @param a The first string
+     * @param b The second string
+     * @param max The largest distance of interest
+     * @return The distance, or max + 1 if it is larger than max
+     */
+    public static int distance(String a, String b, int max) {
+        int n = a.length();
+        int m = b.length();
+        if (Math.abs(n - m) > max) {
+            return max + 1;
+        }
+        int[] before = new int[m + 1];
+        int[] previous = new int[m + 1];
+        int[] current = new int[m + 1];
+        for (int j = 0; j <= m; j++) {
+            previous[j] = j;
+        }
+        for (int i = 1; i <= n; i++) {
+            current[0] = i;
+            int rowMin = i;
+            char ca = a.charAt(i - 1);
+            for (int j = 1; j <= m; j++) {
+                char cb = b.charAt(j - 1);
+                int cost = ca == cb ? 0 : 1;
+                int value = Math.min(Math.min(previous[j] + 1, current[j - 1] + 1), previous[j - 1] + cost);
+                if (i > 1 && j > 1 && ca == b.charAt(j - 2) && a.charAt(i - 2) == cb) {
+                    value = Math.min(value, before[j - 2] + 1);
+                }
+                current[j] = value;
+                rowMin = Math.min(rowMin, value);
+            }
+            if (rowMin > max) {
+                return max + 1;
+            }
+            int[] recycled = before;
+            before = previous;
+            previous = current;
+            current = recycled;
+        }
+        return Math.min(previous[m], max + 1);
+    }
+
+    /**
+     * Edit distance between two strings with no cap
+     */
+    public static int distance(String a, String b) {
+        return distance(a, b, Math.max(a.length(), b.length()));
+    }
+}
@@ -0,0 +1,83 @@
+import static org.junit.Assert.*;
+import org.junit.Test;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+public class NearMissTests {
+
+    // Test 1: Distance counts insertions, deletions, substitutions and swaps as one edit each
+    @Test
+    public void testDistance() {
+        assertEquals(0, NearMiss.distance("anchor", "anchor"));
+        assertEquals(1, NearMiss.distance("anchr", "anchor"));
+        assertEquals(1, NearMiss.distance("anchar", "anchor"));
+        assertEquals(1, NearMiss.distance("ancohr", "anchor"));
+        assertEquals(3, NearMiss.distance("", "egg"));
+        assertTrue("Bounded distance stops past the limit", NearMiss.distance("piano", "anchor", 2) > 2);
+    }
+
+    // Test 2: Only typos within the allowed distance of an answer count as close
+    @Test
+    public void testIsClose() {
+        RiddleEntry anchor = new RiddleEntry(0, "ANCHOR", "what holds a ship?", List.of());
+        assertTrue("One letter off is close", NearMiss.isClose(anchor, "anchr"));
+        assertFalse("The answer itself isn't a near miss", NearMiss.isClose(anchor, "anchor"));
+        assertFalse("A different word isn't close", NearMiss.isClose(anchor, "boat"));
+        RiddleEntry egg = new RiddleEntry(1, "EGG", "what breaks before use?", List.of());
+        assertFalse("Short answers need an exact match", NearMiss.isClose(egg, "eg"));
+    }
+
+    // Test 3: A session tells the player when a wrong guess is nearly right
+    @Test
+    public void testSessionShowsNearMiss() {
+        TextCorpus corpus = new TextCorpus();
+        corpus.addRiddle("ANCHOR", "what holds a ship?");
+        List<String> output = new ArrayList<>();
+        GameSession session = GameSession.singleRiddle(corpus, corpus.get(0), () -> "wrong", () -> "right",
+                Renderer.CONSOLE_PLAIN, (bytes, offset, length) -> output.add(new String(bytes, offset, length, StandardCharsets.UTF_8)));
+        session.start();
+        session.onInput("anchro");
+        assertTrue("Near miss should be shown", output.get(output.size() - 1).contains("so close"));
+        session.onInput("boat");
+        assertFalse("Far guesses get no near miss", output.get(output.size() - 1).contains("so close"));
+    }
+
+    // Test 4: The answer index finds every answer within the asked distance
+    @Test
+    public void testAnswerIndex() {
+        TextCorpus corpus = new TextCorpus();
+        corpus.addRiddle("ANCHOR", "what holds a ship?");
+        corpus.addRiddle("ANCHORS", "duplicate answer");
+        corpus.addRiddle("YARDSTICK|RULER", "what measures?");
+        corpus.addRiddle("EGG", "what breaks before use?");
+        AnswerIndex index = AnswerIndex.build(corpus, 2);
+        assertEquals("Alternates are indexed", 4, index.size());
+
+        List<AnswerIndex.Match> matches = index.search("ancor", 1);
+        assertEquals(1, matches.size());
+        assertEquals("anchor", matches.get(0).key());
+        assertEquals(1, matches.get(0).distance());
+
+        assertEquals("ruler", index.search("rulre", 1).get(0).key());
+        assertTrue("Nothing is close to piano", index.search("piano", 2).isEmpty());
+        assertEquals("Exact matches come first", 0, index.search("egg", 2).get(0).distance());
+    }
+
+    // Test 5: Lint reports answers a typo apart once per pair, using the near-miss distances
+    @Test
+    public void testCloseAnswers() {
+        TextCorpus corpus = new TextCorpus();
+        corpus.addRiddle("ANCHOR", "what holds a ship?");
+        corpus.addRiddle("ANCHOVY", "what fish is on a pizza?");
+        corpus.addRiddle("CLOCK|TIMER", "what has hands?");
+        corpus.addRiddle("TIMBER", "what does a lumberjack shout?");
+        corpus.addRiddle("EGG", "what breaks before use?");
+        corpus.addRiddle("EGO", "what can be bruised without a body?");
+        corpus.addRiddle("HORSE", "what has a mane?");
+        corpus.addRiddle("HOUSE", "what has a roof?");
+        assertEquals("Answers are reported as written, not as compared", List.of(
+                "answers ANCHOR and ANCHOVY are 2 edits apart",
+                "answers TIMBER and TIMER are 1 edit apart",
+                "answers HORSE and HOUSE are 1 edit apart"), CorpusLint.closeAnswers(corpus));
+    }
+}
@@ -0,0 +1,40 @@
+import java.util.Comparator;
+
+/**
+ * Everything a player has done so far, added up from their game results.
+ * @param name the player's name
+ * @param games games finished
+ * @param wins games won
+ * @param riddlesSolved riddles solved over every game
+ * @param guesses guesses made over every game
+ * @param hintsUsed hints shown over every game
+ * @param playMillis total time played
+ */
+public record PlayerProfile(String name, int games, int wins, long riddlesSolved, long guesses, long hintsUsed,
+                            long playMillis) {
+
+    /** Leaderboard order: most wins, then most riddles solved, then fewest guesses */
+    public static final Comparator<PlayerProfile> RANKING = Comparator
+            .comparingInt(PlayerProfile::wins).reversed()
+            .thenComparing(Comparator.comparingLong(PlayerProfile::riddlesSolved).reversed())
+            .thenComparingLong(PlayerProfile::guesses)
+            .thenComparing(PlayerProfile::name);
+
+    /**
+     * @param name The player's name
+     * @return A profile with no games
+     */
+    public static PlayerProfile empty(String name) {
+        return new PlayerProfile(name, 0, 0, 0, 0, 0, 0);
+    }
+
+    /**
+     * Adds one game
+     * @param result The game's result
+     * @return The updated profile
+     */
+    public PlayerProfile plus(GameResult result) {
+        return new PlayerProfile(name, games + 1, wins + (result.won() ? 1 : 0), riddlesSolved + result.riddlesSolved(),
+                guesses + result.guesses(), hintsUsed + result.hintsUsed(), playMillis + result.playMillis());
+    }
+}
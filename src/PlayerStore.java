@@ -0,0 +1,250 @@
+import java.io.*;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Keeps every player's profile and the leaderboard across runs. Each finished
+ * game is appended to a group-committed AppendLog and added to the profiles in
+ * memory straight away. Every COMPACT_EVERY games the profiles are written to a
+ * snapshot and the log segments it covers are deleted, so starting up reads one
+ * snapshot and a short tail of the log instead of every game ever played.
+ */
+public class PlayerStore implements Closeable {
+    /** Games between snapshots */
+    public static final int COMPACT_EVERY = 10_000;
+    /** Players shown on the leaderboard */
+    public static final int LEADERBOARD_SIZE = 10;
+
+    private static final String LOG_NAME = "results";
+    private static final String SNAPSHOT_FILE = "players.snapshot";
+    private static final int MAGIC = 0x504C5952;
+    private static final int VERSION = 1;
+
+    private final Path directory;
+    private final AppendLog log;
+    private final HashMap<String, PlayerProfile> profiles = new HashMap<>();
+    private final TreeSet<PlayerProfile> ranking = new TreeSet<>(PlayerProfile.RANKING);
+    private final ExecutorService compactor = Executors.newSingleThreadExecutor(task -> {
+        Thread thread = new Thread(task, "riddle-compactor");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private int recordsSinceSnapshot;
+    private boolean compacting;
+
+    private PlayerStore(Path directory, AppendLog log) {
+        this.directory = directory;
+        this.log = log;
+    }
+
+    /**
+     * Opens the store, loading the latest snapshot and replaying the games logged after it
+     * @param directory Where the snapshot and log live; created if missing
+     * @return The open store
+     * @throws IOException if the files can't be read
+     */
+    public static PlayerStore open(Path directory) throws IOException {
+        Files.createDirectories(directory);
+        List<PlayerProfile> saved = new ArrayList<>();
+        long sequence = readSnapshot(directory.resolve(SNAPSHOT_FILE), saved);
+        PlayerStore store = new PlayerStore(directory, AppendLog.open(directory, LOG_NAME, AppendLog.DEFAULT_SEGMENT_BYTES, sequence + 1));
+        for (PlayerProfile profile : saved) {
+            store.put(profile);
+        }
+        try {
+            store.log.replay(sequence, entry -> {
+                try {
+                    store.apply(GameResult.decode(entry.payload()));
+                    store.recordsSinceSnapshot++;
+                }
+                catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        }
+        catch (UncheckedIOException e) {
+            store.log.close();
+            throw e.getCause();
+        }
+        return store;
+    }
+
+    /**
+     * Adds a finished game to the player's profile and the log
+     * @param result The game's result
+     * @return Completes once the result is safely on disk
+     */
+    public CompletableFuture<Long> record(GameResult result) {
+        CompletableFuture<Long> written;
+        synchronized (this) {
+            apply(result);
+            written = log.append(result.encode());
+            recordsSinceSnapshot++;
+            if (recordsSinceSnapshot >= COMPACT_EVERY && !compacting) {
+                compacting = true;
+                compactor.execute(this::compactQuietly);
+            }
+        }
+        return written;
+    }
+
+    /**
+     * @param name The player's name
+     * @return The player's profile, or an empty one for a new player
+     */
+    public synchronized PlayerProfile getProfile(String name) {
+        return profiles.getOrDefault(name, PlayerProfile.empty(name));
+    }
+
+    /**
+     * @param count The most players to return
+     * @return The best players, best first
+     */
+    public synchronized List<PlayerProfile> leaderboard(int count) {
+        List<PlayerProfile> top = new ArrayList<>(Math.min(count, ranking.size()));
+        for (PlayerProfile profile : ranking) {
+            if (top.size() == count) {
+                break;
+            }
+            top.add(profile);
+        }
+        return top;
+    }
+
+    /**
+     * @return The number of players with a profile
+     */
+    public synchronized int size() {
+        return profiles.size();
+    }
+
+    /**
+     * @return The log the results are written to
+     */
+    AppendLog getLog() {
+        return log;
+    }
+
+    /**
+     * Writes a snapshot of every profile and deletes the log segments it covers
+     * @throws IOException if the snapshot can't be written
+     */
+    public void compact() throws IOException {
+        long sequence;
+        List<PlayerProfile> copy;
+        synchronized (this) {
+            sequence = log.lastSequence();
+            copy = new ArrayList<>(profiles.values());
+            recordsSinceSnapshot = 0;
+        }
+        writeSnapshot(directory.resolve(SNAPSHOT_FILE), sequence, copy);
+        log.roll().join();
+        log.deleteThrough(sequence);
+    }
+
+    private void compactQuietly() {
+        try {
+            compact();
+        }
+        catch (IOException | CompletionException e) {
+            System.err.println("error compacting player log: " + e.getMessage());
+        }
+        finally {
+            synchronized (this) {
+                compacting = false;
+            }
+        }
+    }
+
+    /**
+     * Syncs every recorded game and closes the log
+     */
+    @Override
+    public void close() throws IOException {
+        compactor.shutdown();
+        try {
+            compactor.awaitTermination(30, TimeUnit.SECONDS);
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        log.close();
+    }
+
+    private void apply(GameResult result) {
+        put(getProfile(result.player()).plus(result));
+    }
+
+    private void put(PlayerProfile profile) {
+        PlayerProfile old = profiles.put(profile.name(), profile);
+        if (old != null) {
+            ranking.remove(old);
+        }
+        ranking.add(profile);
+    }
+
+    /**
+     * Reads a snapshot into a list
+     * @return The last log sequence number the snapshot covers, or 0 if there is no snapshot
+     */
+    private static long readSnapshot(Path file, List<PlayerProfile> profiles) throws IOException {
+        if (!Files.exists(file)) {
+            return 0;
+        }
+        CRC32 crc = new CRC32();
+        try (DataInputStream in = new DataInputStream(new CheckedInputStream(
+                new BufferedInputStream(Files.newInputStream(file)), crc))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                throw new IOException(file + " is not a player snapshot");
+            }
+            long sequence = in.readLong();
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                profiles.add(new PlayerProfile(in.readUTF(), in.readInt(), in.readInt(), in.readLong(),
+                        in.readLong(), in.readLong(), in.readLong()));
+            }
+            long expected = crc.getValue();
+            if (in.readLong() != expected) {
+                throw new IOException(file + " is corrupt");
+            }
+            return sequence;
+        }
+    }
+
+    private static void writeSnapshot(Path file, long sequence, List<PlayerProfile> profiles) throws IOException {
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        CRC32 crc = new CRC32();
+        try (FileOutputStream stream = new FileOutputStream(tmp.toFile());
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new CheckedOutputStream(stream, crc)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(sequence);
+            out.writeInt(profiles.size());
+            for (PlayerProfile profile : profiles) {
+                out.writeUTF(profile.name());
+                out.writeInt(profile.games());
+                out.writeInt(profile.wins());
+                out.writeLong(profile.riddlesSolved());
+                out.writeLong(profile.guesses());
+                out.writeLong(profile.hintsUsed());
+                out.writeLong(profile.playMillis());
+            }
+            out.flush();
+            out.writeLong(crc.getValue());
+            out.flush();
+            stream.getFD().sync();
+        }
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        try (FileChannel dir = FileChannel.open(file.getParent(), StandardOpenOption.READ)) {
+            dir.force(true);
+        }
+        catch (IOException e) {
+            // not every platform can sync a directory
+        }
+    }
+}
@@ -0,0 +1,142 @@
+import static org.junit.Assert.*;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import java.io.*;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+public class PlayerStoreTests {
+    private Path directory;
+
+    @Before
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("riddle-players");
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        try (var files = Files.walk(directory)) {
+            files.sorted(Comparator.reverseOrder()).forEach(file -> file.toFile().delete());
+        }
+    }
+
+    private static GameResult result(String player, boolean won, int solved) {
+        return new GameResult(player, won, solved, solved * 2, 1, 60_000, System.currentTimeMillis());
+    }
+
+    // Test 1: Profiles and the leaderboard survive a restart
+    @Test
+    public void testReopen() throws IOException {
+        try (PlayerStore store = PlayerStore.open(directory)) {
+            store.record(result("ann", true, 5));
+            store.record(result("bob", false, 2));
+            store.record(result("bob", true, 5));
+            store.record(result("cat", false, 4));
+        }
+        try (PlayerStore store = PlayerStore.open(directory)) {
+            assertEquals(3, store.size());
+            PlayerProfile bob = store.getProfile("bob");
+            assertEquals(2, bob.games());
+            assertEquals(1, bob.wins());
+            assertEquals(7, bob.riddlesSolved());
+            List<PlayerProfile> top = store.leaderboard(2);
+            assertEquals("bob", top.get(0).name());
+            assertEquals("ann", top.get(1).name());
+        }
+    }
+
+    // Test 2: Games finishing together share fsyncs
+    @Test
+    public void testGroupCommit() throws Exception {
+        try (PlayerStore store = PlayerStore.open(directory)) {
+            List<CompletableFuture<Long>> writes = Collections.synchronizedList(new ArrayList<>());
+            Thread[] threads = new Thread[8];
+            for (int t = 0; t < threads.length; t++) {
+                String player = "player" + t;
+                threads[t] = new Thread(() -> {
+                    for (int i = 0; i < 250; i++) {
+                        writes.add(store.record(result(player, i % 2 == 0, 5)));
+                    }
+                });
+                threads[t].start();
+            }
+            for (Thread thread : threads) {
+                thread.join();
+            }
+            CompletableFuture.allOf(writes.toArray(new CompletableFuture<?>[0])).join();
+            assertEquals(2000, store.getLog().lastSequence());
+            assertTrue("Expected batched syncs, got " + store.getLog().getSyncCount(), store.getLog().getSyncCount() < 2000);
+        }
+        try (PlayerStore store = PlayerStore.open(directory)) {
+            assertEquals(250, store.getProfile("player3").games());
+        }
+    }
+
+    // Test 3: Compaction keeps every game and drops the log it covers
+    @Test
+    public void testCompaction() throws IOException {
+        try (PlayerStore store = PlayerStore.open(directory)) {
+            store.record(result("ann", true, 5));
+            store.record(result("bob", true, 5)).join();
+            store.compact();
+            assertEquals("Covered segments are deleted", 1, store.getLog().segmentCount());
+            store.record(result("ann", false, 3));
+        }
+        try (PlayerStore store = PlayerStore.open(directory)) {
+            assertEquals(2, store.getProfile("ann").games());
+            assertEquals(1, store.getProfile("bob").games());
+            store.record(result("cat", true, 5));
+        }
+        try (PlayerStore store = PlayerStore.open(directory)) {
+            assertEquals(3, store.size());
+        }
+    }
+
+    // Test 4: A record torn by a crash is dropped and the log carries on after it
+    @Test
+    public void testTornTail() throws IOException {
+        try (PlayerStore store = PlayerStore.open(directory)) {
+            store.record(result("ann", true, 5));
+        }
+        Path segment;
+        try (var files = Files.list(directory)) {
+            segment = files.filter(file -> file.toString().endsWith(".log")).findFirst().orElseThrow();
+        }
+        Files.write(segment, new byte[] { 0, 0, 0, 0, 0, 0, 0, 2, 0, 0, 0, 40, 1 }, StandardOpenOption.APPEND);
+        try (PlayerStore store = PlayerStore.open(directory)) {
+            assertEquals(1, store.getProfile("ann").games());
+            store.record(result("ann", true, 5));
+        }
+        try (PlayerStore store = PlayerStore.open(directory)) {
+            assertEquals(2, store.getProfile("ann").games());
+        }
+    }
+
+    // Test 5: After a failed write the log refuses appends rather than leave a gap that drops later records
+    @Test
+    public void testFailedWriteStopsLog() throws Exception {
+        AppendLog log = AppendLog.open(directory, "test", 1, 1);
+        assertEquals(Long.valueOf(1), log.append(new byte[] { 1 }).get(5, TimeUnit.SECONDS));
+        // A directory where the next segment should go makes opening it fail
+        Path blocker = Files.createDirectory(directory.resolve(String.format("test-%020d.log", 2)));
+        assertThrows(ExecutionException.class, () -> log.append(new byte[] { 2 }).get(5, TimeUnit.SECONDS));
+        assertThrows(ExecutionException.class, () -> log.append(new byte[] { 3 }).get(5, TimeUnit.SECONDS));
+        assertThrows(ExecutionException.class, () -> log.roll().get(5, TimeUnit.SECONDS));
+        log.close();
+        assertThrows("Rolling a closed log fails rather than waiting forever", ExecutionException.class,
+                () -> log.roll().get(5, TimeUnit.SECONDS));
+        Files.delete(blocker);
+
+        AppendLog reopened = AppendLog.open(directory, "test", 1, 1);
+        assertEquals("Numbering carries on after the last record written", Long.valueOf(2),
+                reopened.append(new byte[] { 4 }).get(5, TimeUnit.SECONDS));
+        reopened.close();
+        List<Long> sequences = new ArrayList<>();
+        AppendLog replayed = AppendLog.open(directory, "test", 1, 1);
+        replayed.replay(0, entry -> sequences.add(entry.sequence()));
+        replayed.close();
+        assertEquals(List.of(1L, 2L), sequences);
+    }
+}
@@ -0,0 +1,180 @@
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * Turns game events into the bytes a player sees.
+ * Everything that never changes (rules, prompts, the trophy, colour codes) is
+ * encoded once when the renderer is created; only riddles, hints and messages
+ * are copied in per turn. A renderer can leave out the ANSI colours for
+ * players whose terminal doesn't support them.
+ */
+public class Renderer {
+    /** Coloured output for a terminal on this machine */
+    public static final Renderer CONSOLE = new Renderer(true, System.lineSeparator());
+    /** Plain output for pipes and files */
+    public static final Renderer CONSOLE_PLAIN = new Renderer(false, System.lineSeparator());
+    /** Coloured output for telnet players */
+    public static final Renderer NETWORK = new Renderer(true, "\r\n");
+    /** Plain output for network players without an ANSI terminal */
+    public static final Renderer NETWORK_PLAIN = new Renderer(false, "\r\n");
+
+    private final boolean color;
+    private final byte[] newline;
+    private final byte[] green;
+    private final byte[] red;
+    private final byte[] pink;
+    private final byte[] resetLine;
+    private final byte[] rules;
+    private final byte[] victory;
+    private final byte[] loss;
+    private final byte[] guessPrompt;
+    private final byte[] hintOffer;
+    private final byte[] hintDeclined;
+    private final byte[] hintInvalid;
+    private final byte[] hintsUsedUp;
+    private final byte[] hintHeader;
+    private final byte[] nearMiss;
+    private final byte[] timedOut;
+    private final byte[] leaderboardHeader;
+
+    /**
+     * @param color Whether to include ANSI colour codes
+     * @param lineEnding What to end each line with
+     */
+    public Renderer(boolean color, String lineEnding) {
+        this.color = color;
+        this.newline = encode(lineEnding);
+        this.green = encode(code(Riddle.GREEN));
+        this.red = encode(code(Riddle.RED));
+        this.pink = encode(code(Riddle.PINK));
+        this.resetLine = encode(code(Riddle.RESET), lineEnding);
+        this.rules = encode(code(Riddle.GREEN), Riddle.rules, "\n", code(Riddle.RESET), lineEnding);
+        this.victory = encode(code(Riddle.GREEN), Riddle.win, lineEnding,
+                code(Riddle.GREEN), "here is your prize:", lineEnding,
+                code(Riddle.YELLOW), " .  .  .  .", lineEnding,
+                code(Riddle.YELLOW), "/\\_/\\_/\\_/\\", lineEnding,
+                code(Riddle.YELLOW), "|          |", lineEnding,
+                code(Riddle.YELLOW), "|          |", lineEnding,
+                code(Riddle.YELLOW), "------------", code(Riddle.RESET), lineEnding);
+        this.loss = encode(code(Riddle.RED), Riddle.loss, code(Riddle.RESET), lineEnding);
+        this.guessPrompt = encode("enter your guess: ", lineEnding);
+        this.hintOffer = pinkLine("would you like a hint? (y/n): ");
+        this.hintDeclined = pinkLine("really? okay... try again I guess");
+        this.hintInvalid = pinkLine("that wasn't either option... try again");
+        this.hintsUsedUp = pinkLine("you have used all your hints for this riddle, try again!");
+        this.hintHeader = encode("here is your hint: ", lineEnding);
+        this.nearMiss = encode(code(Riddle.YELLOW), "so close! check your spelling", code(Riddle.RESET), lineEnding);
+        this.timedOut = encode(code(Riddle.RED), "out of time!", code(Riddle.RESET), lineEnding);
+        this.leaderboardHeader = encode(code(Riddle.GREEN), "leaderboard:", code(Riddle.RESET), lineEnding);
+    }
+
+    public boolean isColor() {
+        return color;
+    }
+
+    public void rules(TurnBuffer out) {
+        out.append(rules);
+    }
+
+    public void victory(TurnBuffer out) {
+        out.append(victory);
+    }
+
+    public void loss(TurnBuffer out) {
+        out.append(loss);
+    }
+
+    /**
+     * Shows a riddle and asks for a guess
+     */
+    public void riddle(TurnBuffer out, RiddleEntry riddle) {
+        out.append(riddle.text()).append(newline).append(guessPrompt);
+    }
+
+    public void correct(TurnBuffer out, String message) {
+        out.append(green).append(message).append(resetLine);
+    }
+
+    public void wrong(TurnBuffer out, String message) {
+        out.append(red).append(message).append(resetLine);
+    }
+
+    public void hintOffer(TurnBuffer out) {
+        out.append(hintOffer);
+    }
+
+    public void hintDeclined(TurnBuffer out) {
+        out.append(hintDeclined);
+    }
+
+    public void hintInvalid(TurnBuffer out) {
+        out.append(hintInvalid);
+    }
+
+    public void hintsUsedUp(TurnBuffer out) {
+        out.append(hintsUsedUp);
+    }
+
+    /**
+     * Tells the player their wrong guess was only a typo or two away
+     */
+    public void nearMiss(TurnBuffer out) {
+        out.append(nearMiss);
+    }
+
+    /**
+     * Tells the player they took too long
+     */
+    public void timedOut(TurnBuffer out) {
+        out.append(timedOut);
+    }
+
+    public void hint(TurnBuffer out, String hint) {
+        out.append(hintHeader).append(pink).append(hint).append(resetLine);
+    }
+
+    /**
+     * Shows the best players, best first
+     */
+    public void leaderboard(TurnBuffer out, List<PlayerProfile> players) {
+        out.append(leaderboardHeader);
+        for (int i = 0; i < players.size(); i++) {
+            PlayerProfile player = players.get(i);
+            out.append((i + 1) + ". " + player.name() + " - " + player.wins() + " wins, "
+                    + player.riddlesSolved() + " riddles solved").append(newline);
+        }
+    }
+
+    /**
+     * Encodes a one-line announcement once so it can be shown to many players
+     * @param text The announcement
+     * @return The encoded line, for TurnBuffer.append()
+     */
+    public byte[] banner(String text) {
+        return encode(code(Riddle.YELLOW), text, code(Riddle.RESET), new String(newline, StandardCharsets.UTF_8));
+    }
+
+    private String code(String ansi) {
+        return color ? ansi : "";
+    }
+
+    private byte[] pinkLine(String text) {
+        return encode(code(Riddle.PINK), text, code(Riddle.RESET), new String(newline, StandardCharsets.UTF_8));
+    }
+
+    private static byte[] encode(String text) {
+        return text.getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Joins with a StringBuilder rather than +, whose first use of each shape of
+     * concatenation spins up method handles and so delays the first prompt
+     */
+    private static byte[] encode(String... parts) {
+        StringBuilder text = new StringBuilder();
+        for (String part : parts) {
+            text.append(part);
+        }
+        return encode(text.toString());
+    }
+}
@@ -1,5 +1,11 @@
 import java.io.*;
+import java.nio.file.*;
+import java.time.Clock;
+import java.time.LocalDate;
 import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.random.RandomGenerator;
 
 public class Riddle {
 
@@ -12,8 +18,7 @@ public class Riddle {
                                        there are three hints for every riddle
                                        solve all five riddles to win the game
                                        if you exceed ten guesses on one riddle, you will automatically lose the game
-                                       if you are confident in your guess but it says that it's wrong, try again 
-                                       with or without an 's' (ex. boat and boats)""";
+                                       capital letters and an 's' on the end don't matter (ex. boat and boats)""";
 
     public static final String loss = """
                                         wow you suck at this...
@@ -30,44 +35,351 @@ public class Riddle {
     public static final String GREEN = "\033[32m";
 
     public static final String PINK = "\033[35m";
+
+    public static final String RIDDLE_FILE = "riddles.txt";
+    public static final String HINT_FILE = "hints.txt";
+    public static final String CORPUS_FILE = "riddles.bin";
+    public static final String TAG_FILE = "tags.txt";
+
+    public static final int RIDDLES_PER_GAME = 5;
+
+    /** How the riddles for a game are chosen */
+    public enum Selection {
+        /** Any riddles, all equally likely */
+        RANDOM,
+        /** Easiest first, hardest last */
+        ESCALATING,
+        /** Riddles as hard as the player is good */
+        MATCHED,
+        /** The same riddles for everyone today */
+        DAILY
+    }
+
+    /** Where player profiles and game results are kept */
+    public static final String PLAYER_DIRECTORY = "players";
+    /** Where unfinished games are journaled, inside PLAYER_DIRECTORY */
+    public static final String SESSION_DIRECTORY = "sessions";
+    /** Where what the difficulty index learned is kept between runs, inside PLAYER_DIRECTORY */
+    public static final String DIFFICULTY_FILE = "difficulty.bin";
+
+    /** Seconds between metrics snapshots when run with --metrics */
+    public static final long METRICS_INTERVAL_SECONDS = 10;
+
+    private static final String[] DEFAULT_CORRECT_MESSAGES = {
+        "good job! you actually got one!",
+        "wow, you got it! I'm shocked",
+        "maybe you're no as dumb as you look",
+        "took you long enough",
+        "you finally got one!",
+        "good job I guess",
+        "you did it!",
+        "impressive... for you",
+        "you got it right!",
+        "well done!"
+    };
+
+    private static final String[] DEFAULT_RANDOM_MESSAGES = {
+        "are you even trying?",
+        "come on, you can do better than that",
+        "that's not it, try again",
+        "wrong! how can you not get it?",
+        "how can you be that dumb",
+        "you call that a guess?",
+        "nope, not even close",
+        "do you even have a brain",
+        "really? try again",
+        "somewhere a village is missing it's idiot",
+        "if your brains were dynamite they wouldn't be enough to blow your hat off",
+        "you must be the human embodiment of a participation trophy",
+        "you bring everyone around you down to your level",
+        "you're like a cloud. when you disappear, it's a beautiful day",
+        "you need to carry a plant to make up for the oxygen you waste",
+        "you got lost in thought and never made it back didn't you",
+        "you have a room temperature IQ",
+        "you couldn't pour water out of a boot with insructions on the heel",
+        "you're about as sharp as a marshmallow",
+        "you're like a man with a fork in a world of soup",
+        "a little too much chlorine in your gene pool huh",
+        "I have neither the time nor the crayons to explain this to you",
+        "you have a smooth brain, no ridges or lumps, valleys or bumps",
+        "maybe you should go lie down",
+        "useful as a chocolate teapot",
+        "the lights are on but nobody's home",
+        "you're about as quick as a snail on tranquilizers",
+        "you're the reason we have warning labels",
+        "you're not stupid; you just have bad luck when it comes to thinking",
+        "you're proof that evolution can go in reverse",
+        "you're as useless as the 'g' in lasagna",
+        "if I sent you for an IQ test you would come back negative",
+        "you're such a wet wipe",
+        "intelligent thoughts have always followed you but you're too fast",
+        "nice house no furniture",
+        "true embodiment of you can lead a horse to water but you can't make it drink",
+        "how do you keep getting dumber",
+        "stupid is as stupid does",
+        "every time you open your mouth you lower the average intelligence of the planet",
+        "let me guess, you were born on a highway because that's where most accidents happen"
+    };
+
+    /** Messages shown after a right guess, from correct_messages.txt if it exists */
+    public static final MessagePool CORRECT_MESSAGES =
+            MessagePool.load(Path.of("correct_messages.txt"), DEFAULT_CORRECT_MESSAGES);
+
+    /** Messages shown after a wrong guess, from wrong_messages.txt if it exists */
+    public static final MessagePool RANDOM_MESSAGES =
+            MessagePool.load(Path.of("wrong_messages.txt"), DEFAULT_RANDOM_MESSAGES);
     
     private HashMap<String, String> riddleMap;
     private HashMap<String, List<String>> hintMap;
+    private TextCorpus textCorpus;
+    private volatile CorpusSnapshot snapshot;
+    private final List<CorpusLoader.Problem> loadProblems;
     private Scanner scanner;
+    private BufferedReader stdin;
+    private Renderer renderer;
+    private final GameMetrics metrics;
+    private PlayerStore players;
+    private SessionJournal journal;
+    private String playerName;
+    private Selection selection;
+    private volatile DifficultyIndex difficulty;
+    private Path difficultyFile;
+    private CorpusRegistry packs;
+    private volatile DailyChallenge daily;
+    private volatile RiddleIndex index;
+    private String theme;
+    private Clock clock;
+    private PrintStream diagnostics;
     
     public Riddle() {
         this.riddleMap = new HashMap<>();
         this.hintMap = new HashMap<>();
-        this.scanner = new Scanner(System.in);
+        this.textCorpus = new TextCorpus();
+        this.loadProblems = new CopyOnWriteArrayList<>();
+        this.renderer = Renderer.CONSOLE;
+        this.metrics = new GameMetrics();
+        this.playerName = System.getProperty("user.name", "player");
+        this.selection = Selection.RANDOM;
+        this.clock = Clock.systemUTC();
+        publish(textCorpus);
     }
     
-    public static void main(String[] args) {
+    public static void main(String[] args) throws IOException {
+        if (args.length > 0 && args[0].equals("--compile")) {
+            CorpusCompiler.main(Arrays.copyOfRange(args, 1, args.length));
+            return;
+        }
+        if (args.length > 0 && args[0].equals("--lint")) {
+            CorpusLint.main(Arrays.copyOfRange(args, 1, args.length));
+            return;
+        }
+        List<String> options = new ArrayList<>(Arrays.asList(args));
+        boolean noColor = options.remove("--no-color");
+        boolean compact = options.remove("--compact");
+        boolean daily = options.remove("--daily");
+        String metricsOption = removeOption(options, "--metrics");
+        Path metricsFile = metricsOption == null ? null : Path.of(metricsOption);
+        String player = removeOption(options, "--player");
+        String difficultyOption = removeOption(options, "--difficulty");
+        String theme = removeOption(options, "--theme");
+        String pack = removeOption(options, "--pack");
+        String locale = removeOption(options, "--locale");
+        // Batch results go to standard output as JSON lines, so nothing else may
+        boolean batch = !options.isEmpty() && options.get(0).equals("--batch");
         Riddle game = new Riddle();
-        game.loadRiddles();
-        game.loadHints();
-        game.playGame();
+        if (batch) {
+            game.setDiagnostics(System.err);
+        }
+        else {
+            game.setDifficultyFile(Path.of(PLAYER_DIRECTORY, DIFFICULTY_FILE));
+        }
+        if (difficultyOption != null) {
+            game.setSelection(Selection.valueOf(difficultyOption.toUpperCase()));
+        }
+        if (daily) {
+            game.setSelection(Selection.DAILY);
+        }
+        Path packRoot = Path.of(CorpusRegistry.DEFAULT_DIRECTORY);
+        if (pack != null || CorpusRegistry.hasPacks(packRoot)) {
+            game.setPacks(new CorpusRegistry(packRoot, CorpusRegistry.DEFAULT_MAX_BYTES));
+        }
+        if (pack != null) {
+            game.setCorpus(game.getPacks().get(pack, locale != null ? locale : Locale.getDefault().toLanguageTag()));
+        }
+        else if (compact) {
+            game.loadCompactCorpus(Path.of(RIDDLE_FILE), Path.of(HINT_FILE));
+        }
+        else if (!game.loadCompiledCorpus()) {
+            game.loadCorpus();
+        }
+        game.setTheme(theme);
+        MetricsExporter exporter = metricsFile == null ? null
+                : MetricsExporter.start(game.getMetrics(), game.getPacks(), metricsFile, METRICS_INTERVAL_SECONDS);
+        // A batch plays from the riddles it started with, so there's nothing to reload
+        CorpusWatcher watcher = pack != null || batch ? null
+                : new CorpusWatcher(game, Path.of(RIDDLE_FILE), Path.of(HINT_FILE)).start();
+        try {
+            if (batch) {
+                BatchRunner.run(game, options.subList(1, options.size()).toArray(new String[0]));
+                return;
+            }
+            if (!options.isEmpty() && options.get(0).equals("--server")) {
+                int port = options.size() > 1 ? Integer.parseInt(options.get(1)) : RiddleServer.DEFAULT_PORT;
+                RiddleServer server = new RiddleServer(game, port, noColor ? Renderer.NETWORK_PLAIN : Renderer.NETWORK);
+                System.out.println("riddle server listening on port " + server.getPort());
+                server.run();
+                return;
+            }
+            if (noColor || System.console() == null) {
+                game.setRenderer(Renderer.CONSOLE_PLAIN);
+            }
+            if (player != null) {
+                game.setPlayerName(player);
+            }
+            // Scores and resuming are extras; a read-only install such as a kiosk still plays
+            PlayerStore store = null;
+            SessionJournal journal = null;
+            try {
+                store = PlayerStore.open(Path.of(PLAYER_DIRECTORY));
+            }
+            catch (IOException e) {
+                game.diagnostics().println(YELLOW + "can't open " + PLAYER_DIRECTORY
+                        + ", scores won't be kept: " + e.getMessage() + RESET);
+            }
+            try {
+                journal = SessionJournal.open(Path.of(PLAYER_DIRECTORY, SESSION_DIRECTORY));
+            }
+            catch (IOException e) {
+                game.diagnostics().println(YELLOW + "can't open " + Path.of(PLAYER_DIRECTORY, SESSION_DIRECTORY)
+                        + ", games won't be resumed after a crash: " + e.getMessage() + RESET);
+            }
+            try {
+                game.setPlayerStore(store);
+                game.setJournal(journal);
+                game.playGame();
+            }
+            finally {
+                if (journal != null) {
+                    journal.close();
+                }
+                if (store != null) {
+                    store.close();
+                }
+            }
+        }
+        finally {
+            if (watcher != null) {
+                watcher.close();
+            }
+            if (exporter != null) {
+                exporter.close();
+            }
+            game.saveDifficulty();
+        }
     }
     
     /**
-     * Loads riddles from riddles.txt file into riddleMap
+     * Takes "--name value" out of the command line options
+     * @return The value, or null if the option wasn't given
      */
-    public void loadRiddles() {
+    private static String removeOption(List<String> options, String name) {
+        int index = options.indexOf(name);
+        if (index < 0 || index + 1 >= options.size()) {
+            return null;
+        }
+        String value = options.remove(index + 1);
+        options.remove(index);
+        return value;
+    }
+
+    /**
+     * Uses riddles.bin instead of the text files if it was compiled from the current text files
+     * @return true if the compiled corpus was loaded
+     */
+    public boolean loadCompiledCorpus() {
+        GameEvents.CorpusLoad event = GameEvents.beginCorpusLoad();
         try {
-            File riddleFile = new File("riddles.txt");
-            Scanner scannerRiddles = new Scanner(riddleFile);
-            while (scannerRiddles.hasNextLine()) {
-                String line = scannerRiddles.nextLine();
-                String[] parts = line.split(":");
-                if (parts.length == 2) {
-                    String answer = parts[0].trim();
-                    String riddle = parts[1];
-                    riddleMap.put(answer, riddle);
+            BinaryCorpus compiled = BinaryCorpus.openIfFresh(Path.of(CORPUS_FILE), Path.of(RIDDLE_FILE), Path.of(HINT_FILE));
+            if (compiled == null) {
+                if (Files.exists(Path.of(CORPUS_FILE))) {
+                    diagnostics().println(YELLOW + CORPUS_FILE + " is out of date, run with --compile to rebuild it" + RESET);
                 }
+                return false;
             }
-            scannerRiddles.close();
+            publish(compiled);
+            loaded(event, "compiled", Path.of(CORPUS_FILE));
+            return true;
+        }
+        catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Loads a riddle file and a hint file into a CompactCorpus instead of maps, for corpora too
+     * big to keep as Strings. The riddle and hint maps are left empty.
+     * @param riddleFile The riddles to load
+     * @param hintFile The hints to load
+     * @throws IOException if a file can't be read
+     */
+    public void loadCompactCorpus(Path riddleFile, Path hintFile) throws IOException {
+        GameEvents.CorpusLoad event = GameEvents.beginCorpusLoad();
+        CorpusLoader.Result[] results = CorpusLoader.parseBoth(riddleFile, hintFile);
+        riddleMap = new HashMap<>();
+        hintMap = new HashMap<>();
+        textCorpus = new TextCorpus();
+        publish(CompactCorpus.of(results[0], results[1]));
+        loaded(event, "compact", riddleFile);
+        reportProblems(results[0]);
+        reportProblems(results[1]);
+    }
+
+    /**
+     * Loads riddles.txt and hints.txt at the same time
+     */
+    public void loadCorpus() {
+        loadCorpus(Path.of(RIDDLE_FILE), Path.of(HINT_FILE));
+    }
+
+    /**
+     * Loads a riddle file and a hint file at the same time
+     * @param riddleFile The riddles to load
+     * @param hintFile The hints to load
+     */
+    public void loadCorpus(Path riddleFile, Path hintFile) {
+        GameEvents.CorpusLoad event = GameEvents.beginCorpusLoad();
+        try {
+            CorpusLoader.Result[] results = CorpusLoader.parseBoth(riddleFile, hintFile);
+            addRiddles(results[0]);
+            addHints(results[1]);
+            loaded(event, "corpus", riddleFile);
+        }
+        catch (IOException e) {
+            diagnostics().println("error reading riddle files");
+            e.printStackTrace();
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Loads riddles from riddles.txt file into riddleMap
+     */
+    public void loadRiddles() {
+        loadRiddles(Path.of(RIDDLE_FILE));
+    }
+
+    /**
+     * Loads riddles from a riddle file into riddleMap
+     * @param riddleFile The riddles to load
+     */
+    public void loadRiddles(Path riddleFile) {
+        GameEvents.CorpusLoad event = GameEvents.beginCorpusLoad();
+        try {
+            addRiddles(CorpusLoader.parse(riddleFile));
+            loaded(event, "riddles", riddleFile);
         } 
-        catch (FileNotFoundException e) {
-            System.out.println("error reading riddles file");
+        catch (IOException e) {
+            diagnostics().println("error reading riddles file");
             System.exit(1);
         }
     }
@@ -76,41 +388,289 @@ public class Riddle {
      * Loads hints from hints.txt file into hintMap
      */
     public void loadHints() {
+        loadHints(Path.of(HINT_FILE));
+    }
+
+    /**
+     * Loads hints from a hint file into hintMap
+     * @param hintFile The hints to load
+     */
+    public void loadHints(Path hintFile) {
+        GameEvents.CorpusLoad event = GameEvents.beginCorpusLoad();
         try {
-            File hintFile = new File("hints.txt");
-            Scanner scannerHints = new Scanner(hintFile);
-            while (scannerHints.hasNextLine()) {
-                String line = scannerHints.nextLine();
-                String[] parts = line.split(":");
-                if (parts.length == 2) {
-                    String answer = parts[0].trim();
-                    String[] hints = parts[1].split(",");
-                    hintMap.put(answer, Arrays.asList(hints));
-                }
-            }
-            scannerHints.close();
+            addHints(CorpusLoader.parse(hintFile));
+            loaded(event, "hints", hintFile);
         }
         catch (Exception e) {
-            System.out.println("error reading hints file");
+            diagnostics().println("error reading hints file");
             e.printStackTrace();
             System.exit(1);
         }
     }
+
+    private void loaded(GameEvents.CorpusLoad event, String source, Path file) {
+        if (event == null) {
+            return;
+        }
+        event.end();
+        if (event.shouldCommit()) {
+            event.source = source;
+            event.file = file.toString();
+            event.riddles = getCorpus().size();
+            event.commit();
+        }
+    }
+
+    private void addRiddles(CorpusLoader.Result result) {
+        addRiddles(result, riddleMap, textCorpus);
+        publish(textCorpus);
+    }
+
+    private void addHints(CorpusLoader.Result result) {
+        addHints(result, hintMap, textCorpus);
+        publish(textCorpus);
+    }
+
+    private void addRiddles(CorpusLoader.Result result, Map<String, String> riddleMap, TextCorpus textCorpus) {
+        for (CorpusLoader.Line line : result.lines()) {
+            riddleMap.put(AnswerMatcher.primaryAnswer(line.key()), line.value());
+            textCorpus.addRiddle(line.key(), line.value());
+        }
+        reportProblems(result);
+    }
+
+    private void addHints(CorpusLoader.Result result, Map<String, List<String>> hintMap, TextCorpus textCorpus) {
+        for (CorpusLoader.Line line : result.lines()) {
+            List<String> hints = List.of(line.value().split(","));
+            hintMap.put(line.key(), hints);
+            textCorpus.addHints(line.key(), hints);
+        }
+        reportProblems(result);
+    }
+
+    /**
+     * Makes a corpus the one new games are dealt from. The startup loaders build
+     * their corpus in place and publish it after each file, so they should only be
+     * used before games start; reload() is the way to change riddles under running games.
+     */
+    private void publish(Corpus corpus) {
+        long version = snapshot == null ? 0 : snapshot.version() + 1;
+        snapshot = new CorpusSnapshot(version, corpus,
+                Collections.unmodifiableMap(riddleMap), Collections.unmodifiableMap(hintMap));
+    }
+
+    /**
+     * Rebuilds the corpus after riddles.txt or hints.txt changed and publishes it as a new snapshot.
+     * Only the files that changed are read again; riddles from the current snapshot are reused
+     * as they are when only the hints changed. Games already running keep the snapshot they started with.
+     * @param riddleFile The riddle file
+     * @param hintFile The hint file
+     * @param riddlesChanged true if the riddle file has to be read again
+     * @param hintsChanged true if the hint file has to be read again
+     * @return The new snapshot
+     * @throws IOException if a changed file can't be read; the current snapshot is kept
+     */
+    public synchronized CorpusSnapshot reload(Path riddleFile, Path hintFile, boolean riddlesChanged,
+                                              boolean hintsChanged) throws IOException {
+        CorpusSnapshot current = snapshot;
+        if (current.corpus() instanceof CompactCorpus) {
+            loadCompactCorpus(riddleFile, hintFile);
+            return snapshot;
+        }
+        // A compiled corpus has no hint map to reuse, so both files are read to leave it
+        boolean fromText = current.corpus() instanceof TextCorpus;
+        boolean readRiddles = riddlesChanged || !fromText;
+        boolean readHints = hintsChanged || !fromText;
+        CorpusLoader.Result riddles = null;
+        CorpusLoader.Result hints = null;
+        if (readRiddles && readHints) {
+            CorpusLoader.Result[] results = CorpusLoader.parseBoth(riddleFile, hintFile);
+            riddles = results[0];
+            hints = results[1];
+        }
+        else if (readRiddles) {
+            riddles = CorpusLoader.parse(riddleFile);
+        }
+        else if (readHints) {
+            hints = CorpusLoader.parse(hintFile);
+        }
+
+        HashMap<String, String> nextRiddleMap = new HashMap<>();
+        HashMap<String, List<String>> nextHintMap = new HashMap<>();
+        TextCorpus next = new TextCorpus();
+        if (hints != null) {
+            addHints(hints, nextHintMap, next);
+        }
+        else {
+            for (Map.Entry<String, List<String>> entry : current.hintMap().entrySet()) {
+                nextHintMap.put(entry.getKey(), entry.getValue());
+                next.addHints(entry.getKey(), entry.getValue());
+            }
+        }
+        if (riddles != null) {
+            addRiddles(riddles, nextRiddleMap, next);
+        }
+        else {
+            Corpus previous = current.corpus();
+            for (int id = 0; id < previous.size(); id++) {
+                next.addEntry(previous.get(id));
+            }
+            nextRiddleMap.putAll(current.riddleMap());
+        }
+
+        riddleMap = nextRiddleMap;
+        hintMap = nextHintMap;
+        textCorpus = next;
+        publish(next);
+        return snapshot;
+    }
+
+    private void reportProblems(CorpusLoader.Result result) {
+        for (CorpusLoader.Problem problem : result.problems()) {
+            reportProblem(problem);
+        }
+    }
+
+    private void reportProblem(CorpusLoader.Problem problem) {
+        diagnostics().println(YELLOW + "skipping " + problem + RESET);
+        loadProblems.add(problem);
+    }
+    
+    /**
+     * Finds the loaded riddle with the given text
+     * @param text The riddle text
+     * @return The riddle, or null if no loaded riddle has that text
+     */
+    public RiddleEntry findRiddle(String text) {
+        return getCorpus().find(text);
+    }
+
+    /**
+     * Looks up a riddle by text for the methods that still take raw riddle text.
+     * Unknown text gets a placeholder riddle with no answer and no hints.
+     */
+    private RiddleEntry entryFor(String text) {
+        RiddleEntry entry = getCorpus().find(text);
+        return entry != null ? entry : new RiddleEntry(-1, "", text, List.of());
+    }
     
     /**
      * Creates a queue of 5 random riddles to solve
      * @return Queue containing 5 random riddles
      */
-    public Queue<String> selectRandomRiddles() {
-        ArrayList<String> shuffledRiddles = new ArrayList<>();
-        for (String riddle : riddleMap.values()) {
-            shuffledRiddles.add(riddle);
+    public Queue<RiddleEntry> selectRandomEntries() {
+        return selectRandomEntries(ThreadLocalRandom.current());
+    }
+
+    /**
+     * Creates a queue of 5 random riddles to solve, skipping riddles the player has seen recently.
+     * The queue is shorter if the corpus doesn't have enough riddles.
+     * @param random The random number source for this game
+     * @param recentlySeen Ids of riddles that shouldn't be picked
+     * @return Queue containing up to 5 random riddles
+     */
+    public Queue<RiddleEntry> selectRandomEntries(RandomGenerator random, int... recentlySeen) {
+        return selectRandomEntries(getCorpus(), random, recentlySeen);
+    }
+
+    private static Queue<RiddleEntry> selectRandomEntries(Corpus corpus, RandomGenerator random, int... recentlySeen) {
+        int[] ids = RiddleSampler.sample(corpus.size(), RIDDLES_PER_GAME, recentlySeen, random);
+        Queue<RiddleEntry> riddlesToDo = new ArrayDeque<>(ids.length);
+        for (int id : ids) {
+            riddlesToDo.offer(corpus.get(id));
+        }
+        return riddlesToDo;
+    }
+
+    /**
+     * Creates a queue of 5 random riddles matching a query, such as "tag:nature -boat"
+     * @param query What the riddles have to match, see RiddleIndex
+     * @param random The random number source for this game
+     * @return Queue containing up to 5 matching riddles
+     * @throws IllegalArgumentException if the query can't be parsed
+     */
+    public Queue<RiddleEntry> selectRandomEntries(String query, RandomGenerator random) {
+        return selectMatching(getRiddleIndex(), query, random);
+    }
+
+    private static Queue<RiddleEntry> selectMatching(RiddleIndex riddleIndex, String query, RandomGenerator random) {
+        Corpus corpus = riddleIndex.getCorpus();
+        int[] ids = riddleIndex.search(query).sample(RIDDLES_PER_GAME, random);
+        Queue<RiddleEntry> riddlesToDo = new ArrayDeque<>(ids.length);
+        for (int id : ids) {
+            riddlesToDo.offer(corpus.get(id));
+        }
+        return riddlesToDo;
+    }
+
+    /**
+     * Gets the search index for the current corpus, building it the first time it is searched
+     * @return The index, with the tags from tags.txt if there is one
+     */
+    public RiddleIndex getRiddleIndex() {
+        Corpus corpus = getCorpus();
+        RiddleIndex current = index;
+        if (current == null || current.getCorpus() != corpus) {
+            synchronized (this) {
+                current = index;
+                if (current == null || current.getCorpus() != corpus) {
+                    current = new RiddleIndex(corpus, loadTags(Path.of(TAG_FILE), diagnostics()));
+                    index = current;
+                }
+            }
+        }
+        return current;
+    }
+
+    /**
+     * Reads tags.txt, which lists the tags of each answer like hints.txt lists hints
+     * @param tagFile The tag file
+     * @return The tags for each answer, empty if there is no tag file
+     */
+    public static Map<String, List<String>> loadTags(Path tagFile) {
+        return loadTags(tagFile, System.out);
+    }
+
+    /**
+     * Reads tags.txt, reporting lines it skips
+     * @param tagFile The tag file
+     * @param warnings Where to report skipped lines and read errors
+     * @return The tags for each answer, empty if there is no tag file
+     */
+    static Map<String, List<String>> loadTags(Path tagFile, PrintStream warnings) {
+        if (!Files.exists(tagFile)) {
+            return Map.of();
+        }
+        Map<String, List<String>> tags = new HashMap<>();
+        try {
+            CorpusLoader.Result result = CorpusLoader.parse(tagFile);
+            for (CorpusLoader.Line line : result.lines()) {
+                List<String> answerTags = new ArrayList<>();
+                for (String tag : line.value().split(",")) {
+                    if (!tag.isBlank()) {
+                        answerTags.add(tag.trim());
+                    }
+                }
+                tags.put(line.key(), answerTags);
+            }
+            for (CorpusLoader.Problem problem : result.problems()) {
+                warnings.println(YELLOW + "skipping " + problem + RESET);
+            }
+        }
+        catch (IOException e) {
+            warnings.println(YELLOW + "error reading " + tagFile + ", riddles have no tags" + RESET);
         }
-        Collections.shuffle(shuffledRiddles);
+        return tags;
+    }
 
+    /**
+     * Creates a queue of 5 random riddles to solve
+     * @return Queue containing the text of 5 random riddles
+     */
+    public Queue<String> selectRandomRiddles() {
         Queue<String> riddlesToDo = new LinkedList<>();
-        for (int i = 0; i < 5; i++) {
-            riddlesToDo.offer(shuffledRiddles.get(i));
+        for (RiddleEntry entry : selectRandomEntries()) {
+            riddlesToDo.offer(entry.text());
         }
         return riddlesToDo;
     }
@@ -119,85 +679,317 @@ public class Riddle {
      * Main game loop - plays through all riddles
      */
     public void playGame() {
-        System.out.println(GREEN+ rules+"\n"+ RESET);
-        Queue<String> riddlesToDo = selectRandomRiddles();
-        Stack<String> randomMessages = new Stack<>();
-        randomMessages.addAll(shuffledMessages());
-        Stack<String> correctMessages = new Stack<>();
-        correctMessages.addAll(correctMessages());
-        
-        while (!riddlesToDo.isEmpty()) {
-            String currentRiddle = riddlesToDo.poll();
-            boolean solved = solveRiddle(currentRiddle, randomMessages, correctMessages);
-            
-            if (!solved) {
-                System.out.println(RED + loss + RESET);
-                
-                return;
+        try {
+            GameSession session = null;
+            SessionJournal.Unfinished unfinished = journal == null ? null : journal.unfinished(playerName);
+            if (unfinished != null) {
+                session = resumeSession(unfinished, renderer, console());
+                if (session == null) {
+                    journal.end(unfinished.id(), false);
+                }
+            }
+            if (session == null) {
+                session = newSession(renderer, console());
+                session.run(input());
+            }
+            else {
+                session.play(input());
+            }
+            if (players != null) {
+                players.record(GameResult.of(playerName, session));
+                TurnBuffer turn = TurnBuffer.forCurrentThread();
+                renderer.leaderboard(turn, players.leaderboard(PlayerStore.LEADERBOARD_SIZE));
+                turn.writeTo(console());
+            }
+        }
+        catch (IOException e) {
+            System.out.println("error reading input");
+        }
+    }
+
+    /**
+     * Sets up a new game of 5 random riddles
+     * @param renderer How the game's output should be drawn
+     * @param out Where the game's output should go
+     * @return The new session; call start() to show the rules and first riddle
+     */
+    public GameSession newSession(Renderer renderer, GameOutput out) {
+        if (selection == Selection.DAILY) {
+            DailyChallenge challenge = dailyChallenge();
+            GameSession session = challenge.newSession(renderer, out);
+            session.setListener(GameListener.both(metrics, difficultyIndex(challenge.getCorpus())));
+            journal(session, challenge.getDate(), challenge.getRiddles(), 0, 0);
+            return session;
+        }
+        GameEvents.Selection event = GameEvents.beginSelection();
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        Corpus corpus = getCorpus();
+        Queue<RiddleEntry> riddlesToDo;
+        if (selection == Selection.RANDOM && theme != null) {
+            RiddleIndex riddleIndex = getRiddleIndex();
+            corpus = riddleIndex.getCorpus();
+            riddlesToDo = selectMatching(riddleIndex, theme, random);
+        }
+        else if (selection == Selection.RANDOM) {
+            riddlesToDo = selectRandomEntries(corpus, random);
+        }
+        else {
+            DifficultyIndex index = difficultyIndex(corpus);
+            int[] ids = selection == Selection.ESCALATING
+                    ? index.escalating(RIDDLES_PER_GAME, random)
+                    : index.matched(skillBucket(), RIDDLES_PER_GAME, random);
+            riddlesToDo = new ArrayDeque<>(ids.length);
+            for (int id : ids) {
+                riddlesToDo.offer(corpus.get(id));
+            }
+        }
+        if (event != null) {
+            event.end();
+            if (event.shouldCommit()) {
+                event.mode = theme != null && selection == Selection.RANDOM ? "theme" : selection.name().toLowerCase();
+                event.riddles = riddlesToDo.size();
+                event.commit();
+            }
+        }
+        long randomSeed = random.nextLong();
+        long correctSeed = random.nextLong();
+        GameSession session = GameSession.newGame(corpus, riddlesToDo,
+                RANDOM_MESSAGES.cursor(randomSeed), CORRECT_MESSAGES.cursor(correctSeed), renderer, out);
+        session.setListener(GameListener.both(metrics, difficultyIndex(corpus)));
+        journal(session, null, riddlesToDo, randomSeed, correctSeed);
+        return session;
+    }
+
+    /**
+     * Sets up a new game from a riddle pack, for players who want another pack or language
+     * than the game was started with. Pack games are dealt at random, or as that pack's daily
+     * challenge; themes and difficulty buckets only cover the game's own riddles, and pack
+     * games aren't journaled, since the journal records riddles by their id in the game's corpus.
+     * @param renderer How the game's output should be drawn
+     * @param out Where the game's output should go
+     * @param pack The pack's name, or null for the game's own riddles
+     * @param locale The locale wanted, or null for the default one
+     * @return The new session; call start() to show the rules and first riddle
+     * @throws NoSuchFileException if there is no such pack, or no packs were set
+     * @throws IOException if the pack's files can't be read
+     */
+    public GameSession newSession(Renderer renderer, GameOutput out, String pack, String locale) throws IOException {
+        if (pack == null) {
+            return newSession(renderer, out);
+        }
+        CorpusRegistry registry = packs;
+        if (registry == null) {
+            throw new NoSuchFileException(pack, null, "no packs are available");
+        }
+        Corpus corpus = registry.get(pack, locale != null ? locale : Locale.getDefault().toLanguageTag());
+        if (corpus == getCorpus()) {
+            return newSession(renderer, out);
+        }
+        GameSession session;
+        if (selection == Selection.DAILY) {
+            session = DailyChallenge.of(corpus, LocalDate.now(clock)).newSession(renderer, out);
+        }
+        else {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            session = GameSession.newGame(corpus, selectRandomEntries(corpus, random),
+                    RANDOM_MESSAGES.cursor(random.nextLong()), CORRECT_MESSAGES.cursor(random.nextLong()), renderer, out);
+        }
+        session.setListener(metrics);
+        return session;
+    }
+
+    /** Records how a new session was dealt, if games are being journaled */
+    private void journal(GameSession session, LocalDate day, Collection<RiddleEntry> riddles, long randomSeed,
+                         long correctSeed) {
+        SessionJournal sessions = journal;
+        if (sessions == null) {
+            return;
+        }
+        int[] ids = new int[riddles.size()];
+        int i = 0;
+        for (RiddleEntry riddle : riddles) {
+            ids[i++] = riddle.id();
+        }
+        session.setJournal(sessions, sessions.begin(new SessionJournal.Start(playerName, day, ids,
+                SessionJournal.fingerprint(riddles), randomSeed, correctSeed, System.currentTimeMillis())));
+    }
+
+    /**
+     * Rebuilds a session that was cut off by a crash, replaying what the player typed
+     * @param unfinished The session, from the journal
+     * @param renderer How the game's output should be drawn
+     * @param out Where the game's output should go
+     * @return The session, showing the riddle the player had reached, or null if the riddles
+     *         have changed too much since for it to be rebuilt
+     */
+    public GameSession resumeSession(SessionJournal.Unfinished unfinished, Renderer renderer, GameOutput out) {
+        SessionJournal.Start start = unfinished.start();
+        Corpus corpus = getCorpus();
+        GameSession session;
+        List<RiddleEntry> riddles;
+        if (start.day() != null) {
+            DailyChallenge challenge = start.day().equals(LocalDate.now(clock)) ? dailyChallenge()
+                    : DailyChallenge.of(corpus, start.day());
+            corpus = challenge.getCorpus();
+            riddles = challenge.getRiddles();
+            session = challenge.newSession(renderer, out);
+        }
+        else {
+            riddles = new ArrayList<>(start.riddleIds().length);
+            for (int id : start.riddleIds()) {
+                if (id < 0 || id >= corpus.size()) {
+                    return null;
+                }
+                riddles.add(corpus.get(id));
+            }
+            session = GameSession.newGame(corpus, new ArrayDeque<>(riddles), RANDOM_MESSAGES.cursor(start.randomSeed()),
+                    CORRECT_MESSAGES.cursor(start.correctSeed()), renderer, out);
+            session.setIntro(renderer.banner("picking up your last game where it stopped"));
+        }
+        if (SessionJournal.fingerprint(riddles) != start.fingerprint()) {
+            return null;
+        }
+        session.setListener(GameListener.both(metrics, difficultyIndex(corpus)));
+        session.setJournal(journal, unfinished.id());
+        session.resume(unfinished.lines(), start.startedAt());
+        return session;
+    }
+
+    /**
+     * Gets the difficulty index for a corpus, building it the first time the corpus is dealt
+     * from and carrying over what the index for the previous corpus learned, or for the
+     * first index what was saved by the last run
+     */
+    private DifficultyIndex difficultyIndex(Corpus corpus) {
+        DifficultyIndex index = difficulty;
+        if (index == null || index.getCorpus() != corpus) {
+            synchronized (this) {
+                index = difficulty;
+                if (index == null || index.getCorpus() != corpus) {
+                    boolean first = index == null;
+                    index = new DifficultyIndex(corpus, index);
+                    if (first && difficultyFile != null) {
+                        try {
+                            index.restore(difficultyFile);
+                        }
+                        catch (IOException e) {
+                            diagnostics().println(YELLOW + "can't read " + difficultyFile
+                                    + ", riddle difficulty starts over: " + e.getMessage() + RESET);
+                        }
+                    }
+                    difficulty = index;
+                }
+            }
+        }
+        return index;
+    }
+
+    /**
+     * Saves what the difficulty index has learned to the difficulty file, if one was set
+     * and any game has been dealt
+     */
+    public void saveDifficulty() {
+        DifficultyIndex index = difficulty;
+        if (index == null || difficultyFile == null) {
+            return;
+        }
+        try {
+            Path directory = difficultyFile.toAbsolutePath().getParent();
+            if (directory != null) {
+                Files.createDirectories(directory);
+            }
+            index.save(difficultyFile);
+        }
+        catch (IOException e) {
+            diagnostics().println(YELLOW + "can't save " + difficultyFile + ": " + e.getMessage() + RESET);
+        }
+    }
+
+    /**
+     * Gets today's challenge, working it out for the first game of the day or after the riddles change
+     * @return The challenge for today's date in UTC
+     */
+    public DailyChallenge dailyChallenge() {
+        LocalDate today = LocalDate.now(clock);
+        Corpus corpus = getCorpus();
+        DailyChallenge challenge = daily;
+        if (challenge == null || !challenge.getDate().equals(today) || challenge.getCorpus() != corpus) {
+            synchronized (this) {
+                challenge = daily;
+                if (challenge == null || !challenge.getDate().equals(today) || challenge.getCorpus() != corpus) {
+                    challenge = DailyChallenge.of(corpus, today);
+                    daily = challenge;
+                }
+            }
+        }
+        return challenge;
+    }
+
+    /**
+     * @return The difficulty bucket that suits the current player
+     */
+    private int skillBucket() {
+        return players == null ? DifficultyIndex.BUCKETS / 2 : DifficultyIndex.skillBucket(players.getProfile(playerName));
+    }
+
+    /**
+     * @return Output that goes to whatever System.out currently is, one flush per turn
+     */
+    private static GameOutput console() {
+        return (bytes, offset, length) -> {
+            System.out.write(bytes, offset, length);
+            System.out.flush();
+        };
+    }
+
+    /**
+     * @return Input read from the scanner set with setScanner(), or else from standard input
+     */
+    private GameInput input() {
+        if (scanner != null) {
+            Scanner in = scanner;
+            return () -> in.hasNextLine() ? in.nextLine() : null;
+        }
+        // A plain reader, opened on the first read: a Scanner compiles its patterns before the rules appear
+        return () -> {
+            if (stdin == null) {
+                stdin = new BufferedReader(new InputStreamReader(System.in));
             }
+            return stdin.readLine();
+        };
+    }
+
+    /**
+     * @return The scanner the single riddle methods read from, on standard input unless one was set
+     */
+    private Scanner scanner() {
+        if (scanner == null) {
+            scanner = new Scanner(System.in);
         }
-        
-        displayVictory();
+        return scanner;
+    }
+
+    /**
+     * Wraps a message stack so messages are popped off as they are used
+     */
+    private static MessageSource messagesFrom(Stack<?> messages) {
+        return () -> messages.isEmpty() ? null : String.valueOf(messages.pop());
     }
 
+    /**
+     * @return The praise messages in a new random order
+     */
     public ArrayList<String> correctMessages () {
-        ArrayList<String> correctMessages = new ArrayList<>();
-        correctMessages.add("good job! you actually got one!");
-        correctMessages.add("wow, you got it! I'm shocked");
-        correctMessages.add("maybe you're no as dumb as you look");
-        correctMessages.add("took you long enough");
-        correctMessages.add("you finally got one!");
-        correctMessages.add("good job I guess");
-        correctMessages.add("you did it!");
-        correctMessages.add("impressive... for you");
-        correctMessages.add("you got it right!");
-        correctMessages.add("well done!");
+        ArrayList<String> correctMessages = new ArrayList<>(CORRECT_MESSAGES.toList());
         Collections.shuffle(correctMessages);
         return correctMessages;
     }
 
+    /**
+     * @return The wrong guess messages in a new random order
+     */
     public ArrayList<String> shuffledMessages() {
-        ArrayList<String> shuffledMessages = new ArrayList<>();
-        shuffledMessages.add("are you even trying?");
-        shuffledMessages.add("come on, you can do better than that");
-        shuffledMessages.add("that's not it, try again");
-        shuffledMessages.add("wrong! how can you not get it?");
-        shuffledMessages.add("how can you be that dumb");
-        shuffledMessages.add("you call that a guess?");
-        shuffledMessages.add("nope, not even close");
-        shuffledMessages.add("do you even have a brain");
-        shuffledMessages.add("really? try again");
-        shuffledMessages.add("somewhere a village is missing it's idiot");
-        shuffledMessages.add("if your brains were dynamite they wouldn't be enough to blow your hat off");
-        shuffledMessages.add("you must be the human embodiment of a participation trophy");
-        shuffledMessages.add("you bring everyone around you down to your level");
-        shuffledMessages.add("you're like a cloud. when you disappear, it's a beautiful day");
-        shuffledMessages.add("you need to carry a plant to make up for the oxygen you waste");
-        shuffledMessages.add("you got lost in thought and never made it back didn't you");
-        shuffledMessages.add("you have a room temperature IQ");
-        shuffledMessages.add("you couldn't pour water out of a boot with insructions on the heel");
-        shuffledMessages.add("you're about as sharp as a marshmallow");
-        shuffledMessages.add("you're like a man with a fork in a world of soup");
-        shuffledMessages.add("a little too much chlorine in your gene pool huh");
-        shuffledMessages.add("I have neither the time nor the crayons to explain this to you");
-        shuffledMessages.add("you have a smooth brain, no ridges or lumps, valleys or bumps");
-        shuffledMessages.add("maybe you should go lie down");
-        shuffledMessages.add("useful as a chocolate teapot");
-        shuffledMessages.add("the lights are on but nobody's home");
-        shuffledMessages.add("you're about as quick as a snail on tranquilizers");
-        shuffledMessages.add("you're the reason we have warning labels");
-        shuffledMessages.add("you're not stupid; you just have bad luck when it comes to thinking");
-        shuffledMessages.add("you're proof that evolution can go in reverse");
-        shuffledMessages.add("you're as useless as the 'g' in lasagna");
-        shuffledMessages.add("if I sent you for an IQ test you would come back negative");
-        shuffledMessages.add("you're such a wet wipe");
-        shuffledMessages.add("intelligent thoughts have always followed you but you're too fast");
-        shuffledMessages.add("nice house no furniture");
-        shuffledMessages.add("true embodiment of you can lead a horse to water but you can't make it drink");
-        shuffledMessages.add("how do you keep getting dumber");
-        shuffledMessages.add("stupid is as stupid does");
-        shuffledMessages.add("every time you open your mouth you lower the average intelligence of the planet");
-        shuffledMessages.add("let me guess, you were born on a highway because that's where most accidents happen");
+        ArrayList<String> shuffledMessages = new ArrayList<>(RANDOM_MESSAGES.toList());
         Collections.shuffle(shuffledMessages);
         return shuffledMessages;
     }
@@ -208,40 +1000,27 @@ public class Riddle {
      * @return true if solved, false if player exceeded max attempts
      */
     public boolean solveRiddle(String currentRiddle, Stack randomMessages, Stack correctMessages) {
-        boolean solved = false;
-        int attempts = 0;
-        int hintsUsed = 0;
-        //ArrayList<String> messages = wrongStack();
-        
-        while (!solved) {
-            System.out.println(currentRiddle);
-            System.out.println("enter your guess: ");
-            String userGuess = scanner.nextLine();
-            
-            if (isCorrectAnswer(currentRiddle, userGuess)) {
-                if (!correctMessages.isEmpty()) {
-                    System.out.println(GREEN + correctMessages.pop() + RESET);
-                }
-                //System.out.println("good job! you actually got one!");
-                solved = true;
-            }
-            else {
-                attempts++;
-                if (attempts == 11) {
-                    return false; // Player lost
-                }
-                //System.out.println("wrong! how can you not get it?");
-                //Print out random message from randomized stack and pop off
-                if (!randomMessages.isEmpty()) {
-                    System.out.println(RED + randomMessages.pop() + RESET);
-                }
-                
-                if (attempts >= 3) {
-                    hintsUsed = offerHint(currentRiddle, attempts, hintsUsed);
-                }
-            }
+        return solveRiddle(entryFor(currentRiddle), messagesFrom(randomMessages), messagesFrom(correctMessages));
+    }
+
+    /**
+     * Handles the solving process for a single riddle
+     * @param currentRiddle The riddle to solve
+     * @return true if solved, false if player exceeded max attempts
+     */
+    public boolean solveRiddle(RiddleEntry currentRiddle, Stack<String> randomMessages, Stack<String> correctMessages) {
+        return solveRiddle(currentRiddle, messagesFrom(randomMessages), messagesFrom(correctMessages));
+    }
+
+    private boolean solveRiddle(RiddleEntry currentRiddle, MessageSource randomMessages, MessageSource correctMessages) {
+        GameSession session = GameSession.singleRiddle(getCorpus(), currentRiddle,
+                randomMessages, correctMessages, renderer, console());
+        try {
+            return session.run(input());
+        }
+        catch (IOException e) {
+            return false;
         }
-        return true;
     }
     
     /**
@@ -251,8 +1030,17 @@ public class Riddle {
      * @return true if correct, false otherwise
      */
     public boolean isCorrectAnswer(String riddle, String guess) {
-        String correctAnswer = getAnswerForRiddle(riddle);
-        return guess.equalsIgnoreCase(correctAnswer);
+        return isCorrectAnswer(entryFor(riddle), guess);
+    }
+
+    /**
+     * Checks if the user's guess matches the correct answer
+     * @param riddle The current riddle
+     * @param guess The user's guess
+     * @return true if correct, false otherwise
+     */
+    public boolean isCorrectAnswer(RiddleEntry riddle, String guess) {
+        return GameSession.isCorrectAnswer(riddle, guess);
     }
     
     /**
@@ -261,11 +1049,8 @@ public class Riddle {
      * @return The answer string, or empty string if not found
      */
     public String getAnswerForRiddle(String riddle) {
-        return riddleMap.entrySet().stream()
-                .filter(entry -> entry.getValue().equals(riddle))
-                .map(Map.Entry::getKey)
-                .findFirst()
-                .orElse("");
+        RiddleEntry entry = getCorpus().find(riddle);
+        return entry != null ? entry.answer() : "";
     }
     
     /**
@@ -276,25 +1061,27 @@ public class Riddle {
      * @return Updated number of hints used
      */
     public int offerHint(String riddle, int attempts, int hintsUsed) {
-        if (hintsUsed < 3) {
-            System.out.println(PINK +"would you like a hint? (y/n): " + RESET);
-            String wantHint = scanner.nextLine();
-            
-            if (wantHint.equalsIgnoreCase("y")) {
-                displayHint(riddle, hintsUsed);
-                hintsUsed++;
-            }
-            else if (wantHint.equalsIgnoreCase("n")) {
-                System.out.println(PINK +"really? okay... try again I guess" + RESET);
-            }
-            else {
-                System.out.println(PINK + "that wasn't either option... try again" + RESET);
-            }
-        }
-        else {
-            System.out.println(PINK + "you have used all your hints for this riddle, try again!" + RESET);
+        return offerHint(entryFor(riddle), attempts, hintsUsed);
+    }
+
+    /**
+     * Offers a hint to the player if available
+     * @param riddle The current riddle
+     * @param attempts Number of attempts made
+     * @param hintsUsed Number of hints already used
+     * @return Updated number of hints used
+     */
+    public int offerHint(RiddleEntry riddle, int attempts, int hintsUsed) {
+        GameSession session = GameSession.singleRiddle(getCorpus(), riddle, () -> null, () -> null, renderer, console());
+        session.setHintsUsed(hintsUsed);
+        TurnBuffer turn = TurnBuffer.forCurrentThread();
+        boolean offered = session.offerHint(turn);
+        turn.writeTo(console());
+        if (offered) {
+            session.answerHint(turn, scanner().nextLine());
+            turn.writeTo(console());
         }
-        return hintsUsed;
+        return session.getHintsUsed();
     }
     
     /**
@@ -303,42 +1090,174 @@ public class Riddle {
      * @param hintIndex The index of the hint to display
      */
     public void displayHint(String riddle, int hintIndex) {
-        String answer = getAnswerForRiddle(riddle);
-        List<String> hints = hintMap.get(answer);
-        
-        if (hints != null && hintIndex < hints.size()) {
-            System.out.println("here is your hint: ");
-            System.out.println(PINK + hints.get(hintIndex) + RESET);
-        }
+        displayHint(entryFor(riddle), hintIndex);
+    }
+
+    /**
+     * Displays a hint for the current riddle
+     * @param riddle The current riddle
+     * @param hintIndex The index of the hint to display
+     */
+    public void displayHint(RiddleEntry riddle, int hintIndex) {
+        TurnBuffer turn = TurnBuffer.forCurrentThread();
+        GameSession.showHint(renderer, turn, riddle, hintIndex);
+        turn.writeTo(console());
     }
     
     /**
      * Displays the victory message and trophy
      */
     public void displayVictory() {
-        System.out.println(GREEN + win);
-        //System.out.println("congratulations! you have solved all the riddles!");
-        System.out.println(GREEN + "here is your prize:");
-        System.out.println(YELLOW + " .  .  .  .");
-        System.out.println(YELLOW + "/\\_/\\_/\\_/\\");
-        System.out.println(YELLOW + "|          |");
-        System.out.println(YELLOW + "|          |");
-        System.out.println(YELLOW + "------------" + RESET);
+        TurnBuffer turn = TurnBuffer.forCurrentThread();
+        renderer.victory(turn);
+        turn.writeTo(console());
     }
     
     public static String getRules() {
         return rules;
     }
     
-    public HashMap<String, String> getRiddleMap() {
-        return riddleMap;
+    public Corpus getCorpus() {
+        return snapshot.corpus();
+    }
+
+    public void setCorpus(Corpus corpus) {
+        publish(corpus);
+    }
+
+    /**
+     * @return The riddles, hints and version new games are currently dealt from
+     */
+    public CorpusSnapshot getSnapshot() {
+        return snapshot;
+    }
+    
+    /**
+     * @return Play statistics for every session this game has started
+     */
+    public GameMetrics getMetrics() {
+        return metrics;
+    }
+
+    public List<CorpusLoader.Problem> getLoadProblems() {
+        return loadProblems;
+    }
+    
+    /**
+     * @return Riddle text by answer from the current snapshot; read only
+     */
+    public Map<String, String> getRiddleMap() {
+        return snapshot.riddleMap();
+    }
+    
+    /**
+     * @return Hints by answer from the current snapshot; read only
+     */
+    public Map<String, List<String>> getHintMap() {
+        return snapshot.hintMap();
     }
     
-    public HashMap<String, List<String>> getHintMap() {
-        return hintMap;
+    /**
+     * Records finished console games in a player store
+     * @param players The store, or null to record nothing
+     */
+    public void setPlayerStore(PlayerStore players) {
+        this.players = players;
+    }
+
+    /**
+     * @return The riddle packs players can choose from, or null if there are none
+     */
+    public CorpusRegistry getPacks() {
+        return packs;
+    }
+
+    /**
+     * Lets players choose a riddle pack and language, see newSession(Renderer, GameOutput, String, String).
+     * Lines a pack load skips are reported like those of the game's own files.
+     * @param packs The packs, or null for none
+     */
+    public void setPacks(CorpusRegistry packs) {
+        this.packs = packs;
+        if (packs != null) {
+            packs.setProblemHandler(this::reportProblem);
+        }
+    }
+
+    /**
+     * Keeps what the difficulty index learns between runs; read when the first game is
+     * dealt and written by saveDifficulty()
+     * @param difficultyFile The file, or null to start over every run
+     */
+    public void setDifficultyFile(Path difficultyFile) {
+        this.difficultyFile = difficultyFile;
+    }
+
+    /**
+     * Journals games as they are played, so one cut off by a crash can be resumed
+     * @param journal The journal, or null to journal nothing
+     */
+    public void setJournal(SessionJournal journal) {
+        this.journal = journal;
+    }
+
+    /**
+     * Chooses how new games pick their riddles
+     * @param selection RANDOM, ESCALATING or MATCHED to deal from difficulty buckets, or DAILY
+     */
+    public void setSelection(Selection selection) {
+        this.selection = selection;
+    }
+
+    /**
+     * @return The difficulty index for the current corpus, built if needed
+     */
+    public DifficultyIndex getDifficultyIndex() {
+        return difficultyIndex(getCorpus());
+    }
+
+    /**
+     * Limits random games to riddles matching a query, such as "tag:nature -boat"
+     * @param theme The query, or null for any riddles
+     * @throws IllegalArgumentException if the query can't be parsed
+     */
+    public void setTheme(String theme) {
+        if (theme != null) {
+            getRiddleIndex().search(theme);
+        }
+        this.theme = theme;
+    }
+
+    /**
+     * Sets the clock that decides which day's challenge is played
+     * @param clock The clock
+     */
+    public void setClock(Clock clock) {
+        this.clock = clock;
+    }
+
+    public void setPlayerName(String playerName) {
+        this.playerName = playerName;
+    }
+
+    public void setRenderer(Renderer renderer) {
+        this.renderer = renderer;
     }
     
     public void setScanner(Scanner scanner) {
         this.scanner = scanner;
     }
+
+    /**
+     * Sends warnings about the riddle files somewhere other than standard output, such as
+     * standard error when standard output is data
+     * @param diagnostics Where to print them, or null for whatever System.out currently is
+     */
+    public void setDiagnostics(PrintStream diagnostics) {
+        this.diagnostics = diagnostics;
+    }
+
+    PrintStream diagnostics() {
+        return diagnostics != null ? diagnostics : System.out;
+    }
 }
\ No newline at end of file
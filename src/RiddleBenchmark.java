@@ -0,0 +1,302 @@
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Micro-benchmarks for the game's hot paths: loading, riddle selection,
+ * answer checking, hints and a whole scripted riddle. Corpora are made by
+ * CorpusGenerator so every run measures the same data.
+ *
+ * Each benchmark is timed in batches long enough to swamp the timer, after a
+ * few warm-up batches so the JIT has settled. Results are compared with the
+ * stored baseline in bench/baseline.txt and anything more than 1.5x slower is
+ * flagged as a regression.
+ *
+ * <pre>java RiddleBenchmark [--sizes=1000,10000,100000,1000000] [--filter=text] [--save] [--check]</pre>
+ * --save overwrites the baseline with this run, --check exits with status 1 on a regression.
+ */
+public class RiddleBenchmark {
+    static final Path BASELINE = Path.of("bench", "baseline.txt");
+    static final double REGRESSION_RATIO = 1.5;
+    private static final long BATCH_NANOS = 100_000_000L;
+    private static final int WARMUP_BATCHES = 2;
+    private static final int MEASURED_BATCHES = 5;
+
+    /** Keeps benchmark results alive so the JIT can't throw the work away */
+    static volatile Object sink;
+
+    /**
+     * One benchmark's timing
+     * @param name the benchmark name, including the corpus size
+     * @param nsPerOp mean time per operation over the measured batches
+     * @param bestNsPerOp the fastest measured batch
+     */
+    public record Result(String name, double nsPerOp, double bestNsPerOp) {}
+
+    /** An operation to time; whatever it returns is kept alive */
+    @FunctionalInterface
+    public interface Op {
+        Object run() throws Exception;
+    }
+
+    public static void main(String[] args) throws Exception {
+        int[] sizes = { 1_000, 10_000, 100_000, 1_000_000 };
+        String filter = "";
+        boolean save = false;
+        boolean check = false;
+        for (String arg : args) {
+            if (arg.startsWith("--sizes=")) {
+                sizes = Arrays.stream(arg.substring(8).split(",")).mapToInt(Integer::parseInt).toArray();
+            }
+            else if (arg.startsWith("--filter=")) {
+                filter = arg.substring(9);
+            }
+            else if (arg.equals("--save")) {
+                save = true;
+            }
+            else if (arg.equals("--check")) {
+                check = true;
+            }
+        }
+
+        List<Result> results = new ArrayList<>();
+        for (int size : sizes) {
+            results.addAll(runAll(size, filter));
+        }
+
+        Map<String, Double> baseline = readBaseline(BASELINE);
+        boolean regressed = false;
+        System.out.printf("%-40s %14s %14s %10s%n", "benchmark", "ns/op", "best ns/op", "vs base");
+        for (Result result : results) {
+            Double base = baseline.get(result.name());
+            String ratio = "";
+            if (base != null) {
+                double change = result.nsPerOp() / base;
+                ratio = String.format("%.2fx", change);
+                if (change > REGRESSION_RATIO) {
+                    ratio += " REGRESSION";
+                    regressed = true;
+                }
+            }
+            System.out.printf("%-40s %14.1f %14.1f %10s%n", result.name(), result.nsPerOp(), result.bestNsPerOp(), ratio);
+        }
+        if (save) {
+            writeBaseline(BASELINE, baseline, results);
+            System.out.println("saved baseline to " + BASELINE);
+        }
+        if (check && regressed) {
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Runs every benchmark against a generated corpus of one size
+     * @param size The number of riddles in the corpus
+     * @param filter Only benchmarks whose name contains this are run
+     * @return The timings
+     */
+    public static List<Result> runAll(int size, String filter) throws Exception {
+        Path directory = Path.of(System.getProperty("java.io.tmpdir"), "riddle-bench", "v2", Integer.toString(size));
+        Path riddleFile = directory.resolve(Riddle.RIDDLE_FILE);
+        Path hintFile = directory.resolve(Riddle.HINT_FILE);
+        if (!Files.exists(riddleFile) || !Files.exists(hintFile)) {
+            CorpusGenerator.generate(size, directory, 1);
+        }
+
+        Map<String, Op> benchmarks = new LinkedHashMap<>();
+        benchmarks.put("loadRiddles", () -> {
+            Riddle game = new Riddle();
+            game.loadRiddles(riddleFile);
+            return game;
+        });
+        benchmarks.put("loadHints", () -> {
+            Riddle game = new Riddle();
+            game.loadHints(hintFile);
+            return game;
+        });
+        benchmarks.put("loadCorpus", () -> {
+            Riddle game = new Riddle();
+            game.loadCorpus(riddleFile, hintFile);
+            return game;
+        });
+        benchmarks.put("loadCompactCorpus", () -> {
+            Riddle game = new Riddle();
+            game.loadCompactCorpus(riddleFile, hintFile);
+            return game;
+        });
+
+        // Loads run before the shared corpus and index are built so they don't pay for collecting around them,
+        // after one untimed load so they aren't the first thing this JVM runs and don't time its warm-up
+        new Riddle().loadCorpus(riddleFile, hintFile);
+        List<Result> results = new ArrayList<>();
+        runBenchmarks(benchmarks, size, filter, results);
+        benchmarks.clear();
+
+        Riddle game = new Riddle();
+        game.loadCorpus(riddleFile, hintFile);
+        RiddleEntry[] entries = new RiddleEntry[1024];
+        String[] guesses = new String[entries.length];
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        for (int i = 0; i < entries.length; i++) {
+            entries[i] = game.getCorpus().get(random.nextInt(game.getCorpus().size()));
+            guesses[i] = i % 2 == 0 ? entries[i].answer().toLowerCase() : "WRONG";
+        }
+        String[] typos = new String[entries.length];
+        for (int i = 0; i < entries.length; i++) {
+            String key = AnswerMatcher.canonical(entries[i].answer());
+            typos[i] = key.substring(0, key.length() - 1) + "x";
+        }
+        AnswerIndex answerIndex = AnswerIndex.build(game.getCorpus(), 1);
+        int[] next = new int[1];
+
+        benchmarks.put("selectRandomRiddles", game::selectRandomEntries);
+        DifficultyIndex difficulty = new DifficultyIndex(game.getCorpus());
+        benchmarks.put("selectEscalating", () -> difficulty.escalating(Riddle.RIDDLES_PER_GAME, ThreadLocalRandom.current()));
+        RiddleIndex riddleIndex = new RiddleIndex(game.getCorpus(), Map.of());
+        benchmarks.put("indexSearch", () -> riddleIndex.search("BOAT AND NOT (RIVER OR hint:GREEN)").count());
+        // An answer is in only a riddle or two, so its search tests those and never builds a bitset
+        String[] rareQueries = new String[entries.length];
+        for (int i = 0; i < entries.length; i++) {
+            rareQueries[i] = "answer:" + entries[i].answer() + " -hint:GREEN";
+        }
+        benchmarks.put("indexSearchRare", () -> riddleIndex.search(rareQueries[next[0]++ & (entries.length - 1)]).count());
+        benchmarks.put("selectThemed", () -> riddleIndex.search("text:STONE -answer:TREE")
+                .sample(Riddle.RIDDLES_PER_GAME, ThreadLocalRandom.current()));
+        // The generated corpus sits where a registry expects pack "v2" in a locale named after the size
+        CorpusRegistry registry = new CorpusRegistry(directory.getParent().getParent(), Long.MAX_VALUE);
+        String locale = Integer.toString(size);
+        registry.get("v2", locale);
+        benchmarks.put("registryHit", () -> registry.get("v2", locale));
+        benchmarks.put("isCorrectAnswer", () -> {
+            int i = next[0]++ & (entries.length - 1);
+            return game.isCorrectAnswer(entries[i], guesses[i]);
+        });
+        benchmarks.put("getAnswerForRiddle", () -> game.getAnswerForRiddle(entries[next[0]++ & (entries.length - 1)].text()));
+        benchmarks.put("nearMiss", () -> {
+            int i = next[0]++ & (entries.length - 1);
+            return NearMiss.isClose(entries[i], typos[i]);
+        });
+        benchmarks.put("answerIndexSearch", () -> answerIndex.search(typos[next[0]++ & (entries.length - 1)], 1));
+        Bot bot = Bot.hintTaker(0.1, 0.15);
+        SplittableRandom simulationRandom = new SplittableRandom(1);
+        benchmarks.put("simulateGame", () -> Simulator.playOne(game.getCorpus(), bot, simulationRandom, null));
+        // One waiting deadline per riddle, like a server with that many idle players
+        TimingWheel timers = new TimingWheel(RiddleServer.TICK_MILLIS, 0);
+        TimingWheel.Timer[] turns = new TimingWheel.Timer[size];
+        for (int i = 0; i < size; i++) {
+            turns[i] = timers.schedule(random.nextLong(RiddleServer.DEFAULT_TURN_TIMEOUT_MILLIS), () -> {});
+        }
+        benchmarks.put("resetTurnTimer", () -> {
+            int i = next[0]++ % size;
+            turns[i].cancel();
+            return turns[i] = timers.schedule(RiddleServer.DEFAULT_TURN_TIMEOUT_MILLIS, () -> {});
+        });
+        benchmarks.put("displayHint", () -> {
+            game.displayHint(entries[next[0]++ & (entries.length - 1)], next[0] % 3);
+            return null;
+        });
+        benchmarks.put("solveRiddle", () -> {
+            RiddleEntry entry = entries[next[0]++ & (entries.length - 1)];
+            String[] script = { "a", "b", "c", "y", "d", "n", entry.answer() };
+            int[] line = new int[1];
+            GameSession session = GameSession.singleRiddle(game.getCorpus(), entry,
+                    Riddle.RANDOM_MESSAGES.cursor(line.length), Riddle.CORRECT_MESSAGES.cursor(1),
+                    Renderer.CONSOLE, (bytes, offset, length) -> sink = bytes);
+            return session.run(() -> line[0] < script.length ? script[line[0]++] : null);
+        });
+
+        runBenchmarks(benchmarks, size, filter, results);
+        return results;
+    }
+
+    private static void runBenchmarks(Map<String, Op> benchmarks, int size, String filter, List<Result> results) throws Exception {
+        PrintStream originalOut = System.out;
+        for (Map.Entry<String, Op> benchmark : benchmarks.entrySet()) {
+            String name = benchmark.getKey() + "/" + size;
+            if (!name.contains(filter)) {
+                continue;
+            }
+            System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+            try {
+                results.add(measure(name, benchmark.getValue()));
+            }
+            finally {
+                System.setOut(originalOut);
+            }
+            System.out.println("  finished " + name);
+        }
+    }
+
+    /**
+     * Times one operation
+     * @param name The benchmark name
+     * @param op The operation
+     * @return The timing
+     */
+    public static Result measure(String name, Op op) throws Exception {
+        // Double the batch until it takes long enough to time, then scale it to the target length
+        long batch = 1;
+        long elapsed = timeBatch(op, batch);
+        while (elapsed < BATCH_NANOS / 4) {
+            batch *= 2;
+            elapsed = timeBatch(op, batch);
+        }
+        batch = Math.max(1, batch * BATCH_NANOS / elapsed);
+
+        double total = 0;
+        double best = Double.MAX_VALUE;
+        for (int round = 0; round < WARMUP_BATCHES + MEASURED_BATCHES; round++) {
+            double perOp = (double) timeBatch(op, batch) / batch;
+            if (round >= WARMUP_BATCHES) {
+                total += perOp;
+                best = Math.min(best, perOp);
+            }
+        }
+        return new Result(name, total / MEASURED_BATCHES, best);
+    }
+
+    private static long timeBatch(Op op, long batch) throws Exception {
+        if (batch == 1) {
+            // An op that fills a batch on its own is a big load; don't time collecting the last one's corpus
+            sink = null;
+            System.gc();
+        }
+        long start = System.nanoTime();
+        for (long i = 0; i < batch; i++) {
+            sink = op.run();
+        }
+        return System.nanoTime() - start;
+    }
+
+    static Map<String, Double> readBaseline(Path file) throws IOException {
+        Map<String, Double> baseline = new LinkedHashMap<>();
+        if (Files.exists(file)) {
+            for (String line : Files.readAllLines(file, StandardCharsets.UTF_8)) {
+                if (line.isBlank() || line.startsWith("#")) {
+                    continue;
+                }
+                String[] parts = line.trim().split("\\s+");
+                baseline.put(parts[0], Double.parseDouble(parts[1]));
+            }
+        }
+        return baseline;
+    }
+
+    /**
+     * Writes the baseline, keeping old entries for benchmarks that weren't run this time
+     */
+    static void writeBaseline(Path file, Map<String, Double> old, List<Result> results) throws IOException {
+        Map<String, Double> merged = new TreeMap<>(old);
+        for (Result result : results) {
+            merged.put(result.name(), result.nsPerOp());
+        }
+        StringBuilder out = new StringBuilder("# benchmark ns/op, written by RiddleBenchmark --save\n");
+        for (Map.Entry<String, Double> entry : merged.entrySet()) {
+            out.append(entry.getKey()).append(' ').append(String.format(Locale.ROOT, "%.1f", entry.getValue())).append('\n');
+        }
+        Files.createDirectories(file.getParent());
+        Files.writeString(file, out.toString(), StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,54 @@
+import java.util.*;
+
+/**
+ * A single riddle as loaded from riddles.txt and hints.txt.
+ * Entries are immutable and are handed around the game loop instead of the raw
+ * riddle text, so answer checks and hint lookups never have to search the corpus.
+ * @param id position of the riddle in the loaded corpus
+ * @param answer the answer as written in riddles.txt
+ * @param text the riddle the player has to solve
+ * @param hints the hints for this riddle, in the order they are offered
+ * @param alternates other answers that also count
+ * @param answerKeys the canonical forms of every accepted answer, see AnswerMatcher
+ * @param tier the difficulty the author gave the riddle, 1 to 5, or 0 if unrated
+ */
+public record RiddleEntry(int id, String answer, String text, List<String> hints,
+                          List<String> alternates, Set<String> answerKeys, int tier) {
+
+    public RiddleEntry {
+        hints = List.copyOf(hints);
+        alternates = List.copyOf(alternates);
+        answerKeys = Set.copyOf(answerKeys);
+    }
+
+    public RiddleEntry(int id, String answer, String text, List<String> hints, List<String> alternates,
+                       Set<String> answerKeys) {
+        this(id, answer, text, hints, alternates, answerKeys, 0);
+    }
+
+    public RiddleEntry(int id, String answer, String text, List<String> hints, List<String> alternates) {
+        this(id, answer, text, hints, alternates, AnswerMatcher.keysFor(answer, alternates));
+    }
+
+    public RiddleEntry(int id, String answer, String text, List<String> hints) {
+        this(id, answer, text, hints, List.of());
+    }
+
+    /**
+     * Returns a copy of this riddle with a different set of hints
+     * @param newHints The hints to attach
+     * @return The updated riddle
+     */
+    public RiddleEntry withHints(List<String> newHints) {
+        return new RiddleEntry(id, answer, text, newHints, alternates, answerKeys, tier);
+    }
+
+    /**
+     * Checks a guess against every accepted answer
+     * @param guess The player's guess
+     * @return true if the guess counts as the answer
+     */
+    public boolean accepts(String guess) {
+        return guess.equalsIgnoreCase(answer) || answerKeys.contains(AnswerMatcher.canonical(guess));
+    }
+}
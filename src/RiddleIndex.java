@@ -0,0 +1,751 @@
+import java.util.*;
+import java.util.random.RandomGenerator;
+
+/**
+ * An inverted index over a corpus for finding riddles by what they say. Every
+ * word of a riddle's text, answers and hints, and every tag it was given in
+ * tags.txt, maps to the ids of the riddles that contain it. A word found in
+ * few riddles keeps them as a sorted int array; a word found in many keeps a
+ * bitset over the whole corpus, so no posting list is bigger than a bitset.
+ * <p>
+ * Queries are words combined with AND, OR, NOT (or a leading -) and
+ * parentheses; words next to each other must both match. A bare word matches
+ * the riddle text, answers or hints; text:, answer:, hint: and tag: limit it
+ * to one. Case doesn't matter.
+ * <pre>
+ * tag:nature -boat
+ * (tag:food OR tag:household) AND NOT answer:egg
+ * </pre>
+ * A query is compiled to a tree of its words. When a word held as an int
+ * array bounds what can match (it is ANDed in, or every side of an OR is
+ * such a word) only those riddles are tested, so a rare tag costs nothing
+ * like a pass over the corpus. Otherwise the query is worked out BLOCK longs
+ * of bitset at a time in small buffers each part of the tree reuses, so the
+ * postings are read once and only the result is as big as the corpus.
+ */
+public class RiddleIndex {
+    /** The parts of a riddle a word can be found in */
+    public enum Field { TEXT, ANSWER, HINT, TAG }
+
+    /** Most riddles a word may be in for nearDuplicates() to compare them all */
+    static final int MAX_CANDIDATES = 1000;
+    /** Longs of bitset a query works on at a time */
+    static final int BLOCK = 256;
+    private static final int[] NONE = new int[0];
+
+    /**
+     * Two riddles that look alike
+     * @param first the lower riddle id
+     * @param second the higher riddle id
+     * @param similarity the share of their distinct words they have in common
+     */
+    public record Pair(int first, int second, double similarity) {}
+
+    private final Corpus corpus;
+    private final int size;
+    private final int words;
+    private final List<Map<String, Object>> postings = new ArrayList<>();
+
+    /**
+     * Indexes a corpus
+     * @param corpus The corpus
+     * @param tags Tags for each answer, as read from tags.txt; answers without tags can be left out
+     */
+    public RiddleIndex(Corpus corpus, Map<String, List<String>> tags) {
+        this.corpus = corpus;
+        this.size = corpus.size();
+        this.words = (size + 63) >>> 6;
+        List<Map<String, IntList>> building = new ArrayList<>();
+        for (Field field : Field.values()) {
+            building.add(new HashMap<>());
+        }
+        for (int id = 0; id < size; id++) {
+            RiddleEntry riddle = corpus.get(id);
+            addTokens(building.get(Field.TEXT.ordinal()), riddle.text(), id);
+            addTokens(building.get(Field.ANSWER.ordinal()), riddle.answer(), id);
+            for (String alternate : riddle.alternates()) {
+                addTokens(building.get(Field.ANSWER.ordinal()), alternate, id);
+            }
+            for (String hint : riddle.hints()) {
+                addTokens(building.get(Field.HINT.ordinal()), hint, id);
+            }
+            for (String tag : tags.getOrDefault(riddle.answer(), List.of())) {
+                addTokens(building.get(Field.TAG.ordinal()), tag, id);
+            }
+        }
+        for (Map<String, IntList> field : building) {
+            Map<String, Object> compacted = new HashMap<>(field.size() * 2);
+            for (Map.Entry<String, IntList> token : field.entrySet()) {
+                IntList ids = token.getValue();
+                // A sorted int array is smaller than a bitset below one riddle in 32
+                compacted.put(token.getKey(), ids.size * 32L > size ? ids.toBits(words) : ids.toArray());
+            }
+            postings.add(compacted);
+        }
+    }
+
+    public Corpus getCorpus() {
+        return corpus;
+    }
+
+    /**
+     * Finds the riddles matching a query
+     * @param query The query, see the class comment
+     * @return The matching riddles
+     * @throws IllegalArgumentException if the query can't be parsed
+     */
+    public Matches search(String query) {
+        Parser parser = new Parser(query);
+        Node root = parser.or();
+        if (parser.peek() != null) {
+            throw new IllegalArgumentException("unexpected " + parser.peek() + " in query: " + query);
+        }
+        int[] candidates = root.candidates();
+        // Testing a riddle costs a few lookups, a block a few passes over BLOCK longs
+        if (candidates != null && candidates.length <= words) {
+            int[] matched = new int[candidates.length];
+            int count = 0;
+            for (int id : candidates) {
+                if (root.contains(id)) {
+                    matched[count++] = id;
+                }
+            }
+            return new Matches(Arrays.copyOf(matched, count));
+        }
+        long[] bits = new long[words];
+        // A corpus that fits in one block is filled straight into the result
+        long[] block = words <= BLOCK ? bits : new long[BLOCK];
+        int count = 0;
+        for (int from = 0; from < words; from += BLOCK) {
+            int to = Math.min(words, from + BLOCK);
+            root.fill(block, from, to);
+            if (block != bits) {
+                System.arraycopy(block, 0, bits, from, to - from);
+            }
+            for (int i = 0, n = to - from; i < n; i++) {
+                count += Long.bitCount(block[i]);
+            }
+        }
+        return new Matches(bits, count);
+    }
+
+    /**
+     * @param field Where to look
+     * @param word A word
+     * @return How many riddles have the word in that field
+     */
+    public int count(Field field, String word) {
+        Object posting = posting(field, word);
+        if (posting == null) {
+            return 0;
+        }
+        if (posting instanceof int[] ids) {
+            return ids.length;
+        }
+        return cardinality((long[]) posting);
+    }
+
+    /**
+     * Finds riddles whose texts use nearly the same words, such as a riddle added twice
+     * with a small change. Only riddles sharing one of their two rarest words are compared,
+     * and words found in more than MAX_CANDIDATES riddles aren't used to find pairs.
+     * @param threshold The least share of words two riddles must have in common, e.g. 0.8
+     * @return The pairs found, lower id first
+     */
+    public List<Pair> nearDuplicates(double threshold) {
+        Map<String, Object> text = postings.get(Field.TEXT.ordinal());
+        List<Pair> pairs = new ArrayList<>();
+        for (int id = 0; id < size; id++) {
+            Set<String> mine = new HashSet<>(tokens(corpus.get(id).text()));
+            List<int[]> rarest = new ArrayList<>(2);
+            for (String token : mine) {
+                int[] ids = candidates(text.get(token));
+                if (ids != null) {
+                    rarest.add(ids);
+                    rarest.sort(Comparator.comparingInt(list -> list.length));
+                    if (rarest.size() > 2) {
+                        rarest.remove(2);
+                    }
+                }
+            }
+            Set<Integer> checked = new HashSet<>();
+            for (int[] candidates : rarest) {
+                for (int other : candidates) {
+                    if (other <= id || !checked.add(other)) {
+                        continue;
+                    }
+                    Set<String> theirs = new HashSet<>(tokens(corpus.get(other).text()));
+                    int shared = 0;
+                    for (String token : theirs) {
+                        shared += mine.contains(token) ? 1 : 0;
+                    }
+                    double similarity = (double) shared / (mine.size() + theirs.size() - shared);
+                    if (similarity >= threshold) {
+                        pairs.add(new Pair(id, other, similarity));
+                    }
+                }
+            }
+        }
+        return pairs;
+    }
+
+    /**
+     * @return The riddles in a posting, or null if there are more than MAX_CANDIDATES
+     */
+    private int[] candidates(Object posting) {
+        if (posting instanceof int[] ids) {
+            return ids.length <= MAX_CANDIDATES ? ids : null;
+        }
+        // A bitset holds more than one riddle in 32, so it's only worth counting in a small corpus
+        if (size / 32 >= MAX_CANDIDATES) {
+            return null;
+        }
+        Matches matches = new Matches((long[]) posting);
+        return matches.count() <= MAX_CANDIDATES ? matches.ids() : null;
+    }
+
+    /**
+     * Splits text into the words the index keeps: runs of letters and digits, upper case
+     * @param text The text
+     * @return The words, in order, repeats included
+     */
+    public static List<String> tokens(String text) {
+        List<String> tokens = new ArrayList<>();
+        int start = -1;
+        for (int i = 0; i <= text.length(); i++) {
+            boolean wordChar = i < text.length() && Character.isLetterOrDigit(text.charAt(i));
+            if (wordChar && start < 0) {
+                start = i;
+            }
+            else if (!wordChar && start >= 0) {
+                tokens.add(normalize(text.substring(start, i)));
+                start = -1;
+            }
+        }
+        return tokens;
+    }
+
+    private static String normalize(String word) {
+        return word.toUpperCase(Locale.ROOT);
+    }
+
+    private static void addTokens(Map<String, IntList> field, String text, int id) {
+        for (String token : tokens(text)) {
+            field.computeIfAbsent(token, t -> new IntList()).addOnce(id);
+        }
+    }
+
+    private Object posting(Field field, String word) {
+        return postings.get(field.ordinal()).get(normalize(word));
+    }
+
+    private static int cardinality(long[] bits) {
+        int count = 0;
+        for (long word : bits) {
+            count += Long.bitCount(word);
+        }
+        return count;
+    }
+
+    /**
+     * The riddles that matched a query, as sorted ids or as a bitset
+     */
+    public class Matches {
+        private final long[] bits;
+        private final int[] ids;
+        private final int count;
+
+        private Matches(long[] bits) {
+            this(bits, cardinality(bits));
+        }
+
+        private Matches(long[] bits, int count) {
+            this.bits = bits;
+            this.ids = null;
+            this.count = count;
+        }
+
+        private Matches(int[] ids) {
+            this.bits = null;
+            this.ids = ids;
+            this.count = ids.length;
+        }
+
+        /**
+         * @return The number of riddles that matched
+         */
+        public int count() {
+            return count;
+        }
+
+        /**
+         * @param id A riddle id
+         * @return true if the riddle matched
+         */
+        public boolean contains(int id) {
+            if (ids != null) {
+                return Arrays.binarySearch(ids, id) >= 0;
+            }
+            return id >= 0 && id < size && (bits[id >>> 6] & (1L << id)) != 0;
+        }
+
+        /**
+         * @return The ids of every matching riddle, in order. Use sample() to pick a few.
+         */
+        public int[] ids() {
+            if (ids != null) {
+                return ids.clone();
+            }
+            int[] ids = new int[count];
+            int next = 0;
+            for (int word = 0; word < words; word++) {
+                for (long remaining = bits[word]; remaining != 0; remaining &= remaining - 1) {
+                    ids[next++] = (word << 6) + Long.numberOfTrailingZeros(remaining);
+                }
+            }
+            return ids;
+        }
+
+        /**
+         * Picks distinct matching riddles at random, without listing every match
+         * @param picks How many to pick; fewer are returned if fewer matched
+         * @param random The random number source
+         * @return The picked ids, in random order
+         */
+        public int[] sample(int picks, RandomGenerator random) {
+            int[] ranks = RiddleSampler.sample(count, Math.min(picks, count), random);
+            if (ids != null) {
+                for (int i = 0; i < ranks.length; i++) {
+                    ranks[i] = ids[ranks[i]];
+                }
+                return ranks;
+            }
+            // Find every picked rank in one pass over the bitset, then put them back in picked order
+            Integer[] order = new Integer[ranks.length];
+            for (int i = 0; i < order.length; i++) {
+                order[i] = i;
+            }
+            Arrays.sort(order, Comparator.comparingInt(i -> ranks[i]));
+            int[] ids = new int[ranks.length];
+            int seen = 0;
+            int word = 0;
+            for (int i = 0; i < order.length; i++) {
+                int rank = ranks[order[i]];
+                while (seen + Long.bitCount(bits[word]) <= rank) {
+                    seen += Long.bitCount(bits[word]);
+                    word++;
+                }
+                long remaining = bits[word];
+                for (int skip = rank - seen; skip > 0; skip--) {
+                    remaining &= remaining - 1;
+                }
+                ids[order[i]] = (word << 6) + Long.numberOfTrailingZeros(remaining);
+            }
+            return ids;
+        }
+    }
+
+    /**
+     * A part of a compiled query. A riddle can be tested against it, or a block of
+     * the bitset of riddles it matches filled in, words from..to of the bitset going to
+     * 0..to-from of the block. Sparse words keep a cursor, so riddles must be tested and
+     * blocks filled in increasing order, and a query is only evaluated once.
+     */
+    private abstract class Node {
+        private long[] scratch;
+
+        /**
+         * @return Sorted ids every match is among, or null if the part isn't bounded by a sparse word
+         */
+        abstract int[] candidates();
+
+        abstract boolean contains(int id);
+
+        abstract void fill(long[] block, int from, int to);
+
+        void andInto(long[] block, int from, int to) {
+            long[] mine = scratch();
+            fill(mine, from, to);
+            for (int i = 0, n = to - from; i < n; i++) {
+                block[i] &= mine[i];
+            }
+        }
+
+        void orInto(long[] block, int from, int to) {
+            long[] mine = scratch();
+            fill(mine, from, to);
+            for (int i = 0, n = to - from; i < n; i++) {
+                block[i] |= mine[i];
+            }
+        }
+
+        long[] scratch() {
+            if (scratch == null) {
+                scratch = new long[Math.min(BLOCK, words)];
+            }
+            return scratch;
+        }
+    }
+
+    /** The riddles with a word in one field, straight from its posting */
+    private final class Posting extends Node {
+        private final long[] dense;
+        private final int[] sparse;
+        private int testCursor;
+        private int fillCursor;
+
+        Posting(Object posting) {
+            this.dense = posting instanceof long[] bits ? bits : null;
+            this.sparse = posting instanceof int[] ids ? ids : posting == null ? NONE : null;
+        }
+
+        @Override
+        int[] candidates() {
+            return sparse;
+        }
+
+        @Override
+        boolean contains(int id) {
+            if (dense != null) {
+                return (dense[id >>> 6] & (1L << id)) != 0;
+            }
+            int found = Arrays.binarySearch(sparse, testCursor, sparse.length, id);
+            testCursor = found >= 0 ? found + 1 : -found - 1;
+            return found >= 0;
+        }
+
+        @Override
+        void fill(long[] block, int from, int to) {
+            if (dense != null) {
+                System.arraycopy(dense, from, block, 0, to - from);
+                return;
+            }
+            Arrays.fill(block, 0, to - from, 0);
+            orInto(block, from, to);
+        }
+
+        @Override
+        void andInto(long[] block, int from, int to) {
+            if (dense == null) {
+                super.andInto(block, from, to);
+                return;
+            }
+            for (int i = 0, j = from; j < to; i++, j++) {
+                block[i] &= dense[j];
+            }
+        }
+
+        @Override
+        void orInto(long[] block, int from, int to) {
+            if (dense != null) {
+                for (int i = 0, j = from; j < to; i++, j++) {
+                    block[i] |= dense[j];
+                }
+                return;
+            }
+            long end = (long) to << 6;
+            while (fillCursor < sparse.length && sparse[fillCursor] < end) {
+                int id = sparse[fillCursor++];
+                block[(id >>> 6) - from] |= 1L << id;
+            }
+        }
+    }
+
+    /** Riddles matching every part */
+    private final class And extends Node {
+        private final List<Node> parts;
+
+        And(List<Node> parts) {
+            this.parts = parts;
+        }
+
+        @Override
+        int[] candidates() {
+            int[] fewest = null;
+            for (Node part : parts) {
+                int[] ids = part.candidates();
+                if (ids != null && (fewest == null || ids.length < fewest.length)) {
+                    fewest = ids;
+                }
+            }
+            return fewest;
+        }
+
+        @Override
+        boolean contains(int id) {
+            for (Node part : parts) {
+                if (!part.contains(id)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        void fill(long[] block, int from, int to) {
+            parts.get(0).fill(block, from, to);
+            for (int i = 1; i < parts.size(); i++) {
+                parts.get(i).andInto(block, from, to);
+            }
+        }
+    }
+
+    /** Riddles matching any part */
+    private final class Or extends Node {
+        private final List<Node> parts;
+
+        Or(List<Node> parts) {
+            this.parts = parts;
+        }
+
+        @Override
+        int[] candidates() {
+            int[] union = NONE;
+            for (Node part : parts) {
+                int[] ids = part.candidates();
+                if (ids == null) {
+                    return null;
+                }
+                union = union(union, ids);
+                if (union.length > words) {
+                    // Too many to test one by one; blocks are cheaper
+                    return null;
+                }
+            }
+            return union;
+        }
+
+        @Override
+        boolean contains(int id) {
+            for (Node part : parts) {
+                if (part.contains(id)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        @Override
+        void fill(long[] block, int from, int to) {
+            parts.get(0).fill(block, from, to);
+            for (int i = 1; i < parts.size(); i++) {
+                parts.get(i).orInto(block, from, to);
+            }
+        }
+    }
+
+    /** Riddles not matching a part */
+    private final class Not extends Node {
+        private final Node part;
+
+        Not(Node part) {
+            this.part = part;
+        }
+
+        @Override
+        int[] candidates() {
+            return null;
+        }
+
+        @Override
+        boolean contains(int id) {
+            return !part.contains(id);
+        }
+
+        @Override
+        void fill(long[] block, int from, int to) {
+            part.fill(block, from, to);
+            for (int i = 0, n = to - from; i < n; i++) {
+                block[i] = ~block[i];
+            }
+            if (to == words && (size & 63) != 0) {
+                block[to - from - 1] &= (1L << size) - 1;
+            }
+        }
+
+        @Override
+        void andInto(long[] block, int from, int to) {
+            long[] excluded = scratch();
+            part.fill(excluded, from, to);
+            for (int i = 0, n = to - from; i < n; i++) {
+                block[i] &= ~excluded[i];
+            }
+        }
+    }
+
+    /** Merges two sorted id arrays */
+    private static int[] union(int[] a, int[] b) {
+        if (a.length == 0) {
+            return b;
+        }
+        int[] merged = new int[a.length + b.length];
+        int i = 0;
+        int j = 0;
+        int n = 0;
+        while (i < a.length && j < b.length) {
+            if (a[i] < b[j]) {
+                merged[n++] = a[i++];
+            }
+            else if (a[i] > b[j]) {
+                merged[n++] = b[j++];
+            }
+            else {
+                merged[n++] = a[i++];
+                j++;
+            }
+        }
+        while (i < a.length) {
+            merged[n++] = a[i++];
+        }
+        while (j < b.length) {
+            merged[n++] = b[j++];
+        }
+        return n == merged.length ? merged : Arrays.copyOf(merged, n);
+    }
+
+    /**
+     * Recursive descent over the query, building its tree of nodes:
+     * or := and ("OR" and)*, and := not ("AND"? not)*, not := ("NOT" | "-") not | "(" or ")" | word
+     */
+    private class Parser {
+        private final List<String> tokens = new ArrayList<>();
+        private int position;
+
+        Parser(String query) {
+            int i = 0;
+            while (i < query.length()) {
+                char c = query.charAt(i);
+                if (Character.isWhitespace(c)) {
+                    i++;
+                }
+                else if (c == '(' || c == ')' || c == '-') {
+                    tokens.add(String.valueOf(c));
+                    i++;
+                }
+                else {
+                    int start = i;
+                    while (i < query.length() && !Character.isWhitespace(query.charAt(i))
+                            && query.charAt(i) != '(' && query.charAt(i) != ')') {
+                        i++;
+                    }
+                    tokens.add(query.substring(start, i));
+                }
+            }
+        }
+
+        String peek() {
+            return position < tokens.size() ? tokens.get(position) : null;
+        }
+
+        Node or() {
+            List<Node> parts = new ArrayList<>();
+            parts.add(and());
+            while ("OR".equals(peek())) {
+                position++;
+                parts.add(and());
+            }
+            return parts.size() == 1 ? parts.get(0) : new Or(parts);
+        }
+
+        Node and() {
+            List<Node> parts = new ArrayList<>();
+            parts.add(not());
+            while (peek() != null && !peek().equals("OR") && !peek().equals(")")) {
+                if (peek().equals("AND")) {
+                    position++;
+                }
+                parts.add(not());
+            }
+            return parts.size() == 1 ? parts.get(0) : new And(parts);
+        }
+
+        Node not() {
+            String token = peek();
+            if (token == null) {
+                throw new IllegalArgumentException("query ends too soon");
+            }
+            position++;
+            if (token.equals("NOT") || token.equals("-")) {
+                return new Not(not());
+            }
+            if (token.equals("(")) {
+                Node result = or();
+                if (!")".equals(peek())) {
+                    throw new IllegalArgumentException("missing )");
+                }
+                position++;
+                return result;
+            }
+            if (token.equals(")") || token.equals("AND") || token.equals("OR")) {
+                throw new IllegalArgumentException("unexpected " + token);
+            }
+            return word(token);
+        }
+
+        /** A word, or a field and a word; a word with punctuation in it needs every part to match */
+        private Node word(String token) {
+            Field[] fields = { Field.TEXT, Field.ANSWER, Field.HINT };
+            int colon = token.indexOf(':');
+            if (colon > 0) {
+                String name = token.substring(0, colon).toUpperCase(Locale.ROOT);
+                fields = Arrays.stream(Field.values()).filter(field -> field.name().equals(name)).toArray(Field[]::new);
+                if (fields.length == 0) {
+                    throw new IllegalArgumentException("unknown field " + token.substring(0, colon));
+                }
+                token = token.substring(colon + 1);
+            }
+            List<String> parts = tokens(token);
+            if (parts.isEmpty()) {
+                return new Posting(null);
+            }
+            List<Node> inFields = new ArrayList<>(fields.length);
+            for (Field field : fields) {
+                List<Node> inField = new ArrayList<>(parts.size());
+                for (String part : parts) {
+                    Object posting = posting(field, part);
+                    if (posting == null) {
+                        // The field can't match, so it has no part in the query
+                        inField = null;
+                        break;
+                    }
+                    inField.add(new Posting(posting));
+                }
+                if (inField != null) {
+                    inFields.add(inField.size() == 1 ? inField.get(0) : new And(inField));
+                }
+            }
+            if (inFields.isEmpty()) {
+                return new Posting(null);
+            }
+            return inFields.size() == 1 ? inFields.get(0) : new Or(inFields);
+        }
+    }
+
+    /** A growable, sorted int array of riddle ids */
+    private static final class IntList {
+        private int[] values = new int[4];
+        private int size;
+
+        void addOnce(int id) {
+            if (size > 0 && values[size - 1] == id) {
+                return;
+            }
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = id;
+        }
+
+        int[] toArray() {
+            return Arrays.copyOf(values, size);
+        }
+
+        long[] toBits(int words) {
+            long[] bits = new long[words];
+            for (int i = 0; i < size; i++) {
+                bits[values[i] >>> 6] |= 1L << values[i];
+            }
+            return bits;
+        }
+    }
+}
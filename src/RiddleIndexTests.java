@@ -0,0 +1,152 @@
+import static org.junit.Assert.*;
+import org.junit.Before;
+import org.junit.Test;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.function.Predicate;
+
+public class RiddleIndexTests {
+    private Riddle game;
+    private RiddleIndex index;
+
+    @Before
+    public void setUp() {
+        game = new Riddle();
+        game.loadCorpus();
+        index = game.getRiddleIndex();
+    }
+
+    private Set<String> answers(RiddleIndex.Matches matches) {
+        Set<String> answers = new TreeSet<>();
+        for (int id : matches.ids()) {
+            answers.add(index.getCorpus().get(id).answer());
+        }
+        return answers;
+    }
+
+    // Test 1: Words are found in text, answers, hints and tags, ignoring case
+    @Test
+    public void testFields() {
+        assertTrue(answers(index.search("boat")).contains("ANCHOR"));
+        assertEquals(Set.of("ANCHOR"), answers(index.search("hint:pirates")));
+        assertEquals(Set.of("CUTLERY"), answers(index.search("answer:silverware")));
+        assertTrue(answers(index.search("text:heart")).contains("ARTICHOKE"));
+        assertEquals(Set.of("FIVE", "TON", "YARDSTICK", "DOZENS"), answers(index.search("tag:numbers")));
+        assertEquals(0, index.search("text:pirates").count());
+        assertEquals(0, index.search("nosuchword").count());
+    }
+
+    // Test 2: Boolean queries match a straightforward filter over every riddle
+    @Test
+    public void testBooleanQueries() {
+        Set<String> expected = new TreeSet<>();
+        Map<String, List<String>> tags = Riddle.loadTags(Path.of(Riddle.TAG_FILE));
+        for (int id = 0; id < index.getCorpus().size(); id++) {
+            RiddleEntry riddle = index.getCorpus().get(id);
+            List<String> riddleTags = tags.getOrDefault(riddle.answer(), List.of());
+            boolean green = riddle.hints().stream().anyMatch(hint -> hint.contains("GREEN"));
+            if ((riddleTags.contains("nature") || riddleTags.contains("food")) && !green) {
+                expected.add(riddle.answer());
+            }
+        }
+        assertFalse(expected.isEmpty());
+        assertEquals(expected, answers(index.search("(tag:nature OR tag:food) AND NOT hint:green")));
+        assertEquals(expected, answers(index.search("(tag:nature OR tag:food) -hint:green")));
+        assertEquals("NOT should stay inside the corpus", index.getCorpus().size(),
+                index.search("boat").count() + index.search("NOT boat").count());
+        assertThrows(IllegalArgumentException.class, () -> index.search("(tag:nature"));
+        assertThrows(IllegalArgumentException.class, () -> index.search("colour:red"));
+    }
+
+    // Test 3: Themed games only deal matching riddles, all different
+    @Test
+    public void testThemedSelection() {
+        game.setTheme("tag:household");
+        Set<String> household = answers(index.search("tag:household"));
+        for (int i = 0; i < 50; i++) {
+            GameSession session = game.newSession(Renderer.CONSOLE_PLAIN, (bytes, offset, length) -> {});
+            session.start();
+            assertTrue(household.contains(session.getCurrentRiddle().answer()));
+        }
+        Queue<RiddleEntry> picked = game.selectRandomEntries("tag:household", new SplittableRandom(3));
+        assertEquals(Riddle.RIDDLES_PER_GAME, picked.size());
+        assertEquals(Riddle.RIDDLES_PER_GAME, new HashSet<>(picked).size());
+        assertEquals("A small match is dealt in full", 1, game.selectRandomEntries("tag:music", new SplittableRandom(3)).size());
+    }
+
+    // Test 4: Repeated answers and look-alike riddles are reported
+    @Test
+    public void testDuplicates() {
+        CorpusLoader.Result riddles = new CorpusLoader.Result(List.of(
+                new CorpusLoader.Line(1, "EGG", "WHAT HAS TO BE BROKEN BEFORE YOU CAN USE IT?"),
+                new CorpusLoader.Line(2, "CLOCK|TIMER", "WHAT HAS HANDS BUT CANNOT CLAP?"),
+                new CorpusLoader.Line(3, "EGG#2", "WHAT MUST BE BROKEN BEFORE YOU CAN USE IT?"),
+                new CorpusLoader.Line(4, "TIMERS", "WHAT COUNTS DOWN?")), List.of());
+        List<String> duplicates = CorpusLint.duplicateAnswers(riddles);
+        assertEquals(List.of("line 3: answer EGG is already used on line 1",
+                "line 4: answer TIMERS is already used on line 2"), duplicates);
+
+        TextCorpus corpus = new TextCorpus();
+        corpus.addRiddle("EGG", "WHAT HAS TO BE BROKEN BEFORE YOU CAN USE IT?");
+        corpus.addRiddle("CLOCK", "WHAT HAS HANDS BUT CANNOT CLAP?");
+        corpus.addRiddle("SHELL", "WHAT HAS TO BE BROKEN BEFORE YOU CAN USE IT NOW?");
+        List<RiddleIndex.Pair> pairs = new RiddleIndex(corpus, Map.of()).nearDuplicates(0.8);
+        assertEquals(1, pairs.size());
+        assertEquals(0, pairs.get(0).first());
+        assertEquals(2, pairs.get(0).second());
+    }
+
+    // Test 5: Queries over dense and sparse words spanning several blocks match a filter over every riddle
+    @Test
+    public void testQueriesAcrossBlocks() {
+        // More than two blocks of bitset, ending partway through a word
+        int riddles = RiddleIndex.BLOCK * 64 * 2 + 5000 + 17;
+        String[] words = { "ALPHA", "BRAVO", "CHARLIE", "DELTA" };
+        double[] shares = { 0.5, 0.1, 0.01, 0.001 };
+        SplittableRandom random = new SplittableRandom(7);
+        TextCorpus corpus = new TextCorpus();
+        List<Set<String>> texts = new ArrayList<>();
+        for (int id = 0; id < riddles; id++) {
+            Set<String> text = new TreeSet<>();
+            for (int w = 0; w < words.length; w++) {
+                if (random.nextDouble() < shares[w]) {
+                    text.add(words[w]);
+                }
+            }
+            texts.add(text);
+            corpus.addRiddle("R" + id, String.join(" ", text) + " ?");
+        }
+        RiddleIndex large = new RiddleIndex(corpus, Map.of());
+
+        Map<String, Predicate<Set<String>>> queries = new LinkedHashMap<>();
+        queries.put("alpha", text -> text.contains("ALPHA"));
+        queries.put("charlie", text -> text.contains("CHARLIE"));
+        queries.put("alpha bravo", text -> text.contains("ALPHA") && text.contains("BRAVO"));
+        queries.put("charlie alpha", text -> text.contains("CHARLIE") && text.contains("ALPHA"));
+        queries.put("charlie OR delta", text -> text.contains("CHARLIE") || text.contains("DELTA"));
+        queries.put("charlie OR alpha", text -> text.contains("CHARLIE") || text.contains("ALPHA"));
+        queries.put("NOT charlie", text -> !text.contains("CHARLIE"));
+        queries.put("-alpha charlie", text -> !text.contains("ALPHA") && text.contains("CHARLIE"));
+        queries.put("(charlie OR delta) -bravo", text -> (text.contains("CHARLIE") || text.contains("DELTA")) && !text.contains("BRAVO"));
+        queries.put("alpha -bravo -charlie", text -> text.contains("ALPHA") && !text.contains("BRAVO") && !text.contains("CHARLIE"));
+        queries.put("NOT (alpha OR delta)", text -> !text.contains("ALPHA") && !text.contains("DELTA"));
+        queries.put("charlie OR (alpha bravo)", text -> text.contains("CHARLIE") || (text.contains("ALPHA") && text.contains("BRAVO")));
+        queries.put("nosuchword OR delta", text -> text.contains("DELTA"));
+        queries.put("nosuchword alpha", text -> false);
+        for (Map.Entry<String, Predicate<Set<String>>> query : queries.entrySet()) {
+            List<Integer> expected = new ArrayList<>();
+            for (int id = 0; id < riddles; id++) {
+                if (query.getValue().test(texts.get(id))) {
+                    expected.add(id);
+                }
+            }
+            RiddleIndex.Matches matches = large.search(query.getKey());
+            assertEquals(query.getKey(), expected.size(), matches.count());
+            assertArrayEquals(query.getKey(), expected.stream().mapToInt(Integer::intValue).toArray(), matches.ids());
+            assertFalse(query.getKey(), matches.contains(riddles));
+            for (int id : matches.sample(5, new SplittableRandom(1))) {
+                assertTrue(query.getKey(), expected.contains(id));
+            }
+        }
+    }
+}
@@ -0,0 +1,106 @@
+import java.util.*;
+import java.util.random.RandomGenerator;
+
+/**
+ * Picks random riddle ids without touching the rest of the corpus.
+ * Uses Floyd's algorithm, so drawing k riddles costs O(k) no matter how big the
+ * corpus is, plus O(k * e) when e recently seen riddles are excluded.
+ */
+public class RiddleSampler {
+
+    private RiddleSampler() {
+    }
+
+    /**
+     * Picks distinct random ids between 0 and size - 1 in random order
+     * @param size The number of riddles to pick from
+     * @param count How many to pick; fewer are returned if there aren't enough
+     * @param random The random number source
+     * @return The picked ids
+     */
+    public static int[] sample(int size, int count, RandomGenerator random) {
+        return sample(size, count, new int[0], random);
+    }
+
+    /**
+     * Picks distinct random ids between 0 and size - 1 in random order, skipping excluded ids
+     * @param size The number of riddles to pick from
+     * @param count How many to pick; fewer are returned if there aren't enough
+     * @param excluded Ids that must not be picked, such as riddles the player saw recently
+     * @param random The random number source
+     * @return The picked ids
+     */
+    public static int[] sample(int size, int count, int[] excluded, RandomGenerator random) {
+        int[] skip = validExclusions(size, excluded);
+        int available = size - skip.length;
+        int picks = Math.max(0, Math.min(count, available));
+        int[] chosen = new int[picks];
+
+        // Floyd: for each j in [available - picks, available) pick t in [0, j];
+        // if t was already picked, take j instead
+        int filled = 0;
+        for (int j = available - picks; j < available; j++) {
+            int t = random.nextInt(j + 1);
+            chosen[filled] = contains(chosen, filled, t) ? j : t;
+            filled++;
+        }
+
+        // Floyd's set is uniform but its order isn't, so shuffle the picks
+        for (int i = picks - 1; i > 0; i--) {
+            int swap = random.nextInt(i + 1);
+            int tmp = chosen[i];
+            chosen[i] = chosen[swap];
+            chosen[swap] = tmp;
+        }
+
+        if (skip.length > 0) {
+            for (int i = 0; i < picks; i++) {
+                chosen[i] = skipExcluded(chosen[i], skip);
+            }
+        }
+        return chosen;
+    }
+
+    /**
+     * Turns a position among the ids that aren't excluded back into an id
+     */
+    private static int skipExcluded(int rank, int[] skip) {
+        int id = rank;
+        for (int excludedId : skip) {
+            if (excludedId <= id) {
+                id++;
+            }
+            else {
+                break;
+            }
+        }
+        return id;
+    }
+
+    /**
+     * Sorts the excluded ids and drops duplicates and ids outside the corpus
+     */
+    private static int[] validExclusions(int size, int[] excluded) {
+        if (excluded.length == 0) {
+            return excluded;
+        }
+        int[] sorted = excluded.clone();
+        Arrays.sort(sorted);
+        int kept = 0;
+        for (int i = 0; i < sorted.length; i++) {
+            if (sorted[i] >= 0 && sorted[i] < size && (kept == 0 || sorted[kept - 1] != sorted[i])) {
+                sorted[kept++] = sorted[i];
+            }
+        }
+        return Arrays.copyOf(sorted, kept);
+    }
+
+    private static boolean contains(int[] values, int length, int value) {
+        for (int i = 0; i < length; i++) {
+            if (values[i] == value) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,80 @@
+import static org.junit.Assert.*;
+import org.junit.Test;
+import java.util.*;
+
+public class RiddleSamplerTests {
+
+    // Test 1: Picks are distinct and inside the corpus
+    @Test
+    public void testDistinctInRange() {
+        SplittableRandom random = new SplittableRandom(42);
+        for (int round = 0; round < 1000; round++) {
+            int[] ids = RiddleSampler.sample(20, 5, random);
+            assertEquals("Should pick 5", 5, ids.length);
+            Set<Integer> seen = new HashSet<>();
+            for (int id : ids) {
+                assertTrue("Id should be in range", id >= 0 && id < 20);
+                assertTrue("Ids should be distinct", seen.add(id));
+            }
+        }
+    }
+
+    // Test 2: Small corpora return every riddle instead of failing
+    @Test
+    public void testSmallCorpus() {
+        int[] ids = RiddleSampler.sample(3, 5, new SplittableRandom(1));
+        Arrays.sort(ids);
+        assertArrayEquals("Should return all three", new int[] { 0, 1, 2 }, ids);
+        assertEquals("Empty corpus gives nothing", 0, RiddleSampler.sample(0, 5, new SplittableRandom(1)).length);
+    }
+
+    // Test 3: Excluded riddles are never picked
+    @Test
+    public void testExclusions() {
+        SplittableRandom random = new SplittableRandom(7);
+        int[] excluded = { 9, 0, 4, 4, 42, -1 };
+        for (int round = 0; round < 1000; round++) {
+            for (int id : RiddleSampler.sample(10, 5, excluded, random)) {
+                assertTrue("Excluded id picked: " + id, id != 0 && id != 4 && id != 9);
+            }
+        }
+        int[] rest = RiddleSampler.sample(10, 10, excluded, random);
+        Arrays.sort(rest);
+        assertArrayEquals("Everything else is available", new int[] { 1, 2, 3, 5, 6, 7, 8 }, rest);
+    }
+
+    // Test 4: Every riddle is about equally likely
+    @Test
+    public void testUniform() {
+        SplittableRandom random = new SplittableRandom(3);
+        int[] counts = new int[10];
+        int rounds = 20000;
+        for (int round = 0; round < rounds; round++) {
+            for (int id : RiddleSampler.sample(10, 5, random)) {
+                counts[id]++;
+            }
+        }
+        for (int count : counts) {
+            assertEquals("Each id should show up in about half the games", rounds / 2, count, rounds / 20);
+        }
+    }
+
+    // Test 5: The game skips recently seen riddles
+    @Test
+    public void testGameExcludesRecent() {
+        Riddle game = new Riddle();
+        game.loadRiddles();
+        int[] recent = new int[game.getCorpus().size() - 5];
+        for (int i = 0; i < recent.length; i++) {
+            recent[i] = i;
+        }
+        Set<Integer> ids = new HashSet<>();
+        for (RiddleEntry entry : game.selectRandomEntries(new SplittableRandom(5), recent)) {
+            ids.add(entry.id());
+        }
+        assertEquals("Only the five unseen riddles are left", 5, ids.size());
+        for (int id : ids) {
+            assertTrue("Picked riddle should be unseen", id >= recent.length);
+        }
+    }
+}
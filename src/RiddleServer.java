@@ -0,0 +1,383 @@
+import java.io.*;
+import java.net.*;
+import java.nio.*;
+import java.nio.channels.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.NoSuchFileException;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Serves games over TCP so many players (telnet, netcat, ...) can play at once.
+ * Every connection gets its own GameSession fed from the bytes that arrive on
+ * the socket. All connections are handled by one selector thread, so an idle
+ * player costs a socket, two small buffers and their session rather than a thread.
+ * <p>
+ * A player who takes longer than the turn timeout over a line, or longer than
+ * the game timeout over the whole game, loses as if they had run out of
+ * attempts and is disconnected. The deadlines live in a TimingWheel driven by
+ * the selector thread, so resetting a player's turn deadline on every line is O(1).
+ * Deadlines are kept on System.nanoTime(), so a change to the wall clock neither
+ * fires them all at once nor holds them back.
+ * <p>
+ * When the game has riddle packs, a player can send "/pack NAME [LOCALE]" before
+ * their first guess to start over with that pack instead.
+ */
+public class RiddleServer implements Runnable, Closeable {
+    public static final int DEFAULT_PORT = 2323;
+
+    /** Longest line a player can send; longer lines drop the connection */
+    static final int MAX_LINE = 512;
+    /** Most output that can be waiting for a slow player before they are dropped */
+    static final int MAX_PENDING_OUTPUT = 64 * 1024;
+    /** Default time a player has to send each line */
+    public static final long DEFAULT_TURN_TIMEOUT_MILLIS = 2 * 60 * 1000;
+    /** Default time a player has for a whole game */
+    public static final long DEFAULT_GAME_TIMEOUT_MILLIS = 30 * 60 * 1000;
+    /** How finely deadlines are kept */
+    static final long TICK_MILLIS = 100;
+    /** How long a timed out player's last output may take to send before they are cut off */
+    static final long LINGER_MILLIS = 5000;
+    /** What a player sends to choose a riddle pack; guesses can't contain spaces, so it can't be one */
+    static final String PACK_COMMAND = "/pack ";
+
+    private final Riddle game;
+    private final Renderer renderer;
+    private final Selector selector;
+    private final ServerSocketChannel serverChannel;
+    private final long turnTimeoutMillis;
+    private final long gameTimeoutMillis;
+    private final TimingWheel timers;
+    private final long startNanos;
+    private volatile boolean running;
+    private volatile int sessionCount;
+    private Thread thread;
+
+    /**
+     * Opens the server socket
+     * @param game The loaded game that new sessions are created from
+     * @param port The port to listen on, or 0 for any free port
+     * @param renderer How to draw each player's game, with or without colour
+     * @throws IOException if the port can't be opened
+     */
+    public RiddleServer(Riddle game, int port, Renderer renderer) throws IOException {
+        this(game, port, renderer, DEFAULT_TURN_TIMEOUT_MILLIS, DEFAULT_GAME_TIMEOUT_MILLIS);
+    }
+
+    /**
+     * Opens the server socket
+     * @param game The loaded game that new sessions are created from
+     * @param port The port to listen on, or 0 for any free port
+     * @param renderer How to draw each player's game, with or without colour
+     * @param turnTimeoutMillis How long a player has to send each line
+     * @param gameTimeoutMillis How long a player has for a whole game
+     * @throws IOException if the port can't be opened
+     */
+    public RiddleServer(Riddle game, int port, Renderer renderer, long turnTimeoutMillis,
+                        long gameTimeoutMillis) throws IOException {
+        this.game = game;
+        this.renderer = renderer;
+        this.turnTimeoutMillis = turnTimeoutMillis;
+        this.gameTimeoutMillis = gameTimeoutMillis;
+        this.startNanos = System.nanoTime();
+        this.timers = new TimingWheel(TICK_MILLIS, now());
+        this.selector = Selector.open();
+        this.serverChannel = ServerSocketChannel.open();
+        serverChannel.bind(new InetSocketAddress(port), 4096);
+        serverChannel.configureBlocking(false);
+        serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+        this.running = true;
+    }
+
+    /**
+     * @return Milliseconds since the server was opened, for the timing wheel
+     */
+    private long now() {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+    }
+
+    public int getPort() {
+        return serverChannel.socket().getLocalPort();
+    }
+
+    /**
+     * @return The number of players currently connected
+     */
+    public int getSessionCount() {
+        return sessionCount;
+    }
+
+    /**
+     * @return The number of deadlines waiting, for tests
+     */
+    int getTimerCount() {
+        return timers.size();
+    }
+
+    /**
+     * Runs the server on a background thread
+     */
+    public void start() {
+        thread = new Thread(this, "riddle-server");
+        thread.start();
+    }
+
+    /**
+     * Runs the selector loop on the calling thread until the server is closed
+     */
+    @Override
+    public void run() {
+        try {
+            while (running) {
+                // Wakes for the next tick while any deadline is waiting, and only for I/O otherwise
+                selector.select(timers.millisToNextTick(now()));
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    if (!key.isValid()) {
+                        continue;
+                    }
+                    if (key.isAcceptable()) {
+                        accept();
+                    }
+                    else {
+                        Connection connection = (Connection) key.attachment();
+                        try {
+                            if (key.isReadable()) {
+                                connection.read();
+                            }
+                            if (key.isValid() && key.isWritable()) {
+                                connection.flushPending();
+                            }
+                        }
+                        catch (IOException e) {
+                            connection.close();
+                        }
+                    }
+                }
+                timers.advance(now());
+            }
+        }
+        catch (IOException e) {
+            System.out.println("riddle server stopped: " + e.getMessage());
+        }
+        finally {
+            for (SelectionKey key : selector.keys()) {
+                if (key.attachment() instanceof Connection connection) {
+                    connection.close();
+                }
+            }
+            try {
+                serverChannel.close();
+                selector.close();
+            }
+            catch (IOException e) {
+                // already shutting down
+            }
+        }
+    }
+
+    /**
+     * Stops the server and disconnects every player
+     */
+    @Override
+    public void close() {
+        running = false;
+        selector.wakeup();
+        if (thread != null) {
+            try {
+                thread.join();
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private void accept() throws IOException {
+        SocketChannel channel;
+        while ((channel = serverChannel.accept()) != null) {
+            channel.configureBlocking(false);
+            channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+            Connection connection = new Connection(channel);
+            connection.key = channel.register(selector, SelectionKey.OP_READ, connection);
+            sessionCount++;
+            connection.session = game.newSession(renderer, connection);
+            if (game.getPacks() != null) {
+                connection.session.setIntro(renderer.banner("send /pack NAME [LOCALE] before your first guess for another riddle pack"));
+            }
+            long now = now();
+            connection.gameTimer = timers.schedule(now + gameTimeoutMillis, connection::timeOut);
+            connection.turnTimer = timers.schedule(now + turnTimeoutMillis, connection::timeOut);
+            connection.session.start();
+        }
+    }
+
+    /**
+     * One player's socket, buffers and session
+     */
+    private class Connection implements GameOutput {
+        private final SocketChannel channel;
+        private final ByteBuffer in;
+        private ByteBuffer out;
+        private SelectionKey key;
+        private GameSession session;
+        private TimingWheel.Timer gameTimer;
+        private TimingWheel.Timer turnTimer;
+        private boolean guessed;
+        private boolean closed;
+
+        Connection(SocketChannel channel) {
+            this.channel = channel;
+            this.in = ByteBuffer.allocate(MAX_LINE);
+            this.out = ByteBuffer.allocate(2048);
+        }
+
+        void read() throws IOException {
+            if (channel.read(in) < 0) {
+                session.quit();
+                close();
+                return;
+            }
+            in.flip();
+            int lineStart = in.position();
+            for (int i = lineStart; i < in.limit() && !session.isOver(); i++) {
+                if (in.get(i) == '\n') {
+                    int end = i > lineStart && in.get(i - 1) == '\r' ? i - 1 : i;
+                    byte[] line = new byte[end - lineStart];
+                    in.get(lineStart, line);
+                    String text = new String(line, StandardCharsets.UTF_8);
+                    if (!guessed && text.startsWith(PACK_COMMAND) && game.getPacks() != null) {
+                        choosePack(text.substring(PACK_COMMAND.length()).trim());
+                    }
+                    else {
+                        guessed = true;
+                        session.onInput(text);
+                    }
+                    lineStart = i + 1;
+                }
+            }
+            if (lineStart > in.position() && !closed) {
+                // A whole line arrived, so the player gets a fresh turn
+                turnTimer.cancel();
+                turnTimer = session.isOver() ? null
+                        : timers.schedule(now() + turnTimeoutMillis, this::timeOut);
+            }
+            in.position(lineStart);
+            in.compact();
+            if (!in.hasRemaining() && !session.isOver()) {
+                close();
+            }
+        }
+
+        /**
+         * Starts the player over with another pack, or tells them it can't be had
+         * @param choice The pack's name, optionally followed by a locale
+         */
+        void choosePack(String choice) {
+            String[] words = choice.split("\\s+", 2);
+            GameSession chosen;
+            try {
+                chosen = game.newSession(renderer, this, words[0], words.length > 1 ? words[1] : null);
+            }
+            catch (NoSuchFileException e) {
+                byte[] message = renderer.banner("there's no riddle pack " + choice);
+                write(message, 0, message.length);
+                return;
+            }
+            catch (IOException | RuntimeException e) {
+                // A pack that fails to load mustn't take the selector thread down with it
+                byte[] message = renderer.banner("riddle pack " + choice + " can't be loaded right now");
+                write(message, 0, message.length);
+                return;
+            }
+            session.abandon();
+            session = chosen;
+            session.start();
+        }
+
+        /**
+         * Loses the game for a player who took too long, giving the message a moment to get out
+         */
+        void timeOut() {
+            if (closed) {
+                return;
+            }
+            session.timeOut();
+            if (!closed) {
+                cancelTimers();
+                turnTimer = timers.schedule(now() + LINGER_MILLIS, this::close);
+            }
+        }
+
+        void flushPending() throws IOException {
+            out.flip();
+            channel.write(out);
+            out.compact();
+            if (out.position() == 0) {
+                if (session.isOver()) {
+                    close();
+                }
+                else {
+                    key.interestOps(SelectionKey.OP_READ);
+                }
+            }
+            else {
+                key.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+            }
+        }
+
+        @Override
+        public void write(byte[] bytes, int offset, int length) {
+            if (closed) {
+                return;
+            }
+            int needed = out.position() + length;
+            if (needed > out.capacity()) {
+                if (needed > MAX_PENDING_OUTPUT) {
+                    close();
+                    return;
+                }
+                ByteBuffer bigger = ByteBuffer.allocate(Math.min(MAX_PENDING_OUTPUT, Math.max(needed, out.capacity() * 2)));
+                out.flip();
+                bigger.put(out);
+                out = bigger;
+            }
+            out.put(bytes, offset, length);
+            try {
+                flushPending();
+            }
+            catch (IOException e) {
+                close();
+            }
+        }
+
+        void close() {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            sessionCount--;
+            cancelTimers();
+            if (key != null) {
+                key.cancel();
+            }
+            try {
+                channel.close();
+            }
+            catch (IOException e) {
+                // nothing left to do for this player
+            }
+        }
+
+        private void cancelTimers() {
+            if (gameTimer != null) {
+                gameTimer.cancel();
+            }
+            if (turnTimer != null) {
+                turnTimer.cancel();
+            }
+        }
+    }
+}
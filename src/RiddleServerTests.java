@@ -0,0 +1,106 @@
+import static org.junit.Assert.*;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import java.io.*;
+import java.net.*;
+import java.nio.charset.StandardCharsets;
+
+public class RiddleServerTests {
+    private Riddle game;
+    private RiddleServer server;
+
+    @Before
+    public void setUp() throws IOException {
+        game = new Riddle();
+        game.loadCorpus();
+        server = new RiddleServer(game, 0, Renderer.NETWORK);
+        server.start();
+    }
+
+    @After
+    public void tearDown() {
+        server.close();
+    }
+
+    // Test 1: A player can win a whole game over a socket
+    @Test
+    public void testPlayOverSocket() throws IOException {
+        try (Socket socket = new Socket("localhost", server.getPort())) {
+            socket.setSoTimeout(5000);
+            BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+            Writer out = new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8);
+            String previous = null;
+            StringBuilder transcript = new StringBuilder();
+            String line;
+            while ((line = in.readLine()) != null) {
+                transcript.append(line).append('\n');
+                if (line.equals("enter your guess: ")) {
+                    out.write(game.getAnswerForRiddle(previous) + "\r\n");
+                    out.flush();
+                }
+                previous = line;
+            }
+            assertTrue("Rules should be sent", transcript.toString().contains("welcome"));
+            assertTrue("Player should win", transcript.toString().contains("congrats"));
+        }
+    }
+
+    // Test 2: Many players at once get quick replies and use little memory each
+    @Test
+    public void testManyPlayers() throws Exception {
+        int clients = 1000;
+        long before = usedHeap();
+        long[] perSession = new long[1];
+        ServerLoadTest.Result result = ServerLoadTest.run(new InetSocketAddress("localhost", server.getPort()),
+                clients, 5, 60_000, () -> {
+                    assertEquals("Every player should have a session", clients, server.getSessionCount());
+                    perSession[0] = (usedHeap() - before) / clients;
+                });
+        assertEquals("No player should fail", 0, result.failures());
+        assertEquals("Every prompt should be timed", clients * 5, result.responses());
+        assertTrue("p99 should stay low: " + result, result.p99Micros() < 250_000);
+        assertTrue("Memory per player should stay small: " + perSession[0], perSession[0] < 64 * 1024);
+    }
+
+    // Test 3: A player who stops typing loses, is disconnected and leaves no deadlines behind
+    @Test
+    public void testIdlePlayerTimesOut() throws Exception {
+        RiddleServer quick = new RiddleServer(game, 0, Renderer.NETWORK_PLAIN, 300, 60_000);
+        quick.start();
+        try (Socket socket = new Socket("localhost", quick.getPort())) {
+            socket.setSoTimeout(5000);
+            BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+            Writer out = new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8);
+            StringBuilder transcript = new StringBuilder();
+            String line;
+            boolean guessed = false;
+            while ((line = in.readLine()) != null) {
+                transcript.append(line).append('\n');
+                if (line.equals("enter your guess: ") && !guessed) {
+                    // One quick guess resets the turn deadline, then the player goes quiet
+                    out.write("WRONG\r\n");
+                    out.flush();
+                    guessed = true;
+                }
+            }
+            assertTrue("Player should be told they ran out of time", transcript.toString().contains("out of time!"));
+            assertTrue("Player should lose", transcript.toString().contains("wow you suck at this"));
+        }
+        long deadline = System.currentTimeMillis() + 5000;
+        while ((quick.getSessionCount() > 0 || quick.getTimerCount() > 0) && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals("Session should be released", 0, quick.getSessionCount());
+        assertEquals("Timers should be released", 0, quick.getTimerCount());
+        assertEquals("Timeout should count as a loss", 1, game.getMetrics().getGamesLost());
+        quick.close();
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        System.gc();
+        System.gc();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
@@ -283,4 +283,25 @@ public class RiddleTests {
         assertTrue("Should contain EGG hints", riddle.getHintMap().containsKey("EGG"));
         assertTrue("Should contain PIANO hints", riddle.getHintMap().containsKey("PIANO"));
     }
-}
\ No newline at end of file
+    
+    // Test 26: Test findRiddle returns the indexed riddle with its hints
+    @Test
+    public void testFindRiddle() {
+        riddle.loadRiddles();
+        riddle.loadHints();
+        RiddleEntry entry = riddle.findRiddle(riddle.getRiddleMap().get("ANCHOR"));
+        assertNotNull("ANCHOR riddle should be indexed", entry);
+        assertEquals("Answer should be ANCHOR", "ANCHOR", entry.answer());
+        assertEquals("ANCHOR should have 3 hints", 3, entry.hints().size());
+    }
+    
+    // Test 27: Test hints are attached no matter which file is loaded first
+    @Test
+    public void testHintsLoadedFirst() {
+        riddle.loadHints();
+        riddle.loadRiddles();
+        RiddleEntry entry = riddle.findRiddle(riddle.getRiddleMap().get("BANK"));
+        assertEquals("BANK should have 3 hints", 3, entry.hints().size());
+        assertTrue("Entry should answer to bank", riddle.isCorrectAnswer(entry, "bank"));
+    }
+}
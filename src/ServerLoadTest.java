@@ -0,0 +1,226 @@
+import java.io.*;
+import java.net.*;
+import java.nio.*;
+import java.nio.channels.*;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * Load test for RiddleServer. Opens many player connections from one thread,
+ * waits until every player has been shown their first riddle so all sessions
+ * are live at once, then has every player guess wrong a few times and records
+ * how long each prompt took to come back.
+ *
+ * Run against a server started with "Riddle --server":
+ * <pre>java ServerLoadTest [host] [port] [clients] [rounds]</pre>
+ */
+public class ServerLoadTest {
+
+    /**
+     * What a load test run saw
+     * @param clients the number of players that took part
+     * @param responses the number of prompts timed
+     * @param p50Micros median time from sending a line to the next prompt
+     * @param p99Micros 99th percentile of the same
+     * @param maxMicros slowest prompt
+     * @param failures players that were disconnected early or never got a prompt
+     */
+    public record Result(int clients, int responses, long p50Micros, long p99Micros, long maxMicros, int failures) {
+        @Override
+        public String toString() {
+            return clients + " players, " + responses + " prompts, p50 " + p50Micros + "us, p99 "
+                    + p99Micros + "us, max " + maxMicros + "us, " + failures + " failures";
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        String host = args.length > 0 ? args[0] : "localhost";
+        int port = args.length > 1 ? Integer.parseInt(args[1]) : RiddleServer.DEFAULT_PORT;
+        int clients = args.length > 2 ? Integer.parseInt(args[2]) : 10_000;
+        int rounds = args.length > 3 ? Integer.parseInt(args[3]) : 5;
+        System.out.println(run(new InetSocketAddress(host, port), clients, rounds, 120_000, null));
+    }
+
+    /**
+     * Runs the load test
+     * @param server Where the server is listening
+     * @param clients How many players to connect
+     * @param rounds How many lines each player sends after their first prompt
+     * @param timeoutMillis How long to wait before giving up on slow players
+     * @param allConnected Called once every player has been shown their first riddle, may be null
+     * @return The latencies seen
+     * @throws IOException if the selector can't be opened
+     */
+    public static Result run(InetSocketAddress server, int clients, int rounds, long timeoutMillis,
+                             Runnable allConnected) throws IOException {
+        long[] latencies = new long[clients * rounds];
+        int responses = 0;
+        int failures = 0;
+        int ready = 0;
+        int done = 0;
+        boolean playing = false;
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        List<Player> players = new ArrayList<>(clients);
+
+        try (Selector selector = Selector.open()) {
+            for (int i = 0; i < clients; i++) {
+                SocketChannel channel = SocketChannel.open();
+                channel.configureBlocking(false);
+                Player player = new Player(channel, rounds);
+                players.add(player);
+                if (channel.connect(server)) {
+                    channel.register(selector, SelectionKey.OP_READ, player);
+                }
+                else {
+                    channel.register(selector, SelectionKey.OP_CONNECT, player);
+                }
+            }
+
+            while (done < clients && System.currentTimeMillis() < deadline) {
+                selector.select(100);
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    Player player = (Player) key.attachment();
+                    try {
+                        if (key.isConnectable()) {
+                            player.channel.finishConnect();
+                            key.interestOps(SelectionKey.OP_READ);
+                            continue;
+                        }
+                        String prompt = player.readPrompt();
+                        if (prompt == null && !player.channel.isOpen()) {
+                            done++;
+                            failures += player.finished ? 0 : 1;
+                            continue;
+                        }
+                        if (prompt == null) {
+                            continue;
+                        }
+                        if (player.sentAt != 0) {
+                            latencies[responses++] = (System.nanoTime() - player.sentAt) / 1000;
+                            player.sentAt = 0;
+                        }
+                        if (!player.ready) {
+                            player.ready = true;
+                            player.pendingPrompt = prompt;
+                            ready++;
+                        }
+                        else if (player.respond(prompt)) {
+                            done++;
+                        }
+                    }
+                    catch (IOException e) {
+                        key.cancel();
+                        player.channel.close();
+                        done++;
+                        failures++;
+                    }
+                }
+                if (!playing && ready == clients) {
+                    playing = true;
+                    if (allConnected != null) {
+                        allConnected.run();
+                    }
+                    for (Player player : players) {
+                        try {
+                            if (player.respond(player.pendingPrompt)) {
+                                done++;
+                            }
+                        }
+                        catch (IOException e) {
+                            player.channel.close();
+                            done++;
+                            failures++;
+                        }
+                    }
+                }
+            }
+            for (Player player : players) {
+                if (!player.finished) {
+                    player.channel.close();
+                }
+            }
+        }
+        failures += clients - done;
+
+        long[] sorted = Arrays.copyOf(latencies, responses);
+        Arrays.sort(sorted);
+        return new Result(clients, responses, percentile(sorted, 0.50), percentile(sorted, 0.99),
+                responses == 0 ? 0 : sorted[responses - 1], failures);
+    }
+
+    private static long percentile(long[] sorted, double fraction) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        return sorted[Math.min(sorted.length - 1, (int) Math.ceil(fraction * sorted.length) - 1)];
+    }
+
+    /**
+     * One simulated player
+     */
+    private static class Player {
+        final SocketChannel channel;
+        final ByteBuffer in = ByteBuffer.allocate(4096);
+        int roundsLeft;
+        long sentAt;
+        boolean ready;
+        boolean finished;
+        String pendingPrompt;
+
+        Player(SocketChannel channel, int rounds) {
+            this.channel = channel;
+            this.roundsLeft = rounds;
+        }
+
+        /**
+         * Reads what has arrived and looks for a prompt
+         * @return "guess" or "hint" if the server is waiting on this player, otherwise null
+         */
+        String readPrompt() throws IOException {
+            if (channel.read(in) < 0) {
+                channel.close();
+                return null;
+            }
+            in.flip();
+            String prompt = null;
+            int lineStart = in.position();
+            for (int i = lineStart; i < in.limit(); i++) {
+                if (in.get(i) == '\n') {
+                    byte[] line = new byte[i - lineStart];
+                    in.get(lineStart, line);
+                    String text = new String(line, StandardCharsets.UTF_8);
+                    if (text.contains("enter your guess:")) {
+                        prompt = "guess";
+                    }
+                    else if (text.contains("(y/n):")) {
+                        prompt = "hint";
+                    }
+                    lineStart = i + 1;
+                }
+            }
+            in.position(lineStart);
+            in.compact();
+            return prompt;
+        }
+
+        /**
+         * Answers a prompt, or hangs up once all rounds are used
+         * @return true if this player is finished
+         */
+        boolean respond(String prompt) throws IOException {
+            if (roundsLeft == 0) {
+                finished = true;
+                channel.close();
+                return true;
+            }
+            roundsLeft--;
+            byte[] line = (prompt.equals("hint") ? "n\n" : "nope\n").getBytes(StandardCharsets.UTF_8);
+            sentAt = System.nanoTime();
+            channel.write(ByteBuffer.wrap(line));
+            return false;
+        }
+    }
+}
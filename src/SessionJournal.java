@@ -0,0 +1,400 @@
+import java.io.*;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Keeps games that are still being played safe from a crash. A session is
+ * journaled as events: how it was dealt, each line the player typed, and how
+ * it ended. Since a session's play is decided by its deal and its input, those
+ * are enough to rebuild it exactly; see GameSession.resume(). Events go to a
+ * group-committed AppendLog, so the lines of many sessions share fsyncs and a
+ * player never waits on the disk.
+ * <p>
+ * Only unfinished sessions matter after a restart, so every COMPACT_EVERY
+ * events those are written to a snapshot and the log segments it covers are
+ * deleted. Recovery reads one snapshot of the games in flight and a short tail
+ * of the log, however long the server has been running.
+ */
+public class SessionJournal implements Closeable {
+    /** Events between snapshots */
+    public static final int COMPACT_EVERY = 10_000;
+
+    private static final String LOG_NAME = "sessions";
+    private static final String SNAPSHOT_FILE = "sessions.snapshot";
+    private static final int MAGIC = 0x53455353;
+    private static final int VERSION = 2;
+
+    private static final byte START = 1;
+    private static final byte INPUT = 2;
+    private static final byte END = 3;
+
+    /**
+     * How a session was dealt
+     * @param player the player's name
+     * @param day the day of a daily challenge, or null for riddles dealt at random
+     * @param riddleIds the riddles dealt, in order
+     * @param fingerprint fingerprint() of the riddles dealt, to tell if the corpus has changed since
+     * @param randomSeed the seed of the wrong answer messages
+     * @param correctSeed the seed of the right answer messages
+     * @param startedAt when the session was dealt, in milliseconds since the epoch, or 0 if it was
+     *                  journaled before this was kept
+     */
+    public record Start(String player, LocalDate day, int[] riddleIds, int fingerprint, long randomSeed,
+                        long correctSeed, long startedAt) {}
+
+    /**
+     * A session that hadn't ended when the journal was last written
+     * @param id the session's id in the journal
+     * @param start how it was dealt
+     * @param lines the lines the player typed, oldest first
+     */
+    public record Unfinished(long id, Start start, List<String> lines) {}
+
+    private final Path directory;
+    private final AppendLog log;
+    private final LinkedHashMap<Long, Unfinished> live = new LinkedHashMap<>();
+    private final ExecutorService compactor = Executors.newSingleThreadExecutor(task -> {
+        Thread thread = new Thread(task, "riddle-journal-compactor");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private long nextId = 1;
+    private int eventsSinceSnapshot;
+    private boolean compacting;
+
+    private SessionJournal(Path directory, AppendLog log) {
+        this.directory = directory;
+        this.log = log;
+    }
+
+    /**
+     * Opens the journal, loading the latest snapshot and replaying the events logged after it
+     * @param directory Where the snapshot and log live; created if missing
+     * @return The open journal
+     * @throws IOException if the files can't be read
+     */
+    public static SessionJournal open(Path directory) throws IOException {
+        Files.createDirectories(directory);
+        List<Unfinished> saved = new ArrayList<>();
+        long[] state = readSnapshot(directory.resolve(SNAPSHOT_FILE), saved);
+        SessionJournal journal = new SessionJournal(directory,
+                AppendLog.open(directory, LOG_NAME, AppendLog.DEFAULT_SEGMENT_BYTES, state[0] + 1));
+        journal.nextId = state[1];
+        for (Unfinished session : saved) {
+            journal.live.put(session.id(), session);
+        }
+        try {
+            journal.log.replay(state[0], entry -> {
+                try {
+                    journal.apply(entry.payload());
+                    journal.eventsSinceSnapshot++;
+                }
+                catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        }
+        catch (UncheckedIOException e) {
+            journal.log.close();
+            throw e.getCause();
+        }
+        return journal;
+    }
+
+    /**
+     * Records a new session
+     * @param start How it was dealt
+     * @return The session's id, for GameSession.setJournal()
+     */
+    public synchronized long begin(Start start) {
+        long id = nextId;
+        append(encodeStart(id, start));
+        return id;
+    }
+
+    /**
+     * Records a line the player typed
+     * @param id The session's id
+     * @param line The line
+     */
+    public void input(long id, String line) {
+        append(encode(INPUT, id, out -> out.writeUTF(line)));
+    }
+
+    /**
+     * Records that a session is over, so it won't be resumed
+     * @param id The session's id
+     * @param won true if the player won
+     */
+    public void end(long id, boolean won) {
+        append(encode(END, id, out -> out.writeBoolean(won)));
+    }
+
+    /**
+     * @return The sessions that have been started and not ended, oldest first
+     */
+    public synchronized List<Unfinished> unfinished() {
+        List<Unfinished> sessions = new ArrayList<>(live.size());
+        for (Unfinished session : live.values()) {
+            sessions.add(copyOf(session));
+        }
+        return sessions;
+    }
+
+    /**
+     * @param player A player's name
+     * @return The player's most recently started unfinished session, or null if there is none
+     */
+    public synchronized Unfinished unfinished(String player) {
+        Unfinished latest = null;
+        for (Unfinished session : live.values()) {
+            if (session.start().player().equals(player)) {
+                latest = session;
+            }
+        }
+        return latest == null ? null : copyOf(latest);
+    }
+
+    /**
+     * Fingerprints the riddles a session was dealt, so a resumed session can tell whether
+     * the ids it was dealt still mean the same riddles
+     * @param riddles The riddles, in order
+     * @return A hash of their answers
+     */
+    public static int fingerprint(Collection<RiddleEntry> riddles) {
+        int hash = 1;
+        for (RiddleEntry riddle : riddles) {
+            hash = 31 * hash + riddle.answer().hashCode();
+        }
+        return hash;
+    }
+
+    /**
+     * @return The log the events are written to
+     */
+    AppendLog getLog() {
+        return log;
+    }
+
+    /**
+     * Writes a snapshot of the unfinished sessions and deletes the log segments it covers
+     * @throws IOException if the snapshot can't be written
+     */
+    public void compact() throws IOException {
+        long sequence;
+        long id;
+        List<Unfinished> copy;
+        synchronized (this) {
+            sequence = log.lastSequence();
+            id = nextId;
+            copy = unfinished();
+            eventsSinceSnapshot = 0;
+        }
+        writeSnapshot(directory.resolve(SNAPSHOT_FILE), sequence, id, copy);
+        log.roll().join();
+        log.deleteThrough(sequence);
+    }
+
+    private void compactQuietly() {
+        try {
+            compact();
+        }
+        catch (IOException | CompletionException e) {
+            System.err.println("error compacting session journal: " + e.getMessage());
+        }
+        finally {
+            synchronized (this) {
+                compacting = false;
+            }
+        }
+    }
+
+    /**
+     * Syncs every event and closes the log
+     */
+    @Override
+    public void close() throws IOException {
+        compactor.shutdown();
+        try {
+            compactor.awaitTermination(30, TimeUnit.SECONDS);
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        log.close();
+    }
+
+    /**
+     * Applies an event in memory and hands it to the log. The two happen under one lock
+     * so a snapshot never covers an event it doesn't hold.
+     */
+    private void append(byte[] event) {
+        synchronized (this) {
+            try {
+                apply(event);
+            }
+            catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            log.append(event);
+            eventsSinceSnapshot++;
+            if (eventsSinceSnapshot >= COMPACT_EVERY && !compacting) {
+                compacting = true;
+                compactor.execute(this::compactQuietly);
+            }
+        }
+    }
+
+    private void apply(byte[] event) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(event));
+        byte type = in.readByte();
+        long id = in.readLong();
+        switch (type) {
+            case START -> {
+                // Start events logged before the start time was kept end after the seeds
+                live.put(id, new Unfinished(id, readStart(in, in.available() >= Long.BYTES), new ArrayList<>()));
+                nextId = Math.max(nextId, id + 1);
+            }
+            case INPUT -> {
+                Unfinished session = live.get(id);
+                if (session != null) {
+                    session.lines().add(in.readUTF());
+                }
+            }
+            case END -> live.remove(id);
+            default -> throw new IOException("unknown journal event " + type);
+        }
+    }
+
+    private static Unfinished copyOf(Unfinished session) {
+        return new Unfinished(session.id(), session.start(), List.copyOf(session.lines()));
+    }
+
+    /** Writes the rest of an event after its type and session id */
+    private interface Body {
+        void writeTo(DataOutputStream out) throws IOException;
+    }
+
+    private static byte[] encode(byte type, long id, Body body) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(32);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeByte(type);
+            out.writeLong(id);
+            body.writeTo(out);
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static byte[] encodeStart(long id, Start start) {
+        return encode(START, id, out -> writeStart(out, start));
+    }
+
+    private static void writeStart(DataOutputStream out, Start start) throws IOException {
+        out.writeUTF(start.player());
+        out.writeBoolean(start.day() != null);
+        if (start.day() != null) {
+            out.writeLong(start.day().toEpochDay());
+        }
+        out.writeShort(start.riddleIds().length);
+        for (int riddleId : start.riddleIds()) {
+            out.writeInt(riddleId);
+        }
+        out.writeInt(start.fingerprint());
+        out.writeLong(start.randomSeed());
+        out.writeLong(start.correctSeed());
+        out.writeLong(start.startedAt());
+    }
+
+    private static Start readStart(DataInputStream in, boolean hasStartedAt) throws IOException {
+        String player = in.readUTF();
+        LocalDate day = in.readBoolean() ? LocalDate.ofEpochDay(in.readLong()) : null;
+        int[] riddleIds = new int[in.readUnsignedShort()];
+        for (int i = 0; i < riddleIds.length; i++) {
+            riddleIds[i] = in.readInt();
+        }
+        int fingerprint = in.readInt();
+        long randomSeed = in.readLong();
+        long correctSeed = in.readLong();
+        return new Start(player, day, riddleIds, fingerprint, randomSeed, correctSeed,
+                hasStartedAt ? in.readLong() : 0);
+    }
+
+    /**
+     * Reads a snapshot into a list
+     * @return The last log sequence number the snapshot covers, or 0 if there is no snapshot,
+     *         and the next session id
+     */
+    private static long[] readSnapshot(Path file, List<Unfinished> sessions) throws IOException {
+        if (!Files.exists(file)) {
+            return new long[] { 0, 1 };
+        }
+        CRC32 crc = new CRC32();
+        try (DataInputStream in = new DataInputStream(new CheckedInputStream(
+                new BufferedInputStream(Files.newInputStream(file)), crc))) {
+            int version = in.readInt() == MAGIC ? in.readInt() : -1;
+            if (version != 1 && version != VERSION) {
+                throw new IOException(file + " is not a session snapshot");
+            }
+            long sequence = in.readLong();
+            long nextId = in.readLong();
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                long id = in.readLong();
+                Start start = readStart(in, version >= 2);
+                int lineCount = in.readInt();
+                List<String> lines = new ArrayList<>(lineCount);
+                for (int j = 0; j < lineCount; j++) {
+                    lines.add(in.readUTF());
+                }
+                sessions.add(new Unfinished(id, start, lines));
+            }
+            long expected = crc.getValue();
+            if (in.readLong() != expected) {
+                throw new IOException(file + " is corrupt");
+            }
+            return new long[] { sequence, nextId };
+        }
+    }
+
+    private static void writeSnapshot(Path file, long sequence, long nextId, List<Unfinished> sessions)
+            throws IOException {
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        CRC32 crc = new CRC32();
+        try (FileOutputStream stream = new FileOutputStream(tmp.toFile());
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new CheckedOutputStream(stream, crc)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(sequence);
+            out.writeLong(nextId);
+            out.writeInt(sessions.size());
+            for (Unfinished session : sessions) {
+                out.writeLong(session.id());
+                writeStart(out, session.start());
+                out.writeInt(session.lines().size());
+                for (String line : session.lines()) {
+                    out.writeUTF(line);
+                }
+            }
+            out.flush();
+            out.writeLong(crc.getValue());
+            out.flush();
+            stream.getFD().sync();
+        }
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        try (FileChannel dir = FileChannel.open(file.getParent(), StandardOpenOption.READ)) {
+            dir.force(true);
+        }
+        catch (IOException e) {
+            // not every platform can sync a directory
+        }
+    }
+}
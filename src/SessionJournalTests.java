@@ -0,0 +1,156 @@
+import static org.junit.Assert.*;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+
+public class SessionJournalTests {
+    private static final GameOutput DISCARD = (bytes, offset, length) -> {};
+
+    private Path directory;
+    private Riddle game;
+
+    @Before
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("riddle-sessions");
+        game = new Riddle();
+        game.loadCorpus();
+        game.setPlayerName("ann");
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        try (var files = Files.walk(directory)) {
+            files.sorted(Comparator.reverseOrder()).forEach(file -> file.toFile().delete());
+        }
+    }
+
+    /** Wrong guesses that can't be any riddle's answer */
+    private static void guessWrong(GameSession session, int times) {
+        for (int i = 0; i < times; i++) {
+            session.onInput("zzz" + i);
+        }
+    }
+
+    // Test 1: A session cut off mid-game comes back with its riddles, attempts and hints
+    @Test
+    public void testResume() throws IOException {
+        GameSession before;
+        try (SessionJournal journal = SessionJournal.open(directory)) {
+            game.setJournal(journal);
+            before = game.newSession(Renderer.CONSOLE_PLAIN, DISCARD);
+            before.start();
+            before.onInput(before.getCurrentRiddle().answer());
+            guessWrong(before, GameSession.HINT_AFTER);
+            before.onInput("y");
+            guessWrong(before, 1);
+        }
+        StringBuilder shown = new StringBuilder();
+        try (SessionJournal journal = SessionJournal.open(directory)) {
+            game.setJournal(journal);
+            SessionJournal.Unfinished unfinished = journal.unfinished("ann");
+            assertNotNull("The game should be waiting to resume", unfinished);
+            assertEquals("Every line should be journaled", 6, unfinished.lines().size());
+            GameSession after = game.resumeSession(unfinished, Renderer.CONSOLE_PLAIN,
+                    (bytes, offset, length) -> shown.append(new String(bytes, offset, length, StandardCharsets.UTF_8)));
+            assertEquals(before.getCurrentRiddle(), after.getCurrentRiddle());
+            assertEquals(before.getAttempts(), after.getAttempts());
+            assertEquals(before.getHintsUsed(), after.getHintsUsed());
+            assertEquals(before.getSolvedCount(), after.getSolvedCount());
+            assertEquals(before.getState(), after.getState());
+            assertEquals(GameSession.State.HINT_OFFERED, after.getState());
+            assertTrue("The player should be told the game was resumed", shown.toString().contains("picking up"));
+            assertFalse("Replayed turns should not be shown again", shown.toString().contains("welcome"));
+
+            after.quit();
+            assertNull("A finished game isn't resumed", journal.unfinished("ann"));
+        }
+        try (SessionJournal journal = SessionJournal.open(directory)) {
+            assertTrue("The end should survive a restart", journal.unfinished().isEmpty());
+        }
+    }
+
+    // Test 2: A daily challenge resumes as the same day's challenge
+    @Test
+    public void testResumeDaily() throws IOException {
+        game.setSelection(Riddle.Selection.DAILY);
+        GameSession before;
+        try (SessionJournal journal = SessionJournal.open(directory)) {
+            game.setJournal(journal);
+            before = game.newSession(Renderer.CONSOLE_PLAIN, DISCARD);
+            before.start();
+            before.onInput(before.getCurrentRiddle().answer());
+            guessWrong(before, 2);
+        }
+        try (SessionJournal journal = SessionJournal.open(directory)) {
+            game.setJournal(journal);
+            SessionJournal.Unfinished unfinished = journal.unfinished("ann");
+            assertNotNull(unfinished.start().day());
+            GameSession after = game.resumeSession(unfinished, Renderer.CONSOLE_PLAIN, DISCARD);
+            assertEquals(before.getCurrentRiddle(), after.getCurrentRiddle());
+            assertEquals(2, after.getAttempts());
+        }
+    }
+
+    // Test 3: Compaction keeps only games in flight and bounds what a restart reads
+    @Test
+    public void testCompact() throws IOException {
+        try (SessionJournal journal = SessionJournal.open(directory)) {
+            game.setJournal(journal);
+            for (int i = 0; i < 50; i++) {
+                GameSession session = game.newSession(Renderer.CONSOLE_PLAIN, DISCARD);
+                session.start();
+                guessWrong(session, 2);
+                session.quit();
+            }
+            game.setPlayerName("bob");
+            GameSession open = game.newSession(Renderer.CONSOLE_PLAIN, DISCARD);
+            open.start();
+            guessWrong(open, 1);
+            journal.compact();
+            assertEquals("Covered segments should be deleted", 1, journal.getLog().segmentCount());
+            guessWrong(open, 1);
+        }
+        try (SessionJournal journal = SessionJournal.open(directory)) {
+            List<SessionJournal.Unfinished> unfinished = journal.unfinished();
+            assertEquals("Only bob's game is unfinished", 1, unfinished.size());
+            assertEquals("Lines from the snapshot and the log tail", 2, unfinished.get(0).lines().size());
+            long id = unfinished.get(0).id();
+            game.setJournal(journal);
+            GameSession next = game.newSession(Renderer.CONSOLE_PLAIN, DISCARD);
+            next.quit();
+            assertEquals("Ids should not be reused after a restart", List.of(id),
+                    journal.unfinished().stream().map(SessionJournal.Unfinished::id).toList());
+        }
+    }
+
+    // Test 4: Replayed lines aren't counted again, and the game keeps the time it first started
+    @Test
+    public void testResumeKeepsMetricsAndStartTime() throws IOException {
+        GameSession before;
+        try (SessionJournal journal = SessionJournal.open(directory)) {
+            game.setJournal(journal);
+            before = game.newSession(Renderer.CONSOLE_PLAIN, DISCARD);
+            before.start();
+            guessWrong(before, 4);
+        }
+        Riddle restarted = new Riddle();
+        restarted.loadCorpus();
+        try (SessionJournal journal = SessionJournal.open(directory)) {
+            restarted.setJournal(journal);
+            SessionJournal.Unfinished unfinished = journal.unfinished("ann");
+            assertTrue(unfinished.start().startedAt() > 0);
+            assertTrue(unfinished.start().startedAt() <= before.getStartedAt());
+            GameSession after = restarted.resumeSession(unfinished, Renderer.CONSOLE_PLAIN, DISCARD);
+            assertEquals(unfinished.start().startedAt(), after.getStartedAt());
+            assertEquals("Replayed guesses shouldn't be timed", 0, restarted.getMetrics().getGuessTimes().count());
+            assertTrue("Replayed riddles shouldn't count as played", restarted.getMetrics().getAllStats().isEmpty());
+
+            after.onInput("zzz");
+            assertEquals("Guesses after the resume are timed", 1, restarted.getMetrics().getGuessTimes().count());
+        }
+    }
+}
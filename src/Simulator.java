@@ -0,0 +1,222 @@
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.random.RandomGenerator;
+
+/**
+ * Plays games with bots instead of people, to see how winnable the game is and
+ * how fast the engine runs. Bots drive GameSession directly, the same way the
+ * console and the server do, with the output thrown away. Games are split into
+ * shards on a fork-join pool; every shard seeds its own random source from the
+ * run's seed and its first game, so a run plays out the same however many
+ * threads it gets.
+ *
+ * <pre>java Simulator [--bot=oracle|random|hints] [--games=1000000] [--seed=1] [--parallelism=cores]</pre>
+ */
+public class Simulator {
+    /** Games one fork-join task plays without splitting further */
+    static final int SHARD_SIZE = 4096;
+
+    private static final GameOutput DISCARD = (bytes, offset, length) -> {};
+
+    /**
+     * Totals for a run
+     * @param games games played
+     * @param wins games won
+     * @param riddlesSolved riddles solved over every game
+     * @param hintsUsed hints taken over every game
+     * @param guessesToSolve how many solves took each number of guesses; index 0 holds first-guess solves
+     * @param nanos how long the run took
+     */
+    public record Result(long games, long wins, long riddlesSolved, long hintsUsed, long[] guessesToSolve, long nanos) {
+
+        public double winRate() {
+            return games == 0 ? 0 : (double) wins / games;
+        }
+
+        public double gamesPerSecond() {
+            return nanos == 0 ? 0 : games * 1e9 / nanos;
+        }
+
+        /**
+         * @return The average number of guesses a solved riddle took
+         */
+        public double meanGuessesToSolve() {
+            long total = 0;
+            for (int i = 0; i < guessesToSolve.length; i++) {
+                total += guessesToSolve[i] * (i + 1);
+            }
+            return riddlesSolved == 0 ? 0 : (double) total / riddlesSolved;
+        }
+    }
+
+    public static void main(String[] args) {
+        String botName = "hints";
+        long games = 1_000_000;
+        long seed = 1;
+        int parallelism = Runtime.getRuntime().availableProcessors();
+        for (String arg : args) {
+            if (arg.startsWith("--bot=")) {
+                botName = arg.substring(6);
+            }
+            else if (arg.startsWith("--games=")) {
+                games = Long.parseLong(arg.substring(8));
+            }
+            else if (arg.startsWith("--seed=")) {
+                seed = Long.parseLong(arg.substring(7));
+            }
+            else if (arg.startsWith("--parallelism=")) {
+                parallelism = Integer.parseInt(arg.substring(14));
+            }
+        }
+
+        Riddle game = new Riddle();
+        if (!game.loadCompiledCorpus()) {
+            game.loadCorpus();
+        }
+        Bot bot = switch (botName) {
+            case "oracle" -> Bot.oracle();
+            case "random" -> Bot.randomGuesser(game.getCorpus());
+            case "hints" -> Bot.hintTaker(0.1, 0.15);
+            default -> throw new IllegalArgumentException("unknown bot " + botName + ", use oracle, random or hints");
+        };
+
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            Result result = run(game.getCorpus(), bot, games, seed, pool);
+            System.out.printf("%s bot: %d games in %.2fs, %.0f games/s%n", botName, result.games(),
+                    result.nanos() / 1e9, result.gamesPerSecond());
+            System.out.printf("win rate %.2f%%, %.2f riddles solved per game, %.2f hints per game%n",
+                    100 * result.winRate(), (double) result.riddlesSolved() / result.games(),
+                    (double) result.hintsUsed() / result.games());
+            System.out.printf("guesses to solve (mean %.2f):%n", result.meanGuessesToSolve());
+            long[] counts = result.guessesToSolve();
+            for (int i = 0; i < counts.length; i++) {
+                System.out.printf("  %2d %12d%n", i + 1, counts[i]);
+            }
+        }
+        finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Plays a number of games
+     * @param corpus The corpus to deal riddles from
+     * @param bot The player
+     * @param games How many games to play
+     * @param seed Seed for every random choice in the run
+     * @param pool Where to play them
+     * @return The totals
+     */
+    public static Result run(Corpus corpus, Bot bot, long games, long seed, ForkJoinPool pool) {
+        long start = System.nanoTime();
+        Shard totals = pool.invoke(new ShardTask(corpus, bot, seed, 0, games));
+        return new Result(totals.games, totals.wins, totals.riddlesSolved, totals.hintsUsed, totals.guessesToSolve,
+                System.nanoTime() - start);
+    }
+
+    /**
+     * Plays one whole game of randomly chosen riddles
+     * @param corpus The corpus to deal from
+     * @param bot The player
+     * @param random The game's random source
+     * @param listener Told about the game as it is played, or null
+     * @return The finished session
+     */
+    public static GameSession playOne(Corpus corpus, Bot bot, RandomGenerator random, GameListener listener) {
+        int[] ids = RiddleSampler.sample(corpus.size(), Riddle.RIDDLES_PER_GAME, random);
+        Queue<RiddleEntry> riddles = new ArrayDeque<>(ids.length);
+        for (int id : ids) {
+            riddles.offer(corpus.get(id));
+        }
+        GameSession session = GameSession.newGame(corpus, riddles,
+                Riddle.RANDOM_MESSAGES.cursor(random.nextLong()), Riddle.CORRECT_MESSAGES.cursor(random.nextLong()),
+                Renderer.CONSOLE_PLAIN, DISCARD);
+        session.setListener(listener);
+        session.start();
+        while (!session.isOver()) {
+            RiddleEntry riddle = session.getCurrentRiddle();
+            if (session.getState() == GameSession.State.HINT_OFFERED) {
+                session.onInput(bot.wantsHint(riddle, session.getHintsUsed(), random) ? "y" : "n");
+            }
+            else {
+                session.onInput(bot.guess(riddle, session.getAttempts(), session.getHintsUsed(), random));
+            }
+        }
+        return session;
+    }
+
+    /** Counts for one shard of games, merged up the fork-join tree */
+    private static final class Shard implements GameListener {
+        long games;
+        long wins;
+        long riddlesSolved;
+        long hintsUsed;
+        final long[] guessesToSolve = new long[GameSession.MAX_ATTEMPTS];
+
+        @Override
+        public void solved(RiddleEntry riddle, int guesses, int hints) {
+            riddlesSolved++;
+            hintsUsed += hints;
+            guessesToSolve[Math.min(guesses, guessesToSolve.length) - 1]++;
+        }
+
+        @Override
+        public void lost(RiddleEntry riddle, int hints, boolean quit) {
+            hintsUsed += hints;
+        }
+
+        @Override
+        public void gameOver(boolean won) {
+            games++;
+            wins += won ? 1 : 0;
+        }
+
+        Shard plus(Shard other) {
+            games += other.games;
+            wins += other.wins;
+            riddlesSolved += other.riddlesSolved;
+            hintsUsed += other.hintsUsed;
+            for (int i = 0; i < guessesToSolve.length; i++) {
+                guessesToSolve[i] += other.guessesToSolve[i];
+            }
+            return this;
+        }
+    }
+
+    @SuppressWarnings("serial") // forked within one run, never serialized
+    private static final class ShardTask extends RecursiveTask<Shard> {
+        private final Corpus corpus;
+        private final Bot bot;
+        private final long seed;
+        private final long from;
+        private final long to;
+
+        ShardTask(Corpus corpus, Bot bot, long seed, long from, long to) {
+            this.corpus = corpus;
+            this.bot = bot;
+            this.seed = seed;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected Shard compute() {
+            if (to - from > SHARD_SIZE) {
+                // Split on shard boundaries so each shard's seed doesn't depend on how the work was divided
+                long middle = from + (to - from + SHARD_SIZE - 1) / SHARD_SIZE / 2 * SHARD_SIZE;
+                ShardTask right = new ShardTask(corpus, bot, seed, middle, to);
+                right.fork();
+                Shard left = new ShardTask(corpus, bot, seed, from, middle).compute();
+                return left.plus(right.join());
+            }
+            Shard shard = new Shard();
+            SplittableRandom random = new SplittableRandom(seed * 0x9E3779B97F4A7C15L + from);
+            for (long i = from; i < to; i++) {
+                playOne(corpus, bot, random, shard);
+            }
+            return shard;
+        }
+    }
+}
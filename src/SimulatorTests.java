@@ -0,0 +1,61 @@
+import static org.junit.Assert.*;
+import org.junit.Test;
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+
+public class SimulatorTests {
+
+    private static Corpus corpus() {
+        Riddle game = new Riddle();
+        game.loadRiddles();
+        game.loadHints();
+        return game.getCorpus();
+    }
+
+    // Test 1: The oracle wins every game on the first guess of every riddle
+    @Test
+    public void testOracle() {
+        Simulator.Result result = Simulator.run(corpus(), Bot.oracle(), 1000, 1, ForkJoinPool.commonPool());
+        assertEquals(1000, result.games());
+        assertEquals(1.0, result.winRate(), 0);
+        assertEquals(5000, result.guessesToSolve()[0]);
+        assertEquals(1.0, result.meanGuessesToSolve(), 0);
+        assertTrue(result.gamesPerSecond() > 0);
+    }
+
+    // Test 2: Random guessing almost always loses and hint takers use their hints
+    @Test
+    public void testStrategies() {
+        Corpus corpus = corpus();
+        Simulator.Result random = Simulator.run(corpus, Bot.randomGuesser(corpus), 1000, 1, ForkJoinPool.commonPool());
+        assertTrue("Random guessing should rarely win", random.winRate() < 0.05);
+        assertEquals(0, random.hintsUsed());
+        Simulator.Result hints = Simulator.run(corpus, Bot.hintTaker(0.1, 0.15), 1000, 1, ForkJoinPool.commonPool());
+        assertTrue("Hint takers should win more", hints.winRate() > random.winRate());
+        assertTrue(hints.hintsUsed() > 0);
+    }
+
+    // Test 3: A seeded run gives the same totals however many threads play it
+    @Test
+    public void testDeterministic() {
+        Corpus corpus = corpus();
+        Bot bot = Bot.hintTaker(0.1, 0.15);
+        long games = 3 * Simulator.SHARD_SIZE + 17;
+        ForkJoinPool one = new ForkJoinPool(1);
+        ForkJoinPool four = new ForkJoinPool(4);
+        try {
+            Simulator.Result first = Simulator.run(corpus, bot, games, 42, one);
+            Simulator.Result second = Simulator.run(corpus, bot, games, 42, four);
+            assertEquals(games, first.games());
+            assertEquals(first.wins(), second.wins());
+            assertEquals(first.hintsUsed(), second.hintsUsed());
+            assertArrayEquals(first.guessesToSolve(), second.guessesToSolve());
+            Simulator.Result other = Simulator.run(corpus, bot, games, 43, four);
+            assertFalse("Another seed plays differently", Arrays.equals(first.guessesToSolve(), other.guessesToSolve()));
+        }
+        finally {
+            one.shutdown();
+            four.shutdown();
+        }
+    }
+}
@@ -0,0 +1,104 @@
+import java.util.*;
+
+/**
+ * Corpus built in memory from riddles.txt and hints.txt.
+ * Riddles and hints can be added in either order; a riddle picks up the hints
+ * for its answer whenever either side arrives. A riddle with the same answer
+ * as an earlier one replaces it and keeps its id.
+ */
+public class TextCorpus implements Corpus {
+    private final ArrayList<RiddleEntry> riddles;
+    private final HashMap<String, RiddleEntry> riddlesByText;
+    private final HashMap<String, RiddleEntry> riddlesByAnswer;
+    private final HashMap<String, List<String>> hintsByAnswer;
+
+    public TextCorpus() {
+        this.riddles = new ArrayList<>();
+        this.riddlesByText = new HashMap<>();
+        this.riddlesByAnswer = new HashMap<>();
+        this.hintsByAnswer = new HashMap<>();
+    }
+
+    /**
+     * Adds a riddle to the lookup indexes, replacing any riddle with the same answer
+     * @param written The answer as written in riddles.txt, with any alternates after '|'
+     * @param text The riddle text
+     */
+    public void addRiddle(String written, String text) {
+        if (written.indexOf(AnswerMatcher.ALTERNATE_SEPARATOR) < 0 && written.indexOf(AnswerMatcher.TIER_MARK) < 0) {
+            // Most riddles have one answer and no tier, so skip splitting them
+            String answer = written.trim();
+            add(answer, text, List.of(), Set.of(AnswerMatcher.canonical(answer)), 0);
+            return;
+        }
+        List<String> answers = AnswerMatcher.parseAnswers(written);
+        String answer = answers.get(0);
+        List<String> alternates = answers.subList(1, answers.size());
+        add(answer, text, alternates, AnswerMatcher.keysFor(answer, alternates), AnswerMatcher.parseTier(written));
+    }
+
+    /**
+     * Adds a riddle taken from another corpus, keeping its answer keys but not its id or hints
+     * @param riddle The riddle to copy
+     */
+    public void addEntry(RiddleEntry riddle) {
+        add(riddle.answer(), riddle.text(), riddle.alternates(), riddle.answerKeys(), riddle.tier());
+    }
+
+    private void add(String answer, String text, List<String> alternates, Set<String> answerKeys, int tier) {
+        List<String> hints = hintsByAnswer.getOrDefault(answer, List.of());
+        RiddleEntry existing = riddlesByAnswer.get(answer);
+        RiddleEntry entry;
+        if (existing != null) {
+            riddlesByText.remove(existing.text());
+            entry = new RiddleEntry(existing.id(), answer, text, hints, alternates, answerKeys, tier);
+            riddles.set(entry.id(), entry);
+        }
+        else {
+            entry = new RiddleEntry(riddles.size(), answer, text, hints, alternates, answerKeys, tier);
+            riddles.add(entry);
+        }
+        riddlesByText.put(text, entry);
+        riddlesByAnswer.put(answer, entry);
+    }
+
+    /**
+     * Sets the hints for an answer, attaching them to its riddle if it is already loaded
+     * @param answer The answer the hints belong to
+     * @param hints The hints for that answer
+     */
+    public void addHints(String answer, List<String> hints) {
+        hintsByAnswer.put(answer, hints);
+        RiddleEntry existing = riddlesByAnswer.get(answer);
+        if (existing != null) {
+            RiddleEntry entry = existing.withHints(hints);
+            riddles.set(entry.id(), entry);
+            riddlesByText.put(entry.text(), entry);
+            riddlesByAnswer.put(answer, entry);
+        }
+    }
+
+    /**
+     * Finds a riddle by its answer
+     * @param answer The answer as written in riddles.txt
+     * @return The riddle, or null if no riddle has that answer
+     */
+    public RiddleEntry findByAnswer(String answer) {
+        return riddlesByAnswer.get(answer);
+    }
+
+    @Override
+    public int size() {
+        return riddles.size();
+    }
+
+    @Override
+    public RiddleEntry get(int id) {
+        return riddles.get(id);
+    }
+
+    @Override
+    public RiddleEntry find(String text) {
+        return riddlesByText.get(text);
+    }
+}
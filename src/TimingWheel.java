@@ -0,0 +1,184 @@
+/**
+ * Timers for very many sessions at once, as a hierarchical timing wheel.
+ * Time is cut into ticks; the first wheel has a slot for each of the next
+ * SLOTS ticks, the second a slot for each of the next SLOTS runs of the first
+ * wheel, and so on. A timer goes in the slot of the finest wheel that reaches
+ * its deadline. Each time a coarser slot comes due its timers are moved down
+ * to finer wheels, and first-wheel slots fire as their tick passes. Every slot
+ * is a doubly linked list, so scheduling and cancelling a timer are O(1)
+ * however many timers are waiting.
+ * <p>
+ * Not thread safe: a wheel belongs to one thread, such as a server's selector
+ * thread, which schedules, cancels and advances it.
+ */
+public class TimingWheel {
+    /** Bits of the tick count each wheel covers */
+    private static final int BITS = 6;
+    /** Slots in each wheel */
+    static final int SLOTS = 1 << BITS;
+    private static final int MASK = SLOTS - 1;
+    /** Wheels, enough to reach about 19 days at 100ms ticks */
+    static final int LEVELS = 4;
+
+    /**
+     * A scheduled task
+     */
+    public final class Timer {
+        private final Runnable task;
+        private long tick;
+        private Timer previous;
+        private Timer next;
+
+        private Timer(Runnable task) {
+            this.task = task;
+        }
+
+        /**
+         * Stops the timer from firing
+         * @return true if it was still waiting
+         */
+        public boolean cancel() {
+            if (next == null) {
+                return false;
+            }
+            unlink();
+            return true;
+        }
+
+        /**
+         * @return true if the timer hasn't fired or been cancelled yet
+         */
+        public boolean isPending() {
+            return next != null;
+        }
+
+        private void unlink() {
+            previous.next = next;
+            next.previous = previous;
+            previous = null;
+            next = null;
+            size--;
+        }
+    }
+
+    private final long tickMillis;
+    private final Timer[][] wheels = new Timer[LEVELS][SLOTS];
+    private long currentTick;
+    private int size;
+
+    /**
+     * @param tickMillis How finely deadlines are kept; timers fire up to one tick late
+     * @param nowMillis The current time
+     */
+    public TimingWheel(long tickMillis, long nowMillis) {
+        this.tickMillis = tickMillis;
+        this.currentTick = nowMillis / tickMillis;
+        for (Timer[] wheel : wheels) {
+            for (int slot = 0; slot < SLOTS; slot++) {
+                Timer head = new Timer(null);
+                head.previous = head;
+                head.next = head;
+                wheel[slot] = head;
+            }
+        }
+    }
+
+    /**
+     * Schedules a task
+     * @param deadlineMillis When to run it; a time that has passed runs it on the next tick
+     * @param task What to run, on the thread that calls advance()
+     * @return The timer, to cancel it with
+     */
+    public Timer schedule(long deadlineMillis, Runnable task) {
+        Timer timer = new Timer(task);
+        // Round up so a timer never fires before its deadline
+        timer.tick = Math.max(currentTick + 1, (deadlineMillis + tickMillis - 1) / tickMillis);
+        place(timer);
+        size++;
+        return timer;
+    }
+
+    /**
+     * Runs every timer whose tick has passed
+     * @param nowMillis The current time
+     * @return The number of timers run
+     */
+    public int advance(long nowMillis) {
+        long target = nowMillis / tickMillis;
+        if (size == 0) {
+            currentTick = Math.max(currentTick, target);
+            return 0;
+        }
+        int fired = 0;
+        while (currentTick < target) {
+            currentTick++;
+            for (int level = LEVELS - 1; level > 0; level--) {
+                if ((currentTick & ((1L << (BITS * level)) - 1)) == 0) {
+                    cascade(level);
+                }
+            }
+            Timer head = wheels[0][(int) (currentTick & MASK)];
+            while (head.next != head) {
+                Timer timer = head.next;
+                timer.unlink();
+                timer.task.run();
+                fired++;
+            }
+            if (size == 0) {
+                currentTick = target;
+            }
+        }
+        return fired;
+    }
+
+    /**
+     * @return How long until the next tick, for a selector's timeout, or 0 if no timer is waiting
+     */
+    public long millisToNextTick(long nowMillis) {
+        if (size == 0) {
+            return 0;
+        }
+        return Math.max(1, (currentTick + 1) * tickMillis - nowMillis);
+    }
+
+    /**
+     * @return The number of timers waiting
+     */
+    public int size() {
+        return size;
+    }
+
+    /** Moves the timers in a coarse wheel's current slot down to finer wheels */
+    private void cascade(int level) {
+        Timer head = wheels[level][(int) ((currentTick >>> (BITS * level)) & MASK)];
+        Timer timer = head.next;
+        head.next = head;
+        head.previous = head;
+        while (timer != head) {
+            Timer next = timer.next;
+            place(timer);
+            timer = next;
+        }
+    }
+
+    /** Puts a timer in the finest wheel that reaches its tick; one due now goes in the slot about to fire */
+    private void place(Timer timer) {
+        for (int level = 0; level < LEVELS; level++) {
+            int shift = BITS * level;
+            if ((timer.tick >>> shift) - (currentTick >>> shift) < SLOTS) {
+                link(wheels[level][(int) ((timer.tick >>> shift) & MASK)], timer);
+                return;
+            }
+        }
+        // Beyond the last wheel: park in its furthest slot and look again when that comes round
+        int shift = BITS * (LEVELS - 1);
+        link(wheels[LEVELS - 1][(int) (((currentTick >>> shift) + MASK) & MASK)], timer);
+    }
+
+    private static void link(Timer head, Timer timer) {
+        timer.previous = head.previous;
+        timer.next = head;
+        head.previous.next = timer;
+        head.previous = timer;
+    }
+}
@@ -0,0 +1,89 @@
+import static org.junit.Assert.*;
+import org.junit.Test;
+import java.util.*;
+
+public class TimingWheelTests {
+    // Test 1: Timers fire on the first tick at or after their deadline, never before
+    @Test
+    public void testFiresAtDeadline() {
+        TimingWheel wheel = new TimingWheel(10, 1000);
+        List<String> fired = new ArrayList<>();
+        wheel.schedule(1055, () -> fired.add("b"));
+        wheel.schedule(1020, () -> fired.add("a"));
+        wheel.schedule(500, () -> fired.add("late"));
+        assertEquals(1, wheel.advance(1010));
+        assertEquals("A passed deadline should fire on the next tick", List.of("late"), fired);
+        wheel.advance(1050);
+        assertEquals(List.of("late", "a"), fired);
+        wheel.advance(1059);
+        assertEquals("Should not fire before its deadline", List.of("late", "a"), fired);
+        wheel.advance(1060);
+        assertEquals(List.of("late", "a", "b"), fired);
+        assertEquals(0, wheel.size());
+    }
+
+    // Test 2: Cancelled timers never fire, and cancelling twice is harmless
+    @Test
+    public void testCancel() {
+        TimingWheel wheel = new TimingWheel(10, 0);
+        int[] fired = new int[1];
+        TimingWheel.Timer timer = wheel.schedule(100, () -> fired[0]++);
+        wheel.schedule(100, () -> fired[0] += 10);
+        assertTrue(timer.cancel());
+        assertFalse(timer.cancel());
+        assertFalse(timer.isPending());
+        assertEquals(1, wheel.size());
+        wheel.advance(1000);
+        assertEquals(10, fired[0]);
+    }
+
+    // Test 3: Deadlines far beyond the first wheel are cascaded down and fire on the right tick
+    @Test
+    public void testCascadesAcrossWheels() {
+        TimingWheel wheel = new TimingWheel(1, 37);
+        Random random = new Random(7);
+        long[] deadlines = new long[5000];
+        long[] firedAt = new long[deadlines.length];
+        long[] advancedBefore = new long[deadlines.length];
+        long[] now = new long[1];
+        long[] previous = new long[1];
+        for (int i = 0; i < deadlines.length; i++) {
+            int index = i;
+            // Spread over every wheel, and a few past the last one
+            deadlines[i] = 38 + (long) Math.pow(2, random.nextDouble() * 26);
+            wheel.schedule(deadlines[i], () -> {
+                firedAt[index] = now[0];
+                advancedBefore[index] = previous[0];
+            });
+        }
+        long end = Arrays.stream(deadlines).max().getAsLong();
+        for (now[0] = 37; now[0] <= end + 5000; now[0] += 1 + random.nextInt(5000)) {
+            wheel.advance(now[0]);
+            previous[0] = now[0];
+        }
+        for (int i = 0; i < deadlines.length; i++) {
+            assertTrue("Timer " + i + " due at " + deadlines[i] + " fired at " + firedAt[i], deadlines[i] <= firedAt[i]);
+            assertTrue("Timer " + i + " due at " + deadlines[i] + " should have fired by " + advancedBefore[i],
+                    advancedBefore[i] < deadlines[i]);
+        }
+        wheel.advance(end);
+        assertEquals(0, wheel.size());
+    }
+
+    // Test 4: Timers can reschedule themselves while firing, as a turn deadline does
+    @Test
+    public void testRescheduleFromTask() {
+        TimingWheel wheel = new TimingWheel(10, 0);
+        int[] fired = new int[1];
+        Runnable[] task = new Runnable[1];
+        task[0] = () -> {
+            if (++fired[0] < 3) {
+                wheel.schedule(fired[0] * 100L + 100, task[0]);
+            }
+        };
+        wheel.schedule(100, task[0]);
+        wheel.advance(10_000);
+        assertEquals(3, fired[0]);
+        assertEquals(0, wheel.size());
+    }
+}
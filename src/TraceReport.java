@@ -0,0 +1,64 @@
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.*;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+/**
+ * Reads a Flight Recorder recording and prints latency percentiles for each
+ * phase of the game recorded by GameEvents. Loads are split by what was
+ * loaded and hints by what happened to the offer, since those take very
+ * different times.
+ *
+ * <pre>java TraceReport riddle.jfr</pre>
+ */
+public class TraceReport {
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 1) {
+            System.err.println("usage: java TraceReport recording.jfr");
+            System.exit(2);
+        }
+        Map<String, LatencyHistogram> phases = summarize(Path.of(args[0]));
+        if (phases.isEmpty()) {
+            System.out.println("no game events in " + args[0]);
+            return;
+        }
+        System.out.printf("%-24s %10s %12s %12s %12s %12s%n", "phase", "count", "p50 us", "p90 us", "p99 us", "max us");
+        for (Map.Entry<String, LatencyHistogram> phase : phases.entrySet()) {
+            LatencyHistogram histogram = phase.getValue();
+            System.out.printf("%-24s %10d %12.1f %12.1f %12.1f %12.1f%n", phase.getKey(), histogram.count(),
+                    histogram.percentile(0.50) / 1e3, histogram.percentile(0.90) / 1e3,
+                    histogram.percentile(0.99) / 1e3, histogram.max() / 1e3);
+        }
+    }
+
+    /**
+     * Collects the durations of the game's events in a recording
+     * @param recording The .jfr file
+     * @return A histogram of durations in nanoseconds for each phase, by phase name
+     * @throws IOException if the recording can't be read
+     */
+    public static SortedMap<String, LatencyHistogram> summarize(Path recording) throws IOException {
+        SortedMap<String, LatencyHistogram> phases = new TreeMap<>();
+        try (RecordingFile file = new RecordingFile(recording)) {
+            while (file.hasMoreEvents()) {
+                RecordedEvent event = file.readEvent();
+                String name = event.getEventType().getName();
+                if (name.startsWith(GameEvents.PREFIX)) {
+                    phases.computeIfAbsent(phaseOf(event, name.substring(GameEvents.PREFIX.length())),
+                            phase -> new LatencyHistogram()).record(event.getDuration().toNanos());
+                }
+            }
+        }
+        return phases;
+    }
+
+    private static String phaseOf(RecordedEvent event, String type) {
+        return switch (type) {
+            case "CorpusLoad" -> type + " " + event.getString("source");
+            case "Hint" -> type + " " + event.getString("action");
+            default -> type;
+        };
+    }
+}
@@ -0,0 +1,89 @@
+import static org.junit.Assert.*;
+import org.junit.Test;
+import java.nio.file.*;
+import java.util.*;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+public class TraceReportTests {
+
+    private static Recording recording() {
+        Recording recording = new Recording();
+        for (Class<? extends jdk.jfr.Event> type : List.of(GameEvents.CorpusLoad.class, GameEvents.Selection.class,
+                GameEvents.AnswerCheck.class, GameEvents.Hint.class, GameEvents.InputWait.class)) {
+            recording.enable(type).withoutStackTrace();
+        }
+        return recording;
+    }
+
+    private static GameSession newGame(TextCorpus corpus) {
+        return GameSession.newGame(corpus, new ArrayDeque<>(List.of(corpus.get(0))), () -> "wrong", () -> "right",
+                Renderer.CONSOLE_PLAIN, (bytes, offset, length) -> {});
+    }
+
+    // Test 1: Guesses, hints and waits are recorded with the riddle and attempt
+    @Test
+    public void testSessionEvents() throws Exception {
+        TextCorpus corpus = new TextCorpus();
+        corpus.addRiddle("EGG", "WHAT HAS TO BE BROKEN BEFORE YOU CAN USE IT?");
+        corpus.addHints("EGG", List.of("CHICKEN", "BREAKFAST", "SHELL"));
+        Path file = Files.createTempFile("trace", ".jfr");
+        try (Recording recording = recording()) {
+            recording.start();
+            GameSession session = newGame(corpus);
+            session.start();
+            for (String line : List.of("a", "b", "c", "y", "egg")) {
+                session.onInput(line);
+            }
+            recording.stop();
+            recording.dump(file);
+
+            List<RecordedEvent> checks = new ArrayList<>();
+            List<RecordedEvent> hints = new ArrayList<>();
+            for (RecordedEvent event : RecordingFile.readAllEvents(file)) {
+                switch (event.getEventType().getName()) {
+                    case "riddle.AnswerCheck" -> checks.add(event);
+                    case "riddle.Hint" -> hints.add(event);
+                    default -> { }
+                }
+            }
+            assertEquals("One check per guess", 4, checks.size());
+            RecordedEvent last = checks.get(3);
+            assertEquals("Checks carry the riddle", corpus.get(0).id(), last.getInt("riddleId"));
+            assertEquals("The right guess was the fourth", 4, last.getInt("attempt"));
+            assertTrue("The last guess was right", last.getBoolean("correct"));
+            assertEquals("An offer and a shown hint", List.of("offered", "shown"),
+                    hints.stream().map(event -> event.getString("action")).toList());
+
+            Map<String, LatencyHistogram> phases = TraceReport.summarize(file);
+            assertEquals("One wait per line typed", 5, phases.get("InputWait").count());
+            assertEquals("Phases split by hint action", 1, phases.get("Hint shown").count());
+        }
+        finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    // Test 2: Loading and dealing are recorded as phases of their own
+    @Test
+    public void testLoadAndSelection() throws Exception {
+        Path file = Files.createTempFile("trace", ".jfr");
+        try (Recording recording = recording()) {
+            recording.start();
+            Riddle game = new Riddle();
+            game.loadCorpus();
+            game.newSession(Renderer.CONSOLE_PLAIN, (bytes, offset, length) -> {});
+            recording.stop();
+            recording.dump(file);
+
+            Map<String, LatencyHistogram> phases = TraceReport.summarize(file);
+            assertEquals("One corpus load", 1, phases.get("CorpusLoad corpus").count());
+            assertEquals("One game dealt", 1, phases.get("Selection").count());
+            assertNull("No guesses were made", phases.get("AnswerCheck"));
+        }
+        finally {
+            Files.deleteIfExists(file);
+        }
+    }
+}
@@ -0,0 +1,76 @@
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Collects one turn of game output so it can be handed to a GameOutput in a single write.
+ * Pre-encoded text is copied straight in and plain ASCII strings are copied
+ * without going through a charset encoder. There is one buffer per thread,
+ * reused for every turn that thread renders.
+ */
+public class TurnBuffer {
+    private static final ThreadLocal<TurnBuffer> BUFFERS = ThreadLocal.withInitial(TurnBuffer::new);
+
+    private byte[] bytes = new byte[1024];
+    private int size;
+
+    /**
+     * @return This thread's buffer, emptied
+     */
+    public static TurnBuffer forCurrentThread() {
+        TurnBuffer buffer = BUFFERS.get();
+        buffer.size = 0;
+        return buffer;
+    }
+
+    public TurnBuffer append(byte[] encoded) {
+        ensureCapacity(encoded.length);
+        System.arraycopy(encoded, 0, bytes, size, encoded.length);
+        size += encoded.length;
+        return this;
+    }
+
+    public TurnBuffer append(String text) {
+        int length = text.length();
+        ensureCapacity(length);
+        for (int i = 0; i < length; i++) {
+            char c = text.charAt(i);
+            if (c >= 0x80) {
+                return appendUtf8(text, i);
+            }
+            bytes[size + i] = (byte) c;
+        }
+        size += length;
+        return this;
+    }
+
+    private TurnBuffer appendUtf8(String text, int asciiPrefix) {
+        size += asciiPrefix;
+        return append(text.substring(asciiPrefix).getBytes(StandardCharsets.UTF_8));
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Sends the buffered turn to the output and empties the buffer
+     * @param out Where to send it
+     */
+    public void writeTo(GameOutput out) {
+        if (size > 0) {
+            out.write(bytes, 0, size);
+            size = 0;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return new String(bytes, 0, size, StandardCharsets.UTF_8);
+    }
+
+    private void ensureCapacity(int extra) {
+        if (size + extra > bytes.length) {
+            bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, size + extra));
+        }
+    }
+}